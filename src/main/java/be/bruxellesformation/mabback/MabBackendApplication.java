@@ -2,8 +2,10 @@ package be.bruxellesformation.mabback;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class MabBackendApplication {
 
     public static void main(String[] args) {
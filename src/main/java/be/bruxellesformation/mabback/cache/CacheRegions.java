@@ -0,0 +1,17 @@
+package be.bruxellesformation.mabback.cache;
+
+/**
+ * Names of the Hibernate second-level cache regions. Each region is sized and given an expiry in ehcache.xml.
+ */
+public final class CacheRegions {
+
+    public static final String CULTURE = "mab.culture";
+    public static final String CULTURE_QUERIES = "mab.culture-queries";
+    public static final String AUTHORITY = "mab.authority";
+    public static final String USER = "mab.user";
+    public static final String USER_AUTHORITIES = "mab.user.authorities";
+    public static final String USER_QUERIES = "mab.user-queries";
+
+    private CacheRegions() {
+    }
+}
@@ -0,0 +1,63 @@
+package be.bruxellesformation.mabback.coalescing;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The status, headers and serialized body of a response, to replay it for the followers of a coalesced request.
+ */
+final class CapturedResponse {
+
+    private final int status;
+    private final String contentType;
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+
+    private CapturedResponse(int status, String contentType, Map<String, List<String>> headers, byte[] body) {
+        this.status = status;
+        this.contentType = contentType;
+        this.headers = headers;
+        this.body = body;
+    }
+
+    static CapturedResponse of(HttpServletResponse response, byte[] body) {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()) {
+            Collection<String> values = response.getHeaders(name);
+            headers.put(name, new ArrayList<>(values));
+        }
+        return new CapturedResponse(response.getStatus(), response.getContentType(), headers, body);
+    }
+
+    /**
+     * Writes the response. The headers replace those already set, like the CORS headers the follower received from
+     * its own filters.
+     */
+    void writeTo(HttpServletResponse response) throws IOException {
+        response.setStatus(status);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            List<String> values = header.getValue();
+            if (values.isEmpty()) {
+                continue;
+            }
+            response.setHeader(header.getKey(), values.get(0));
+            for (int i = 1; i < values.size(); i++) {
+                response.addHeader(header.getKey(), values.get(i));
+            }
+        }
+        if (contentType != null) {
+            response.setContentType(contentType);
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    int length() {
+        return body.length;
+    }
+}
@@ -0,0 +1,107 @@
+package be.bruxellesformation.mabback.coalescing;
+
+import be.bruxellesformation.mabback.tenancy.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Coalesces the identical concurrent reads of the hot paths "/expo/{id}", "/culture" and "/collections/{id}": while
+ * one request runs the query and the serialization, the identical requests arriving meanwhile wait for its response
+ * and receive a copy of its bytes.
+ * Runs before the concurrency limiter, so only the leader of a burst takes a slot of the limit.
+ * The counter "mab.coalescing.requests" tells the role of each request : leader, follower, timeout or fallback.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 20)
+@ConditionalOnProperty(prefix = "mab.coalescing", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class RequestCoalescingFilter extends OncePerRequestFilter {
+
+    private static final Pattern COALESCED = Pattern.compile("/expo/\\d+|/culture|/collections/[^/]+");
+
+    private final SingleFlight<String, CapturedResponse> singleFlight = new SingleFlight<>();
+    private final long timeoutMillis;
+    private final Map<SingleFlight.Role, Counter> requests = new EnumMap<>(SingleFlight.Role.class);
+
+    public RequestCoalescingFilter(ObjectProvider<MeterRegistry> meterRegistry,
+                                   @Value("${mab.coalescing.timeout:2s}") Duration timeout) {
+        this.timeoutMillis = timeout.toMillis();
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        for (SingleFlight.Role role : SingleFlight.Role.values()) {
+            requests.put(role, Counter.builder("mab.coalescing.requests")
+                    .tag("role", role.name().toLowerCase()).register(registry));
+        }
+        Gauge.builder("mab.coalescing.in-flight", singleFlight, SingleFlight::inFlight).register(registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod()) || !COALESCED.matcher(path(request)).matches();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        SingleFlight.Outcome<CapturedResponse> outcome;
+        try {
+            outcome = singleFlight.execute(key(request), () -> {
+                chain.doFilter(request, wrapper);
+                return CapturedResponse.of(wrapper, wrapper.getContentAsByteArray());
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (IOException | ServletException | RuntimeException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new ServletException(exception);
+        }
+
+        requests.get(outcome.getRole()).increment();
+        if (outcome.getRole() == SingleFlight.Role.FOLLOWER) {
+            outcome.getValue().writeTo(response);
+        } else {
+            // This request ran the chain itself, its body is still in the wrapper
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * The requests sharing a response : same museum, same path, same parameters, same negotiated format.
+     */
+    static String key(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(TenantContext.current()).append(' ').append(path(request));
+        if (request.getQueryString() != null) {
+            key.append('?').append(request.getQueryString());
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept != null) {
+            key.append(" accept=").append(accept);
+        }
+        return key.toString();
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
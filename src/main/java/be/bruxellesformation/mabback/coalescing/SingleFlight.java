@@ -0,0 +1,95 @@
+package be.bruxellesformation.mabback.coalescing;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a single load per key at a time: the concurrent callers of a key in flight wait for the result of the first
+ * one instead of loading it again. Nothing is kept once the load is over, this is not a cache.
+ * @param <K> the type of the keys
+ * @param <V> the type of the results
+ */
+public class SingleFlight<K, V> {
+
+    /**
+     * How a caller got its result.
+     */
+    public enum Role {
+        /** Loaded the result, and shared it with the followers. */
+        LEADER,
+        /** Received the result of the leader. */
+        FOLLOWER,
+        /** Waited too long for the leader and loaded the result itself. */
+        TIMEOUT,
+        /** The leader failed, the follower loaded the result itself. */
+        FALLBACK
+    }
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param key the key of the load
+     * @param loader the load, run by the leader, or by a follower whose leader failed or was too slow
+     * @param timeout how long a follower waits for the leader
+     * @param unit the unit of the timeout
+     * @return the result and how it was obtained
+     * @throws Exception the exception of the loader
+     */
+    public Outcome<V> execute(K key, Callable<V> loader, long timeout, TimeUnit unit) throws Exception {
+        CompletableFuture<V> leader = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, leader);
+        if (existing == null) {
+            try {
+                V value = loader.call();
+                leader.complete(value);
+                return new Outcome<>(value, Role.LEADER);
+            } catch (Exception | Error exception) {
+                leader.completeExceptionally(exception);
+                throw exception;
+            } finally {
+                inFlight.remove(key, leader);
+            }
+        }
+        try {
+            return new Outcome<>(existing.get(timeout, unit), Role.FOLLOWER);
+        } catch (TimeoutException exception) {
+            return new Outcome<>(loader.call(), Role.TIMEOUT);
+        } catch (ExecutionException exception) {
+            return new Outcome<>(loader.call(), Role.FALLBACK);
+        }
+    }
+
+    /**
+     * @return the number of keys being loaded
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * A result and the role of the caller.
+     * @param <V> the type of the result
+     */
+    public static final class Outcome<V> {
+        private final V value;
+        private final Role role;
+
+        Outcome(V value, Role role) {
+            this.value = value;
+            this.role = role;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public Role getRole() {
+            return role;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package be.bruxellesformation.mabback.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single datasource by a primary and its read replicas when "mab.datasource.routing.enabled" is true.
+ * Each database gets its own Hikari pool, reporting its metrics under its own pool name.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "mab.datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(RoutingDataSourceProperties.class)
+public class DataSourceRoutingConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                             RoutingDataSourceProperties routingProperties,
+                                                             Environment environment,
+                                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        // The primary is configured like the default datasource, "spring.datasource.hikari.*" included
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("mab-primary");
+        instrument(primary, meterRegistry);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        List<RoutingDataSourceProperties.Replica> replicaProperties = routingProperties.getReplicas();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            RoutingDataSourceProperties.Replica properties = replicaProperties.get(i);
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("mab-replica-" + i);
+            replica.setJdbcUrl(properties.getUrl());
+            replica.setUsername(properties.getUsername());
+            replica.setPassword(properties.getPassword());
+            replica.setMaximumPoolSize(properties.getMaximumPoolSize());
+            replica.setMinimumIdle(properties.getMinimumIdle());
+            replica.setReadOnly(true);
+            instrument(replica, meterRegistry);
+            replicas.add(replica);
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas,
+                routingProperties.getStickyWindow(), routingProperties.getHealthCheckInterval());
+    }
+
+    /**
+     * The datasource used by JPA and the initializers. The lazy proxy only fetches the physical connection on the
+     * first statement, once the transaction tells if it is read-only.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    private static void instrument(HikariDataSource pool, ObjectProvider<MeterRegistry> meterRegistry) {
+        meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+    }
+}
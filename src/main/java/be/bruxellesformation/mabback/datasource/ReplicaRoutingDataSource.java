@@ -0,0 +1,187 @@
+package be.bruxellesformation.mabback.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes the connections between the primary database and its read replicas.
+ * Read-only transactions go to a healthy replica chosen in round-robin, everything else goes to the primary.
+ * A user who has just written stays on the primary for a short window, so that the next reads of that user see
+ * the write.
+ * Must be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, otherwise the
+ * connection is fetched before the read-only flag of the transaction is known.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    static final String PRIMARY = "primary";
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final long stickyWindowNanos;
+    private final long healthCheckIntervalMillis;
+    private ScheduledExecutorService healthChecker;
+
+    /**
+     * Creates the routing datasource.
+     * @param primary the pool of the primary database, receiving all the writes
+     * @param replicaPools the pools of the read replicas, in the order of their keys "replica-0", "replica-1"...
+     * @param stickyWindow how long a user keeps reading from the primary after a write
+     * @param healthCheckInterval the delay between two checks of the replicas
+     */
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicaPools,
+                                    Duration stickyWindow, Duration healthCheckInterval) {
+        this.primary = primary;
+        this.stickyWindowNanos = stickyWindow.toNanos();
+        this.healthCheckIntervalMillis = healthCheckInterval.toMillis();
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicaPools.size(); i++) {
+            Replica replica = new Replica("replica-" + i, replicaPools.get(i));
+            replicas.add(replica);
+            targets.put(replica.key, replica.pool);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        if (!replicas.isEmpty() && healthCheckIntervalMillis > 0) {
+            healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replica-health-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthChecker.scheduleWithFixedDelay(this::checkReplicas,
+                    healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String user = currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (user != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                lastWrites.put(user, System.nanoTime());
+            }
+            return PRIMARY;
+        }
+        if (user != null && isSticky(user)) {
+            return PRIMARY;
+        }
+        return nextHealthyReplica();
+    }
+
+    /**
+     * Validates a connection of each replica and takes the failing ones out of the rotation until they answer again.
+     * Also forgets the writes older than the sticky window.
+     */
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.pool.getConnection()) {
+                healthy = connection.isValid(1);
+            } catch (SQLException exception) {
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                logger.warn("replica '{}' is now {}", replica.key, healthy ? "healthy" : "unhealthy");
+            }
+            replica.healthy = healthy;
+        }
+        long now = System.nanoTime();
+        lastWrites.values().removeIf(time -> now - time > stickyWindowNanos);
+    }
+
+    /**
+     * @return the keys of the replicas currently in the rotation
+     */
+    public List<String> healthyReplicas() {
+        List<String> healthy = new ArrayList<>();
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy.add(replica.key);
+            }
+        }
+        return Collections.unmodifiableList(healthy);
+    }
+
+    @Override
+    public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+        primary.close();
+    }
+
+    private boolean isSticky(String user) {
+        Long lastWrite = lastWrites.get(user);
+        return lastWrite != null && System.nanoTime() - lastWrite < stickyWindowNanos;
+    }
+
+    private Object nextHealthyReplica() {
+        int size = replicas.size();
+        if (size == 0) {
+            return PRIMARY;
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica.key;
+            }
+        }
+        // No replica available, the primary can still answer
+        return PRIMARY;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    private static class Replica {
+        private final String key;
+        private final HikariDataSource pool;
+        private volatile boolean healthy = true;
+
+        private Replica(String key, HikariDataSource pool) {
+            this.key = key;
+            this.pool = pool;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package be.bruxellesformation.mabback.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings of the read replicas, bound from the "mab.datasource.routing" properties.
+ * The primary database keeps using the standard "spring.datasource" properties.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "mab.datasource.routing")
+public class RoutingDataSourceProperties {
+
+    private boolean enabled = false;
+    private Duration stickyWindow = Duration.ofSeconds(5);
+    private Duration healthCheckInterval = Duration.ofSeconds(10);
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 5;
+        private int minimumIdle = 1;
+    }
+}
@@ -9,6 +9,7 @@ import lombok.Setter;
 
 import javax.persistence.*;
 import java.time.LocalDate;
+import java.util.Locale;
 
 /** Project : Musée Archéologique de Brüsel
  * File Name : Artefact.java
@@ -32,6 +33,9 @@ public class Artefact {
 	private String type;
 	private String material;
 	private String localisation;
+	// Normalized localisation, the room inventory looks artefacts up by it
+	@JsonIgnore
+	private String locationKey;
 	private String imageURL;
 	private boolean onPermanentDisplay = false;
 	private boolean inExposition = false;
@@ -159,4 +163,24 @@ public class Artefact {
 
 	}
 
+	/** Keeps the location key in line with the localisation, whatever the method that changed it.
+	 */
+	@PrePersist
+	@PreUpdate
+	public void updateLocationKey() {
+		this.locationKey = locationKey(localisation);
+	}
+
+	/** Normalizes a localisation, so that "Room 27" and "room  27 " are the same room.
+	 * @param localisation a localisation as typed
+	 * @return the localisation trimmed, its blanks collapsed and in lower case, or null if blank
+	 */
+	public static String locationKey(String localisation) {
+		if (localisation == null) {
+			return null;
+		}
+		String key = localisation.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+		return key.isEmpty() ? null : key;
+	}
+
 }
\ No newline at end of file
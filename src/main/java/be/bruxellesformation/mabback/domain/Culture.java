@@ -1,10 +1,13 @@
 package be.bruxellesformation.mabback.domain;
 
 
+import be.bruxellesformation.mabback.cache.CacheRegions;
 import com.fasterxml.jackson.annotation.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.List;
@@ -16,6 +19,8 @@ import java.util.List;
  */
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.CULTURE)
 @Getter
 @Setter
 @NoArgsConstructor
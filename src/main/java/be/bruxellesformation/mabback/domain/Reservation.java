@@ -0,0 +1,48 @@
+package be.bruxellesformation.mabback.domain;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Booking of an artefact for a future exposition, from the start date to the end date of the exposition, both
+ * included. Two reservations of the same artefact never overlap.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+public class Reservation {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private long id;
+
+	private String artefactIdentification;
+	private long expositionId;
+	private LocalDate startDate;
+	private LocalDate endDate;
+	@Enumerated(EnumType.STRING)
+	private ReservationStatus status = ReservationStatus.PLANNED;
+
+	/*
+	 * -------------
+	 * Constructor
+	 * -------------
+	 */
+
+	/**
+	 * Create a new planned reservation, for the dates of the exposition.
+	 * @param artefactIdentification the identification of the reserved artefact
+	 * @param exposition the exposition the artefact is reserved for
+	 */
+	public Reservation(String artefactIdentification, Exposition exposition) {
+		this.artefactIdentification = artefactIdentification;
+		this.expositionId = exposition.getId();
+		this.startDate = exposition.getStartDate();
+		this.endDate = exposition.getEndDate();
+	}
+}
@@ -0,0 +1,13 @@
+package be.bruxellesformation.mabback.domain;
+
+/**
+ * Lifecycle of a {@link Reservation}.
+ */
+public enum ReservationStatus {
+	// Waiting for the start date of the exposition
+	PLANNED,
+	// The artefact has been added to the exposition
+	LIVE,
+	// The end date of the exposition is past, the reservation no longer blocks the artefact
+	ENDED
+}
@@ -0,0 +1,24 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * One change of the localisation of an artefact, as kept in its history.
+ */
+@Getter
+@AllArgsConstructor
+public class ArtefactMovement {
+
+    private final String identification;
+    // Null for the entry of the artefact in the collection
+    private final String fromLocalisation;
+    private final String toLocalisation;
+    // The exposition the artefact entered, null otherwise
+    private final Long expositionId;
+    // Null when the move was not made by an authenticated user
+    private final String movedBy;
+    private final Instant movedAt;
+}
@@ -0,0 +1,27 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Usage counters of one region of the Hibernate second-level cache.
+ */
+@Getter
+@AllArgsConstructor
+public class CacheRegionUsage {
+
+    private final String region;
+    private final long hits;
+    private final long misses;
+    private final long puts;
+    // -1 when the cache provider cannot count its entries
+    private final long entriesInMemory;
+
+    /**
+     * @return the share of the lookups answered by the cache, between 0 and 1. 0 if the region was never read.
+     */
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,26 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The figures of the collection for the dashboard. The breakdowns are sorted from the largest count.
+ */
+@Getter
+@AllArgsConstructor
+public class CollectionStatistics {
+
+    private final long artefacts;
+    private final long onPermanentDisplay;
+    private final long inExposition;
+    // Neither on permanent display nor in an exposition
+    private final long inReserve;
+    // Over all the expositions
+    private final long visitors;
+    private final List<StatisticsCount> byCulture;
+    private final List<StatisticsCount> byType;
+    private final List<StatisticsCount> byMaterial;
+    private final List<StatisticsCount> byExposition;
+}
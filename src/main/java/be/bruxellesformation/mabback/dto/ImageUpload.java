@@ -0,0 +1,21 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Answer to an image upload: the urls to store in the image fields of the catalogue.
+ */
+@Getter
+@AllArgsConstructor
+public class ImageUpload {
+
+    private final String hash;
+    private final String url;
+    // Url of each rendition by name, like "thumb" for the gallery grids
+    private final Map<String, String> renditions;
+    // False when the renditions will only be generated on their first request
+    private final boolean renditionsQueued;
+}
@@ -0,0 +1,26 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * One difference between the artefacts scanned in a room and those recorded there.
+ */
+@Getter
+@AllArgsConstructor
+public class InventoryDiscrepancy {
+
+    public enum Status {
+        // Recorded in the room but not scanned
+        MISSING,
+        // Scanned in the room but recorded elsewhere
+        MISPLACED,
+        // Scanned but unknown to the collection
+        UNEXPECTED
+    }
+
+    private final String identification;
+    private final Status status;
+    // The localisation recorded for the artefact, null if it is unknown
+    private final String localisation;
+}
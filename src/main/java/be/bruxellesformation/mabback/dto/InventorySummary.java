@@ -0,0 +1,23 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The totals of the reconciliation of a room, sent after its discrepancies.
+ */
+@Getter
+@AllArgsConstructor
+public class InventorySummary {
+
+    private final String room;
+    // Distinct identifications scanned
+    private final long scanned;
+    // Recorded in the room
+    private final long expected;
+    // Both scanned and recorded in the room
+    private final long found;
+    private final long missing;
+    private final long misplaced;
+    private final long unexpected;
+}
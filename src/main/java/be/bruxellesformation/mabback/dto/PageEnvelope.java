@@ -0,0 +1,21 @@
+package be.bruxellesformation.mabback.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Compact form of a page : the items, the cursor of the next page and, on request, the total number of items.
+ * The cursor is null on the last page.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PageEnvelope<T> {
+
+    private final List<T> items;
+    private final String cursor;
+    private final Long total;
+}
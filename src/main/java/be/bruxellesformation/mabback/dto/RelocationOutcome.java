@@ -0,0 +1,24 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * What happened to one artefact of a bulk relocation.
+ */
+@Getter
+@AllArgsConstructor
+public class RelocationOutcome {
+
+    public enum Status {
+        MOVED,
+        NOT_FOUND,
+        // Left in place, an artefact in an exposition must be taken out of it first
+        IN_EXPOSITION,
+        // The transaction of its chunk failed, the artefact was not moved
+        FAILED
+    }
+
+    private final String identification;
+    private final Status status;
+}
@@ -0,0 +1,18 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Answer to a bulk relocation, with the outcome of each artefact in the order of the request.
+ */
+@Getter
+@AllArgsConstructor
+public class RelocationReport {
+
+    private final String localisation;
+    private final int moved;
+    private final List<RelocationOutcome> outcomes;
+}
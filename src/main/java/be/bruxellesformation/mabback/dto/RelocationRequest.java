@@ -0,0 +1,23 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Body of a bulk relocation. The artefacts are given by exactly one of : their identifications, the room they are
+ * in, or their culture.
+ * The destination is a room, or "reserves" like for the move of a single artefact.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class RelocationRequest {
+
+    private List<String> identifications;
+    private String fromRoom;
+    private Long cultureId;
+    private String destination;
+}
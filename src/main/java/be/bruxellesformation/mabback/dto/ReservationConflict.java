@@ -0,0 +1,20 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * An artefact already taken by an exposition during part of the requested dates, by a reservation or because it is
+ * on display in that exposition.
+ */
+@Getter
+@AllArgsConstructor
+public class ReservationConflict {
+
+    private final String identification;
+    private final long expositionId;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+}
@@ -0,0 +1,23 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Body of a reservation of artefacts for an exposition, or of an availability check between two dates.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class ReservationRequest {
+
+    private List<String> identifications;
+    // For a reservation, the dates are those of the exposition
+    private Long expositionId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+}
@@ -0,0 +1,19 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * What a room holds, for the inventory.
+ */
+@Getter
+@AllArgsConstructor
+public class RoomSummary {
+
+    // The normalized localisation, see Artefact.locationKey
+    private final String key;
+    // The localisation as typed, the first in alphabetical order when it is typed in several ways
+    private final String label;
+    private final long artefacts;
+    private final long onPermanentDisplay;
+}
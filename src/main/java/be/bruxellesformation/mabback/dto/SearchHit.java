@@ -0,0 +1,24 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * An entity found by the fuzzy search, with its similarity to the query between 0 and 1.
+ */
+@Getter
+@AllArgsConstructor
+public class SearchHit {
+
+    public enum Kind {
+        ARTEFACT,
+        CULTURE,
+        EXPOSITION
+    }
+
+    private final Kind kind;
+    // The identification of an artefact, the id of a culture or an exposition
+    private final String id;
+    private final String label;
+    private final double score;
+}
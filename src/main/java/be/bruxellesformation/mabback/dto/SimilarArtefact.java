@@ -0,0 +1,20 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * An artefact close to another one, with the estimated share of their type, material, cultural phase, culture and
+ * period in common.
+ */
+@Getter
+@AllArgsConstructor
+public class SimilarArtefact {
+
+    private final String identification;
+    private final String name;
+    private final String type;
+    private final String material;
+    private final String imageURL;
+    private final double similarity;
+}
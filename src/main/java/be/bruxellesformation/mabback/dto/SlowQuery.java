@@ -0,0 +1,28 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A statement slower than the threshold of the slow query log.
+ */
+@Getter
+@AllArgsConstructor
+public class SlowQuery {
+
+    private final Instant executedAt;
+    private final String sql;
+    // One list of bound values per execution, several for a batch
+    private final List<List<String>> parameters;
+    private final double durationMillis;
+    // Rows read or updated, -1 while the results are being read or when the driver does not tell
+    private final long rows;
+    // Like "GET /collections/{id}", or the name of the thread outside a request
+    private final String endpoint;
+    private final String tenant;
+    // Null when the database cannot explain the statement
+    private final String plan;
+}
@@ -0,0 +1,17 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Number of artefacts sharing a value : a culture, a type, a material or an exposition.
+ */
+@Getter
+@AllArgsConstructor
+public class StatisticsCount {
+
+    // The id of the culture or exposition, the value itself for a type or a material
+    private final String key;
+    private final String label;
+    private final long artefacts;
+}
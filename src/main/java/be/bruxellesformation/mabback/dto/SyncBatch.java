@@ -0,0 +1,36 @@
+package be.bruxellesformation.mabback.dto;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.domain.Culture;
+import be.bruxellesformation.mabback.domain.Exposition;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Answer of the delta synchronization : the current state of the records changed since the token of the client, the
+ * deleted ones, and the token to send next time.
+ */
+@Getter
+@AllArgsConstructor
+public class SyncBatch {
+
+    private final String token;
+    // True if more changes are waiting, the client should call again with the new token at once
+    private final boolean hasMore;
+    private final List<Artefact> artefacts;
+    private final List<Culture> cultures;
+    private final List<Exposition> expositions;
+    private final List<Tombstone> deleted;
+
+    /**
+     * A deleted record, which the client must remove.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Tombstone {
+        private final String type;
+        private final String id;
+    }
+}
@@ -0,0 +1,17 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Number of artefacts and cultures whose dating overlaps a range of years, both bounds included.
+ */
+@Getter
+@AllArgsConstructor
+public class TimelineBucket {
+
+    private final int startYear;
+    private final int endYear;
+    private final long artefacts;
+    private final long cultures;
+}
@@ -0,0 +1,20 @@
+package be.bruxellesformation.mabback.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * The sampling of the requests measured phase by phase, read and changed at runtime through "/admin/timing".
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimingSettings {
+
+    private boolean enabled;
+    // Share of the requests measured, between 0 and 1
+    private double sampleRate;
+}
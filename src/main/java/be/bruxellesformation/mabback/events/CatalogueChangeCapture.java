@@ -0,0 +1,88 @@
+package be.bruxellesformation.mabback.events;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.domain.Culture;
+import be.bruxellesformation.mabback.domain.Exposition;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Publishes a {@link CatalogueChangeEvent} for every artefact, culture and exposition flushed by Hibernate, so that
+ * no write path of the controllers or the domain can be forgotten.
+ * The bulk updates bypass Hibernate and publish their events themselves.
+ */
+@Component
+public class CatalogueChangeCapture implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener {
+
+    private final transient ApplicationEventPublisher publisher;
+
+    public CatalogueChangeCapture(EntityManagerFactory entityManagerFactory, ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        publish(event.getEntity(), CatalogueChangeEvent.ChangeType.CREATED, event.getId());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        publish(event.getEntity(), CatalogueChangeEvent.ChangeType.UPDATED, event.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publish(event.getEntity(), CatalogueChangeEvent.ChangeType.DELETED, event.getId());
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    // Misspelled and deprecated, but still the abstract method of Hibernate 5.4
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    private void publish(Object entity, CatalogueChangeEvent.ChangeType changeType, Object id) {
+        CatalogueChangeEvent.EntityType entityType = entityType(entity);
+        if (entityType != null) {
+            publisher.publishEvent(new CatalogueChangeEvent(entityType, changeType, id));
+        }
+    }
+
+    /**
+     * @return the type of a catalogue entity, null for the other entities like the users
+     */
+    static CatalogueChangeEvent.EntityType entityType(Object entity) {
+        if (entity instanceof Artefact) {
+            return CatalogueChangeEvent.EntityType.ARTEFACT;
+        } else if (entity instanceof Culture) {
+            return CatalogueChangeEvent.EntityType.CULTURE;
+        } else if (entity instanceof Exposition) {
+            return CatalogueChangeEvent.EntityType.EXPOSITION;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,38 @@
+package be.bruxellesformation.mabback.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * Published when an artefact, a culture or an exposition is written. The listeners should use
+ * {@link org.springframework.transaction.event.TransactionalEventListener} to only see the committed changes.
+ * The event only names the entity : the listeners needing its values read them again.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogueChangeEvent {
+
+    public enum EntityType {
+        ARTEFACT,
+        CULTURE,
+        EXPOSITION
+    }
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final EntityType entityType;
+    private final ChangeType changeType;
+    // The identification of an artefact, the id of a culture or an exposition
+    private final String id;
+    private final Instant time;
+
+    public CatalogueChangeEvent(EntityType entityType, ChangeType changeType, Object id) {
+        this(entityType, changeType, String.valueOf(id), Instant.now());
+    }
+}
@@ -0,0 +1,233 @@
+package be.bruxellesformation.mabback.events;
+
+import be.bruxellesformation.mabback.invalidation.RemoteChangesEvent;
+import be.bruxellesformation.mabback.tenancy.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes the committed changes of the catalogue to the clients connected on "/changes" with Server-Sent Events.
+ * The connections are asynchronous requests, so thousands of idle clients hold no thread. Each client has its own
+ * bounded buffer, and a writer task sends it while it is not empty : a client reading slowly only holds its own
+ * writer. The publishers and the watchdog, shared by all the clients, never write on a connection : the watchdog
+ * asks for the heartbeats of the idle clients, and disconnects those whose send has been waiting longer than
+ * "sendTimeout".
+ */
+@Component
+public class ChangeFeed {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Set<ChangeSubscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor writers;
+    private final ScheduledExecutorService watchdog;
+    private final long timeoutMillis;
+    private final int bufferSize;
+    private final long heartbeatNanos;
+    private final long sendTimeoutNanos;
+    private final Counter dropped;
+    private final Counter disconnected;
+    private final Counter slowDisconnected;
+
+    /**
+     * @param writerThreads the maximum number of clients being written to at the same time, the others wait for the
+     *                      next round of the watchdog
+     */
+    public ChangeFeed(ObjectProvider<MeterRegistry> meterRegistry,
+                      @Value("${mab.changes.writer-threads:32}") int writerThreads,
+                      @Value("${mab.changes.buffer-size:256}") int bufferSize,
+                      @Value("${mab.changes.timeout:30m}") Duration timeout,
+                      @Value("${mab.changes.heartbeat:15s}") Duration heartbeat,
+                      @Value("${mab.changes.send-timeout:10s}") Duration sendTimeout) {
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeout.toMillis();
+        this.heartbeatNanos = heartbeat.toNanos();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        AtomicInteger threadCount = new AtomicInteger();
+        // No queue : a writer is started for a client, or the client waits in its own buffer
+        this.writers = new ThreadPoolExecutor(0, writerThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> daemon(runnable, "change-feed-" + threadCount.incrementAndGet()));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(
+                runnable -> daemon(runnable, "change-feed-watchdog"));
+        long period = Math.min(TimeUnit.SECONDS.toMillis(1), Math.min(heartbeat.toMillis(), sendTimeout.toMillis()));
+        watchdog.scheduleWithFixedDelay(this::watch, period, period, TimeUnit.MILLISECONDS);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.dropped = registry.counter("mab.changes.dropped");
+        this.disconnected = registry.counter("mab.changes.overflow-disconnects");
+        this.slowDisconnected = registry.counter("mab.changes.slow-disconnects");
+        Gauge.builder("mab.changes.subscribers", subscribers, Set::size).register(registry);
+    }
+
+    /**
+     * Opens the connection of a new client.
+     * @param types the types of entity wanted, all if empty
+     * @param ids the ids wanted, all if empty
+     * @param overflowPolicy what to do when the client reads too slowly
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter subscribe(Set<CatalogueChangeEvent.EntityType> types, Set<String> ids,
+                                OverflowPolicy overflowPolicy) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        add(new ChangeSubscriber(emitter, types, ids, overflowPolicy, bufferSize));
+        return emitter;
+    }
+
+    void add(ChangeSubscriber subscriber) {
+        SseEmitter emitter = subscriber.emitter();
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Buffers a committed change for the interested subscribers and schedules its sending.
+     * Runs immediately for the changes published outside of a transaction. The clients only receive the changes of
+     * their own museum.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(CatalogueChangeEvent event) {
+        String tenant = TenantContext.current();
+        for (ChangeSubscriber subscriber : subscribers) {
+            if (subscriber.isClosed() || !subscriber.tenant().equals(tenant) || !subscriber.accepts(event)) {
+                continue;
+            }
+            if (!subscriber.enqueue(event)) {
+                if (subscriber.isClosed()) {
+                    disconnected.increment();
+                } else {
+                    dropped.increment();
+                }
+            }
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Sends the changes committed by another node to the subscribers of this node.
+     */
+    @EventListener
+    public void onRemoteChanges(RemoteChangesEvent event) {
+        for (CatalogueChangeEvent change : event.getChanges()) {
+            onChange(change);
+        }
+    }
+
+    /**
+     * @return the number of connected clients
+     */
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+        writers.shutdownNow();
+        for (ChangeSubscriber subscriber : subscribers) {
+            subscriber.close();
+            subscriber.emitter().complete();
+        }
+        subscribers.clear();
+    }
+
+    /**
+     * Makes sure one writer task sends the buffer of the subscriber, without running two at the same time. When all
+     * the writers are busy, the buffer waits for the next round of the watchdog.
+     */
+    private void schedule(ChangeSubscriber subscriber) {
+        if (!subscriber.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            writers.execute(() -> write(subscriber));
+        } catch (RejectedExecutionException exception) {
+            subscriber.scheduled.set(false);
+            logger.debug("all the change feed writers are busy, sending later");
+        }
+    }
+
+    private void write(ChangeSubscriber subscriber) {
+        try {
+            subscriber.sendBuffered();
+        } catch (IOException | IllegalStateException exception) {
+            // The client is gone or the emitter already completed
+            subscriber.close();
+        }
+        subscriber.scheduled.set(false);
+        if (subscriber.isClosed()) {
+            // Completed here, the emitter being locked during a send
+            subscribers.remove(subscriber);
+            complete(subscriber);
+        } else if (subscriber.hasBuffered()) {
+            // A change arrived after the last poll, while this task was still marked as scheduled
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Disconnects the subscribers stuck in a send, asks for the heartbeats of the idle ones, and sends the buffers
+     * left waiting for a writer. Only flags and schedules : a slow client cannot block it.
+     */
+    private void watch() {
+        long now = System.nanoTime();
+        for (ChangeSubscriber subscriber : subscribers) {
+            if (subscriber.sendingFor(now) > sendTimeoutNanos) {
+                // The writer completes the emitter once the send fails or returns
+                if (subscribers.remove(subscriber)) {
+                    subscriber.close();
+                    slowDisconnected.increment();
+                }
+                continue;
+            }
+            if (subscriber.isClosed()) {
+                schedule(subscriber);
+                continue;
+            }
+            if (subscriber.idleFor(now) >= heartbeatNanos) {
+                subscriber.heartbeat();
+            }
+            if (subscriber.hasBuffered()) {
+                schedule(subscriber);
+            }
+        }
+    }
+
+    private void complete(ChangeSubscriber subscriber) {
+        try {
+            subscriber.emitter().complete();
+        } catch (IllegalStateException exception) {
+            logger.debug("change feed subscriber already completed", exception);
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,88 @@
+package be.bruxellesformation.mabback.events;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Journal of the changes of the catalogue in the "change_log" table, read by the delta synchronization.
+ * Unlike the other listeners of {@link CatalogueChangeEvent}, it writes synchronously, in the transaction of the change :
+ * an entry exists if and only if its change is committed. The "seq" column numbers the entries in the order of the
+ * commits : it is taken from the single row of "change_log_counter", whose lock the transaction keeps until it ends.
+ * Once an entry can be read, all the entries before it are committed, so a reader never skips a late transaction.
+ * The price is that the transactions changing the catalogue commit one after the other, from their first change on.
+ */
+@Component
+public class ChangeLog {
+
+    private static final String NEXT_SEQ = "UPDATE change_log_counter SET last_seq = last_seq + 1 WHERE id = 1";
+    private static final String LAST_SEQ = "SELECT last_seq FROM change_log_counter WHERE id = 1";
+    private static final String INSERT = "INSERT INTO change_log (seq, entity_type, entity_id, change_type, changed_at) "
+            + "VALUES (?, ?, ?, ?, ?)";
+    private static final String SELECT = "SELECT seq, entity_type, entity_id, change_type, changed_at "
+            + "FROM change_log WHERE seq > ? ORDER BY seq LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ChangeLog(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Writes the change with the connection of the current transaction, which locks the counter until it ends.
+     */
+    @EventListener
+    public void onChange(CatalogueChangeEvent event) {
+        jdbcTemplate.update(NEXT_SEQ);
+        jdbcTemplate.update(INSERT, last(), event.getEntityType().name(), event.getId(), event.getChangeType().name(),
+                Timestamp.from(event.getTime()));
+    }
+
+    /**
+     * @param since the last sequence number already read
+     * @param limit the maximum number of entries
+     * @return the following entries, in the order of their sequence numbers
+     */
+    public List<Entry> after(long since, int limit) {
+        return jdbcTemplate.query(SELECT, (resultSet, row) -> new Entry(
+                resultSet.getLong("seq"),
+                new CatalogueChangeEvent(
+                        CatalogueChangeEvent.EntityType.valueOf(resultSet.getString("entity_type")),
+                        CatalogueChangeEvent.ChangeType.valueOf(resultSet.getString("change_type")),
+                        resultSet.getString("entity_id"),
+                        resultSet.getTimestamp("changed_at").toInstant())), since, limit);
+    }
+
+    /**
+     * @return the sequence number of the last committed entry, all those before being committed too, 0 if there is
+     * none
+     */
+    public long last() {
+        Long seq = jdbcTemplate.queryForObject(LAST_SEQ, Long.class);
+        return seq != null ? seq : 0;
+    }
+
+    /**
+     * A change and its sequence number.
+     */
+    public static final class Entry {
+        private final long seq;
+        private final CatalogueChangeEvent change;
+
+        Entry(long seq, CatalogueChangeEvent change) {
+            this.seq = seq;
+            this.change = change;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public CatalogueChangeEvent getChange() {
+            return change;
+        }
+    }
+}
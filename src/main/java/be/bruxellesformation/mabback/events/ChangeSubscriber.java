@@ -0,0 +1,172 @@
+package be.bruxellesformation.mabback.events;
+
+import be.bruxellesformation.mabback.tenancy.TenantContext;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One client of the change feed : its filter, its bounded buffer and its connection.
+ * The connection is an asynchronous request : an idle subscriber holds no thread. Only the writer task of the
+ * subscriber sends on its connection, the heartbeats included, so that a client reading slowly never blocks a thread
+ * shared with the others.
+ */
+class ChangeSubscriber {
+
+    // The museum of the client, set by the request subscribing
+    private final String tenant = TenantContext.current();
+    private final SseEmitter emitter;
+    private final Set<CatalogueChangeEvent.EntityType> types;
+    private final Set<String> ids;
+    private final OverflowPolicy overflowPolicy;
+    private final int capacity;
+    private final ArrayDeque<Notification> buffer;
+    // Numbers the accepted changes, a gap in the ids tells the client it missed some
+    private long accepted;
+    // True while a writer task is scheduled to send the buffer
+    final AtomicBoolean scheduled = new AtomicBoolean();
+    private boolean heartbeatDue;
+    private volatile boolean closed;
+    // When the send in progress started, 0 if none
+    private volatile long sendingSince;
+    private volatile long lastSent = System.nanoTime();
+
+    /**
+     * @param types the types of entity wanted, all if empty
+     * @param ids the ids wanted, all if empty
+     */
+    ChangeSubscriber(SseEmitter emitter, Set<CatalogueChangeEvent.EntityType> types, Set<String> ids,
+                     OverflowPolicy overflowPolicy, int capacity) {
+        this.emitter = emitter;
+        this.types = types != null ? types : Collections.emptySet();
+        this.ids = ids != null ? ids : Collections.emptySet();
+        this.overflowPolicy = overflowPolicy;
+        this.capacity = capacity;
+        this.buffer = new ArrayDeque<>(Math.min(capacity, 64));
+    }
+
+    String tenant() {
+        return tenant;
+    }
+
+    boolean accepts(CatalogueChangeEvent event) {
+        return (types.isEmpty() || types.contains(event.getEntityType()))
+                && (ids.isEmpty() || ids.contains(event.getId()));
+    }
+
+    /**
+     * Buffers a change without blocking the publisher.
+     * @return false if the buffer was full, in which case the overflow policy has been applied
+     */
+    synchronized boolean enqueue(CatalogueChangeEvent event) {
+        Notification notification = new Notification(++accepted, event);
+        if (buffer.size() < capacity) {
+            buffer.addLast(notification);
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+            buffer.pollFirst();
+            buffer.addLast(notification);
+        } else {
+            buffer.clear();
+            closed = true;
+        }
+        return false;
+    }
+
+    private synchronized Notification poll() {
+        return buffer.pollFirst();
+    }
+
+    synchronized boolean hasBuffered() {
+        return !buffer.isEmpty() || heartbeatDue;
+    }
+
+    /**
+     * Asks for a comment, sent with the buffer, which keeps the proxies from closing an idle connection and detects
+     * the departed clients.
+     */
+    synchronized void heartbeat() {
+        heartbeatDue = true;
+    }
+
+    private synchronized boolean takeHeartbeat() {
+        boolean due = heartbeatDue;
+        heartbeatDue = false;
+        return due;
+    }
+
+    /**
+     * Sends the buffered changes, then the heartbeat if one is due. Called by a single writer task at a time.
+     * @throws IOException if the client is gone
+     */
+    void sendBuffered() throws IOException {
+        Notification notification;
+        while (!closed && (notification = poll()) != null) {
+            send(SseEmitter.event()
+                    .id(Long.toString(notification.sequence))
+                    .name(notification.event.getEntityType().name().toLowerCase())
+                    .data(notification.event, MediaType.APPLICATION_JSON));
+        }
+        if (takeHeartbeat() && !closed) {
+            send(SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    private void send(SseEmitter.SseEventBuilder event) throws IOException {
+        sendingSince = System.nanoTime();
+        try {
+            emitter.send(event);
+        } finally {
+            sendingSince = 0;
+            lastSent = System.nanoTime();
+        }
+    }
+
+    /**
+     * @param now the current value of System.nanoTime()
+     * @return how long the send in progress has been waiting for the client, zero if none
+     */
+    long sendingFor(long now) {
+        long since = sendingSince;
+        return since != 0 ? now - since : 0;
+    }
+
+    /**
+     * @param now the current value of System.nanoTime()
+     * @return how long since the end of the last send, or since the subscription
+     */
+    long idleFor(long now) {
+        return now - lastSent;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    SseEmitter emitter() {
+        return emitter;
+    }
+
+    /**
+     * A change and its position in the feed of the subscriber, sent as the id of the event.
+     */
+    static final class Notification {
+        final long sequence;
+        final CatalogueChangeEvent event;
+
+        Notification(long sequence, CatalogueChangeEvent event) {
+            this.sequence = sequence;
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package be.bruxellesformation.mabback.events;
+
+/**
+ * What happens when a subscriber of the change feed reads slower than the changes arrive and its buffer is full.
+ */
+public enum OverflowPolicy {
+
+    /** The oldest waiting change is forgotten, the subscriber should resynchronize when it sees a gap in the ids. */
+    DROP_OLDEST,
+    /** The subscriber is disconnected, it resynchronizes when it reconnects. */
+    DISCONNECT
+}
@@ -19,6 +19,11 @@ public class GlobalExceptionHandler {
         }
     }
 
+    @ExceptionHandler(ReservationConflictException.class)
+    public ResponseEntity handleReservationConflict(ReservationConflictException exception){
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(exception.getConflicts());
+    }
+
     private ResponseEntity handleExpoException(ExpositionException exception){
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(exception.getMessage());
     }
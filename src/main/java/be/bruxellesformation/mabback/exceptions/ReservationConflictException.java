@@ -0,0 +1,19 @@
+package be.bruxellesformation.mabback.exceptions;
+
+import be.bruxellesformation.mabback.dto.ReservationConflict;
+
+import java.util.List;
+
+public class ReservationConflictException extends RuntimeException {
+
+    private final List<ReservationConflict> conflicts;
+
+    public ReservationConflictException(List<ReservationConflict> conflicts) {
+        super(conflicts.size() + " artefacts ne sont pas libres a ces dates");
+        this.conflicts = conflicts;
+    }
+
+    public List<ReservationConflict> getConflicts() {
+        return conflicts;
+    }
+}
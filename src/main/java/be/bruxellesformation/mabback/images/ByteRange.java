@@ -0,0 +1,86 @@
+package be.bruxellesformation.mabback.images;
+
+/**
+ * A single byte range of an HTTP "Range" header, like "bytes=0-1023", "bytes=1024-" or "bytes=-500".
+ * Multiple ranges are not supported: the whole file is then sent, as the HTTP specification allows.
+ */
+public final class ByteRange {
+
+    private static final String UNIT = "bytes=";
+    private static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    private final long start;
+    private final long end;
+
+    private ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parses a Range header against the length of the file.
+     * @param header the value of the header, can be null
+     * @param length the length of the file in bytes
+     * @return the range to send, or null if the whole file should be sent. The range is not satisfiable when it starts
+     * after the end of the file.
+     */
+    public static ByteRange parse(String header, long length) {
+        if (header == null || !header.startsWith(UNIT) || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring(UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        try {
+            if (first.isEmpty()) {
+                // Suffix range : the last bytes of the file
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(0, length - suffix), length - 1);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Long.parseLong(last);
+            if (start < 0) {
+                return null;
+            }
+            // Checked first : on an empty file, or for "bytes=1000-" on 1000 bytes, the end is before the start
+            if (start >= length) {
+                return UNSATISFIABLE;
+            }
+            if (end < start) {
+                return null;
+            }
+            return new ByteRange(start, Math.min(end, length - 1));
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    public boolean isSatisfiable() {
+        return this != UNSATISFIABLE;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return the position of the last byte of the range, inclusive like in the Content-Range header
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    public long getLength() {
+        return end - start + 1;
+    }
+}
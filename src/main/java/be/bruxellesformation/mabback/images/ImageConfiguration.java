@@ -0,0 +1,22 @@
+package be.bruxellesformation.mabback.images;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+@Configuration
+@EnableConfigurationProperties(ImageProperties.class)
+public class ImageConfiguration {
+
+    @Bean
+    public ImageStore imageStore(ImageProperties properties) {
+        return new ImageStore(Paths.get(properties.getDirectory()));
+    }
+
+    @Bean(destroyMethod = "close")
+    public RenditionPipeline renditionPipeline(ImageStore imageStore, ImageProperties properties) {
+        return new RenditionPipeline(imageStore, properties.getWorkerThreads(), properties.getQueueCapacity());
+    }
+}
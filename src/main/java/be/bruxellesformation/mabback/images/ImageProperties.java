@@ -0,0 +1,25 @@
+package be.bruxellesformation.mabback.images;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the image store, bound from the "mab.images" properties.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "mab.images")
+public class ImageProperties {
+
+    /** Directory holding the originals and their renditions, created if missing. */
+    private String directory = "images";
+    /** Threads generating the renditions. */
+    private int workerThreads = 2;
+    /** Images waiting for their renditions, further uploads are rendered on their first request. */
+    private int queueCapacity = 100;
+    /** Longest wait of a request for a rendition queued on its first request, ACCEPTED is answered after. */
+    private Duration renditionWait = Duration.ofSeconds(2);
+}
@@ -0,0 +1,36 @@
+package be.bruxellesformation.mabback.images;
+
+/**
+ * The reduced versions generated for each stored image, by largest side in pixels.
+ */
+public enum ImageRendition {
+
+    THUMB(200),
+    MEDIUM(800);
+
+    private final int maxSize;
+
+    ImageRendition(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the name used in the urls, like "thumb"
+     */
+    public String urlName() {
+        return name().toLowerCase();
+    }
+
+    /**
+     * @param name the name used in the urls, case insensitive
+     * @return the corresponding rendition
+     * @throws IllegalArgumentException if no rendition has this name
+     */
+    public static ImageRendition fromUrlName(String name) {
+        return valueOf(name.toUpperCase());
+    }
+}
@@ -0,0 +1,160 @@
+package be.bruxellesformation.mabback.images;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store of the images on the local disk.
+ * An image is named by the SHA-256 of its bytes, so the same image uploaded twice is stored once and a name always
+ * designates the same content, which lets the clients cache it forever.
+ * The files are spread in sub-directories by the first two characters of their name:
+ * "originals/3f/3fa9..." and "renditions/thumb/3f/3fa9...".
+ */
+public class ImageStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path root;
+
+    public ImageStore(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.root.resolve("tmp"));
+        } catch (IOException exception) {
+            throw new UncheckedIOException("cannot create the image store in " + this.root, exception);
+        }
+    }
+
+    /**
+     * Stores an image. The content is hashed while it is copied to a temporary file, then moved to its final name.
+     * @param content the bytes of the image, not closed by this method
+     * @return the hash naming the image
+     * @throws IOException if the image cannot be written
+     */
+    public String store(InputStream content) throws IOException {
+        Path temporary = Files.createTempFile(root.resolve("tmp"), "upload", ".part");
+        try {
+            MessageDigest digest = sha256();
+            Files.copy(new DigestInputStream(content, digest), temporary, StandardCopyOption.REPLACE_EXISTING);
+            String hash = hex(digest.digest());
+            Path original = original(hash);
+            if (!Files.exists(original)) {
+                Files.createDirectories(original.getParent());
+                moveInPlace(temporary, original);
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @param hash the name of the image
+     * @return the path of the original, which may not exist
+     * @throws IllegalArgumentException if the hash is not a SHA-256 in lower case hexadecimal
+     */
+    public Path original(String hash) {
+        return root.resolve("originals").resolve(checked(hash).substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * @param hash the name of the image
+     * @param rendition the reduced version wanted
+     * @return the path of the rendition, which may not exist yet
+     * @throws IllegalArgumentException if the hash is not a SHA-256 in lower case hexadecimal
+     */
+    public Path rendition(String hash, ImageRendition rendition) {
+        return root.resolve("renditions").resolve(rendition.urlName())
+                .resolve(checked(hash).substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Writes a file through a temporary file then moves it, so the readers never see a partial file.
+     * @param target the final path of the file
+     * @return the temporary file to write, to pass to {@link #moveInPlace(Path, Path)}
+     * @throws IOException if the temporary file cannot be created
+     */
+    Path temporaryFile(Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        return Files.createTempFile(root.resolve("tmp"), "rendition", ".part");
+    }
+
+    void moveInPlace(Path temporary, Path target) throws IOException {
+        try {
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            // Another upload of the same image won the race, the content is the same
+            if (!Files.exists(target)) {
+                throw exception;
+            }
+        }
+    }
+
+    /**
+     * Recognizes an image by its first bytes, as the readers of ImageIO do before decoding it.
+     * @param content the bytes of the image, not closed by this method
+     * @return the media type of the image, like "image/png", or null if no reader of ImageIO accepts it
+     * @throws IOException if the content cannot be read
+     */
+    public static String mediaType(InputStream content) throws IOException {
+        ImageInputStream input = ImageIO.createImageInputStream(content);
+        if (input == null) {
+            return null;
+        }
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            String[] types = readers.next().getOriginatingProvider().getMIMETypes();
+            return types != null && types.length > 0 ? types[0] : null;
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * @param hash a name received from a client
+     * @return true if the name can designate an image of the store
+     */
+    public static boolean isValidHash(String hash) {
+        return hash != null && HASH.matcher(hash).matches();
+    }
+
+    private static String checked(String hash) {
+        if (!isValidHash(hash)) {
+            throw new IllegalArgumentException("not an image hash : " + hash);
+        }
+        return hash;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("SHA-256 is required on every Java platform", exception);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
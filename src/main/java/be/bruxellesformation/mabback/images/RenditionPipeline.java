@@ -0,0 +1,157 @@
+package be.bruxellesformation.mabback.images;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates the renditions of the uploaded images on a bounded pool of workers.
+ * Decoding a large image takes a lot of memory, so the pool and its queue are small: when the queue is full, the
+ * upload is still accepted and its renditions are queued again on their first request instead. The images are only
+ * ever decoded by the workers, never by the request threads.
+ */
+public class RenditionPipeline implements Closeable {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final ImageStore store;
+    private final ThreadPoolExecutor workers;
+    // The renditions queued or being generated, the requests wanting the same one wait for the same work
+    private final Map<Path, CompletableFuture<Boolean>> pending = new ConcurrentHashMap<>();
+
+    public RenditionPipeline(ImageStore store, int workerThreads, int queueCapacity) {
+        this.store = store;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-rendition-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Queues the generation of all the renditions of an image.
+     * @param hash the name of the image
+     * @return false if the queue is full
+     */
+    public boolean submit(String hash) {
+        try {
+            workers.execute(() -> {
+                for (ImageRendition rendition : ImageRendition.values()) {
+                    try {
+                        render(hash, rendition);
+                    } catch (IOException | RuntimeException exception) {
+                        logger.warn("cannot generate the rendition '{}' of image {}", rendition.urlName(), hash, exception);
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException exception) {
+            logger.info("rendition queue full, image {} will be rendered on its first request", hash);
+            return false;
+        }
+    }
+
+    /**
+     * Queues the generation of a rendition if it does not exist yet.
+     * @param hash the name of the image
+     * @param rendition the reduced version wanted
+     * @return the generation, completed with the result of {@link #render(String, ImageRendition)}, or with a
+     * RejectedExecutionException if the queue is full
+     */
+    public CompletableFuture<Boolean> renderLater(String hash, ImageRendition rendition) {
+        Path target = store.rendition(hash, rendition);
+        if (Files.exists(target)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        CompletableFuture<Boolean> queued = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = pending.putIfAbsent(target, queued);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            workers.execute(() -> {
+                try {
+                    queued.complete(render(hash, rendition));
+                } catch (IOException | RuntimeException exception) {
+                    queued.completeExceptionally(exception);
+                } finally {
+                    pending.remove(target, queued);
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            pending.remove(target, queued);
+            queued.completeExceptionally(exception);
+        }
+        return queued;
+    }
+
+    /**
+     * Generates a rendition if it does not exist yet, on the calling thread.
+     * @param hash the name of the image
+     * @param rendition the reduced version to generate
+     * @return true if the rendition exists, false if the original is not an image that Java can decode
+     * @throws IOException if the original cannot be read or the rendition cannot be written
+     */
+    public boolean render(String hash, ImageRendition rendition) throws IOException {
+        Path target = store.rendition(hash, rendition);
+        if (Files.exists(target)) {
+            return true;
+        }
+        BufferedImage original = ImageIO.read(store.original(hash).toFile());
+        if (original == null) {
+            return false;
+        }
+        BufferedImage reduced = reduce(original, rendition.getMaxSize());
+        Path temporary = store.temporaryFile(target);
+        try {
+            ImageIO.write(reduced, "jpg", temporary.toFile());
+            store.moveInPlace(temporary, target);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Scales the image down so its largest side fits, never up. The result has no transparency, as JPEG requires.
+     */
+    private static BufferedImage reduce(BufferedImage image, int maxSize) {
+        double scale = Math.min(1.0, (double) maxSize / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage reduced = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = reduced.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return reduced;
+    }
+}
@@ -0,0 +1,63 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Immutable copy of an artefact, detached from JPA, as held by the in-memory indexes.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class ArtefactRecord {
+
+    private final String identification;
+    private final String name;
+    private final String objectDescription;
+    private final String periodDescription;
+    private final String culturalPhase;
+    private final String type;
+    private final String material;
+    private final String localisation;
+    private final String imageURL;
+    private final boolean onPermanentDisplay;
+    private final boolean inExposition;
+    private final LocalDate dateOfEntry;
+    private final int startYear;
+    private final int endYear;
+    // Null when the artefact has no culture or is not in an exposition
+    private final Long cultureId;
+    private final Long expositionId;
+
+    public static ArtefactRecord of(Artefact artefact) {
+        return new ArtefactRecord(artefact.getIdentification(), artefact.getName(), artefact.getObjectDescription(),
+                artefact.getPeriodDescription(), artefact.getCulturalPhase(), artefact.getType(),
+                artefact.getMaterial(), artefact.getLocalisation(), artefact.getImageURL(),
+                artefact.isOnPermanentDisplay(), artefact.isInExposition(), artefact.getDateOfEntry(),
+                artefact.getStartYear(), artefact.getEndYear(),
+                artefact.getCulture() != null ? artefact.getCulture().getId() : null,
+                artefact.getExposition() != null ? artefact.getExposition().getId() : null);
+    }
+
+    /**
+     * @return the materials of the artefact in lower case, "Bronze, or" being made of two
+     */
+    public Set<String> materials() {
+        Set<String> materials = new LinkedHashSet<>();
+        if (material != null) {
+            for (String part : material.split("[,;/]| et ")) {
+                if (!part.trim().isEmpty()) {
+                    materials.add(part.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return materials;
+    }
+}
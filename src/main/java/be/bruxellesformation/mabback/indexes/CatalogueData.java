@@ -0,0 +1,18 @@
+package be.bruxellesformation.mabback.indexes;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Collection;
+
+/**
+ * The whole catalogue, from which the in-memory indexes are built.
+ */
+@Getter
+@AllArgsConstructor
+public class CatalogueData {
+
+    private final Collection<ArtefactRecord> artefacts;
+    private final Collection<CultureRecord> cultures;
+    private final Collection<ExpositionRecord> expositions;
+}
@@ -0,0 +1,36 @@
+package be.bruxellesformation.mabback.indexes;
+
+/**
+ * An in-memory structure derived from the catalogue. The {@link CatalogueIndexLoader} builds every index once from
+ * the whole catalogue, then gives it each committed change as the record before and after the change.
+ * The changes are given by a single thread, but the index is read concurrently by the requests.
+ */
+public interface CatalogueIndex {
+
+    /**
+     * Replaces the content of the index.
+     * @param data the whole catalogue
+     */
+    void rebuild(CatalogueData data);
+
+    /**
+     * @param before the artefact before the change, null if it was created
+     * @param after the artefact after the change, null if it was deleted
+     */
+    default void onArtefact(ArtefactRecord before, ArtefactRecord after) {
+    }
+
+    /**
+     * @param before the culture before the change, null if it was created
+     * @param after the culture after the change, null if it was deleted
+     */
+    default void onCulture(CultureRecord before, CultureRecord after) {
+    }
+
+    /**
+     * @param before the exposition before the change, null if it was created
+     * @param after the exposition after the change, null if it was deleted
+     */
+    default void onExposition(ExpositionRecord before, ExpositionRecord after) {
+    }
+}
@@ -0,0 +1,344 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.domain.Culture;
+import be.bruxellesformation.mabback.domain.Exposition;
+import be.bruxellesformation.mabback.events.CatalogueChangeEvent;
+import be.bruxellesformation.mabback.invalidation.RemoteChangesEvent;
+import be.bruxellesformation.mabback.repositories.IArtefactsRepository;
+import be.bruxellesformation.mabback.repositories.ICulturesRepository;
+import be.bruxellesformation.mabback.repositories.IExpositionsRepository;
+import be.bruxellesformation.mabback.tenancy.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Builds the {@link CatalogueIndex}es from the whole catalogue once the application is ready, then keeps them up to
+ * date with the committed changes.
+ * The changes are queued and applied by a single thread : it reads the changed entities again, and gives each index
+ * the record before and after the change. The writes never wait for the indexes, which lag behind by a few
+ * milliseconds.
+ * In the multi-tenant mode, each museum has its own indexes. Those of the default tenant are the beans, built on
+ * start. Those of the other tenants are built on their first use, by the request needing them.
+ */
+@Component
+public class CatalogueIndexLoader {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final List<CatalogueIndex> indexes;
+    private final AutowireCapableBeanFactory beanFactory;
+    private final IArtefactsRepository artefactsRepository;
+    private final ICulturesRepository culturesRepository;
+    private final IExpositionsRepository expositionsRepository;
+    // Not read-only : the changed entities are read on the primary, a replica could still have the old values
+    private final TransactionTemplate transactionTemplate;
+
+    // By tenant, the default one being there from the start
+    private final Map<String, TenantCatalogue> catalogues = new ConcurrentHashMap<>();
+    private final BlockingQueue<TenantChange> pending = new LinkedBlockingQueue<>();
+    private volatile boolean loaded;
+    private Thread updater;
+
+    public CatalogueIndexLoader(List<CatalogueIndex> indexes, AutowireCapableBeanFactory beanFactory,
+                                IArtefactsRepository artefactsRepository, ICulturesRepository culturesRepository,
+                                IExpositionsRepository expositionsRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.indexes = indexes;
+        this.beanFactory = beanFactory;
+        this.artefactsRepository = artefactsRepository;
+        this.culturesRepository = culturesRepository;
+        this.expositionsRepository = expositionsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        catalogues.put(TenantContext.DEFAULT, new TenantCatalogue(indexes));
+    }
+
+    /**
+     * Builds the indexes once the application is ready, unless they were already loaded from a snapshot.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFromDatabase() {
+        if (loaded) {
+            logger.info("catalogue indexes already loaded, the database is not read again");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        CatalogueData data = readDatabase();
+        load(data);
+        logger.info("{} catalogue indexes built from {} artefacts in {} ms", indexes.size(),
+                data.getArtefacts().size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return the whole catalogue of the current tenant, read from the primary database
+     */
+    public CatalogueData readDatabase() {
+        return transactionTemplate.execute(status -> {
+            List<ArtefactRecord> artefactRecords = new ArrayList<>();
+            for (Artefact artefact : artefactsRepository.findAllForIndexing()) {
+                artefactRecords.add(ArtefactRecord.of(artefact));
+            }
+            List<CultureRecord> cultureRecords = new ArrayList<>();
+            for (Culture culture : culturesRepository.findAll()) {
+                cultureRecords.add(CultureRecord.of(culture));
+            }
+            List<ExpositionRecord> expositionRecords = new ArrayList<>();
+            for (Exposition exposition : expositionsRepository.findAll()) {
+                expositionRecords.add(ExpositionRecord.of(exposition));
+            }
+            return new CatalogueData(artefactRecords, cultureRecords, expositionRecords);
+        });
+    }
+
+    /**
+     * Builds the indexes of the default tenant from the given catalogue, then starts applying the changes queued
+     * since.
+     * @param data the whole catalogue
+     */
+    public synchronized void load(CatalogueData data) {
+        catalogues.get(TenantContext.DEFAULT).load(data);
+        loaded = true;
+        if (updater == null) {
+            updater = new Thread(this::applyChanges, "catalogue-index-updater");
+            updater.setDaemon(true);
+            updater.start();
+        }
+    }
+
+    /**
+     * Queues a committed change, applied by the updater thread.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(CatalogueChangeEvent event) {
+        pending.offer(new TenantChange(TenantContext.current(), event));
+    }
+
+    /**
+     * Queues the changes committed by another node, published for their tenant.
+     */
+    @EventListener
+    public void onRemoteChanges(RemoteChangesEvent event) {
+        for (CatalogueChangeEvent change : event.getChanges()) {
+            pending.offer(new TenantChange(TenantContext.current(), change));
+        }
+    }
+
+    /**
+     * Queues changes of the default tenant committed while the indexes were not listening, like those written since
+     * a snapshot.
+     */
+    public void replay(Collection<CatalogueChangeEvent> changes) {
+        for (CatalogueChangeEvent change : changes) {
+            pending.offer(new TenantChange(TenantContext.DEFAULT, change));
+        }
+    }
+
+    /**
+     * @param type the class of the index
+     * @return the index of the current tenant, or null while the indexes of the default tenant are being built. The
+     * indexes of another tenant are built by the first call for it, which waits for them.
+     */
+    public <T extends CatalogueIndex> T index(Class<T> type) {
+        String tenant = TenantContext.current();
+        TenantCatalogue catalogue = catalogues.get(tenant);
+        if (TenantContext.DEFAULT.equals(tenant)) {
+            if (!loaded) {
+                return null;
+            }
+        } else if (catalogue == null) {
+            catalogue = catalogues.computeIfAbsent(tenant, this::loadTenant);
+        }
+        return type.cast(catalogue.indexes.get(type));
+    }
+
+    /**
+     * @return the catalogue of the default tenant as currently known by its indexes
+     */
+    public CatalogueData current() {
+        return catalogues.get(TenantContext.DEFAULT).current();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (updater != null) {
+            updater.interrupt();
+        }
+    }
+
+    private TenantCatalogue loadTenant(String tenant) {
+        long start = System.currentTimeMillis();
+        List<CatalogueIndex> tenantIndexes = new ArrayList<>(indexes.size());
+        for (CatalogueIndex index : indexes) {
+            tenantIndexes.add((CatalogueIndex) beanFactory.createBean(ClassUtils.getUserClass(index)));
+        }
+        TenantCatalogue catalogue = new TenantCatalogue(tenantIndexes);
+        CatalogueData data = readDatabase();
+        catalogue.load(data);
+        logger.info("catalogue indexes of tenant '{}' built from {} artefacts in {} ms", tenant,
+                data.getArtefacts().size(), System.currentTimeMillis() - start);
+        return catalogue;
+    }
+
+    private void applyChanges() {
+        List<TenantChange> batch = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            pending.drainTo(batch);
+            try {
+                apply(batch);
+            } catch (RuntimeException exception) {
+                logger.error("cannot apply {} changes to the catalogue indexes", batch.size(), exception);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Reads the changed entities once each, even if they changed several times, in the database of their tenant,
+     * and updates the indexes of the tenant. The tenants whose indexes are not built yet are skipped : they read
+     * these entities when they are built.
+     */
+    private synchronized void apply(List<TenantChange> batch) {
+        Map<String, Map<String, CatalogueChangeEvent>> changesByTenant = new LinkedHashMap<>();
+        for (TenantChange change : batch) {
+            changesByTenant.computeIfAbsent(change.tenant, tenant -> new LinkedHashMap<>())
+                    .put(change.event.getEntityType() + ":" + change.event.getId(), change.event);
+        }
+        for (Map.Entry<String, Map<String, CatalogueChangeEvent>> changes : changesByTenant.entrySet()) {
+            // Waits for a build in progress, whose read may have missed these changes
+            catalogues.computeIfPresent(changes.getKey(), (tenant, catalogue) -> {
+                TenantContext.runAs(tenant, () -> apply(catalogue, changes.getValue().values()));
+                return catalogue;
+            });
+        }
+    }
+
+    private void apply(TenantCatalogue catalogue, Collection<CatalogueChangeEvent> changes) {
+        transactionTemplate.execute(status -> {
+            for (CatalogueChangeEvent change : changes) {
+                switch (change.getEntityType()) {
+                    case ARTEFACT:
+                        catalogue.applyArtefact(change.getId(),
+                                artefactsRepository.findById(change.getId()).map(ArtefactRecord::of).orElse(null));
+                        break;
+                    case CULTURE:
+                        long cultureId = Long.parseLong(change.getId());
+                        catalogue.applyCulture(cultureId,
+                                culturesRepository.findById(cultureId).map(CultureRecord::of).orElse(null));
+                        break;
+                    case EXPOSITION:
+                        long expositionId = Long.parseLong(change.getId());
+                        catalogue.applyExposition(expositionId,
+                                expositionsRepository.findById(expositionId).map(ExpositionRecord::of).orElse(null));
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * A committed change, with the tenant it was made for.
+     */
+    private static final class TenantChange {
+        private final String tenant;
+        private final CatalogueChangeEvent event;
+
+        private TenantChange(String tenant, CatalogueChangeEvent event) {
+            this.tenant = tenant;
+            this.event = event;
+        }
+    }
+
+    /**
+     * The indexes of a tenant, with the records they were given.
+     */
+    private static final class TenantCatalogue {
+        private final Map<Class<?>, CatalogueIndex> indexes = new LinkedHashMap<>();
+        private final Map<String, ArtefactRecord> artefacts = new ConcurrentHashMap<>();
+        private final Map<Long, CultureRecord> cultures = new ConcurrentHashMap<>();
+        private final Map<Long, ExpositionRecord> expositions = new ConcurrentHashMap<>();
+
+        private TenantCatalogue(List<CatalogueIndex> indexes) {
+            for (CatalogueIndex index : indexes) {
+                this.indexes.put(ClassUtils.getUserClass(index), index);
+            }
+        }
+
+        private void load(CatalogueData data) {
+            artefacts.clear();
+            cultures.clear();
+            expositions.clear();
+            for (ArtefactRecord artefact : data.getArtefacts()) {
+                artefacts.put(artefact.getIdentification(), artefact);
+            }
+            for (CultureRecord culture : data.getCultures()) {
+                cultures.put(culture.getId(), culture);
+            }
+            for (ExpositionRecord exposition : data.getExpositions()) {
+                expositions.put(exposition.getId(), exposition);
+            }
+            for (CatalogueIndex index : indexes.values()) {
+                index.rebuild(data);
+            }
+        }
+
+        private CatalogueData current() {
+            return new CatalogueData(new ArrayList<>(artefacts.values()), new ArrayList<>(cultures.values()),
+                    new ArrayList<>(expositions.values()));
+        }
+
+        private void applyArtefact(String id, ArtefactRecord after) {
+            ArtefactRecord before = after != null ? artefacts.put(id, after) : artefacts.remove(id);
+            if (!Objects.equals(before, after)) {
+                for (CatalogueIndex index : indexes.values()) {
+                    index.onArtefact(before, after);
+                }
+            }
+        }
+
+        private void applyCulture(long id, CultureRecord after) {
+            CultureRecord before = after != null ? cultures.put(id, after) : cultures.remove(id);
+            if (!Objects.equals(before, after)) {
+                for (CatalogueIndex index : indexes.values()) {
+                    index.onCulture(before, after);
+                }
+            }
+        }
+
+        private void applyExposition(long id, ExpositionRecord after) {
+            ExpositionRecord before = after != null ? expositions.put(id, after) : expositions.remove(id);
+            if (!Objects.equals(before, after)) {
+                for (CatalogueIndex index : indexes.values()) {
+                    index.onExposition(before, after);
+                }
+            }
+        }
+    }
+}
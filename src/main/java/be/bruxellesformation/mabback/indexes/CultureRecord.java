@@ -0,0 +1,28 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.domain.Culture;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Immutable copy of a culture, detached from JPA, as held by the in-memory indexes.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class CultureRecord {
+
+    private final long id;
+    private final String name;
+    private final String description;
+    private final String periodDescription;
+    private final String cultureMap;
+    private final int startYear;
+    private final int endYear;
+
+    public static CultureRecord of(Culture culture) {
+        return new CultureRecord(culture.getId(), culture.getName(), culture.getDescription(),
+                culture.getPeriodDescription(), culture.getCultureMap(), culture.getStartYear(), culture.getEndYear());
+    }
+}
@@ -0,0 +1,31 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.domain.Exposition;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Immutable copy of an exposition, without its artefacts, as held by the in-memory indexes.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+public class ExpositionRecord {
+
+    private final long id;
+    private final String title;
+    private final String description;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final String imageUrl;
+    private final int visitorCount;
+
+    public static ExpositionRecord of(Exposition exposition) {
+        return new ExpositionRecord(exposition.getId(), exposition.getTitle(), exposition.getDescription(),
+                exposition.getStartDate(), exposition.getEndDate(), exposition.getImageUrl(),
+                exposition.getVisitorCount());
+    }
+}
@@ -0,0 +1,75 @@
+package be.bruxellesformation.mabback.indexes;
+
+import java.util.Arrays;
+
+/**
+ * Binary indexed tree of counts : adds to a position and sums a prefix in O(log n).
+ * The positions go from 0 to size - 1.
+ */
+public class FenwickTree {
+
+    private final long[] tree;
+
+    public FenwickTree(int size) {
+        this.tree = new long[size + 1];
+    }
+
+    /**
+     * @param position the position to change
+     * @param delta the value added to the count of the position, negative to remove
+     */
+    public void add(int position, long delta) {
+        for (int i = position + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * @param position the last position summed, inclusive. Negative gives 0.
+     * @return the sum of the counts from position 0 to the given position
+     */
+    public long prefixSum(int position) {
+        long sum = 0;
+        for (int i = Math.min(position + 1, tree.length - 1); i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return the sum of all the counts
+     */
+    public long total() {
+        return prefixSum(tree.length - 2);
+    }
+
+    /**
+     * Finds the first position whose prefix sum reaches a value, by descending the tree in O(log n).
+     * The counts must not be negative.
+     * @param value the prefix sum to reach, at least 1
+     * @return the position, or size if the total is smaller than the value
+     */
+    public int lowerBound(long value) {
+        int position = 0;
+        long remaining = value;
+        for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] < remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return position;
+    }
+
+    public int size() {
+        return tree.length - 1;
+    }
+
+    /**
+     * Empties the tree.
+     */
+    public void clear() {
+        Arrays.fill(tree, 0);
+    }
+}
@@ -0,0 +1,265 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.dto.SearchHit;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo-tolerant search on the names, types and materials of the artefacts, the names of the cultures and the titles
+ * of the expositions.
+ * The words of these fields are normalized (lower case, without accents) into terms, and each term is split into
+ * trigrams like PostgreSQL's pg_trgm does : "amphora" gives "  a", " am", "amp" ... "ora", "ra ". A query word is
+ * compared with the terms sharing at least one of its trigrams only, found through a posting list per trigram.
+ * The similarity of two words is the share of their trigrams in common, "amphore" and "amphora" scoring 0.6.
+ */
+@Component
+public class FuzzySearchIndex implements CatalogueIndex {
+
+    // Same default as pg_trgm
+    static final double THRESHOLD = 0.3;
+
+    private final Map<String, Document> documents = new HashMap<>();
+    // Term -> keys of the documents containing it
+    private final Map<String, Set<String>> terms = new HashMap<>();
+    // Trigram -> terms containing it
+    private final Map<String, Set<String>> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void rebuild(CatalogueData data) {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            terms.clear();
+            postings.clear();
+            for (ArtefactRecord artefact : data.getArtefacts()) {
+                add(artefactDocument(artefact));
+            }
+            for (CultureRecord culture : data.getCultures()) {
+                add(cultureDocument(culture));
+            }
+            for (ExpositionRecord exposition : data.getExpositions()) {
+                add(expositionDocument(exposition));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onArtefact(ArtefactRecord before, ArtefactRecord after) {
+        replace(before != null ? artefactDocument(before) : null, after != null ? artefactDocument(after) : null);
+    }
+
+    @Override
+    public void onCulture(CultureRecord before, CultureRecord after) {
+        replace(before != null ? cultureDocument(before) : null, after != null ? cultureDocument(after) : null);
+    }
+
+    @Override
+    public void onExposition(ExpositionRecord before, ExpositionRecord after) {
+        replace(before != null ? expositionDocument(before) : null,
+                after != null ? expositionDocument(after) : null);
+    }
+
+    /**
+     * @param query the words searched, possibly misspelled
+     * @param kind the kind of entities searched, null for all
+     * @param limit the maximum number of hits
+     * @return the entities matching the query, the best first. The score is the mean, over the words of the query,
+     * of the similarity of the closest term of the entity.
+     */
+    public List<SearchHit> search(String query, SearchHit.Kind kind, int limit) {
+        Set<String> words = words(query);
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, double[]> scores = new HashMap<>();
+        int position = 0;
+        lock.readLock().lock();
+        try {
+            for (String word : words) {
+                for (Map.Entry<String, Double> term : similarTerms(word).entrySet()) {
+                    for (String key : terms.get(term.getKey())) {
+                        double[] wordScores = scores.computeIfAbsent(key, k -> new double[words.size()]);
+                        wordScores[position] = Math.max(wordScores[position], term.getValue());
+                    }
+                }
+                position++;
+            }
+            List<SearchHit> hits = new ArrayList<>();
+            for (Map.Entry<String, double[]> score : scores.entrySet()) {
+                Document document = documents.get(score.getKey());
+                if (kind != null && document.kind != kind) {
+                    continue;
+                }
+                double sum = 0;
+                for (double wordScore : score.getValue()) {
+                    sum += wordScore;
+                }
+                hits.add(new SearchHit(document.kind, document.id, document.label, sum / words.size()));
+            }
+            hits.sort(Comparator.comparingDouble(SearchHit::getScore).reversed()
+                    .thenComparing(SearchHit::getLabel, Comparator.nullsLast(Comparator.naturalOrder())));
+            return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the terms at least {@link #THRESHOLD} similar to the word, with their similarity
+     */
+    private Map<String, Double> similarTerms(String word) {
+        Set<String> wordTrigrams = trigrams(word);
+        Map<String, Integer> shared = new HashMap<>();
+        for (String trigram : wordTrigrams) {
+            Set<String> posting = postings.get(trigram);
+            if (posting != null) {
+                for (String term : posting) {
+                    shared.merge(term, 1, Integer::sum);
+                }
+            }
+        }
+        Map<String, Double> similar = new HashMap<>();
+        for (Map.Entry<String, Integer> candidate : shared.entrySet()) {
+            int common = candidate.getValue();
+            int termTrigrams = trigrams(candidate.getKey()).size();
+            double similarity = (double) common / (wordTrigrams.size() + termTrigrams - common);
+            if (similarity >= THRESHOLD) {
+                similar.put(candidate.getKey(), similarity);
+            }
+        }
+        return similar;
+    }
+
+    private void replace(Document before, Document after) {
+        lock.writeLock().lock();
+        try {
+            if (before != null) {
+                remove(before.key());
+            }
+            if (after != null) {
+                add(after);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Document document) {
+        remove(document.key());
+        documents.put(document.key(), document);
+        for (String term : document.terms) {
+            Set<String> keys = terms.get(term);
+            if (keys == null) {
+                keys = new LinkedHashSet<>();
+                terms.put(term, keys);
+                for (String trigram : trigrams(term)) {
+                    postings.computeIfAbsent(trigram, t -> new LinkedHashSet<>()).add(term);
+                }
+            }
+            keys.add(document.key());
+        }
+    }
+
+    private void remove(String key) {
+        Document document = documents.remove(key);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms) {
+            Set<String> keys = terms.get(term);
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                terms.remove(term);
+                for (String trigram : trigrams(term)) {
+                    Set<String> posting = postings.get(trigram);
+                    posting.remove(term);
+                    if (posting.isEmpty()) {
+                        postings.remove(trigram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the normalized words of the texts : lower case, without accents, split on anything but letters and
+     * digits
+     */
+    static Set<String> words(String... texts) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                    .replaceAll("\\p{M}", "")
+                    .toLowerCase(Locale.ROOT);
+            for (String word : normalized.split("[^\\p{L}\\p{N}]+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * @return the trigrams of the word, padded with two spaces before and one after
+     */
+    static Set<String> trigrams(String word) {
+        String padded = "  " + word + " ";
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    private static Document artefactDocument(ArtefactRecord artefact) {
+        String label = artefact.getName() != null ? artefact.getName() : artefact.getIdentification();
+        return new Document(SearchHit.Kind.ARTEFACT, artefact.getIdentification(), label,
+                words(artefact.getName(), artefact.getType(), artefact.getMaterial()));
+    }
+
+    private static Document cultureDocument(CultureRecord culture) {
+        return new Document(SearchHit.Kind.CULTURE, String.valueOf(culture.getId()), culture.getName(),
+                words(culture.getName()));
+    }
+
+    private static Document expositionDocument(ExpositionRecord exposition) {
+        return new Document(SearchHit.Kind.EXPOSITION, String.valueOf(exposition.getId()), exposition.getTitle(),
+                words(exposition.getTitle()));
+    }
+
+    private static final class Document {
+        private final SearchHit.Kind kind;
+        private final String id;
+        private final String label;
+        private final Set<String> terms;
+
+        private Document(SearchHit.Kind kind, String id, String label, Set<String> terms) {
+            this.kind = kind;
+            this.id = id;
+            this.label = label;
+            this.terms = terms;
+        }
+
+        private String key() {
+            return kind + ":" + id;
+        }
+    }
+}
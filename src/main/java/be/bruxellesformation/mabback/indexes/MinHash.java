@@ -0,0 +1,75 @@
+package be.bruxellesformation.mabback.indexes;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+/**
+ * MinHash signatures of token sets. The share of equal positions in the signatures of two sets estimates their
+ * Jaccard similarity, the size of their intersection divided by the size of their union.
+ */
+class MinHash {
+
+    private final long[] seeds;
+
+    /**
+     * @param size the number of hash functions, the length of the signatures
+     * @param seed the seed of the hash functions, the signatures are only comparable with the same seed
+     */
+    MinHash(int size, long seed) {
+        Random random = new Random(seed);
+        this.seeds = new long[size];
+        for (int i = 0; i < size; i++) {
+            seeds[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * @param tokens the tokens of the set
+     * @return for each hash function, the smallest hash of the tokens
+     */
+    int[] signature(Collection<String> tokens) {
+        int[] signature = new int[seeds.length];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (String token : tokens) {
+            long hash = fnv1a(token);
+            for (int i = 0; i < seeds.length; i++) {
+                int value = (int) (mix(hash ^ seeds[i]) >>> 33);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * @return the estimated Jaccard similarity of the sets of both signatures, between 0 and 1
+     */
+    static double similarity(int[] first, int[] second) {
+        int equal = 0;
+        for (int i = 0; i < first.length; i++) {
+            if (first[i] == second[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / first.length;
+    }
+
+    private static long fnv1a(String token) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : token.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Finalizer of SplitMix64, spreads every input bit over the whole hash
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
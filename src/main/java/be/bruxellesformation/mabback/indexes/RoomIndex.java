@@ -0,0 +1,124 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.dto.RoomSummary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The artefacts of each room, by the normalized localisation of {@link Artefact#locationKey(String)}.
+ * A move takes the artefact out of its old room and puts it in the new one, so the inventory of a room is read
+ * without scanning the collection.
+ */
+@Component
+public class RoomIndex implements CatalogueIndex {
+
+    private final Map<String, Room> rooms = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void rebuild(CatalogueData data) {
+        lock.writeLock().lock();
+        try {
+            rooms.clear();
+            for (ArtefactRecord artefact : data.getArtefacts()) {
+                add(artefact);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onArtefact(ArtefactRecord before, ArtefactRecord after) {
+        lock.writeLock().lock();
+        try {
+            if (before != null) {
+                remove(before);
+            }
+            if (after != null) {
+                add(after);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the rooms holding at least one artefact, by key
+     */
+    public List<RoomSummary> rooms() {
+        lock.readLock().lock();
+        try {
+            List<RoomSummary> summaries = new ArrayList<>();
+            for (Map.Entry<String, Room> room : new TreeMap<>(rooms).entrySet()) {
+                summaries.add(room.getValue().summary(room.getKey()));
+            }
+            return summaries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param locationKey the key of the room
+     * @return the identifications of the artefacts of the room in alphabetical order, empty for an unknown room
+     */
+    public List<String> artefacts(String locationKey) {
+        lock.readLock().lock();
+        try {
+            Room room = rooms.get(locationKey);
+            return room != null ? new ArrayList<>(room.artefacts) : new ArrayList<>();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(ArtefactRecord artefact) {
+        String key = Artefact.locationKey(artefact.getLocalisation());
+        if (key == null) {
+            return;
+        }
+        Room room = rooms.computeIfAbsent(key, k -> new Room());
+        room.artefacts.add(artefact.getIdentification());
+        room.labels.merge(artefact.getLocalisation(), 1, Integer::sum);
+        if (artefact.isOnPermanentDisplay()) {
+            room.onPermanentDisplay++;
+        }
+    }
+
+    private void remove(ArtefactRecord artefact) {
+        String key = Artefact.locationKey(artefact.getLocalisation());
+        Room room = key != null ? rooms.get(key) : null;
+        if (room == null || !room.artefacts.remove(artefact.getIdentification())) {
+            return;
+        }
+        room.labels.computeIfPresent(artefact.getLocalisation(), (label, count) -> count > 1 ? count - 1 : null);
+        if (artefact.isOnPermanentDisplay()) {
+            room.onPermanentDisplay--;
+        }
+        if (room.artefacts.isEmpty()) {
+            rooms.remove(key);
+        }
+    }
+
+    private static final class Room {
+        private final TreeSet<String> artefacts = new TreeSet<>();
+        // The localisations as typed, with their number of artefacts
+        private final TreeMap<String, Integer> labels = new TreeMap<>();
+        private int onPermanentDisplay;
+
+        private RoomSummary summary(String key) {
+            return new RoomSummary(key, labels.isEmpty() ? key : labels.firstKey(), artefacts.size(),
+                    onPermanentDisplay);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.dto.SimilarArtefact;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the artefacts sharing the most traits with a given one : type, materials, cultural phase, culture and
+ * period. Each artefact gets a MinHash signature of its traits, and locality-sensitive hashing groups the
+ * signatures in buckets : 16 bands of 4 positions, two artefacts being candidates when a whole band is equal.
+ * A lookup only compares the artefact with the candidates of its 16 buckets, not with the whole catalogue.
+ */
+@Component
+public class SimilarityIndex implements CatalogueIndex {
+
+    static final int BANDS = 16;
+    static final int ROWS = 4;
+
+    private static final MinHash MIN_HASH = new MinHash(BANDS * ROWS, 0x6d61622d73696dL);
+    // Beyond that number of centuries, the period only counts in millennia
+    private static final int MAX_PERIOD_TOKENS = 20;
+
+    private volatile Tables tables = new Tables();
+
+    /**
+     * Computes the signatures in parallel on the fork-join common pool.
+     */
+    @Override
+    public void rebuild(CatalogueData data) {
+        Tables rebuilt = new Tables();
+        new ArrayList<>(data.getArtefacts()).parallelStream()
+                .forEach(artefact -> rebuilt.add(new Entry(artefact)));
+        tables = rebuilt;
+    }
+
+    @Override
+    public void onArtefact(ArtefactRecord before, ArtefactRecord after) {
+        if (before != null) {
+            tables.remove(before.getIdentification());
+        }
+        if (after != null) {
+            tables.add(new Entry(after));
+        }
+    }
+
+    /**
+     * @param identification the identification of the artefact
+     * @param limit the maximum number of artefacts
+     * @return the artefacts with at least one trait in common, the most similar first, or null if the artefact is
+     * unknown
+     */
+    public List<SimilarArtefact> similar(String identification, int limit) {
+        Tables current = tables;
+        Entry entry = current.entries.get(identification);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.signature == null) {
+            return new ArrayList<>();
+        }
+        Set<String> candidates = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            Set<String> bucket = current.bands.get(band).get(entry.bandKeys[band]);
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        candidates.remove(identification);
+
+        List<SimilarArtefact> similar = new ArrayList<>();
+        for (String candidate : candidates) {
+            Entry other = current.entries.get(candidate);
+            if (other == null || other.signature == null) {
+                continue;
+            }
+            double similarity = MinHash.similarity(entry.signature, other.signature);
+            if (similarity > 0) {
+                ArtefactRecord record = other.record;
+                similar.add(new SimilarArtefact(record.getIdentification(), record.getName(), record.getType(),
+                        record.getMaterial(), record.getImageURL(), similarity));
+            }
+        }
+        similar.sort(Comparator.comparingDouble(SimilarArtefact::getSimilarity).reversed()
+                .thenComparing(SimilarArtefact::getIdentification));
+        return similar.size() > limit ? new ArrayList<>(similar.subList(0, limit)) : similar;
+    }
+
+    /**
+     * @return the traits of the artefact, prefixed by their kind so that a type never matches a material
+     */
+    static Set<String> tokens(ArtefactRecord artefact) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addToken(tokens, "type", artefact.getType());
+        for (String material : artefact.materials()) {
+            addToken(tokens, "material", material);
+        }
+        addToken(tokens, "phase", artefact.getCulturalPhase());
+        if (artefact.getCultureId() != null) {
+            tokens.add("culture:" + artefact.getCultureId());
+        }
+        int start = Math.min(artefact.getStartYear(), artefact.getEndYear());
+        int end = Math.max(artefact.getStartYear(), artefact.getEndYear());
+        if (Math.floorDiv(end, 100) - Math.floorDiv(start, 100) < MAX_PERIOD_TOKENS) {
+            for (int century = Math.floorDiv(start, 100); century <= Math.floorDiv(end, 100); century++) {
+                tokens.add("century:" + century);
+            }
+        }
+        for (int millennium = Math.floorDiv(start, 1000); millennium <= Math.floorDiv(end, 1000)
+                && millennium - Math.floorDiv(start, 1000) < MAX_PERIOD_TOKENS; millennium++) {
+            tokens.add("millennium:" + millennium);
+        }
+        return tokens;
+    }
+
+    private static void addToken(Set<String> tokens, String kind, String value) {
+        if (value != null && !value.trim().isEmpty()) {
+            tokens.add(kind + ":" + value.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    /**
+     * The signatures and the buckets, replaced as a whole on a rebuild.
+     */
+    private static final class Tables {
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        private final List<Map<Long, Set<String>>> bands = new ArrayList<>();
+
+        private Tables() {
+            for (int band = 0; band < BANDS; band++) {
+                bands.add(new ConcurrentHashMap<>());
+            }
+        }
+
+        void add(Entry entry) {
+            String identification = entry.record.getIdentification();
+            entries.put(identification, entry);
+            if (entry.signature == null) {
+                return;
+            }
+            for (int band = 0; band < BANDS; band++) {
+                bands.get(band).computeIfAbsent(entry.bandKeys[band], key -> ConcurrentHashMap.newKeySet())
+                        .add(identification);
+            }
+        }
+
+        void remove(String identification) {
+            Entry entry = entries.remove(identification);
+            if (entry == null || entry.signature == null) {
+                return;
+            }
+            for (int band = 0; band < BANDS; band++) {
+                bands.get(band).computeIfPresent(entry.bandKeys[band], (key, bucket) -> {
+                    bucket.remove(identification);
+                    return bucket.isEmpty() ? null : bucket;
+                });
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final ArtefactRecord record;
+        // Null without any trait, such an artefact is like no other
+        private final int[] signature;
+        private final long[] bandKeys = new long[BANDS];
+
+        private Entry(ArtefactRecord record) {
+            this.record = record;
+            Set<String> tokens = tokens(record);
+            this.signature = tokens.isEmpty() ? null : MIN_HASH.signature(tokens);
+            for (int band = 0; band < BANDS && signature != null; band++) {
+                long key = band;
+                for (int row = 0; row < ROWS; row++) {
+                    key = key * 0x9e3779b97f4a7c15L + signature[band * ROWS + row];
+                }
+                bandKeys[band] = key;
+            }
+        }
+    }
+}
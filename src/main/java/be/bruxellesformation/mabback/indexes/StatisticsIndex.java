@@ -0,0 +1,175 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.dto.CollectionStatistics;
+import be.bruxellesformation.mabback.dto.StatisticsCount;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The figures of the dashboard, counted once from the whole catalogue then kept up to date : a change of an
+ * artefact takes its old values out of the counts and adds its new ones, instead of grouping the whole table again.
+ * The changes of every write path reach it, the bulk relocations included, since they all publish their changes.
+ */
+@Component
+public class StatisticsIndex implements CatalogueIndex {
+
+    private long artefacts;
+    private long onPermanentDisplay;
+    private long inExposition;
+    private long inReserve;
+    private long visitors;
+    private final Map<Long, Long> byCulture = new HashMap<>();
+    private final Map<String, Long> byType = new HashMap<>();
+    private final Map<String, Long> byMaterial = new HashMap<>();
+    private final Map<Long, Long> byExposition = new HashMap<>();
+    private final Map<Long, String> cultureNames = new HashMap<>();
+    private final Map<Long, ExpositionRecord> expositions = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void rebuild(CatalogueData data) {
+        lock.writeLock().lock();
+        try {
+            artefacts = 0;
+            onPermanentDisplay = 0;
+            inExposition = 0;
+            inReserve = 0;
+            visitors = 0;
+            byCulture.clear();
+            byType.clear();
+            byMaterial.clear();
+            byExposition.clear();
+            cultureNames.clear();
+            expositions.clear();
+            for (ArtefactRecord artefact : data.getArtefacts()) {
+                count(artefact, 1);
+            }
+            for (CultureRecord culture : data.getCultures()) {
+                cultureNames.put(culture.getId(), culture.getName());
+            }
+            for (ExpositionRecord exposition : data.getExpositions()) {
+                expositions.put(exposition.getId(), exposition);
+                visitors += exposition.getVisitorCount();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onArtefact(ArtefactRecord before, ArtefactRecord after) {
+        lock.writeLock().lock();
+        try {
+            if (before != null) {
+                count(before, -1);
+            }
+            if (after != null) {
+                count(after, 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCulture(CultureRecord before, CultureRecord after) {
+        lock.writeLock().lock();
+        try {
+            if (after != null) {
+                cultureNames.put(after.getId(), after.getName());
+            } else if (before != null) {
+                cultureNames.remove(before.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onExposition(ExpositionRecord before, ExpositionRecord after) {
+        lock.writeLock().lock();
+        try {
+            if (before != null) {
+                expositions.remove(before.getId());
+                visitors -= before.getVisitorCount();
+            }
+            if (after != null) {
+                expositions.put(after.getId(), after);
+                visitors += after.getVisitorCount();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the current figures, every exposition included even without artefact
+     */
+    public CollectionStatistics statistics() {
+        lock.readLock().lock();
+        try {
+            List<StatisticsCount> cultureCounts = new ArrayList<>();
+            for (Map.Entry<Long, Long> culture : byCulture.entrySet()) {
+                cultureCounts.add(new StatisticsCount(String.valueOf(culture.getKey()),
+                        cultureNames.get(culture.getKey()), culture.getValue()));
+            }
+            List<StatisticsCount> expositionCounts = new ArrayList<>();
+            for (ExpositionRecord exposition : expositions.values()) {
+                expositionCounts.add(new StatisticsCount(String.valueOf(exposition.getId()), exposition.getTitle(),
+                        byExposition.getOrDefault(exposition.getId(), 0L)));
+            }
+            return new CollectionStatistics(artefacts, onPermanentDisplay, inExposition, inReserve, visitors,
+                    sorted(cultureCounts), values(byType), values(byMaterial), sorted(expositionCounts));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void count(ArtefactRecord artefact, long delta) {
+        artefacts += delta;
+        if (artefact.isOnPermanentDisplay()) {
+            onPermanentDisplay += delta;
+        }
+        if (artefact.isInExposition()) {
+            inExposition += delta;
+        }
+        if (!artefact.isOnPermanentDisplay() && !artefact.isInExposition()) {
+            inReserve += delta;
+        }
+        add(byCulture, artefact.getCultureId(), delta);
+        add(byType, artefact.getType(), delta);
+        for (String material : artefact.materials()) {
+            add(byMaterial, material, delta);
+        }
+        if (artefact.isInExposition()) {
+            add(byExposition, artefact.getExpositionId(), delta);
+        }
+    }
+
+    private static <K> void add(Map<K, Long> counts, K key, long delta) {
+        if (key != null) {
+            counts.merge(key, delta, (count, added) -> count + added == 0 ? null : count + added);
+        }
+    }
+
+    private static List<StatisticsCount> values(Map<String, Long> counts) {
+        List<StatisticsCount> values = new ArrayList<>();
+        for (Map.Entry<String, Long> count : counts.entrySet()) {
+            values.add(new StatisticsCount(count.getKey(), count.getKey(), count.getValue()));
+        }
+        return sorted(values);
+    }
+
+    private static List<StatisticsCount> sorted(List<StatisticsCount> counts) {
+        counts.sort(Comparator.comparingLong(StatisticsCount::getArtefacts).reversed()
+                .thenComparing(StatisticsCount::getLabel, Comparator.nullsLast(Comparator.naturalOrder())));
+        return counts;
+    }
+}
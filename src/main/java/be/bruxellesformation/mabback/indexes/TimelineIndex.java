@@ -0,0 +1,164 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.dto.TimelineBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Counts of the artefacts and cultures over the years, for the timeline.
+ * For each kind, one Fenwick tree counts the start years and another the end years. The datings overlapping the
+ * range [a, b] are those starting at b at the latest, minus those already ended before a : any range is counted in
+ * O(log n), and a change only moves two counts.
+ * The years outside of "mab.timeline.min-year" and "mab.timeline.max-year" are counted on these bounds.
+ */
+@Component
+public class TimelineIndex implements CatalogueIndex {
+
+    private final int minYear;
+    private final int maxYear;
+    private final Counts artefacts;
+    private final Counts cultures;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public TimelineIndex(@Value("${mab.timeline.min-year:-10000}") int minYear,
+                         @Value("${mab.timeline.max-year:2100}") int maxYear) {
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+        this.artefacts = new Counts(maxYear - minYear + 1);
+        this.cultures = new Counts(maxYear - minYear + 1);
+    }
+
+    @Override
+    public void rebuild(CatalogueData data) {
+        lock.writeLock().lock();
+        try {
+            artefacts.clear();
+            cultures.clear();
+            for (ArtefactRecord artefact : data.getArtefacts()) {
+                artefacts.add(artefact.getStartYear(), artefact.getEndYear(), 1);
+            }
+            for (CultureRecord culture : data.getCultures()) {
+                cultures.add(culture.getStartYear(), culture.getEndYear(), 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onArtefact(ArtefactRecord before, ArtefactRecord after) {
+        lock.writeLock().lock();
+        try {
+            if (before != null) {
+                artefacts.add(before.getStartYear(), before.getEndYear(), -1);
+            }
+            if (after != null) {
+                artefacts.add(after.getStartYear(), after.getEndYear(), 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCulture(CultureRecord before, CultureRecord after) {
+        lock.writeLock().lock();
+        try {
+            if (before != null) {
+                cultures.add(before.getStartYear(), before.getEndYear(), -1);
+            }
+            if (after != null) {
+                cultures.add(after.getStartYear(), after.getEndYear(), 1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param scale the width of the buckets
+     * @param from the first year, the earliest dating of the catalogue if null
+     * @param to the last year, the latest dating of the catalogue if null
+     * @param maxBuckets the maximum number of buckets
+     * @return the buckets aligned on their width, like -200 to -101 then -100 to -1 for centuries
+     * @throws IllegalArgumentException if the range needs more than maxBuckets buckets
+     */
+    public List<TimelineBucket> histogram(TimelineScale scale, Integer from, Integer to, int maxBuckets) {
+        lock.readLock().lock();
+        try {
+            if (artefacts.isEmpty() && cultures.isEmpty() && (from == null || to == null)) {
+                return Collections.emptyList();
+            }
+            int first = from != null ? from : Math.min(artefacts.earliestStart(), cultures.earliestStart());
+            int last = to != null ? to : Math.max(artefacts.latestEnd(), cultures.latestEnd());
+            int width = scale.getYears();
+            long start = Math.floorDiv(first, width) * (long) width;
+            long buckets = (Math.floorDiv(last, width) * (long) width - start) / width + 1;
+            if (last < first || buckets > maxBuckets) {
+                throw new IllegalArgumentException("trop de tranches : " + buckets);
+            }
+            List<TimelineBucket> histogram = new ArrayList<>((int) buckets);
+            for (long bucketStart = start; bucketStart <= last; bucketStart += width) {
+                int a = (int) bucketStart;
+                int b = (int) (bucketStart + width - 1);
+                histogram.add(new TimelineBucket(a, b, artefacts.overlapping(a, b), cultures.overlapping(a, b)));
+            }
+            return histogram;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The start and end years of one kind of entity.
+     */
+    private final class Counts {
+        private final FenwickTree starts;
+        private final FenwickTree ends;
+
+        private Counts(int size) {
+            this.starts = new FenwickTree(size);
+            this.ends = new FenwickTree(size);
+        }
+
+        void add(int startYear, int endYear, int delta) {
+            // Some datings are entered backwards
+            starts.add(position(Math.min(startYear, endYear)), delta);
+            ends.add(position(Math.max(startYear, endYear)), delta);
+        }
+
+        long overlapping(int a, int b) {
+            if (b < minYear || a > maxYear) {
+                return 0;
+            }
+            return starts.prefixSum(position(b)) - ends.prefixSum(position(a) - 1);
+        }
+
+        boolean isEmpty() {
+            return starts.total() == 0;
+        }
+
+        int earliestStart() {
+            return isEmpty() ? Integer.MAX_VALUE : minYear + starts.lowerBound(1);
+        }
+
+        int latestEnd() {
+            return isEmpty() ? Integer.MIN_VALUE : minYear + ends.lowerBound(ends.total());
+        }
+
+        void clear() {
+            starts.clear();
+            ends.clear();
+        }
+
+        private int position(int year) {
+            return Math.max(minYear, Math.min(maxYear, year)) - minYear;
+        }
+    }
+}
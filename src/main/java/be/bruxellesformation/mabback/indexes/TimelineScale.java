@@ -0,0 +1,21 @@
+package be.bruxellesformation.mabback.indexes;
+
+/**
+ * Width of the buckets of the timeline, in years.
+ */
+public enum TimelineScale {
+
+    DECADE(10),
+    CENTURY(100),
+    MILLENNIUM(1000);
+
+    private final int years;
+
+    TimelineScale(int years) {
+        this.years = years;
+    }
+
+    public int getYears() {
+        return years;
+    }
+}
@@ -0,0 +1,61 @@
+package be.bruxellesformation.mabback.invalidation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Transport between the application contexts of a single JVM, to run several nodes in a test.
+ * The messages are delivered synchronously to every started transport of the same hub, the sender included.
+ */
+public class InMemoryTransport implements InvalidationTransport {
+
+    private static final Hub SHARED = new Hub();
+
+    private final Hub hub;
+    private volatile Consumer<byte[]> receiver;
+
+    /**
+     * Creates a transport connected to the hub shared by the whole JVM.
+     */
+    public InMemoryTransport() {
+        this(SHARED);
+    }
+
+    public InMemoryTransport(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        hub.transports.add(this);
+    }
+
+    @Override
+    public void send(byte[] message) {
+        for (InMemoryTransport transport : hub.transports) {
+            Consumer<byte[]> target = transport.receiver;
+            if (target != null) {
+                target.accept(message.clone());
+            }
+        }
+    }
+
+    @Override
+    public int maxMessageSize() {
+        return 64 * 1024;
+    }
+
+    @Override
+    public void close() {
+        hub.transports.remove(this);
+    }
+
+    /**
+     * The transports connected together.
+     */
+    public static class Hub {
+        private final List<InMemoryTransport> transports = new CopyOnWriteArrayList<>();
+    }
+}
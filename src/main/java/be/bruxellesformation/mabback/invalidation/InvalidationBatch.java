@@ -0,0 +1,106 @@
+package be.bruxellesformation.mabback.invalidation;
+
+import be.bruxellesformation.mabback.events.CatalogueChangeEvent;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The changes committed by a node for a tenant, as sent on the transport.
+ * The message is text : a header line with the version, the node and the tenant, then one line per change with its
+ * entity type, change type, time in milliseconds and id, separated by tabs.
+ */
+class InvalidationBatch {
+
+    private static final String HEADER = "mab-invalidation 2 ";
+
+    private final String node;
+    private final String tenant;
+    private final List<CatalogueChangeEvent> changes;
+
+    InvalidationBatch(String node, String tenant, List<CatalogueChangeEvent> changes) {
+        this.node = node;
+        this.tenant = tenant;
+        this.changes = changes;
+    }
+
+    String getNode() {
+        return node;
+    }
+
+    String getTenant() {
+        return tenant;
+    }
+
+    List<CatalogueChangeEvent> getChanges() {
+        return changes;
+    }
+
+    /**
+     * @param node the node sending the changes
+     * @param tenant the tenant whose entities changed
+     * @param changes the changes
+     * @param maxSize the largest message of the transport
+     * @return the messages holding the changes, as many as needed to stay under maxSize
+     */
+    static List<byte[]> encode(String node, String tenant, Collection<CatalogueChangeEvent> changes, int maxSize) {
+        byte[] header = (HEADER + node + " " + tenant + "\n").getBytes(StandardCharsets.UTF_8);
+        List<byte[]> messages = new ArrayList<>();
+        ByteArrayOutputStream message = new ByteArrayOutputStream(maxSize);
+        for (CatalogueChangeEvent change : changes) {
+            byte[] line = (change.getEntityType() + "\t" + change.getChangeType() + "\t"
+                    + change.getTime().toEpochMilli() + "\t" + change.getId() + "\n").getBytes(StandardCharsets.UTF_8);
+            if (header.length + line.length > maxSize) {
+                // An id this long cannot be an artefact, nothing to invalidate
+                continue;
+            }
+            if (message.size() > 0 && message.size() + line.length > maxSize) {
+                messages.add(message.toByteArray());
+                message.reset();
+            }
+            if (message.size() == 0) {
+                message.write(header, 0, header.length);
+            }
+            message.write(line, 0, line.length);
+        }
+        if (message.size() > 0) {
+            messages.add(message.toByteArray());
+        }
+        return messages;
+    }
+
+    /**
+     * @param message a message received on the transport
+     * @return its changes, or null if the message is not an invalidation message
+     */
+    static InvalidationBatch decode(byte[] message) {
+        String[] lines = new String(message, StandardCharsets.UTF_8).split("\n");
+        if (lines.length == 0 || !lines[0].startsWith(HEADER)) {
+            return null;
+        }
+        String[] sender = lines[0].substring(HEADER.length()).split(" ", 2);
+        if (sender.length != 2) {
+            return null;
+        }
+        List<CatalogueChangeEvent> changes = new ArrayList<>(lines.length - 1);
+        try {
+            for (int i = 1; i < lines.length; i++) {
+                String[] fields = lines[i].split("\t", 4);
+                if (fields.length == 4) {
+                    changes.add(new CatalogueChangeEvent(CatalogueChangeEvent.EntityType.valueOf(fields[0]),
+                            CatalogueChangeEvent.ChangeType.valueOf(fields[1]), fields[3],
+                            Instant.ofEpochMilli(Long.parseLong(fields[2]))));
+                }
+            }
+        } catch (IllegalArgumentException exception) {
+            // From a newer version, or garbage on the multicast group
+            return null;
+        }
+        return new InvalidationBatch(sender[0], sender[1], Collections.unmodifiableList(changes));
+    }
+}
@@ -0,0 +1,197 @@
+package be.bruxellesformation.mabback.invalidation;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.domain.Culture;
+import be.bruxellesformation.mabback.domain.Exposition;
+import be.bruxellesformation.mabback.events.CatalogueChangeEvent;
+import be.bruxellesformation.mabback.tenancy.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.Cache;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tells the other nodes which catalogue entities this node changed, so that they drop their stale copies.
+ * The committed changes are gathered for a short interval, an entity changed several times being sent once, then
+ * sent in as few messages as the transport allows, each message holding the changes of one tenant.
+ * On reception, the entities are evicted from the second-level cache of Hibernate with the cached query results,
+ * then a {@link RemoteChangesEvent} published for the tenant lets the in-memory indexes and the change feed of this
+ * node catch up.
+ */
+public class InvalidationBus {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final String node = UUID.randomUUID().toString();
+    private final InvalidationTransport transport;
+    private final long flushIntervalMillis;
+    private final int maxBatchSize;
+    private final SessionFactoryImplementor sessionFactory;
+    // The tenant is part of the cache keys only in the multi-tenant mode
+    private final boolean multiTenant;
+    private final ApplicationEventPublisher publisher;
+    private final Counter sent;
+    private final Counter received;
+    private final Counter messages;
+
+    // Keyed by tenant then by entity, the last change wins
+    private final Map<String, Map<String, CatalogueChangeEvent>> pending = new LinkedHashMap<>();
+    private int pendingCount;
+    private ScheduledExecutorService flusher;
+
+    public InvalidationBus(InvalidationTransport transport, Duration flushInterval, int maxBatchSize,
+                           EntityManagerFactory entityManagerFactory, ApplicationEventPublisher publisher,
+                           ObjectProvider<MeterRegistry> meterRegistry) {
+        this.transport = transport;
+        this.flushIntervalMillis = Math.max(1, flushInterval.toMillis());
+        this.maxBatchSize = maxBatchSize;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.multiTenant = sessionFactory.getSessionFactoryOptions().getMultiTenancyStrategy()
+                .requiresMultiTenantConnectionProvider();
+        this.publisher = publisher;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.sent = Counter.builder("mab.invalidation.sent")
+                .description("Entity changes sent to the other nodes")
+                .register(registry);
+        this.received = Counter.builder("mab.invalidation.received")
+                .description("Entity changes received from the other nodes")
+                .register(registry);
+        this.messages = Counter.builder("mab.invalidation.messages")
+                .description("Invalidation messages sent")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "invalidation-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        transport.start(this::receive);
+        logger.info("invalidation bus started as node {}", node);
+    }
+
+    /**
+     * Queues a committed change for the other nodes, with the tenant it was made for.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(CatalogueChangeEvent event) {
+        boolean full;
+        synchronized (pending) {
+            Map<String, CatalogueChangeEvent> changes = pending.computeIfAbsent(TenantContext.current(),
+                    tenant -> new LinkedHashMap<>());
+            if (changes.put(event.getEntityType() + ":" + event.getId(), event) == null) {
+                pendingCount++;
+            }
+            full = pendingCount >= maxBatchSize;
+        }
+        if (full && !flusher.isShutdown()) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * @return the id of this node in the messages
+     */
+    public String getNode() {
+        return node;
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdown();
+        flush();
+    }
+
+    void flush() {
+        Map<String, List<CatalogueChangeEvent>> changesByTenant = new LinkedHashMap<>();
+        synchronized (pending) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<String, Map<String, CatalogueChangeEvent>> tenant : pending.entrySet()) {
+                changesByTenant.put(tenant.getKey(), new ArrayList<>(tenant.getValue().values()));
+            }
+            pending.clear();
+            pendingCount = 0;
+        }
+        for (Map.Entry<String, List<CatalogueChangeEvent>> tenant : changesByTenant.entrySet()) {
+            List<CatalogueChangeEvent> changes = tenant.getValue();
+            try {
+                for (byte[] message : InvalidationBatch.encode(node, tenant.getKey(), changes,
+                        transport.maxMessageSize())) {
+                    transport.send(message);
+                    messages.increment();
+                }
+                sent.increment(changes.size());
+            } catch (RuntimeException exception) {
+                logger.warn("cannot send {} invalidations of tenant '{}'", changes.size(), tenant.getKey(), exception);
+            }
+        }
+    }
+
+    void receive(byte[] message) {
+        InvalidationBatch batch = InvalidationBatch.decode(message);
+        if (batch == null || node.equals(batch.getNode()) || batch.getChanges().isEmpty()) {
+            return;
+        }
+        received.increment(batch.getChanges().size());
+        for (CatalogueChangeEvent change : batch.getChanges()) {
+            switch (change.getEntityType()) {
+                case ARTEFACT:
+                    evict(Artefact.class, change.getId(), batch.getTenant());
+                    break;
+                case CULTURE:
+                    evict(Culture.class, Long.parseLong(change.getId()), batch.getTenant());
+                    break;
+                case EXPOSITION:
+                    evict(Exposition.class, Long.parseLong(change.getId()), batch.getTenant());
+                    break;
+                default:
+                    break;
+            }
+        }
+        // The timestamps of the other nodes never reach this one, their query results can be stale
+        Cache cache = sessionFactory.getCache();
+        cache.evictQueryRegions();
+        TenantContext.runAs(batch.getTenant(),
+                () -> publisher.publishEvent(new RemoteChangesEvent(batch.getNode(), batch.getChanges())));
+    }
+
+    /**
+     * Evicts the cached entity of a tenant. {@link Cache#evictEntityData(Class, Serializable)} builds a key without
+     * tenant, which matches no entry in the multi-tenant mode.
+     */
+    private void evict(Class<?> entityClass, Serializable id, String tenant) {
+        EntityPersister persister = sessionFactory.getMetamodel().entityPersister(entityClass);
+        EntityDataAccess cacheAccess = persister.getCacheAccessStrategy();
+        if (cacheAccess != null) {
+            cacheAccess.evict(cacheAccess.generateCacheKey(id, persister, sessionFactory, multiTenant ? tenant : null));
+        }
+    }
+}
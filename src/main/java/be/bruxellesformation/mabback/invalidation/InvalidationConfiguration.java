@@ -0,0 +1,40 @@
+package be.bruxellesformation.mabback.invalidation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Connects the node to the others when "mab.invalidation.enabled" is true, for a deployment of several nodes behind
+ * a load balancer.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "mab.invalidation", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(InvalidationProperties.class)
+public class InvalidationConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public InvalidationTransport invalidationTransport(InvalidationProperties properties) {
+        if (properties.getTransport() == InvalidationProperties.Transport.IN_MEMORY) {
+            return new InMemoryTransport();
+        }
+        InvalidationProperties.Multicast multicast = properties.getMulticast();
+        return new MulticastTransport(multicast.getGroup(), multicast.getPort(), multicast.getNetworkInterface(),
+                multicast.getTimeToLive());
+    }
+
+    @Bean
+    public InvalidationBus invalidationBus(InvalidationTransport transport, InvalidationProperties properties,
+                                           EntityManagerFactory entityManagerFactory,
+                                           ApplicationEventPublisher publisher,
+                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        return new InvalidationBus(transport, properties.getFlushInterval(), properties.getMaxBatchSize(),
+                entityManagerFactory, publisher, meterRegistry);
+    }
+}
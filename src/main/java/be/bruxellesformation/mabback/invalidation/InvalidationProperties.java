@@ -0,0 +1,36 @@
+package be.bruxellesformation.mabback.invalidation;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the invalidation bus, bound from the "mab.invalidation" properties.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "mab.invalidation")
+public class InvalidationProperties {
+
+    public enum Transport {
+        MULTICAST,
+        IN_MEMORY
+    }
+
+    private boolean enabled = false;
+    private Transport transport = Transport.MULTICAST;
+    private Duration flushInterval = Duration.ofMillis(50);
+    private int maxBatchSize = 1000;
+    private Multicast multicast = new Multicast();
+
+    @Getter
+    @Setter
+    public static class Multicast {
+        private String group = "239.255.77.77";
+        private int port = 47700;
+        private String networkInterface;
+        private int timeToLive = 1;
+    }
+}
@@ -0,0 +1,30 @@
+package be.bruxellesformation.mabback.invalidation;
+
+import java.io.Closeable;
+import java.util.function.Consumer;
+
+/**
+ * Carries the invalidation messages between the nodes. A message sent by a node may come back to it, and may be
+ * lost : the receivers must ignore their own messages, and the caches they evict must expire anyway.
+ */
+public interface InvalidationTransport extends Closeable {
+
+    /**
+     * Starts receiving the messages of the other nodes.
+     * @param receiver called with each message received, from a thread of the transport
+     */
+    void start(Consumer<byte[]> receiver);
+
+    /**
+     * @param message a message of at most {@link #maxMessageSize()} bytes
+     */
+    void send(byte[] message);
+
+    /**
+     * @return the largest message the transport can carry
+     */
+    int maxMessageSize();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,102 @@
+package be.bruxellesformation.mabback.invalidation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * UDP multicast transport : each message is a single datagram sent to the group, received by every node which
+ * joined it. Nothing is acknowledged, a lost datagram leaves a stale entry until it expires.
+ * The datagrams are kept under the usual MTU to never be fragmented.
+ */
+public class MulticastTransport implements InvalidationTransport {
+
+    private static final int MAX_DATAGRAM = 1400;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final InetAddress group;
+    private final int port;
+    private final MulticastSocket socket;
+    private Thread receiverThread;
+
+    /**
+     * Joins the multicast group.
+     * @param group the multicast address, like 239.255.77.77
+     * @param port the port of the group
+     * @param networkInterface the name of the interface to use, null for the default one
+     * @param timeToLive how many routers the datagrams may cross, 1 to stay on the local network
+     */
+    public MulticastTransport(String group, int port, String networkInterface, int timeToLive) {
+        try {
+            this.group = InetAddress.getByName(group);
+            this.port = port;
+            this.socket = new MulticastSocket(port);
+            socket.setTimeToLive(timeToLive);
+            if (networkInterface != null && !networkInterface.isEmpty()) {
+                NetworkInterface selected = NetworkInterface.getByName(networkInterface);
+                socket.setNetworkInterface(selected);
+                socket.joinGroup(new InetSocketAddress(this.group, port), selected);
+            } else {
+                socket.joinGroup(this.group);
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException("cannot join the multicast group " + group + ":" + port, exception);
+        }
+    }
+
+    @Override
+    public void start(Consumer<byte[]> receiver) {
+        receiverThread = new Thread(() -> receive(receiver), "invalidation-multicast");
+        receiverThread.setDaemon(true);
+        receiverThread.start();
+    }
+
+    @Override
+    public void send(byte[] message) {
+        try {
+            socket.send(new DatagramPacket(message, message.length, group, port));
+        } catch (IOException exception) {
+            logger.warn("cannot send an invalidation message: {}", exception.getMessage());
+        }
+    }
+
+    @Override
+    public int maxMessageSize() {
+        return MAX_DATAGRAM;
+    }
+
+    @Override
+    public void close() {
+        // Unblocks the receiving thread
+        socket.close();
+    }
+
+    private void receive(Consumer<byte[]> receiver) {
+        byte[] buffer = new byte[64 * 1024];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                receiver.accept(Arrays.copyOf(packet.getData(), packet.getLength()));
+            } catch (SocketException exception) {
+                if (!socket.isClosed()) {
+                    logger.warn("invalidation multicast socket failed", exception);
+                }
+                return;
+            } catch (IOException | RuntimeException exception) {
+                logger.warn("cannot handle an invalidation message", exception);
+            }
+        }
+    }
+}
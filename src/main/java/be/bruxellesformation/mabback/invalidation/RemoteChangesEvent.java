@@ -0,0 +1,20 @@
+package be.bruxellesformation.mabback.invalidation;
+
+import be.bruxellesformation.mabback.events.CatalogueChangeEvent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Published when the changes committed by another node are received, with the tenant of the changes set on the
+ * thread. Unlike a {@link CatalogueChangeEvent}, it is published outside of any transaction and must not be written
+ * again in the change log.
+ */
+@Getter
+@AllArgsConstructor
+public class RemoteChangesEvent {
+
+    private final String node;
+    private final List<CatalogueChangeEvent> changes;
+}
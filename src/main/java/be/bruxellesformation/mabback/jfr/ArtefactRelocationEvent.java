@@ -0,0 +1,35 @@
+package be.bruxellesformation.mabback.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The move of one artefact by "/collections/{id}". The moves of many artefacts are {@link BulkOperationEvent}s.
+ */
+@Name("mab.ArtefactRelocation")
+@Label("Artefact Relocation")
+@Category({"MAB", "Catalogue"})
+@Description("Move of one artefact to a room, the reserves or out of its exposition")
+@Enabled(false)
+@StackTrace(false)
+public class ArtefactRelocationEvent extends Event {
+
+    @Label("Identification")
+    public String identification;
+
+    @Label("Destination")
+    public String destination;
+
+    @Label("Moved")
+    @Description("False if the artefact is unknown or could not leave its exposition")
+    public boolean moved;
+
+    @Label("Outcome")
+    @Description("moved, unknown artefact, not in an exposition, or failed if the transaction did not commit")
+    public String outcome;
+}
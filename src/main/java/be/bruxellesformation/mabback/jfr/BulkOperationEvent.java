@@ -0,0 +1,49 @@
+package be.bruxellesformation.mabback.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An operation on many artefacts at once : a relocation by "/collections/relocate", or the inventory of a room.
+ */
+@Name("mab.BulkOperation")
+@Label("Bulk Operation")
+@Category({"MAB", "Catalogue"})
+@Description("Operation on many artefacts at once")
+@Enabled(false)
+@StackTrace(false)
+public class BulkOperationEvent extends Event {
+
+    @Label("Operation")
+    @Description("relocation or inventory")
+    public String operation;
+
+    @Label("Target")
+    @Description("Destination of the relocation, or room of the inventory")
+    public String target;
+
+    @Label("Items")
+    @Description("Artefacts selected by the relocation, or identifications scanned for the inventory")
+    public int items;
+
+    @Label("Succeeded")
+    @Description("Artefacts moved, or found in their room")
+    public int succeeded;
+
+    @Label("Chunks")
+    @Description("Transactions of the relocation, 1 for the inventory")
+    public int chunks;
+
+    @Label("Failed Chunks")
+    @Description("Transactions of the relocation rolled back")
+    public int failedChunks;
+
+    @Label("Outcome")
+    @Description("completed, partial if a chunk of the relocation failed, or failed")
+    public String outcome;
+}
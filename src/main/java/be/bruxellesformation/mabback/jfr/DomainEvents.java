@@ -0,0 +1,57 @@
+package be.bruxellesformation.mabback.jfr;
+
+import jdk.jfr.Event;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Records the events of the domain operations, even when they fail.
+ * Within a transaction, like a method annotated with @Transactional, the event lasts until the commit or the
+ * rollback : an operation is only done once committed.
+ */
+public final class DomainEvents {
+
+    private DomainEvents() {
+    }
+
+    /**
+     * Runs an operation within an event.
+     * @param event the event, its other fields set beforehand or by the operation
+     * @param operation the operation
+     * @param outcome sets the outcome of the event from the result of the operation, given null if the operation or
+     * its transaction failed
+     * @return the result of the operation
+     */
+    public static <E extends Event, T> T record(E event, Supplier<T> operation, BiConsumer<E, T> outcome) {
+        event.begin();
+        T result;
+        try {
+            result = operation.get();
+        } catch (RuntimeException | Error exception) {
+            commit(event, null, outcome);
+            throw exception;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    commit(event, status == STATUS_COMMITTED ? result : null, outcome);
+                }
+            });
+        } else {
+            commit(event, result, outcome);
+        }
+        return result;
+    }
+
+    private static <E extends Event, T> void commit(E event, T result, BiConsumer<E, T> outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            outcome.accept(event, result);
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package be.bruxellesformation.mabback.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A continuous flight recording of the node, kept on disk within "mab.jfr.max-age" and "mab.jfr.max-size".
+ * The events of the JDK follow the settings named by "mab.jfr.base", the events of the application those of the
+ * file named by "mab.jfr.settings". These are disabled outside of a recording enabling them, and cost nothing then.
+ * The recording is named "mab" : "jcmd &lt;pid&gt; JFR.dump name=mab filename=mab.jfr" writes it at any time, so
+ * that the samples of the CPU and of the allocations can be read along the operation running on the same thread.
+ */
+public class DomainRecording {
+
+    static final String NAME = "mab";
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final FlightRecorderProperties properties;
+    private Recording recording;
+
+    public DomainRecording(FlightRecorderProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * @throws IOException if the settings cannot be read, or the directory of the destination cannot be created
+     * @throws ParseException if the settings are not a valid JFR configuration
+     */
+    public synchronized void start() throws IOException, ParseException {
+        Map<String, String> settings = new HashMap<>(Configuration.getConfiguration(properties.getBase())
+                .getSettings());
+        Resource resource = new DefaultResourceLoader().getResource(properties.getSettings());
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            settings.putAll(Configuration.create(reader).getSettings());
+        }
+        Recording started = new Recording();
+        started.setName(NAME);
+        started.setSettings(settings);
+        started.setToDisk(true);
+        started.setMaxAge(properties.getMaxAge());
+        started.setMaxSize(properties.getMaxSize().toBytes());
+        Path destination = properties.getDestination();
+        if (destination != null) {
+            // The JDK creates the file at once, and fails if its directory is missing
+            Path directory = destination.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            started.setDestination(destination);
+        }
+        started.start();
+        recording = started;
+        logger.info("flight recording '{}' started with the settings {} and {}", NAME, properties.getBase(),
+                properties.getSettings());
+    }
+
+    /**
+     * Writes the recording to "mab.jfr.destination", if any, then closes it.
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (recording == null) {
+            return;
+        }
+        try {
+            recording.stop();
+        } catch (IllegalStateException exception) {
+            logger.debug("flight recording already stopped", exception);
+        }
+        recording.close();
+        recording = null;
+    }
+
+    /**
+     * @param file the file receiving the events recorded so far
+     * @throws IOException if the file cannot be written
+     */
+    synchronized void dump(Path file) throws IOException {
+        if (recording == null) {
+            throw new IllegalStateException("flight recording not started");
+        }
+        recording.dump(file);
+    }
+}
@@ -0,0 +1,36 @@
+package be.bruxellesformation.mabback.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The end of an exposition, its artefacts going back to the reserves.
+ */
+@Name("mab.ExpositionClosing")
+@Label("Exposition Closing")
+@Category({"MAB", "Expositions"})
+@Description("End of an exposition, its artefacts going back to the reserves")
+@Enabled(false)
+@StackTrace(false)
+public class ExpositionClosingEvent extends Event {
+
+    @Label("Exposition")
+    public long expositionId;
+
+    @Label("Artefacts")
+    @Description("Artefacts sent back to the reserves")
+    public int artefacts;
+
+    @Label("Deleted")
+    @Description("Whether the exposition is deleted too")
+    public boolean deleted;
+
+    @Label("Outcome")
+    @Description("closed, unknown exposition, or failed if the transaction did not commit")
+    public String outcome;
+}
@@ -0,0 +1,36 @@
+package be.bruxellesformation.mabback.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The artefacts added to an exposition by "/expo/{id}/addArtefacts".
+ */
+@Name("mab.ExpositionStaging")
+@Label("Exposition Staging")
+@Category({"MAB", "Expositions"})
+@Description("Artefacts added to an exposition")
+@Enabled(false)
+@StackTrace(false)
+public class ExpositionStagingEvent extends Event {
+
+    @Label("Exposition")
+    public long expositionId;
+
+    @Label("Requested")
+    @Description("Identifications in the request")
+    public int requested;
+
+    @Label("Added")
+    @Description("Artefacts found and added")
+    public int added;
+
+    @Label("Outcome")
+    @Description("staged, refused, or failed if the transaction did not commit")
+    public String outcome;
+}
@@ -0,0 +1,22 @@
+package be.bruxellesformation.mabback.jfr;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Starts the continuous flight recording of the domain events when "mab.jfr.enabled" is true.
+ * A recording started otherwise, by -XX:StartFlightRecording or jcmd, records them too when given a copy of the
+ * settings file "jfr/mab.jfc" of the application.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "mab.jfr", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(FlightRecorderProperties.class)
+public class FlightRecorderConfiguration {
+
+    @Bean(initMethod = "start")
+    public DomainRecording domainRecording(FlightRecorderProperties properties) {
+        return new DomainRecording(properties);
+    }
+}
@@ -0,0 +1,28 @@
+package be.bruxellesformation.mabback.jfr;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of the continuous flight recording, bound from the "mab.jfr" properties.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "mab.jfr")
+public class FlightRecorderProperties {
+
+    private boolean enabled = false;
+    // Settings of the JDK, "default" costs about 1% of the CPU, "profile" about 2%
+    private String base = "default";
+    // Settings of the events of the application, applied over the base
+    private String settings = "classpath:jfr/mab.jfc";
+    private Duration maxAge = Duration.ofHours(6);
+    private DataSize maxSize = DataSize.ofMegabytes(250);
+    // Where the recording is written when the node stops, not written if null
+    private Path destination;
+}
@@ -0,0 +1,30 @@
+package be.bruxellesformation.mabback.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The check of the bearer token of a request, the loading of its user included.
+ */
+@Name("mab.JwtValidation")
+@Label("JWT Validation")
+@Category({"MAB", "Security"})
+@Description("Check of the bearer token of a request and loading of its user")
+@Enabled(false)
+@StackTrace(false)
+public class JwtValidationEvent extends Event {
+
+    @Label("Token Size")
+    @DataAmount
+    public int tokenSize;
+
+    @Label("Outcome")
+    @Description("authorized, invalid, expired, unknown user, already authenticated, or failed")
+    public String outcome;
+}
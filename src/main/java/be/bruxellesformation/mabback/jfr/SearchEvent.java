@@ -0,0 +1,35 @@
+package be.bruxellesformation.mabback.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A search of the catalogue, fuzzy or by the containing words of the database.
+ */
+@Name("mab.Search")
+@Label("Search")
+@Category({"MAB", "Catalogue"})
+@Description("Search of the catalogue, with the length of the criteria and the number of hits")
+@Enabled(false)
+@StackTrace(false)
+public class SearchEvent extends Event {
+
+    @Label("Mode")
+    @Description("fuzzy, or contains for the search of the database")
+    public String mode;
+
+    @Label("Kind")
+    @Description("Kind of the searched entities, null for every kind")
+    public String kind;
+
+    @Label("Criteria Length")
+    public int criteriaLength;
+
+    @Label("Hits")
+    public int hits;
+}
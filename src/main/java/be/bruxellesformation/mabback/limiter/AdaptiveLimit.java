@@ -0,0 +1,104 @@
+package be.bruxellesformation.mabback.limiter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit adapting itself to the latency, after the gradient algorithm of Netflix concurrency-limits.
+ * A short-term average of the response times is compared to a long-term one : when the requests get slower than
+ * usual, the server is queuing work somewhere (threads, connection pool, database) and the limit shrinks in
+ * proportion; while they stay as fast as usual, the limit grows slowly.
+ */
+public class AdaptiveLimit {
+
+    // The long-term average is allowed to exceed the short one by this factor before the limit shrinks
+    private static final double TOLERANCE = 1.5;
+    private static final int SHORT_WINDOW = 10;
+    private static final int LONG_WINDOW = 600;
+    // Multiplies the limit when a request fails, like a timeout of the connection pool
+    private static final double BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile double limit;
+    private double shortRtt;
+    private double longRtt;
+
+    /**
+     * @param initialLimit the limit before any measure
+     * @param minLimit the limit never goes under this value
+     * @param maxLimit the limit never goes over this value
+     * @param smoothing the weight of a new estimate in the limit, between 0 and 1
+     */
+    public AdaptiveLimit(int initialLimit, int minLimit, int maxLimit, double smoothing) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("invalid limits : " + minLimit + " - " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Admits a request if its class still has room under the limit.
+     * @param priority the class of the request
+     * @return true if the request may run, it must then call {@link #release(long, boolean)}
+     */
+    public boolean tryAcquire(RequestPriority priority) {
+        // A class always gets at least one request, so a small limit cannot starve it
+        int allowed = Math.max(1, (int) (limit * priority.getShare()));
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends a request admitted by {@link #tryAcquire(RequestPriority)} and updates the limit with its response time.
+     * @param rttNanos the time taken by the request
+     * @param failed true if the request failed in a way telling the server is overloaded
+     */
+    public void release(long rttNanos, boolean failed) {
+        int inflightAtEnd = inflight.getAndDecrement();
+        synchronized (this) {
+            if (failed) {
+                limit = Math.max(minLimit, limit * BACKOFF);
+                return;
+            }
+            shortRtt = average(shortRtt, rttNanos, SHORT_WINDOW);
+            longRtt = average(longRtt, rttNanos, LONG_WINDOW);
+            // After a long overload, lets the long-term average come back towards the normal response time
+            if (longRtt / shortRtt > 2) {
+                longRtt *= 0.95;
+            }
+            // The server is not using its limit : the response times tell nothing about the limit
+            if (inflightAtEnd < limit / 2) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+            double queue = Math.sqrt(limit);
+            double estimate = limit * gradient + queue;
+            double smoothed = limit * (1 - smoothing) + estimate * smoothing;
+            limit = Math.max(minLimit, Math.min(maxLimit, smoothed));
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    private static double average(double average, long sample, int window) {
+        return average == 0 ? sample : average + (sample - average) / window;
+    }
+}
@@ -0,0 +1,164 @@
+package be.bruxellesformation.mabback.limiter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Sheds the requests over the {@link AdaptiveLimit} before they take a thread of the controllers and a connection of
+ * the pool, with a "503 Service Unavailable" and a Retry-After header.
+ * Runs after Spring Security, which tells who the user is and so the {@link RequestPriority} of the request.
+ * The change feed and the actuator are not limited : their requests are long-lived or must answer under load.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+@ConditionalOnProperty(prefix = "mab.limiter", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    // PATCH "/expo/{id}" : the visitors counted by the turnstiles
+    private static final Pattern TURNSTILE = Pattern.compile("/expo/\\d+");
+    private static final String[] UNLIMITED = {"/changes", "/actuator", "/h2-console"};
+
+    private final AdaptiveLimit limit;
+    private final String retryAfter;
+    private final Map<RequestPriority, Counter> rejected = new EnumMap<>(RequestPriority.class);
+
+    public ConcurrencyLimitFilter(ObjectProvider<MeterRegistry> meterRegistry,
+                                  @Value("${mab.limiter.initial-limit:20}") int initialLimit,
+                                  @Value("${mab.limiter.min-limit:2}") int minLimit,
+                                  @Value("${mab.limiter.max-limit:200}") int maxLimit,
+                                  @Value("${mab.limiter.smoothing:0.2}") double smoothing,
+                                  @Value("${mab.limiter.retry-after:1s}") Duration retryAfter) {
+        this.limit = new AdaptiveLimit(initialLimit, minLimit, maxLimit, smoothing);
+        this.retryAfter = Long.toString(Math.max(1, retryAfter.getSeconds()));
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        Gauge.builder("mab.limiter.limit", limit, AdaptiveLimit::getLimit).register(registry);
+        Gauge.builder("mab.limiter.inflight", limit, AdaptiveLimit::getInflight).register(registry);
+        for (RequestPriority priority : RequestPriority.values()) {
+            rejected.put(priority, Counter.builder("mab.limiter.rejected")
+                    .tag("priority", priority.name().toLowerCase()).register(registry));
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        for (String unlimited : UNLIMITED) {
+            if (path.startsWith(unlimited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RequestPriority priority = classify(request, SecurityContextHolder.getContext().getAuthentication());
+        if (!limit.tryAcquire(priority)) {
+            rejected.get(priority).increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Serveur surcharge, reessayez plus tard");
+            return;
+        }
+
+        long start = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value();
+        } finally {
+            if (request.isAsyncStarted()) {
+                // The request goes on in another thread, it leaves the limit when it completes
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        release(released, start, false);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        release(released, start, true);
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        release(released, start, true);
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                        // Nothing to do, the listener is only added once the request is asynchronous
+                    }
+                });
+            } else {
+                release(released, start, failed);
+            }
+        }
+    }
+
+    /**
+     * @return the class of the request : the writes of the curators and the turnstiles first, then the other
+     * authenticated users, then the anonymous public
+     */
+    static RequestPriority classify(HttpServletRequest request, Authentication authentication) {
+        String method = request.getMethod();
+        if (HttpMethod.PATCH.matches(method) && TURNSTILE.matcher(path(request)).matches()) {
+            return RequestPriority.CRITICAL;
+        }
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return RequestPriority.ANONYMOUS;
+        }
+        boolean read = HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)
+                || HttpMethod.OPTIONS.matches(method);
+        if (!read) {
+            for (GrantedAuthority authority : authentication.getAuthorities()) {
+                if ("CONSERVATEUR".equals(authority.getAuthority())) {
+                    return RequestPriority.CRITICAL;
+                }
+            }
+        }
+        return RequestPriority.AUTHENTICATED;
+    }
+
+    private void release(AtomicBoolean released, long start, boolean failed) {
+        if (released.compareAndSet(false, true)) {
+            limit.release(System.nanoTime() - start, failed);
+        }
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
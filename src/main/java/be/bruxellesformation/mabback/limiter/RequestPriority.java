@@ -0,0 +1,28 @@
+package be.bruxellesformation.mabback.limiter;
+
+/**
+ * Priority classes of the concurrency limiter. Each class may only use a share of the limit, so that under load the
+ * anonymous reads are rejected first and the curators and turnstiles keep being served.
+ */
+public enum RequestPriority {
+
+    /** Writes of the curators and the visitor counts of the turnstiles. */
+    CRITICAL(1.0),
+    /** The other requests of authenticated users. */
+    AUTHENTICATED(0.9),
+    /** Anonymous reads of the public. */
+    ANONYMOUS(0.75);
+
+    private final double share;
+
+    RequestPriority(double share) {
+        this.share = share;
+    }
+
+    /**
+     * @return the part of the limit the class may fill, between 0 and 1
+     */
+    public double getShare() {
+        return share;
+    }
+}
@@ -0,0 +1,84 @@
+package be.bruxellesformation.mabback.movements;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.domain.Exposition;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Objects;
+
+/**
+ * Feeds the {@link MovementLog} from Hibernate: every flush changing the localisation of an artefact is recorded,
+ * whatever the endpoint or domain method which moved it.
+ * The bulk updates bypass Hibernate and record their moves themselves.
+ */
+@Component
+public class MovementCapture implements PostInsertEventListener, PostUpdateEventListener {
+
+    private static final String LOCALISATION = "localisation";
+    private static final String EXPOSITION = "exposition";
+
+    private final transient MovementLog movementLog;
+
+    public MovementCapture(EntityManagerFactory entityManagerFactory, MovementLog movementLog) {
+        this.movementLog = movementLog;
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Artefact) {
+            Object[] state = event.getState();
+            EntityPersister persister = event.getPersister();
+            movementLog.recordAfterCommit((String) event.getId(), null,
+                    (String) state[index(persister, LOCALISATION)], expositionId(state[index(persister, EXPOSITION)]));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        // Without the old state, as for an update of a detached artefact, a move cannot be told from a rewrite
+        if (!(event.getEntity() instanceof Artefact) || event.getOldState() == null) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        int localisation = index(persister, LOCALISATION);
+        String from = (String) event.getOldState()[localisation];
+        String to = (String) event.getState()[localisation];
+        if (!Objects.equals(from, to)) {
+            movementLog.recordAfterCommit((String) event.getId(), from, to,
+                    expositionId(event.getState()[index(persister, EXPOSITION)]));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    // Misspelled and deprecated, but still the abstract method of Hibernate 5.4
+    @Override
+    @Deprecated
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return requiresPostCommitHandling(persister);
+    }
+
+    private static int index(EntityPersister persister, String property) {
+        return persister.getEntityMetamodel().getPropertyIndex(property);
+    }
+
+    private static Long expositionId(Object exposition) {
+        return exposition instanceof Exposition ? ((Exposition) exposition).getId() : null;
+    }
+}
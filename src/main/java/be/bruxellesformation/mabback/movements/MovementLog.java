@@ -0,0 +1,221 @@
+package be.bruxellesformation.mabback.movements;
+
+import be.bruxellesformation.mabback.dto.ArtefactMovement;
+import be.bruxellesformation.mabback.tenancy.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * History of the localisations of the artefacts, in the append-only table "artefact_movement".
+ * The moves are queued in a {@link RingBuffer} and written by a single thread in JDBC batches, so the transactions
+ * moving artefacts never wait for the history. A move is only queued once its transaction has committed.
+ * The queue is written completely when the application stops. When it is full, the moves are dropped and counted
+ * by the "mab.movements.dropped" counter.
+ * Each move is written in the schema of the museum it was made in, see {@link TenantContext}.
+ */
+@Component
+public class MovementLog {
+
+    private static final String INSERT = "INSERT INTO artefact_movement "
+            + "(artefact_identification, from_localisation, to_localisation, exposition_id, moved_by, moved_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT = "SELECT artefact_identification, from_localisation, to_localisation, "
+            + "exposition_id, moved_by, moved_at FROM artefact_movement "
+            + "WHERE artefact_identification = ? ORDER BY moved_at, id";
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RingBuffer<Queued> buffer;
+    private final int batchSize;
+    private final long idleNanos;
+    private final Counter dropped;
+    private final Counter written;
+    private final Counter failed;
+    private volatile boolean running;
+    private Thread writer;
+
+    public MovementLog(JdbcTemplate jdbcTemplate, ObjectProvider<MeterRegistry> meterRegistry,
+                       @Value("${mab.movements.buffer-size:8192}") int bufferSize,
+                       @Value("${mab.movements.batch-size:100}") int batchSize,
+                       @Value("${mab.movements.idle-millis:200}") long idleMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.buffer = new RingBuffer<>(bufferSize);
+        this.batchSize = batchSize;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.dropped = registry.counter("mab.movements.dropped");
+        this.written = registry.counter("mab.movements.written");
+        this.failed = registry.counter("mab.movements.failed");
+        Gauge.builder("mab.movements.pending", buffer, RingBuffer::size).register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::writeLoop, "movement-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Writes everything still queued before the datasource is closed.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (writer.isAlive()) {
+            logger.error("movement log writer still busy, {} movements not written", buffer.size());
+            return;
+        }
+        // The writer is stopped, this thread can now consume what is left
+        flush();
+    }
+
+    /**
+     * Records a move once the current transaction has committed, or immediately without transaction.
+     * @param identification the identification of the artefact
+     * @param fromLocalisation its previous localisation, null for an entry in the collection
+     * @param toLocalisation its new localisation
+     * @param expositionId the exposition the artefact is in, null otherwise
+     */
+    public void recordAfterCommit(String identification, String fromLocalisation, String toLocalisation,
+                                  Long expositionId) {
+        ArtefactMovement movement = new ArtefactMovement(identification, fromLocalisation, toLocalisation,
+                expositionId, currentUser(), Instant.now());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(movement);
+                }
+            });
+        } else {
+            append(movement);
+        }
+    }
+
+    /**
+     * Queues a move without ever blocking.
+     * @param movement the move to write
+     * @return false if the queue was full and the move is lost
+     */
+    public boolean append(ArtefactMovement movement) {
+        if (buffer.offer(new Queued(TenantContext.current(), movement))) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * @param identification the identification of an artefact
+     * @return the written moves of the artefact, from the oldest. The moves still queued are not included.
+     */
+    public List<ArtefactMovement> history(String identification) {
+        return jdbcTemplate.query(SELECT, (resultSet, row) -> new ArtefactMovement(
+                resultSet.getString("artefact_identification"),
+                resultSet.getString("from_localisation"),
+                resultSet.getString("to_localisation"),
+                resultSet.getObject("exposition_id", Long.class),
+                resultSet.getString("moved_by"),
+                resultSet.getTimestamp("moved_at").toInstant()), identification);
+    }
+
+    private void writeLoop() {
+        while (running) {
+            if (flush() == 0) {
+                LockSupport.parkNanos(this, idleNanos);
+            }
+        }
+    }
+
+    /**
+     * Writes the queued moves by batches. Only one thread at a time may call it: the writer, then the shutdown.
+     * @return the number of moves taken from the queue
+     */
+    private int flush() {
+        int total = 0;
+        List<Queued> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            Map<String, List<ArtefactMovement>> byTenant = new LinkedHashMap<>();
+            for (Queued queued : batch) {
+                byTenant.computeIfAbsent(queued.tenant, tenant -> new ArrayList<>()).add(queued.movement);
+            }
+            for (Map.Entry<String, List<ArtefactMovement>> movements : byTenant.entrySet()) {
+                TenantContext.runAs(movements.getKey(), () -> write(movements.getValue()));
+            }
+            total += batch.size();
+            batch.clear();
+        }
+        return total;
+    }
+
+    private void write(List<ArtefactMovement> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT, batch, batch.size(), (statement, movement) -> {
+                statement.setString(1, movement.getIdentification());
+                statement.setString(2, movement.getFromLocalisation());
+                statement.setString(3, movement.getToLocalisation());
+                if (movement.getExpositionId() != null) {
+                    statement.setLong(4, movement.getExpositionId());
+                } else {
+                    statement.setNull(4, Types.BIGINT);
+                }
+                statement.setString(5, movement.getMovedBy());
+                statement.setTimestamp(6, Timestamp.from(movement.getMovedAt()));
+            });
+            written.increment(batch.size());
+        } catch (DataAccessException exception) {
+            // The history is not worth blocking the writer : the batch is given up
+            failed.increment(batch.size());
+            logger.error("cannot write {} artefact movements", batch.size(), exception);
+        }
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    private static final class Queued {
+        private final String tenant;
+        private final ArtefactMovement movement;
+
+        private Queued(String tenant, ArtefactMovement movement) {
+            this.tenant = tenant;
+            this.movement = movement;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package be.bruxellesformation.mabback.movements;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded queue without locks for many producers and a single consumer.
+ * Each slot carries a sequence number telling whether it is free for the producer of a given position or filled for
+ * the consumer, so the producers only compete on the claim of a position and never wait on each other.
+ * When the buffer is full, {@link #offer(Object)} fails instead of blocking the producer.
+ * @param <E> the type of the elements
+ */
+public class RingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    // Only moved by the consumer thread, volatile for size()
+    private volatile long tail;
+
+    /**
+     * @param capacity the maximum number of elements, rounded up to a power of two
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity out of range : " + capacity);
+        }
+        this.capacity = roundUp(capacity);
+        this.mask = this.capacity - 1;
+        this.elements = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds an element, from any thread.
+     * @param element the element, not null
+     * @return false if the buffer is full
+     */
+    public boolean offer(E element) {
+        while (true) {
+            long position = head.get();
+            int index = (int) (position & mask);
+            long distance = sequences.get(index) - position;
+            if (distance == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    // Publishes the element to the consumer
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (distance < 0) {
+                // The consumer has not freed this slot yet
+                return false;
+            }
+            // Otherwise another producer claimed the position first, try the next one
+        }
+    }
+
+    /**
+     * Moves the available elements to a list, in the order they were added. Must only be called by the consumer thread.
+     * @param target the list receiving the elements
+     * @param max the maximum number of elements to move
+     * @return the number of elements moved
+     */
+    public int drainTo(List<? super E> target, int max) {
+        long position = tail;
+        int count = 0;
+        while (count < max) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                // Empty, or claimed by a producer which has not written its element yet
+                break;
+            }
+            target.add(elements.get(index));
+            elements.set(index, null);
+            // Frees the slot for the producer of the next lap
+            sequences.set(index, position + capacity);
+            position++;
+            count++;
+        }
+        tail = position;
+        return count;
+    }
+
+    /**
+     * @return the number of elements waiting, approximate while producers are adding
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(capacity, head.get() - tail));
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private static int roundUp(int value) {
+        int highest = Integer.highestOneBit(value);
+        return highest == value ? value : highest << 1;
+    }
+}
@@ -0,0 +1,11 @@
+package be.bruxellesformation.mabback.repositories;
+
+/**
+ * Projection of an artefact on its localisation, for the queries which do not need the whole entity.
+ */
+public interface ArtefactLocation {
+
+    String getIdentification();
+
+    String getLocalisation();
+}
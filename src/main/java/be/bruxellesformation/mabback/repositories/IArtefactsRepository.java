@@ -2,12 +2,21 @@ package be.bruxellesformation.mabback.repositories;
 
 import be.bruxellesformation.mabback.domain.Artefact;
 import be.bruxellesformation.mabback.domain.Culture;
+import be.bruxellesformation.mabback.dto.ReservationConflict;
+import be.bruxellesformation.mabback.dto.RoomSummary;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
+@Transactional(readOnly = true)
 public interface IArtefactsRepository extends JpaRepository<Artefact, String> {
     List<Artefact>
     findAllByNameContainingIgnoreCaseOrCulturalPhaseContainingIgnoreCaseOrTypeContainingIgnoreCaseOrMaterialContainingIgnoreCase(
@@ -15,6 +24,80 @@ public interface IArtefactsRepository extends JpaRepository<Artefact, String> {
 
     Page<Artefact> findAllByCulture(Culture culture, Pageable pageable);
 
+    /**
+     * The union of the two ranges, each one read on its own index : neither H2 nor PostgreSQL uses an index for the
+     * OR of the derived query.
+     */
+    @Query(value = "select * from artefact where identification in (" +
+            "select identification from artefact where start_year between :startEarlyLimit and :startLateLimit " +
+            "union select identification from artefact where end_year between :endEarlyLimit and :endLateLimit)",
+            nativeQuery = true)
     List<Artefact> findAllByStartYearBetweenOrEndYearBetween(
-            int startEarlyLimit, int startLateLimit, int endEarlyLimit, int endLateLimit);
+            @Param("startEarlyLimit") int startEarlyLimit, @Param("startLateLimit") int startLateLimit,
+            @Param("endEarlyLimit") int endEarlyLimit, @Param("endLateLimit") int endLateLimit);
+
+    @Query("select a from Artefact a left join fetch a.culture left join fetch a.exposition")
+    List<Artefact> findAllForIndexing();
+
+    @Query("select a.identification from Artefact a where a.localisation = :room order by a.identification")
+    List<String> findIdentificationsByLocalisation(@Param("room") String room);
+
+    @Query("select a.identification from Artefact a where a.locationKey = :locationKey order by a.identification")
+    List<String> findIdentificationsByLocationKey(@Param("locationKey") String locationKey);
+
+    Page<Artefact> findAllByLocationKey(String locationKey, Pageable pageable);
+
+    /**
+     * @return the rooms holding at least one artefact, with their number of artefacts
+     */
+    @Query("select new be.bruxellesformation.mabback.dto.RoomSummary(a.locationKey, min(a.localisation), count(a), " +
+            "sum(case when a.onPermanentDisplay = true then 1 else 0 end)) from Artefact a " +
+            "where a.locationKey is not null group by a.locationKey order by a.locationKey")
+    List<RoomSummary> summarizeRooms();
+
+    @Query("select a.identification from Artefact a where a.culture.id = :cultureId order by a.identification")
+    List<String> findIdentificationsByCultureId(@Param("cultureId") Long cultureId);
+
+    @Query("select a.identification as identification, a.localisation as localisation from Artefact a " +
+            "where a.identification in :identifications")
+    List<ArtefactLocation> findLocations(@Param("identifications") Collection<String> identifications);
+
+    @Query("select a.identification from Artefact a " +
+            "where a.identification in :identifications and a.inExposition = true")
+    List<String> findIdentificationsInExposition(@Param("identifications") Collection<String> identifications);
+
+    /**
+     * @return the given artefacts on display in an exposition not ended before the date, with that exposition
+     */
+    @Query("select new be.bruxellesformation.mabback.dto.ReservationConflict(a.identification, e.id, e.startDate, " +
+            "e.endDate) from Artefact a join a.exposition e where a.identification in :identifications " +
+            "and a.inExposition = true and (e.endDate is null or e.endDate >= :date)")
+    List<ReservationConflict> findDisplayedUntilAfter(@Param("identifications") Collection<String> identifications,
+                                                      @Param("date") LocalDate date);
+
+    /**
+     * Locks the rows of the given artefacts until the end of the current transaction. They are locked in the order of
+     * their identification, so that two transactions wanting some of the same artefacts wait for each other instead of
+     * deadlocking, whatever node runs them.
+     * @return the identifications of the artefacts locked
+     */
+    @Transactional
+    @Query(value = "select identification from artefact where identification in (:identifications) " +
+            "order by identification for update", nativeQuery = true)
+    List<String> lockAll(@Param("identifications") Collection<String> identifications);
+
+    /**
+     * Moves the given artefacts in a single statement. Like {@link Artefact#checkNotOnExpo()}, the artefacts in an
+     * exposition are left where they are.
+     * @return the number of artefacts moved
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("update Artefact a set a.localisation = :localisation, a.locationKey = :locationKey, " +
+            "a.onPermanentDisplay = :onPermanentDisplay " +
+            "where a.identification in :identifications and a.inExposition = false")
+    int relocate(@Param("identifications") Collection<String> identifications,
+                 @Param("localisation") String localisation,
+                 @Param("locationKey") String locationKey,
+                 @Param("onPermanentDisplay") boolean onPermanentDisplay);
 }
@@ -1,16 +1,25 @@
 package be.bruxellesformation.mabback.repositories;
 
+import be.bruxellesformation.mabback.cache.CacheRegions;
 import be.bruxellesformation.mabback.domain.Culture;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
+@Transactional(readOnly = true)
 public interface ICulturesRepository extends JpaRepository<Culture, Long> {
 
+    @QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = CacheRegions.CULTURE_QUERIES)})
     List<Culture> findAllByOrderByStartYear();
 
     List<Culture> findAllByStartYearBetweenOrEndYearBetween(
             int startEarlyLimit, int startLateLimit, int endEarlyLimit, int endLateLimit);
 
+    @QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = CacheRegions.CULTURE_QUERIES)})
     List<Culture> findByNameIgnoreCaseContaining(String name);
 }
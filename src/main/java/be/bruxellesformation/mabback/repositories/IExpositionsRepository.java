@@ -4,10 +4,12 @@ import be.bruxellesformation.mabback.domain.Exposition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
 
+@Transactional(readOnly = true)
 public interface IExpositionsRepository extends JpaRepository<Exposition,Long> {
 
     Page<Exposition> findAllByEndDateAfter(Pageable pageable, LocalDate date);
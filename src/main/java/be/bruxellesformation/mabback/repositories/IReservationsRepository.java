@@ -0,0 +1,39 @@
+package be.bruxellesformation.mabback.repositories;
+
+import be.bruxellesformation.mabback.domain.Reservation;
+import be.bruxellesformation.mabback.domain.ReservationStatus;
+import be.bruxellesformation.mabback.dto.ReservationConflict;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Transactional(readOnly = true)
+public interface IReservationsRepository extends JpaRepository<Reservation, Long> {
+
+    List<Reservation> findAllByStatusIn(Collection<ReservationStatus> statuses);
+
+    List<Reservation> findAllByExpositionIdOrderByArtefactIdentification(long expositionId);
+
+    List<Reservation> findAllByStatusAndStartDateLessThanEqual(ReservationStatus status, LocalDate date);
+
+    List<Reservation> findAllByStatusInAndEndDateBefore(Collection<ReservationStatus> statuses, LocalDate date);
+
+    /**
+     * @return the reservations of the given artefacts overlapping the period, except those of the exposition
+     */
+    @Query("select new be.bruxellesformation.mabback.dto.ReservationConflict(r.artefactIdentification, " +
+            "r.expositionId, r.startDate, r.endDate) from Reservation r " +
+            "where r.artefactIdentification in :identifications and r.status in :statuses " +
+            "and r.startDate <= :endDate and r.endDate >= :startDate and r.expositionId <> :expositionId " +
+            "order by r.artefactIdentification, r.startDate")
+    List<ReservationConflict> findOverlapping(@Param("identifications") Collection<String> identifications,
+                                              @Param("statuses") Collection<ReservationStatus> statuses,
+                                              @Param("startDate") LocalDate startDate,
+                                              @Param("endDate") LocalDate endDate,
+                                              @Param("expositionId") long expositionId);
+}
@@ -1,17 +1,34 @@
 package be.bruxellesformation.mabback.rest;
 
 import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.dto.ArtefactMovement;
+import be.bruxellesformation.mabback.dto.RelocationReport;
+import be.bruxellesformation.mabback.dto.RelocationRequest;
+import be.bruxellesformation.mabback.dto.SearchHit;
+import be.bruxellesformation.mabback.dto.SimilarArtefact;
+import be.bruxellesformation.mabback.indexes.CatalogueIndexLoader;
+import be.bruxellesformation.mabback.indexes.FuzzySearchIndex;
+import be.bruxellesformation.mabback.indexes.SimilarityIndex;
+import be.bruxellesformation.mabback.jfr.ArtefactRelocationEvent;
+import be.bruxellesformation.mabback.jfr.DomainEvents;
+import be.bruxellesformation.mabback.jfr.SearchEvent;
+import be.bruxellesformation.mabback.movements.MovementLog;
 import be.bruxellesformation.mabback.repositories.IArtefactsRepository;
 import be.bruxellesformation.mabback.repositories.ICulturesRepository;
+import be.bruxellesformation.mabback.services.RelocationService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @CrossOrigin
@@ -22,11 +39,19 @@ public class ArtefactRestController {
     // Linked Repository
     private IArtefactsRepository artefactsRepository;
     private ICulturesRepository culturesRepository;
+    private RelocationService relocationService;
+    private MovementLog movementLog;
+    private CatalogueIndexLoader catalogueIndexLoader;
 
     // Constructor
-    public ArtefactRestController(IArtefactsRepository artefactsRepository, ICulturesRepository culturesRepository) {
+    public ArtefactRestController(IArtefactsRepository artefactsRepository, ICulturesRepository culturesRepository,
+                                  RelocationService relocationService, MovementLog movementLog,
+                                  CatalogueIndexLoader catalogueIndexLoader) {
         this.artefactsRepository = artefactsRepository;
         this.culturesRepository=culturesRepository;
+        this.relocationService = relocationService;
+        this.movementLog = movementLog;
+        this.catalogueIndexLoader = catalogueIndexLoader;
     }
 
     // Rest Endpoints
@@ -56,6 +81,39 @@ public class ArtefactRestController {
                 .orElseGet(() -> new ResponseEntity<>(HttpStatus.NO_CONTENT));
     }
 
+    /**
+     * Responds to a GET request like "/collections/EG1000/movements"
+     * The moves of the last moments may not be listed yet, the history is written asynchronously.
+     * @param id the identification of the Artefact in the path of the request
+     * @return a List of the moves of the Artefact, from the oldest. Empty if the Artefact never moved or is unknown.
+     */
+    @GetMapping("/{id}/movements")
+    @PreAuthorize("hasAnyAuthority('CONSERVATEUR', 'CHERCHEUR')")
+    public List<ArtefactMovement> movements(@PathVariable String id){
+        return movementLog.history(id);
+    }
+
+    /**
+     * Responds to a GET request like "/collections/EG1000/similar?limit=10"
+     * The Artefacts created or modified in the last moments may not be taken into account yet.
+     * @param id the identification of the Artefact in the path of the request
+     * @param limit the maximum number of Artefacts, between 1 and 50
+     * @return a ResponseEntity containing the Artefacts sharing the most traits with this one, the most similar
+     * first, or NO_CONTENT if the Artefact is unknown. A SERVICE_UNAVAILABLE status is returned while the index is
+     * being built.
+     */
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<SimilarArtefact>> similar(@PathVariable String id,
+                                                         @RequestParam(defaultValue = "10") int limit){
+        SimilarityIndex similarityIndex = catalogueIndexLoader.index(SimilarityIndex.class);
+        if (similarityIndex == null)
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        List<SimilarArtefact> similar = similarityIndex.similar(id, Math.max(1, Math.min(limit, 50)));
+        if (similar == null)
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        return new ResponseEntity<>(similar, HttpStatus.OK);
+    }
+
     /**
      * Responds to a GET request like "/collections/dates?startDate=-150&endDate=200"
      * @param startDate the earliest date for the search
@@ -76,12 +134,49 @@ public class ArtefactRestController {
 
     /**
      * Responds to a GET request like "/collections/search?criteria=statue"
+     * With "fuzzy=true", like "/collections/search?criteria=amphore&fuzzy=true", the searched words may be misspelled:
+     * the Artefacts are found by the similarity of their name, type or material, the closest first.
      * @param criteria the searched value
+     * @param fuzzy true to tolerate typing mistakes
      * @return a List of Artefacts where either the name, the cultural phase, the type or the material contains
      * the searched value
      */
     @GetMapping("/search")
-    public List<Artefact> complexSearch(@RequestParam String criteria){
+    public List<Artefact> complexSearch(@RequestParam String criteria,
+                                        @RequestParam(defaultValue = "false") boolean fuzzy){
+        FuzzySearchIndex fuzzySearchIndex = fuzzy ? catalogueIndexLoader.index(FuzzySearchIndex.class) : null;
+        boolean indexed = fuzzySearchIndex != null;
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        List<Artefact> found = searchArtefacts(criteria, fuzzySearchIndex);
+        event.end();
+        if (event.shouldCommit()) {
+            event.mode = indexed ? "fuzzy" : "contains";
+            event.kind = SearchHit.Kind.ARTEFACT.name();
+            event.criteriaLength = criteria.length();
+            event.hits = found.size();
+            event.commit();
+        }
+        return found;
+    }
+
+    private List<Artefact> searchArtefacts(String criteria, FuzzySearchIndex fuzzySearchIndex){
+        if (fuzzySearchIndex != null) {
+            List<String> identifications = new ArrayList<>();
+            for (SearchHit hit : fuzzySearchIndex.search(criteria, SearchHit.Kind.ARTEFACT, 50)) {
+                identifications.add(hit.getId());
+            }
+            Map<String, Artefact> artefacts = new HashMap<>();
+            for (Artefact artefact : artefactsRepository.findAllById(identifications)) {
+                artefacts.put(artefact.getIdentification(), artefact);
+            }
+            List<Artefact> found = new ArrayList<>();
+            for (String identification : identifications) {
+                if (artefacts.containsKey(identification))
+                    found.add(artefacts.get(identification));
+            }
+            return found;
+        }
         String name, culturalPhase, type, material;
         name = culturalPhase = type = material = criteria;
         return artefactsRepository.
@@ -98,6 +193,7 @@ public class ArtefactRestController {
 
     @PostMapping
     @PreAuthorize("hasAnyAuthority('CONSERVATEUR', 'CHERCHEUR')")
+    @Transactional
     public ResponseEntity<Artefact> create(@RequestBody Artefact artefact){
         if (!artefactsRepository.existsById(artefact.getIdentification())) {
             artefactsRepository.save(artefact);
@@ -131,6 +227,7 @@ public class ArtefactRestController {
      */
     @DeleteMapping(path = "/{id}")
     @PreAuthorize("hasAnyAuthority('CONSERVATEUR', 'CHERCHEUR')")
+    @Transactional
     public ResponseEntity<Artefact> deleteById(@PathVariable String id){
         Optional<Artefact> artefact = artefactsRepository.findById(id);
         if (artefact.isPresent()) {
@@ -155,8 +252,21 @@ public class ArtefactRestController {
      */
     @PatchMapping("/{id}")
     @PreAuthorize("hasAnyAuthority('CONSERVATEUR', 'CHERCHEUR')")
+    @Transactional
     public ResponseEntity<Artefact> changeLocation(@PathVariable String id,
                                                    @RequestParam String room){
+        ArtefactRelocationEvent event = new ArtefactRelocationEvent();
+        event.identification = id;
+        event.destination = room;
+        return DomainEvents.record(event, () -> moveArtefact(id, room), (relocation, response) -> {
+            relocation.moved = response != null && response.getStatusCode() == HttpStatus.OK;
+            relocation.outcome = response == null ? "failed"
+                    : relocation.moved ? "moved"
+                    : response.getStatusCode() == HttpStatus.NOT_FOUND ? "unknown artefact" : "not in an exposition";
+        });
+    }
+
+    private ResponseEntity<Artefact> moveArtefact(String id, String room){
 
         // Retrieve the Artefact
         Artefact artefact;
@@ -184,4 +294,24 @@ public class ArtefactRestController {
         artefactsRepository.save(artefact);
         return new ResponseEntity<>(artefact,HttpStatus.OK);
     }
+
+    /**
+     * Responds to a PATCH request on "/collections/relocate". Used to move many Artefacts at once, like when a room
+     * is reorganized.
+     * The body must contain the destination, a room or "reserves", and exactly one selection of the Artefacts:
+     * a list of identifications, "fromRoom" for everything in a room or "cultureId" for everything of a culture.
+     * The Artefacts in an exposition are not moved.
+     * @param request the selection of the Artefacts and their destination
+     * @return a ResponseEntity containing the outcome of each Artefact and an OK status. A BAD_REQUEST status is
+     * returned if the destination or the selection is missing.
+     */
+    @PatchMapping("/relocate")
+    @PreAuthorize("hasAnyAuthority('CONSERVATEUR', 'CHERCHEUR')")
+    public ResponseEntity<RelocationReport> relocate(@RequestBody RelocationRequest request){
+        try {
+            return new ResponseEntity<>(relocationService.relocate(request), HttpStatus.OK);
+        } catch (IllegalArgumentException exception){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
 }
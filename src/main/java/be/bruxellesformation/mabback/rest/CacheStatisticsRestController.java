@@ -0,0 +1,51 @@
+package be.bruxellesformation.mabback.rest;
+
+import be.bruxellesformation.mabback.dto.CacheRegionUsage;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/admin/cache")
+public class CacheStatisticsRestController {
+
+    // Linked statistics
+    private Statistics statistics;
+
+    // Constructor
+    public CacheStatisticsRestController(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // Rest Endpoints
+
+    /**
+     * Responds to a GET request on "/admin/cache".
+     * @return the hits, misses, puts and hit ratio of every region of the second-level cache, query regions included
+     */
+    @GetMapping
+    @PreAuthorize("hasAuthority('CONSERVATEUR')")
+    public List<CacheRegionUsage> regions() {
+        String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+        Arrays.sort(regionNames);
+        List<CacheRegionUsage> regions = new ArrayList<>();
+        for (String regionName : regionNames) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region != null) {
+                regions.add(new CacheRegionUsage(regionName,
+                        region.getHitCount(), region.getMissCount(), region.getPutCount(),
+                        // JCache does not count its entries, Hibernate then answers a negative value
+                        Math.max(-1, region.getElementCountInMemory())));
+            }
+        }
+        return regions;
+    }
+}
@@ -0,0 +1,43 @@
+package be.bruxellesformation.mabback.rest;
+
+import be.bruxellesformation.mabback.events.CatalogueChangeEvent;
+import be.bruxellesformation.mabback.events.ChangeFeed;
+import be.bruxellesformation.mabback.events.OverflowPolicy;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/changes")
+public class ChangeFeedRestController {
+
+    // Linked feed
+    private ChangeFeed changeFeed;
+
+    // Constructor
+    public ChangeFeedRestController(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    // Rest Endpoints
+
+    /**
+     * Responds to a GET request like "/changes?types=EXPOSITION&ids=5" with a stream of Server-Sent Events.
+     * Each event is named after the type of the entity ("artefact", "culture" or "exposition") and its data tells
+     * the id and the kind of change. The ids of the events follow each other, a gap means changes were dropped.
+     * @param types the types of entity to follow, all if absent
+     * @param ids the ids of the entities to follow, all if absent
+     * @param overflow DROP_OLDEST to forget the oldest changes when the client reads too slowly, DISCONNECT to be
+     *                 disconnected instead
+     * @return the stream of the committed changes
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestParam(required = false) Set<CatalogueChangeEvent.EntityType> types,
+                              @RequestParam(required = false) Set<String> ids,
+                              @RequestParam(defaultValue = "DROP_OLDEST") OverflowPolicy overflow){
+        return changeFeed.subscribe(types, ids, overflow);
+    }
+}
@@ -10,6 +10,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.security.RolesAllowed;
@@ -105,6 +106,7 @@ public class CultureRestController {
      */
     @PostMapping
     @PreAuthorize("hasAnyAuthority('CONSERVATEUR', 'CHERCHEUR')")
+    @Transactional
     public ResponseEntity<Culture> create(@RequestBody Culture culture){
         if (!culturesRepository.existsById(culture.getId())) {
             culturesRepository.save(culture);
@@ -138,6 +140,7 @@ public class CultureRestController {
      */
     @DeleteMapping(path = "/{id}")
     @PreAuthorize("hasAnyAuthority('CONSERVATEUR', 'CHERCHEUR')")
+    @Transactional
     public ResponseEntity<Culture> deleteById(@PathVariable String id){
         Long idLong = Long.parseLong(id);
         Optional<Culture> culture = culturesRepository.findById(idLong);
@@ -2,8 +2,12 @@ package be.bruxellesformation.mabback.rest;
 
 import be.bruxellesformation.mabback.domain.Artefact;
 import be.bruxellesformation.mabback.domain.Exposition;
+import be.bruxellesformation.mabback.jfr.DomainEvents;
+import be.bruxellesformation.mabback.jfr.ExpositionClosingEvent;
+import be.bruxellesformation.mabback.jfr.ExpositionStagingEvent;
 import be.bruxellesformation.mabback.repositories.IArtefactsRepository;
 import be.bruxellesformation.mabback.repositories.IExpositionsRepository;
+import be.bruxellesformation.mabback.services.ReservationService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -11,6 +15,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.security.RolesAllowed;
@@ -25,12 +30,15 @@ public class ExpositionRestController {
     // Linked repository
     private IExpositionsRepository expositionsRepository;
     private IArtefactsRepository artefactsRepository;
+    private ReservationService reservationService;
 
     // Constructor
     public ExpositionRestController(IExpositionsRepository expositionsRepository,
-                                    IArtefactsRepository artefactsRepository) {
+                                    IArtefactsRepository artefactsRepository,
+                                    ReservationService reservationService) {
         this.expositionsRepository = expositionsRepository;
         this.artefactsRepository = artefactsRepository;
+        this.reservationService = reservationService;
     }
 
 
@@ -95,6 +103,7 @@ public class ExpositionRestController {
      */
     @PostMapping
     @PreAuthorize("hasAuthority('CONSERVATEUR')")
+    @Transactional
     public ResponseEntity<Exposition> create(@RequestBody Exposition exposition){
         if (!expositionsRepository.existsById(exposition.getId())) {
             expositionsRepository.save(exposition);
@@ -122,22 +131,30 @@ public class ExpositionRestController {
 
     /**
      * Responds to a DELETE request on "/expo/{id}". It will delete the Exposition from the database and put any
-     * artefact attributed to it in the reserves.
+     * artefact attributed to it in the reserves. The reservations for the Exposition are cancelled.
      * @param id is the identification of the Exposition to delete from the database
      * @return a ResponseEntity with the ACCEPTED status if the Exposition was in the database and was deleted. Otherwise,
      * it returns a NOT_ACCEPTED status.
      */
     @DeleteMapping(path = "/{id}")
     @PreAuthorize("hasAuthority('CONSERVATEUR')")
+    @Transactional
     public ResponseEntity<Exposition> deleteById(@PathVariable String id){
         Long idLong = Long.parseLong(id);
-        Optional<Exposition> exposition = expositionsRepository.findById(idLong);
-        if (exposition.isPresent()) {
+        ExpositionClosingEvent event = new ExpositionClosingEvent();
+        event.expositionId = idLong;
+        event.deleted = true;
+        return DomainEvents.record(event, () -> {
+            Optional<Exposition> exposition = expositionsRepository.findById(idLong);
+            if (!exposition.isPresent())
+                return new ResponseEntity<>(HttpStatus.NOT_ACCEPTABLE);
+            event.artefacts = exposition.get().getExposedArtefacts().size();
+            reservationService.cancelExposition(idLong);
             exposition.get().endExposition();  // Putting all the artefacts back in the reserves
             expositionsRepository.deleteById(idLong);
             return new ResponseEntity<>(HttpStatus.ACCEPTED);
-        } else
-            return new ResponseEntity<>(HttpStatus.NOT_ACCEPTABLE);
+        }, (closing, response) -> closing.outcome = response == null ? "failed"
+                : response.getStatusCode() == HttpStatus.ACCEPTED ? "closed" : "unknown exposition");
     }
 
     /**
@@ -149,6 +166,7 @@ public class ExpositionRestController {
      * If the id is not found, a ResponseEntity with the status NOT_ACCEPTABLE is returned instead.
      */
     @PatchMapping("/{id}")
+    @Transactional
     public ResponseEntity<Exposition> addVisitor(@PathVariable String id, @RequestBody int number){
 
         Optional<Exposition> searchedExpo = expositionsRepository.findById(Long.parseLong(id));
@@ -172,25 +190,33 @@ public class ExpositionRestController {
      */
     @PatchMapping("/{id}/addArtefacts")
     @PreAuthorize("hasAuthority('CONSERVATEUR')")
+    @Transactional
     public ResponseEntity<Exposition> addArtefacts(@PathVariable String id, @RequestBody String[] items){
+        ExpositionStagingEvent event = new ExpositionStagingEvent();
+        event.expositionId = Long.parseLong(id);
+        event.requested = items.length;
+        return DomainEvents.record(event, () -> {
+            // Searching and check
+            Optional<Exposition> searchedExpo = expositionsRepository.findById(Long.parseLong(id));
+
+            if (!searchedExpo.isPresent() || items.length == 0)
+                return new ResponseEntity<>(HttpStatus.NOT_ACCEPTABLE);
+
+            Exposition exposition = searchedExpo.get();
+
+            // Adding the artefacts and persisting in the database
+            for (String identifier : items) {
+                Optional<Artefact> artefact = artefactsRepository.findById(identifier);
+                if (artefact.isPresent()) {
+                    exposition.addArtefactToExposition(artefact.get());
+                    event.added++;
+                }
+            }
 
-        // Searching and check
-        Optional<Exposition> searchedExpo = expositionsRepository.findById(Long.parseLong(id));
-
-        if (!searchedExpo.isPresent() || items.length == 0)
-            return new ResponseEntity<>(HttpStatus.NOT_ACCEPTABLE);
-
-        Exposition exposition = searchedExpo.get();
-
-        // Adding the artefacts and persisting in the database
-        Arrays.stream(items).forEach(
-            identifier-> artefactsRepository
-                    .findById(identifier)
-                    .ifPresent(exposition::addArtefactToExposition)
-        );
-
-        expositionsRepository.save(exposition);
-        return new ResponseEntity<>(exposition,HttpStatus.OK);
+            expositionsRepository.save(exposition);
+            return new ResponseEntity<>(exposition,HttpStatus.OK);
+        }, (staging, response) -> staging.outcome = response == null ? "failed"
+                : response.getStatusCode() == HttpStatus.OK ? "staged" : "refused");
     }
 
     /**
@@ -200,12 +226,19 @@ public class ExpositionRestController {
      */
     @PatchMapping("/{id}/endexpo")
     @PreAuthorize("hasAuthority('CONSERVATEUR')")
+    @Transactional
     public ResponseEntity<Exposition> endingExposition(@PathVariable String id){
-        Exposition exposition = expositionsRepository.findById(Long.parseLong(id)).orElse(null);
-        if(exposition == null)
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        exposition.endExposition();
-        expositionsRepository.save(exposition);
-        return new ResponseEntity<>(exposition, HttpStatus.OK);
+        ExpositionClosingEvent event = new ExpositionClosingEvent();
+        event.expositionId = Long.parseLong(id);
+        return DomainEvents.record(event, () -> {
+            Exposition exposition = expositionsRepository.findById(Long.parseLong(id)).orElse(null);
+            if(exposition == null)
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            event.artefacts = exposition.getExposedArtefacts().size();
+            exposition.endExposition();
+            expositionsRepository.save(exposition);
+            return new ResponseEntity<>(exposition, HttpStatus.OK);
+        }, (closing, response) -> closing.outcome = response == null ? "failed"
+                : response.getStatusCode() == HttpStatus.OK ? "closed" : "unknown exposition");
     }
 }
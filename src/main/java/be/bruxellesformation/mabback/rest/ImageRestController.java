@@ -0,0 +1,239 @@
+package be.bruxellesformation.mabback.rest;
+
+import be.bruxellesformation.mabback.dto.ImageUpload;
+import be.bruxellesformation.mabback.images.ByteRange;
+import be.bruxellesformation.mabback.images.ImageProperties;
+import be.bruxellesformation.mabback.images.ImageRendition;
+import be.bruxellesformation.mabback.images.ImageStore;
+import be.bruxellesformation.mabback.images.RenditionPipeline;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/images")
+public class ImageRestController {
+
+    // Attributes of Tomcat to send a file from the kernel, without copying it through the JVM
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // The content of a url never changes, the browsers and proxies can keep it forever
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    // A missing rendition is replaced by the original for a short time only
+    private static final String TEMPORARY = "public, max-age=60";
+
+    // Linked image store
+    private ImageStore imageStore;
+    private RenditionPipeline renditionPipeline;
+    private Duration renditionWait;
+
+    // Constructor
+    public ImageRestController(ImageStore imageStore, RenditionPipeline renditionPipeline,
+                               ImageProperties imageProperties) {
+        this.imageStore = imageStore;
+        this.renditionPipeline = renditionPipeline;
+        this.renditionWait = imageProperties.getRenditionWait();
+    }
+
+    // Rest Endpoints
+
+    /**
+     * Responds to a POST request on "/images" with a multipart "file".
+     * The renditions are generated in the background.
+     * @param file the uploaded image
+     * @return a ResponseEntity containing the urls of the image and its renditions, CREATED. An
+     * UNSUPPORTED_MEDIA_TYPE status is returned for a file which is not an image that Java can decode.
+     * @throws IOException if the image cannot be stored
+     */
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAuthority('CONSERVATEUR')")
+    public ResponseEntity<ImageUpload> upload(@RequestParam("file") MultipartFile file) throws IOException {
+        if (file.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        // Served to everybody once stored, with the type of its content
+        try (InputStream content = file.getInputStream()) {
+            if (ImageStore.mediaType(content) == null) {
+                return new ResponseEntity<>(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+            }
+        }
+        String hash;
+        try (InputStream content = file.getInputStream()) {
+            hash = imageStore.store(content);
+        }
+        boolean queued = renditionPipeline.submit(hash);
+
+        String url = "/images/" + hash;
+        Map<String, String> renditions = new LinkedHashMap<>();
+        for (ImageRendition rendition : ImageRendition.values()) {
+            renditions.put(rendition.urlName(), url + "?rendition=" + rendition.urlName());
+        }
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(HttpHeaders.LOCATION, url)
+                .body(new ImageUpload(hash, url, renditions, queued));
+    }
+
+    /**
+     * Responds to a GET request like "/images/3fa9...?rendition=thumb".
+     * Supports a single byte range and the If-None-Match revalidation.
+     * A rendition not generated yet is queued for the workers and waited for a moment, then ACCEPTED is answered
+     * with a Retry-After header; SERVICE_UNAVAILABLE if the queue is full.
+     * @param hash the name of the image
+     * @param rendition the reduced version wanted, the original if absent
+     * @throws IOException if the image cannot be read
+     */
+    @GetMapping("/{hash}")
+    public void serve(@PathVariable String hash, @RequestParam(required = false) String rendition,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImageRendition wanted;
+        try {
+            wanted = rendition == null ? null : ImageRendition.fromUrlName(rendition);
+        } catch (IllegalArgumentException exception) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        if (!ImageStore.isValidHash(hash) || !Files.exists(imageStore.original(hash))) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        Path file = imageStore.original(hash);
+        String contentType = null;
+        String cacheControl = IMMUTABLE;
+        String etag = "\"" + hash + "\"";
+        if (wanted != null) {
+            // Queued again if the queue was full at the upload, the original is sent if it cannot be decoded
+            Boolean rendered = awaitRendition(hash, wanted, response);
+            if (rendered == null) {
+                return;
+            }
+            if (rendered) {
+                file = imageStore.rendition(hash, wanted);
+                contentType = MediaType.IMAGE_JPEG_VALUE;
+                etag = "\"" + hash + "-" + wanted.urlName() + "\"";
+            } else {
+                cacheControl = TEMPORARY;
+            }
+        }
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        if (etag.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        response.setContentType(contentType != null ? contentType : contentType(file));
+
+        long length = Files.size(file);
+        ByteRange range = ByteRange.parse(request.getHeader(HttpHeaders.RANGE), length);
+        long start = 0;
+        long count = length;
+        if (range != null) {
+            if (!range.isSatisfiable()) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            start = range.getStart();
+            count = range.getLength();
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                    "bytes " + range.getStart() + "-" + range.getEnd() + "/" + length);
+        }
+        response.setContentLengthLong(count);
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+        send(file, start, count, request, response);
+    }
+
+    /**
+     * Waits for a rendition generated by the workers, so that the request threads never decode an image.
+     * @return true if the rendition exists, false if the original cannot be decoded, null if the response is sent
+     * @throws IOException if the rendition cannot be generated
+     */
+    private Boolean awaitRendition(String hash, ImageRendition wanted, HttpServletResponse response)
+            throws IOException {
+        try {
+            return renditionPipeline.renderLater(hash, wanted).get(renditionWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException exception) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setStatus(HttpStatus.ACCEPTED.value());
+            return null;
+        } catch (ExecutionException exception) {
+            if (!(exception.getCause() instanceof RejectedExecutionException)) {
+                throw new IOException("cannot generate the rendition of image " + hash, exception.getCause());
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+        return null;
+    }
+
+    /**
+     * Lets Tomcat send the file with sendfile once the request is processed. Without sendfile, the file is copied to
+     * the output stream of the response, through a buffer of the JVM.
+     */
+    private static void send(Path file, long start, long count,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel output = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long end = start + count;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, output);
+            }
+        }
+    }
+
+    /**
+     * The type of an original, as decoded by ImageIO : a file stored before the uploads were checked is not sent as
+     * a type the browser would render.
+     */
+    private static String contentType(Path file) throws IOException {
+        String type;
+        try (InputStream content = new BufferedInputStream(Files.newInputStream(file))) {
+            type = ImageStore.mediaType(content);
+        }
+        return type != null ? type : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+}
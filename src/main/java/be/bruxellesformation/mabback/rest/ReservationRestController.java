@@ -0,0 +1,96 @@
+package be.bruxellesformation.mabback.rest;
+
+import be.bruxellesformation.mabback.domain.Reservation;
+import be.bruxellesformation.mabback.dto.ReservationConflict;
+import be.bruxellesformation.mabback.dto.ReservationRequest;
+import be.bruxellesformation.mabback.services.ReservationService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/reservations")
+public class ReservationRestController {
+
+    // Linked service
+    private ReservationService reservationService;
+
+    // Constructor
+    public ReservationRestController(ReservationService reservationService) {
+        this.reservationService = reservationService;
+    }
+
+    // Rest Endpoints
+
+    /**
+     * Responds to a GET request like "/reservations?expositionId=3"
+     * @param expositionId the id of the Exposition
+     * @return the reservations of Artefacts for the Exposition, planned, live or ended
+     */
+    @GetMapping
+    @PreAuthorize("hasAnyAuthority('CONSERVATEUR', 'CHERCHEUR')")
+    public List<Reservation> reservations(@RequestParam long expositionId){
+        return reservationService.reservations(expositionId);
+    }
+
+    /**
+     * Responds to a POST request on "/reservations". The body must contain the expositionId and the identifications
+     * of the Artefacts to reserve for the dates of that Exposition.
+     * The Artefacts are added to the Exposition on its start date.
+     * @param request the Exposition and the Artefacts
+     * @return a ResponseEntity containing the new reservations and a CREATED status. A CONFLICT status is returned
+     * with the reservations in the way if an Artefact is not free, and then nothing is reserved. A NOT_FOUND status is
+     * returned if the Exposition is unknown, a BAD_REQUEST status if an Artefact is unknown or the Exposition is over.
+     */
+    @PostMapping
+    @PreAuthorize("hasAuthority('CONSERVATEUR')")
+    public ResponseEntity<List<Reservation>> reserve(@RequestBody ReservationRequest request){
+        if (request.getExpositionId() == null)
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        try {
+            List<Reservation> reservations = reservationService.reserve(request.getExpositionId(),
+                    request.getIdentifications());
+            if (reservations == null)
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            return new ResponseEntity<>(reservations, HttpStatus.CREATED);
+        } catch (IllegalArgumentException exception){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Responds to a POST request on "/reservations/availability". The body must contain the identifications of the
+     * Artefacts, the startDate and the endDate.
+     * @param request the Artefacts and the period
+     * @return a ResponseEntity containing the reservations and displays taking the Artefacts during the period, empty
+     * if they are all free, and an OK status. A BAD_REQUEST status is returned if the period is invalid.
+     */
+    @PostMapping("/availability")
+    @PreAuthorize("hasAnyAuthority('CONSERVATEUR', 'CHERCHEUR')")
+    public ResponseEntity<List<ReservationConflict>> availability(@RequestBody ReservationRequest request){
+        try {
+            return new ResponseEntity<>(reservationService.availability(request.getIdentifications(),
+                    request.getStartDate(), request.getEndDate()), HttpStatus.OK);
+        } catch (IllegalArgumentException exception){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Responds to a DELETE request on "/reservations/{id}". Only a reservation not started yet can be cancelled.
+     * @param id the id of the reservation
+     * @return a ResponseEntity with the ACCEPTED status, or a NOT_FOUND status if the reservation is unknown.
+     */
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasAuthority('CONSERVATEUR')")
+    public ResponseEntity<Reservation> cancel(@PathVariable long id){
+        Reservation reservation = reservationService.cancel(id);
+        if (reservation == null)
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        return new ResponseEntity<>(reservation, HttpStatus.ACCEPTED);
+    }
+}
@@ -0,0 +1,161 @@
+package be.bruxellesformation.mabback.rest;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.dto.InventorySummary;
+import be.bruxellesformation.mabback.dto.RoomSummary;
+import be.bruxellesformation.mabback.indexes.CatalogueIndexLoader;
+import be.bruxellesformation.mabback.indexes.RoomIndex;
+import be.bruxellesformation.mabback.repositories.IArtefactsRepository;
+import be.bruxellesformation.mabback.services.InventoryService;
+import be.bruxellesformation.mabback.tenancy.TenantContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/rooms")
+public class RoomRestController {
+
+    private static final int MAX_ITEMS_PER_PAGE = 200;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    // Linked repository, index and service
+    private IArtefactsRepository artefactsRepository;
+    private CatalogueIndexLoader catalogueIndexLoader;
+    private InventoryService inventoryService;
+    private ObjectMapper objectMapper;
+    private int maxScanned;
+
+    // Constructor
+    public RoomRestController(IArtefactsRepository artefactsRepository, CatalogueIndexLoader catalogueIndexLoader,
+                              InventoryService inventoryService,
+                              ObjectMapper objectMapper,
+                              @Value("${mab.inventory.max-scanned:200000}") int maxScanned) {
+        this.artefactsRepository = artefactsRepository;
+        this.catalogueIndexLoader = catalogueIndexLoader;
+        this.inventoryService = inventoryService;
+        this.objectMapper = objectMapper;
+        this.maxScanned = maxScanned;
+    }
+
+    // Rest Endpoints
+
+    /**
+     * Responds to a GET request on "/rooms".
+     * The rooms are read from memory, or grouped by the database while the index is being built.
+     * @return the rooms holding at least one artefact, with their number of artefacts, by key
+     */
+    @GetMapping
+    @PreAuthorize("hasAnyAuthority('CONSERVATEUR', 'CHERCHEUR')")
+    public List<RoomSummary> rooms(){
+        RoomIndex roomIndex = catalogueIndexLoader.index(RoomIndex.class);
+        if (roomIndex == null)
+            return artefactsRepository.summarizeRooms();
+        return roomIndex.rooms();
+    }
+
+    /**
+     * Responds to a GET request like "/rooms/Room 27/artefacts?pageNumber=0&itemsPerPage=20". The room is found
+     * whatever the case and the blanks of its name.
+     * The identifications of the page are taken from memory, then only these artefacts are loaded. While the index is
+     * being built, the page is read through the index of the location key in the database.
+     * @param room the localisation of the room
+     * @param pageNumber the page number of the result set
+     * @param itemsPerPage the number of result per page, at most 200
+     * @return a ResponseEntity containing a Page of the artefacts of the room by identification and an OK status,
+     * or a BAD_REQUEST status for a blank room or a negative page.
+     */
+    @GetMapping("/{room}/artefacts")
+    @PreAuthorize("hasAnyAuthority('CONSERVATEUR', 'CHERCHEUR')")
+    public ResponseEntity<Page<Artefact>> artefactsOfRoom(@PathVariable String room,
+                                                          @RequestParam(defaultValue = "0") int pageNumber,
+                                                          @RequestParam(defaultValue = "20") int itemsPerPage){
+        String locationKey = Artefact.locationKey(room);
+        if (locationKey == null || pageNumber < 0)
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        Pageable pagination = PageRequest.of(pageNumber, Math.max(1, Math.min(itemsPerPage, MAX_ITEMS_PER_PAGE)),
+                Sort.by("identification"));
+        RoomIndex roomIndex = catalogueIndexLoader.index(RoomIndex.class);
+        if (roomIndex == null)
+            return new ResponseEntity<>(artefactsRepository.findAllByLocationKey(locationKey, pagination), HttpStatus.OK);
+
+        List<String> identifications = roomIndex.artefacts(locationKey);
+        int from = (int) Math.min(pagination.getOffset(), identifications.size());
+        int to = Math.min(from + pagination.getPageSize(), identifications.size());
+        List<Artefact> artefacts = new ArrayList<>(artefactsRepository.findAllById(identifications.subList(from, to)));
+        artefacts.sort(Comparator.comparing(Artefact::getIdentification));
+        return new ResponseEntity<>(new PageImpl<>(artefacts, pagination, identifications.size()), HttpStatus.OK);
+    }
+
+    /**
+     * Responds to a POST request on "/rooms/Room 27/inventory", whose text body holds the identifications scanned in
+     * the room, one per line. The blank lines and the identifications scanned twice are ignored.
+     * The response is streamed while the room is read from the database, one JSON object per line : each artefact
+     * MISSING from the scan with its localisation, each artefact scanned but MISPLACED with the localisation
+     * recorded for it, each UNEXPECTED identification unknown to the collection, and lastly the totals.
+     * @param room the localisation of the room
+     * @param body the scanned identifications
+     * @return a ResponseEntity streaming the discrepancies and an OK status, a BAD_REQUEST status for a blank room, or
+     * a PAYLOAD_TOO_LARGE status beyond "mab.inventory.max-scanned" identifications.
+     * @throws IOException if the body cannot be read
+     */
+    @PostMapping(value = "/{room}/inventory", consumes = MediaType.TEXT_PLAIN_VALUE)
+    @PreAuthorize("hasAnyAuthority('CONSERVATEUR', 'CHERCHEUR')")
+    public ResponseEntity<StreamingResponseBody> inventory(@PathVariable String room,
+                                                           InputStream body) throws IOException {
+        if (Artefact.locationKey(room) == null)
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        SortedSet<String> scanned = new TreeSet<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String identification = line.trim();
+            if (!identification.isEmpty())
+                scanned.add(identification);
+            if (scanned.size() > maxScanned)
+                return new ResponseEntity<>(HttpStatus.PAYLOAD_TOO_LARGE);
+        }
+
+        // The response is written by another thread
+        String tenant = TenantContext.current();
+        StreamingResponseBody stream = output -> TenantContext.runAs(tenant, () -> {
+            InventorySummary summary = inventoryService.reconcile(room, scanned,
+                    discrepancy -> writeLine(output, discrepancy));
+            writeLine(output, summary);
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(stream);
+    }
+
+    private void writeLine(OutputStream output, Object value) {
+        try {
+            output.write(objectMapper.writeValueAsBytes(value));
+            output.write('\n');
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
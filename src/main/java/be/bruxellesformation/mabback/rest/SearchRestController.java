@@ -0,0 +1,64 @@
+package be.bruxellesformation.mabback.rest;
+
+import be.bruxellesformation.mabback.dto.SearchHit;
+import be.bruxellesformation.mabback.indexes.CatalogueIndexLoader;
+import be.bruxellesformation.mabback.indexes.FuzzySearchIndex;
+import be.bruxellesformation.mabback.jfr.SearchEvent;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/search")
+public class SearchRestController {
+
+    // Linked index
+    private CatalogueIndexLoader catalogueIndexLoader;
+
+    // Constructor
+    public SearchRestController(CatalogueIndexLoader catalogueIndexLoader) {
+        this.catalogueIndexLoader = catalogueIndexLoader;
+    }
+
+    // Rest Endpoints
+
+    /**
+     * Responds to a GET request like "/search?q=Toutankamon&kind=artefact"
+     * The search tolerates typing mistakes on the names, types and materials of the Artefacts, the names of the
+     * Cultures and the titles of the Expositions.
+     * @param q the searched words
+     * @param kind artefact, culture or exposition to search only one kind of entity, everything if absent
+     * @param limit the maximum number of results, between 1 and 100
+     * @return a ResponseEntity containing the matching entities, the closest first, and an OK status. A BAD_REQUEST
+     * status is returned for an unknown kind, and a SERVICE_UNAVAILABLE status while the index is being built.
+     */
+    @GetMapping
+    public ResponseEntity<List<SearchHit>> search(@RequestParam String q,
+                                                  @RequestParam(required = false) String kind,
+                                                  @RequestParam(defaultValue = "20") int limit){
+        FuzzySearchIndex fuzzySearchIndex = catalogueIndexLoader.index(FuzzySearchIndex.class);
+        if (fuzzySearchIndex == null)
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        SearchHit.Kind searchedKind;
+        try {
+            searchedKind = kind != null ? SearchHit.Kind.valueOf(kind.toUpperCase()) : null;
+        } catch (IllegalArgumentException exception){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        List<SearchHit> hits = fuzzySearchIndex.search(q, searchedKind, Math.max(1, Math.min(limit, 100)));
+        event.end();
+        if (event.shouldCommit()) {
+            event.mode = "fuzzy";
+            event.kind = searchedKind != null ? searchedKind.name() : null;
+            event.criteriaLength = q.length();
+            event.hits = hits.size();
+            event.commit();
+        }
+        return new ResponseEntity<>(hits, HttpStatus.OK);
+    }
+}
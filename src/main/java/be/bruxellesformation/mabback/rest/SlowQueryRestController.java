@@ -0,0 +1,52 @@
+package be.bruxellesformation.mabback.rest;
+
+import be.bruxellesformation.mabback.dto.SlowQuery;
+import be.bruxellesformation.mabback.slowqueries.SlowQueryLog;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/admin/slow-queries")
+public class SlowQueryRestController {
+
+    // Linked log
+    private SlowQueryLog slowQueryLog;
+
+    // Constructor
+    public SlowQueryRestController(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    // Rest Endpoints
+
+    /**
+     * Responds to a GET request on "/admin/slow-queries".
+     * @param limit the maximum number of statements, 100 by default
+     * @return a ResponseEntity containing the last statements slower than the threshold, the most recent first, with
+     * their bound values, rows, endpoint and plan, and an OK status, or a BAD_REQUEST status if the limit is not
+     * positive.
+     */
+    @GetMapping
+    @PreAuthorize("hasAuthority('CONSERVATEUR')")
+    public ResponseEntity<List<SlowQuery>> recent(@RequestParam(defaultValue = "100") int limit){
+        if (limit <= 0)
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(slowQueryLog.recent(limit), HttpStatus.OK);
+    }
+
+    /**
+     * Responds to a DELETE request on "/admin/slow-queries", forgetting the statements recorded so far.
+     * @return a ResponseEntity with a NO_CONTENT status
+     */
+    @DeleteMapping
+    @PreAuthorize("hasAuthority('CONSERVATEUR')")
+    public ResponseEntity<Void> clear(){
+        slowQueryLog.clear();
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+}
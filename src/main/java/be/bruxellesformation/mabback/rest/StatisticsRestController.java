@@ -0,0 +1,40 @@
+package be.bruxellesformation.mabback.rest;
+
+import be.bruxellesformation.mabback.dto.CollectionStatistics;
+import be.bruxellesformation.mabback.indexes.CatalogueIndexLoader;
+import be.bruxellesformation.mabback.indexes.StatisticsIndex;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/stats")
+public class StatisticsRestController {
+
+    // Linked index
+    private CatalogueIndexLoader catalogueIndexLoader;
+
+    // Constructor
+    public StatisticsRestController(CatalogueIndexLoader catalogueIndexLoader) {
+        this.catalogueIndexLoader = catalogueIndexLoader;
+    }
+
+    // Rest Endpoints
+
+    /**
+     * Responds to a GET request on "/stats", served from memory without any query.
+     * @return a ResponseEntity containing the number of artefacts on permanent display, in an exposition and in the
+     * reserves, the total of visitors, the number of artefacts per culture, type, material and exposition, and an OK
+     * status. A SERVICE_UNAVAILABLE status is returned while the index is being built.
+     */
+    @GetMapping
+    @PreAuthorize("hasAnyAuthority('CONSERVATEUR', 'CHERCHEUR')")
+    public ResponseEntity<CollectionStatistics> statistics(){
+        StatisticsIndex statisticsIndex = catalogueIndexLoader.index(StatisticsIndex.class);
+        if (statisticsIndex == null)
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        return new ResponseEntity<>(statisticsIndex.statistics(), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,42 @@
+package be.bruxellesformation.mabback.rest;
+
+import be.bruxellesformation.mabback.dto.SyncBatch;
+import be.bruxellesformation.mabback.services.SyncService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/sync")
+public class SyncRestController {
+
+    // Linked service
+    private SyncService syncService;
+
+    // Constructor
+    public SyncRestController(SyncService syncService) {
+        this.syncService = syncService;
+    }
+
+    // Rest Endpoints
+
+    /**
+     * Responds to a GET request like "/sync?since=1523&limit=500".
+     * A first synchronization uses "since=0" and receives the whole catalogue by batches. The client then keeps the
+     * token of the last answer and sends it as "since" the next time.
+     * @param since the token of the last synchronization
+     * @param limit the maximum number of changes in the answer
+     * @return a ResponseEntity containing the changed and deleted records with the new token, and an OK status.
+     * A BAD_REQUEST status is returned if the token is invalid.
+     */
+    @GetMapping
+    public ResponseEntity<SyncBatch> changesSince(@RequestParam(defaultValue = "0") String since,
+                                                  @RequestParam(defaultValue = "500") int limit){
+        try {
+            return new ResponseEntity<>(syncService.changesSince(since, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException exception){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+}
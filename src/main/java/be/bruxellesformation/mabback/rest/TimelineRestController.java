@@ -0,0 +1,53 @@
+package be.bruxellesformation.mabback.rest;
+
+import be.bruxellesformation.mabback.dto.TimelineBucket;
+import be.bruxellesformation.mabback.indexes.CatalogueIndexLoader;
+import be.bruxellesformation.mabback.indexes.TimelineIndex;
+import be.bruxellesformation.mabback.indexes.TimelineScale;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/collections/timeline")
+public class TimelineRestController {
+
+    private static final int MAX_BUCKETS = 2000;
+
+    // Linked index
+    private CatalogueIndexLoader catalogueIndexLoader;
+
+    // Constructor
+    public TimelineRestController(CatalogueIndexLoader catalogueIndexLoader) {
+        this.catalogueIndexLoader = catalogueIndexLoader;
+    }
+
+    // Rest Endpoints
+
+    /**
+     * Responds to a GET request like "/collections/timeline?bucket=century&from=-3000&to=500"
+     * @param bucket the width of the buckets : decade, century or millennium
+     * @param from the first year, the earliest dating of the catalogue if absent
+     * @param to the last year, the latest dating of the catalogue if absent
+     * @return a ResponseEntity containing the number of artefacts and cultures overlapping each bucket and an OK
+     * status. A BAD_REQUEST status is returned for an unknown bucket or a range of more than 2000 buckets, and a
+     * SERVICE_UNAVAILABLE status while the index is being built.
+     */
+    @GetMapping
+    public ResponseEntity<List<TimelineBucket>> timeline(@RequestParam(defaultValue = "century") String bucket,
+                                                         @RequestParam(required = false) Integer from,
+                                                         @RequestParam(required = false) Integer to){
+        TimelineIndex timelineIndex = catalogueIndexLoader.index(TimelineIndex.class);
+        if (timelineIndex == null)
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        try {
+            TimelineScale scale = TimelineScale.valueOf(bucket.toUpperCase());
+            return new ResponseEntity<>(timelineIndex.histogram(scale, from, to, MAX_BUCKETS), HttpStatus.OK);
+        } catch (IllegalArgumentException exception){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package be.bruxellesformation.mabback.rest;
+
+import be.bruxellesformation.mabback.dto.TimingSettings;
+import be.bruxellesformation.mabback.timing.ServerTimingFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin
+@RestController
+@RequestMapping("/admin/timing")
+public class TimingRestController {
+
+    // Linked filter
+    private ServerTimingFilter serverTimingFilter;
+
+    // Constructor
+    public TimingRestController(ServerTimingFilter serverTimingFilter) {
+        this.serverTimingFilter = serverTimingFilter;
+    }
+
+    // Rest Endpoints
+
+    /**
+     * Responds to a GET request on "/admin/timing".
+     * @return whether the requests are measured phase by phase, and the share of them
+     */
+    @GetMapping
+    @PreAuthorize("hasAuthority('CONSERVATEUR')")
+    public TimingSettings settings(){
+        return new TimingSettings(serverTimingFilter.isEnabled(), serverTimingFilter.getSampleRate());
+    }
+
+    /**
+     * Responds to a PUT request on "/admin/timing" with a body like {"enabled": true, "sampleRate": 0.1}. The change
+     * applies at once to the following requests, until the next restart.
+     * @param settings the new sampling
+     * @return a ResponseEntity containing the sampling applied and an OK status, or a BAD_REQUEST status if the
+     * rate is not between 0 and 1.
+     */
+    @PutMapping
+    @PreAuthorize("hasAuthority('CONSERVATEUR')")
+    public ResponseEntity<TimingSettings> configure(@RequestBody TimingSettings settings){
+        try {
+            serverTimingFilter.configure(settings.isEnabled(), settings.getSampleRate());
+        } catch (IllegalArgumentException exception){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(settings(), HttpStatus.OK);
+    }
+}
@@ -1,10 +1,16 @@
 package be.bruxellesformation.mabback.security.domain;
 
+import be.bruxellesformation.mabback.cache.CacheRegions;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.List;
 
 @Entity
 @Table(name = "AUTHORITY")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.AUTHORITY)
 public class Authority {
 
     @Id
@@ -1,5 +1,7 @@
 package be.bruxellesformation.mabback.security.jwtUtilities;
 
+import be.bruxellesformation.mabback.jfr.JwtValidationEvent;
+import be.bruxellesformation.mabback.timing.RequestTiming;
 import io.jsonwebtoken.ExpiredJwtException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +39,35 @@ public class JwtAuthorizationTokenFilter extends OncePerRequestFilter {
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        // The queries of loadUserByUsername are counted in the database phase
+        RequestTiming.Phase interrupted = RequestTiming.enter(RequestTiming.Phase.AUTH);
+        JwtValidationEvent event = new JwtValidationEvent();
+        TokenCheck check = new TokenCheck();
+        event.begin();
+        boolean authorized;
+        try {
+            authorized = authorize(request, response, check);
+        } finally {
+            RequestTiming.exit(interrupted);
+            event.end();
+            // Only the requests carrying a token are recorded
+            if (check.tokenSize > 0 && event.shouldCommit()) {
+                event.tokenSize = check.tokenSize;
+                event.outcome = check.outcome;
+                event.commit();
+            }
+        }
+        if (authorized) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * @param check receives the size of the token and the outcome of its check
+     * @return false if the request has been answered
+     */
+    private boolean authorize(HttpServletRequest request, HttpServletResponse response, TokenCheck check)
+            throws IOException {
         logger.debug("processing authentication for '{}'", request.getRequestURL());
 
         final String requestHeader = request.getHeader(this.tokenHeader);
@@ -45,11 +76,14 @@ public class JwtAuthorizationTokenFilter extends OncePerRequestFilter {
         String authToken = null;
         if (requestHeader != null && requestHeader.startsWith("Bearer ")) {
             authToken = requestHeader.substring(7);
+            check.tokenSize = authToken.length();
             try {
                 username = jwtTokenUtil.getUsernameFromToken(authToken);
             } catch (IllegalArgumentException e) {
+                check.outcome = "invalid";
                 logger.error("an error occurred during getting username from token", e);
             } catch (ExpiredJwtException e) {
+                check.outcome = "expired";
                 logger.warn("the token is expired and not valid anymore", e);
             }
         } else {
@@ -66,21 +100,34 @@ public class JwtAuthorizationTokenFilter extends OncePerRequestFilter {
             try {
                 userDetails = userDetailsService.loadUserByUsername(username);
             } catch (UsernameNotFoundException e) {
+                check.outcome = "unknown user";
                 response.sendError(HttpServletResponse.SC_UNAUTHORIZED, e.getMessage());
-                return;
+                return false;
             }
 
 
             // For simple validation it is completely sufficient to just check the token integrity. You don't have to call
             // the database compellingly. Again it's up to you ;)
+            check.outcome = "invalid";
             if (jwtTokenUtil.validateToken(authToken, userDetails)) {
+                check.outcome = "authorized";
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 logger.info("authorized user '{}', setting security context", username);
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             }
+        } else if (username != null) {
+            check.outcome = "already authenticated";
         }
+        return true;
+    }
 
-        chain.doFilter(request, response);
+    /**
+     * The size of the token and the outcome of its check, only copied to the {@link JwtValidationEvent} if it is
+     * recorded.
+     */
+    private static final class TokenCheck {
+        private int tokenSize;
+        private String outcome = "failed";
     }
 }
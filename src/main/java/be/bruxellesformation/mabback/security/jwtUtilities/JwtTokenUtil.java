@@ -1,5 +1,6 @@
 package be.bruxellesformation.mabback.security.jwtUtilities;
 
+import be.bruxellesformation.mabback.tenancy.TenantContext;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Clock;
 import io.jsonwebtoken.Jwts;
@@ -20,6 +21,7 @@ public class JwtTokenUtil implements Serializable {
 
     static final String CLAIM_KEY_USERNAME = "sub";
     static final String CLAIM_KEY_CREATED = "iat";
+    static final String CLAIM_KEY_TENANT = "tenant";
     private static final long serialVersionUID = -3301605591108950415L;
 
     // @SuppressFBWarnings(value = "SE_BAD_FIELD", justification = "It's okay here")
@@ -35,6 +37,13 @@ public class JwtTokenUtil implements Serializable {
         return getClaimFromToken(token, Claims::getSubject);
     }
 
+    /**
+     * @return the museum the token was issued by, null for the tokens issued before the multi-tenant mode
+     */
+    public String getTenantFromToken(String token) {
+        return getClaimFromToken(token, claims -> claims.get(CLAIM_KEY_TENANT, String.class));
+    }
+
     public Date getIssuedAtDateFromToken(String token) {
         return getClaimFromToken(token, Claims::getIssuedAt);
     }
@@ -72,6 +81,7 @@ public class JwtTokenUtil implements Serializable {
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("authority",userDetails.getAuthorities().toString());
+        claims.put(CLAIM_KEY_TENANT, TenantContext.current());
         return doGenerateToken(claims, userDetails.getUsername());
     }
 
@@ -1,9 +1,15 @@
 package be.bruxellesformation.mabback.security.repository;
 
+import be.bruxellesformation.mabback.cache.CacheRegions;
 import be.bruxellesformation.mabback.security.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
 
 
 public interface IUserRepository extends JpaRepository<User,Long> {
+    @QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = CacheRegions.USER_QUERIES)})
     User findByUsername(String username);
 }
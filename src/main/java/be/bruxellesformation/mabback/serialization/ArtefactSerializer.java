@@ -0,0 +1,50 @@
+package be.bruxellesformation.mabback.serialization;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes an {@link Artefact} field by field, without the reflection of the bean serializer.
+ * The output is the same as the bean serializer : same properties in the same order, the exposition left out.
+ * A new field of Artefact must be added here too.
+ */
+public class ArtefactSerializer extends StdSerializer<Artefact> {
+
+    private final CultureSerializer cultureSerializer = new CultureSerializer();
+
+    public ArtefactSerializer() {
+        super(Artefact.class);
+    }
+
+    @Override
+    public void serialize(Artefact artefact, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(artefact);
+        generator.writeStringField("identification", artefact.getIdentification());
+        generator.writeStringField("name", artefact.getName());
+        generator.writeStringField("objectDescription", artefact.getObjectDescription());
+        generator.writeStringField("periodDescription", artefact.getPeriodDescription());
+        generator.writeStringField("culturalPhase", artefact.getCulturalPhase());
+        generator.writeStringField("type", artefact.getType());
+        generator.writeStringField("material", artefact.getMaterial());
+        generator.writeStringField("localisation", artefact.getLocalisation());
+        generator.writeStringField("imageURL", artefact.getImageURL());
+        generator.writeBooleanField("onPermanentDisplay", artefact.isOnPermanentDisplay());
+        generator.writeBooleanField("inExposition", artefact.isInExposition());
+        // ISO format, like the dates of the application ObjectMapper
+        generator.writeStringField("dateOfEntry",
+                artefact.getDateOfEntry() != null ? artefact.getDateOfEntry().toString() : null);
+        generator.writeNumberField("startYear", artefact.getStartYear());
+        generator.writeNumberField("endYear", artefact.getEndYear());
+        if (artefact.getCulture() != null) {
+            generator.writeFieldName("culture");
+            cultureSerializer.serialize(artefact.getCulture(), generator, provider);
+        } else {
+            generator.writeNullField("culture");
+        }
+        generator.writeEndObject();
+    }
+}
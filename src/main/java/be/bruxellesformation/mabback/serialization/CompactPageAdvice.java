@@ -0,0 +1,65 @@
+package be.bruxellesformation.mabback.serialization;
+
+import be.bruxellesformation.mabback.dto.PageEnvelope;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.domain.Page;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Replaces the pages returned by the controllers with a {@link PageEnvelope}, without the pageable and sort
+ * metadata of Spring Data.
+ * The binary formats always get the envelope. JSON gets it with the parameter "envelope=compact", the existing
+ * clients keep the full page. The total is added with the parameter "total=true".
+ * The cursor is the pageNumber to ask for the next page.
+ */
+@ControllerAdvice
+public class CompactPageAdvice implements ResponseBodyAdvice<Object> {
+
+    /**
+     * @return true for the methods returning a page, directly or in a ResponseEntity, and for those whose body type
+     * is only known at runtime
+     */
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        Class<?> bodyType = returnType.getParameterType();
+        if (HttpEntity.class.isAssignableFrom(bodyType)) {
+            bodyType = ResolvableType.forMethodParameter(returnType).as(HttpEntity.class).getGeneric()
+                    .resolve(Object.class);
+        }
+        return Page.class.isAssignableFrom(bodyType) || bodyType.isAssignableFrom(Page.class);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (!(body instanceof Page) || !(request instanceof ServletServerHttpRequest)) {
+            return body;
+        }
+        HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+        boolean binary = MappingJackson2SmileHttpMessageConverter.class.isAssignableFrom(selectedConverterType)
+                || MappingJackson2CborHttpMessageConverter.class.isAssignableFrom(selectedConverterType);
+        if (!binary && !"compact".equals(servletRequest.getParameter("envelope"))) {
+            return body;
+        }
+        return envelope((Page<?>) body, "true".equals(servletRequest.getParameter("total")));
+    }
+
+    static <T> PageEnvelope<T> envelope(Page<T> page, boolean withTotal) {
+        return new PageEnvelope<>(page.getContent(),
+                page.hasNext() ? String.valueOf(page.getNumber() + 1) : null,
+                withTotal ? page.getTotalElements() : null);
+    }
+}
@@ -0,0 +1,32 @@
+package be.bruxellesformation.mabback.serialization;
+
+import be.bruxellesformation.mabback.domain.Culture;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link Culture} field by field, without the reflection of the bean serializer.
+ * The output is the same as the bean serializer, the artefacts left out.
+ */
+public class CultureSerializer extends StdSerializer<Culture> {
+
+    public CultureSerializer() {
+        super(Culture.class);
+    }
+
+    @Override
+    public void serialize(Culture culture, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        generator.writeStartObject(culture);
+        generator.writeNumberField("id", culture.getId());
+        generator.writeStringField("name", culture.getName());
+        generator.writeStringField("description", culture.getDescription());
+        generator.writeStringField("periodDescription", culture.getPeriodDescription());
+        generator.writeStringField("cultureMap", culture.getCultureMap());
+        generator.writeNumberField("startYear", culture.getStartYear());
+        generator.writeNumberField("endYear", culture.getEndYear());
+        generator.writeEndObject();
+    }
+}
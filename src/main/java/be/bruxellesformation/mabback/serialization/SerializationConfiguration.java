@@ -0,0 +1,41 @@
+package be.bruxellesformation.mabback.serialization;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.domain.Culture;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Besides JSON, the responses can be encoded in Smile ("application/x-jackson-smile") or CBOR ("application/cbor"),
+ * chosen by the Accept header. Both binary formats use the same settings and serializers as JSON. JSON stays the
+ * format of the clients accepting anything.
+ */
+@Configuration
+public class SerializationConfiguration {
+
+    /**
+     * The hand-written serializers of the most served entities, registered in every ObjectMapper of the application.
+     */
+    @Bean
+    public Module catalogueSerializers() {
+        SimpleModule module = new SimpleModule("catalogue-serializers");
+        module.addSerializer(Artefact.class, new ArtefactSerializer());
+        module.addSerializer(Culture.class, new CultureSerializer());
+        return module;
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.smile().build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.cbor().build());
+    }
+}
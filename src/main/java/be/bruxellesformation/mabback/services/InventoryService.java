@@ -0,0 +1,195 @@
+package be.bruxellesformation.mabback.services;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.dto.InventoryDiscrepancy;
+import be.bruxellesformation.mabback.dto.InventorySummary;
+import be.bruxellesformation.mabback.jfr.BulkOperationEvent;
+import be.bruxellesformation.mabback.jfr.DomainEvents;
+import be.bruxellesformation.mabback.repositories.ArtefactLocation;
+import be.bruxellesformation.mabback.repositories.IArtefactsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.function.Consumer;
+
+/**
+ * Reconciles the identifications scanned in a room during the inventory with the artefacts recorded there.
+ * The artefacts of the room are read through a cursor on the index of the location key, in the order of their
+ * identification, and merged with the scanned identifications sorted the same way : each side is walked once, and
+ * the discrepancies are sent as soon as they are known. The scanned identifications recorded in no room of the
+ * merge are then looked up by batches, to tell a misplaced artefact from an unknown one.
+ */
+@Service
+public class InventoryService {
+
+    // Rows read from the cursor at a time
+    static final int FETCH_SIZE = 500;
+
+    private static final String ROOM_QUERY =
+            "select identification, localisation from artefact where location_key = ? order by identification";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IArtefactsRepository artefactsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int lookupBatchSize;
+    private volatile String roomQuery;
+
+    public InventoryService(DataSource dataSource, IArtefactsRepository artefactsRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${mab.inventory.lookup-batch-size:500}") int lookupBatchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.artefactsRepository = artefactsRepository;
+        // PostgreSQL only streams a cursor inside a transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.lookupBatchSize = Math.max(1, lookupBatchSize);
+    }
+
+    /**
+     * @param room the localisation of the room, whatever its case and blanks
+     * @param scanned the distinct identifications scanned in the room
+     * @param discrepancies receives each discrepancy as soon as it is found
+     * @return the totals of the reconciliation
+     * @throws IllegalArgumentException if the room is blank
+     */
+    public InventorySummary reconcile(String room, SortedSet<String> scanned,
+                                      Consumer<InventoryDiscrepancy> discrepancies) {
+        String locationKey = Artefact.locationKey(room);
+        if (locationKey == null) {
+            throw new IllegalArgumentException("la salle est obligatoire");
+        }
+        Merge merge = new Merge(scanned, discrepancies);
+        // Recorded even if the reading fails, until the end of the transaction
+        BulkOperationEvent event = new BulkOperationEvent();
+        event.operation = "inventory";
+        event.target = room;
+        event.items = scanned.size();
+        event.chunks = 1;
+        return DomainEvents.record(event, () -> transactionTemplate.execute(status -> {
+            jdbcTemplate.query(roomQuery(), rs -> {
+                merge.recorded(rs.getString(1), rs.getString(2));
+            }, locationKey);
+            merge.finish();
+            event.succeeded = (int) merge.found;
+            return new InventorySummary(room, scanned.size(), merge.found + merge.missing, merge.found,
+                    merge.missing, merge.misplaced, merge.unexpected);
+        }), (bulk, summary) -> bulk.outcome = summary != null ? "completed" : "failed");
+    }
+
+    /**
+     * @return the query of the artefacts of a room, sorted like the Java strings. The default collation of
+     * PostgreSQL follows the language of the server, which may ignore the case or the punctuation : the order in the
+     * "C" collation is read on its own index, idx_artefact_location_key_c.
+     */
+    private String roomQuery() {
+        String query = roomQuery;
+        if (query == null) {
+            String product;
+            try {
+                product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                        DatabaseMetaData::getDatabaseProductName);
+            } catch (MetaDataAccessException exception) {
+                product = "";
+            }
+            query = "PostgreSQL".equals(product) ? ROOM_QUERY + " collate \"C\"" : ROOM_QUERY;
+            roomQuery = query;
+        }
+        return query;
+    }
+
+    /**
+     * The state of the merge of the sorted scanned identifications with the sorted artefacts of the room.
+     */
+    private final class Merge {
+        private final Iterator<String> scanned;
+        private final Consumer<InventoryDiscrepancy> discrepancies;
+        // Scanned but not recorded in the room, waiting for their lookup
+        private final List<String> elsewhere = new ArrayList<>();
+        private String next;
+        private String previous;
+        private long found;
+        private long missing;
+        private long misplaced;
+        private long unexpected;
+
+        private Merge(SortedSet<String> scanned, Consumer<InventoryDiscrepancy> discrepancies) {
+            this.scanned = scanned.iterator();
+            this.discrepancies = discrepancies;
+            this.next = this.scanned.hasNext() ? this.scanned.next() : null;
+        }
+
+        private void recorded(String identification, String localisation) {
+            if (previous != null && previous.compareTo(identification) >= 0) {
+                throw new IllegalStateException("artefacts non tries : " + previous + " puis " + identification);
+            }
+            previous = identification;
+            while (next != null && next.compareTo(identification) < 0) {
+                notRecordedHere(next);
+                advance();
+            }
+            if (identification.equals(next)) {
+                found++;
+                advance();
+            } else {
+                missing++;
+                discrepancies.accept(new InventoryDiscrepancy(identification, InventoryDiscrepancy.Status.MISSING,
+                        localisation));
+            }
+        }
+
+        private void finish() {
+            while (next != null) {
+                notRecordedHere(next);
+                advance();
+            }
+            lookUp();
+        }
+
+        private void advance() {
+            next = scanned.hasNext() ? scanned.next() : null;
+        }
+
+        private void notRecordedHere(String identification) {
+            elsewhere.add(identification);
+            if (elsewhere.size() >= lookupBatchSize) {
+                lookUp();
+            }
+        }
+
+        private void lookUp() {
+            if (elsewhere.isEmpty()) {
+                return;
+            }
+            Map<String, String> localisations = new HashMap<>();
+            for (ArtefactLocation artefact : artefactsRepository.findLocations(elsewhere)) {
+                localisations.put(artefact.getIdentification(), artefact.getLocalisation());
+            }
+            for (String identification : elsewhere) {
+                if (localisations.containsKey(identification)) {
+                    misplaced++;
+                    discrepancies.accept(new InventoryDiscrepancy(identification,
+                            InventoryDiscrepancy.Status.MISPLACED, localisations.get(identification)));
+                } else {
+                    unexpected++;
+                    discrepancies.accept(new InventoryDiscrepancy(identification,
+                            InventoryDiscrepancy.Status.UNEXPECTED, null));
+                }
+            }
+            elsewhere.clear();
+        }
+    }
+}
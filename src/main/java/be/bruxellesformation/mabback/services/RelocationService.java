@@ -0,0 +1,166 @@
+package be.bruxellesformation.mabback.services;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.dto.RelocationOutcome;
+import be.bruxellesformation.mabback.dto.RelocationReport;
+import be.bruxellesformation.mabback.dto.RelocationRequest;
+import be.bruxellesformation.mabback.events.CatalogueChangeEvent;
+import be.bruxellesformation.mabback.jfr.BulkOperationEvent;
+import be.bruxellesformation.mabback.jfr.DomainEvents;
+import be.bruxellesformation.mabback.movements.MovementLog;
+import be.bruxellesformation.mabback.repositories.ArtefactLocation;
+import be.bruxellesformation.mabback.repositories.IArtefactsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves many artefacts at once, for the reorganization of a room.
+ * The artefacts are moved by chunks, each chunk in its own transaction with a single update statement, so a large
+ * move never holds its locks for long. The rule of {@link Artefact#checkNotOnExpo()}
+ * is applied by the update itself: the artefacts in an exposition are reported and left in place, without failing
+ * the others.
+ */
+@Service
+public class RelocationService {
+
+    public static final String RESERVES = "reserves";
+    // Same localisation as a single artefact sent to the reserves
+    static final String RESERVES_LOCALISATION = "In Reserves";
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final IArtefactsRepository artefactsRepository;
+    private final MovementLog movementLog;
+    private final ApplicationEventPublisher publisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public RelocationService(IArtefactsRepository artefactsRepository, MovementLog movementLog,
+                             ApplicationEventPublisher publisher, PlatformTransactionManager transactionManager,
+                             @Value("${mab.relocation.chunk-size:200}") int chunkSize) {
+        this.artefactsRepository = artefactsRepository;
+        this.movementLog = movementLog;
+        this.publisher = publisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Moves the artefacts selected by the request.
+     * @param request the selection of the artefacts and their destination
+     * @return the outcome of each artefact
+     * @throws IllegalArgumentException if the request has no destination or not exactly one selection
+     */
+    public RelocationReport relocate(RelocationRequest request) {
+        String destination = request.getDestination();
+        if (destination == null || destination.trim().isEmpty()) {
+            throw new IllegalArgumentException("la destination est obligatoire");
+        }
+        boolean toReserves = RESERVES.equals(destination);
+        String localisation = toReserves ? RESERVES_LOCALISATION : destination;
+        // Recorded even if the selection or a chunk fails, each chunk being timed until its commit
+        BulkOperationEvent event = new BulkOperationEvent();
+        event.operation = "relocation";
+        event.target = localisation;
+        return DomainEvents.record(event, () -> {
+            List<String> identifications = select(request);
+            event.items = identifications.size();
+            event.chunks = (identifications.size() + chunkSize - 1) / chunkSize;
+            List<RelocationOutcome> outcomes = new ArrayList<>(identifications.size());
+            int moved = 0;
+            for (int from = 0; from < identifications.size(); from += chunkSize) {
+                List<String> chunk = identifications.subList(from, Math.min(from + chunkSize, identifications.size()));
+                List<RelocationOutcome> chunkOutcomes;
+                try {
+                    chunkOutcomes = transactionTemplate.execute(
+                            status -> relocateChunk(chunk, localisation, !toReserves));
+                } catch (DataAccessException | TransactionException exception) {
+                    // A rollback can fail too, when the pool discards the connection of a timeout
+                    logger.warn("relocation of {} artefacts to '{}' failed", chunk.size(), localisation, exception);
+                    event.failedChunks++;
+                    chunkOutcomes = new ArrayList<>(chunk.size());
+                    for (String identification : chunk) {
+                        chunkOutcomes.add(new RelocationOutcome(identification, RelocationOutcome.Status.FAILED));
+                    }
+                }
+                for (RelocationOutcome chunkOutcome : chunkOutcomes) {
+                    if (chunkOutcome.getStatus() == RelocationOutcome.Status.MOVED) {
+                        moved++;
+                    }
+                }
+                outcomes.addAll(chunkOutcomes);
+            }
+            event.succeeded = moved;
+            return new RelocationReport(localisation, moved, outcomes);
+        }, (bulk, report) -> bulk.outcome = report == null ? "failed"
+                : bulk.failedChunks == 0 ? "completed" : "partial");
+    }
+
+    /**
+     * Resolves the selection of the request in the order of the identifications, without duplicates.
+     * The selectors are read in a read-write transaction so they see the latest moves, not a lagging replica.
+     */
+    private List<String> select(RelocationRequest request) {
+        int selectors = (request.getIdentifications() != null ? 1 : 0)
+                + (request.getFromRoom() != null ? 1 : 0)
+                + (request.getCultureId() != null ? 1 : 0);
+        if (selectors != 1) {
+            throw new IllegalArgumentException("il faut exactement un critere : identifications, fromRoom ou cultureId");
+        }
+        if (request.getIdentifications() != null) {
+            return new ArrayList<>(new LinkedHashSet<>(request.getIdentifications()));
+        }
+        return transactionTemplate.execute(status -> request.getFromRoom() != null
+                ? artefactsRepository.findIdentificationsByLocationKey(Artefact.locationKey(request.getFromRoom()))
+                : artefactsRepository.findIdentificationsByCultureId(request.getCultureId()));
+    }
+
+    /**
+     * Moves a chunk. The update comes before the check of the expositions : the rows it moved stay locked until the
+     * commit, so an artefact cannot be reported as moved while it enters an exposition.
+     * The update bypasses Hibernate, so the moves are given to the {@link MovementLog} and published here.
+     */
+    private List<RelocationOutcome> relocateChunk(List<String> chunk, String localisation, boolean onPermanentDisplay) {
+        Map<String, String> existing = new HashMap<>();
+        for (ArtefactLocation location : artefactsRepository.findLocations(chunk)) {
+            existing.put(location.getIdentification(), location.getLocalisation());
+        }
+        artefactsRepository.relocate(chunk, localisation, Artefact.locationKey(localisation), onPermanentDisplay);
+        Set<String> inExposition = new HashSet<>(artefactsRepository.findIdentificationsInExposition(chunk));
+
+        List<RelocationOutcome> outcomes = new ArrayList<>(chunk.size());
+        for (String identification : chunk) {
+            RelocationOutcome.Status status;
+            if (!existing.containsKey(identification)) {
+                status = RelocationOutcome.Status.NOT_FOUND;
+            } else if (inExposition.contains(identification)) {
+                status = RelocationOutcome.Status.IN_EXPOSITION;
+            } else {
+                status = RelocationOutcome.Status.MOVED;
+                String from = existing.get(identification);
+                if (!localisation.equals(from)) {
+                    movementLog.recordAfterCommit(identification, from, localisation, null);
+                }
+                publisher.publishEvent(new CatalogueChangeEvent(CatalogueChangeEvent.EntityType.ARTEFACT,
+                        CatalogueChangeEvent.ChangeType.UPDATED, identification));
+            }
+            outcomes.add(new RelocationOutcome(identification, status));
+        }
+        return outcomes;
+    }
+}
@@ -0,0 +1,385 @@
+package be.bruxellesformation.mabback.services;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.domain.Exposition;
+import be.bruxellesformation.mabback.domain.Reservation;
+import be.bruxellesformation.mabback.domain.ReservationStatus;
+import be.bruxellesformation.mabback.dto.ReservationConflict;
+import be.bruxellesformation.mabback.events.CatalogueChangeEvent;
+import be.bruxellesformation.mabback.exceptions.ExpositionException;
+import be.bruxellesformation.mabback.exceptions.ReservationConflictException;
+import be.bruxellesformation.mabback.invalidation.RemoteChangesEvent;
+import be.bruxellesformation.mabback.repositories.ArtefactLocation;
+import be.bruxellesformation.mabback.repositories.IArtefactsRepository;
+import be.bruxellesformation.mabback.repositories.IExpositionsRepository;
+import be.bruxellesformation.mabback.repositories.IReservationsRepository;
+import be.bruxellesformation.mabback.tenancy.TenancyProperties;
+import be.bruxellesformation.mabback.tenancy.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reserves artefacts for future expositions.
+ * The conflicts are first checked against a {@link ReservationIndex} holding the reservations in memory, and against
+ * the artefacts currently on display, so that most refusals cost no query. The database decides : the transaction
+ * saving the reservations locks the rows of the artefacts, then checks the overlaps again. Two requests wanting the
+ * same artefact, on this node or another, thus wait for each other and the second one sees the reservations of the
+ * first. A conflict found there but missed by the index means the index is stale, it is loaded again.
+ * A change of the reservations of an exposition is published as a change of the exposition : the other nodes read
+ * its reservations again when the invalidation bus brings it.
+ * Each night, the reservations whose exposition starts are turned into a live display.
+ * A reservation keeps the dates the exposition had when it was made.
+ * Each museum of the multi-tenant mode has its own index, loaded on its first use.
+ * No lock of the JVM is held while the database is queried : the index is only a first filter, thread-safe, and the
+ * row locks of the database serialize the reservations wanting the same artefacts.
+ */
+@Service
+public class ReservationService {
+
+    static final List<ReservationStatus> BLOCKING = Arrays.asList(ReservationStatus.PLANNED, ReservationStatus.LIVE);
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final IReservationsRepository reservationsRepository;
+    private final IExpositionsRepository expositionsRepository;
+    private final IArtefactsRepository artefactsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TenancyProperties tenancyProperties;
+    private final ApplicationEventPublisher publisher;
+    // By tenant
+    private final Map<String, ReservationIndex> indexes = new ConcurrentHashMap<>();
+
+    public ReservationService(IReservationsRepository reservationsRepository,
+                              IExpositionsRepository expositionsRepository, IArtefactsRepository artefactsRepository,
+                              PlatformTransactionManager transactionManager, TenancyProperties tenancyProperties,
+                              ApplicationEventPublisher publisher) {
+        this.reservationsRepository = reservationsRepository;
+        this.expositionsRepository = expositionsRepository;
+        this.artefactsRepository = artefactsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tenancyProperties = tenancyProperties;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Loads the index of the current tenant again, the default one on start.
+     */
+    @PostConstruct
+    public void loadIndex() {
+        indexes.put(TenantContext.current(), readIndex());
+    }
+
+    /**
+     * @param identifications the identifications of the artefacts
+     * @param startDate the first day of the period
+     * @param endDate the last day of the period
+     * @return the reservations and displays taking these artefacts during the period, empty if they are all free
+     * @throws IllegalArgumentException if a date is missing or the period ends before it starts
+     */
+    public List<ReservationConflict> availability(Collection<String> identifications, LocalDate startDate,
+                                                  LocalDate endDate) {
+        checkPeriod(startDate, endDate);
+        if (identifications == null || identifications.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return conflicts(new LinkedHashSet<>(identifications), startDate, endDate, null);
+    }
+
+    /**
+     * Reserves the artefacts for the dates of the exposition. The artefacts already reserved for it are skipped.
+     * @param expositionId the id of the exposition
+     * @param identifications the identifications of the artefacts
+     * @return the new reservations, or null if the exposition is unknown
+     * @throws IllegalArgumentException if an artefact is unknown, or the exposition has no dates or is over
+     * @throws ReservationConflictException if an artefact is not free during the exposition, nothing is reserved then.
+     * The conflicts are those committed when the artefacts were locked, by any node.
+     */
+    public List<Reservation> reserve(long expositionId, List<String> identifications) {
+        if (identifications == null || identifications.isEmpty()) {
+            throw new IllegalArgumentException("aucun artefact a reserver");
+        }
+        Optional<Exposition> searchedExpo = expositionsRepository.findById(expositionId);
+        if (!searchedExpo.isPresent()) {
+            return null;
+        }
+        Exposition exposition = searchedExpo.get();
+        checkPeriod(exposition.getStartDate(), exposition.getEndDate());
+        if (exposition.getEndDate().isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("l'exposition " + expositionId + " est terminee");
+        }
+
+        Set<String> wanted = new LinkedHashSet<>(identifications);
+        for (Reservation reservation : reservationsRepository.findAllByExpositionIdOrderByArtefactIdentification(expositionId)) {
+            if (reservation.getStatus() != ReservationStatus.ENDED) {
+                wanted.remove(reservation.getArtefactIdentification());
+            }
+        }
+        if (wanted.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<String> unknown = new LinkedHashSet<>(wanted);
+        for (ArtefactLocation artefact : artefactsRepository.findLocations(wanted)) {
+            unknown.remove(artefact.getIdentification());
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("artefacts inconnus : " + unknown);
+        }
+
+        List<ReservationConflict> conflicts = conflicts(wanted, exposition.getStartDate(), exposition.getEndDate(),
+                expositionId);
+        if (!conflicts.isEmpty()) {
+            throw new ReservationConflictException(conflicts);
+        }
+
+        List<Reservation> reservations = new ArrayList<>(wanted.size());
+        for (String identification : wanted) {
+            reservations.add(new Reservation(identification, exposition));
+        }
+        List<Reservation> saved;
+        try {
+            saved = transactionTemplate.execute(status -> {
+                artefactsRepository.lockAll(new TreeSet<>(wanted));
+                List<ReservationConflict> committed = databaseConflicts(wanted, exposition.getStartDate(),
+                        exposition.getEndDate(), expositionId);
+                if (!committed.isEmpty()) {
+                    throw new ReservationConflictException(committed);
+                }
+                List<Reservation> made = reservationsRepository.saveAll(reservations);
+                publishChange(expositionId);
+                return made;
+            });
+        } catch (ReservationConflictException exception) {
+            logger.info("reservations for exposition {} made elsewhere, reloading the index", expositionId);
+            loadIndex();
+            throw exception;
+        }
+        // Committed, the index can hold them
+        ReservationIndex index = index();
+        for (Reservation reservation : saved) {
+            index.add(reservation);
+        }
+        return saved;
+    }
+
+    /**
+     * Cancels a reservation not started yet.
+     * @param reservationId the id of the reservation
+     * @return the cancelled reservation, or null if it is unknown
+     * @throws ExpositionException if the artefact is already displayed in the exposition
+     */
+    public Reservation cancel(long reservationId) {
+        Reservation reservation = reservationsRepository.findById(reservationId).orElse(null);
+        if (reservation == null) {
+            return null;
+        }
+        if (reservation.getStatus() == ReservationStatus.LIVE) {
+            throw new ExpositionException("L'objet " + reservation.getArtefactIdentification()
+                    + " est deja dans l'exposition " + reservation.getExpositionId());
+        }
+        transactionTemplate.execute(status -> {
+            reservationsRepository.deleteById(reservationId);
+            publishChange(reservation.getExpositionId());
+            return null;
+        });
+        index().remove(reservation);
+        return reservation;
+    }
+
+    /**
+     * Cancels all the reservations of an exposition, before it is deleted.
+     * @param expositionId the id of the exposition
+     */
+    public void cancelExposition(long expositionId) {
+        List<Reservation> reservations = reservationsRepository.findAllByExpositionIdOrderByArtefactIdentification(expositionId);
+        transactionTemplate.execute(status -> {
+            reservationsRepository.deleteAll(reservations);
+            publishChange(expositionId);
+            return null;
+        });
+        ReservationIndex index = index();
+        for (Reservation reservation : reservations) {
+            index.remove(reservation);
+        }
+    }
+
+    /**
+     * @param expositionId the id of the exposition
+     * @return the reservations of the exposition, by artefact
+     */
+    public List<Reservation> reservations(long expositionId) {
+        return reservationsRepository.findAllByExpositionIdOrderByArtefactIdentification(expositionId);
+    }
+
+    /**
+     * Reads again the reservations of the expositions changed by another node. They are read in a read-write
+     * transaction, on the primary database : a replica may not have them yet.
+     */
+    @EventListener
+    public void onRemoteChanges(RemoteChangesEvent event) {
+        Set<Long> expositionIds = new LinkedHashSet<>();
+        for (CatalogueChangeEvent change : event.getChanges()) {
+            if (change.getEntityType() == CatalogueChangeEvent.EntityType.EXPOSITION) {
+                expositionIds.add(Long.parseLong(change.getId()));
+            }
+        }
+        // An index not loaded yet reads them when it is
+        ReservationIndex index = indexes.get(TenantContext.current());
+        if (expositionIds.isEmpty() || index == null) {
+            return;
+        }
+        transactionTemplate.execute(status -> {
+            for (Long expositionId : expositionIds) {
+                List<Reservation> blocking = new ArrayList<>();
+                for (Reservation reservation
+                        : reservationsRepository.findAllByExpositionIdOrderByArtefactIdentification(expositionId)) {
+                    if (BLOCKING.contains(reservation.getStatus())) {
+                        blocking.add(reservation);
+                    }
+                }
+                index.replace(expositionId, blocking);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Ends the reservations whose exposition is over, then adds the reserved artefacts to the expositions starting.
+     * An artefact still displayed in another exposition stays reserved, and is tried again on the next run.
+     * Runs for each tenant in turn.
+     */
+    @Scheduled(cron = "${mab.reservations.transition-cron:0 5 0 * * *}")
+    public void startExpositions() {
+        for (String tenant : tenancyProperties.tenantIds()) {
+            try {
+                TenantContext.runAs(tenant, this::startExpositionsOfTenant);
+            } catch (RuntimeException exception) {
+                logger.error("cannot start the expositions of tenant '{}'", tenant, exception);
+            }
+        }
+    }
+
+    private void startExpositionsOfTenant() {
+        LocalDate today = LocalDate.now();
+        List<Reservation> ended = transactionTemplate.execute(status -> {
+            List<Reservation> over = new ArrayList<>(
+                    reservationsRepository.findAllByStatusInAndEndDateBefore(BLOCKING, today));
+            for (Reservation reservation : over) {
+                reservation.setStatus(ReservationStatus.ENDED);
+            }
+            int started = 0;
+            for (Reservation reservation : reservationsRepository
+                    .findAllByStatusAndStartDateLessThanEqual(ReservationStatus.PLANNED, today)) {
+                Artefact artefact = artefactsRepository.findById(reservation.getArtefactIdentification()).orElse(null);
+                Exposition exposition = expositionsRepository.findById(reservation.getExpositionId()).orElse(null);
+                if (artefact == null || exposition == null) {
+                    reservation.setStatus(ReservationStatus.ENDED);
+                    over.add(reservation);
+                } else if (artefact.isInExposition()) {
+                    if (artefact.getExposition() != null && artefact.getExposition().getId() == exposition.getId()) {
+                        reservation.setStatus(ReservationStatus.LIVE);
+                    } else {
+                        logger.warn("artefact '{}' reserved for exposition {} is still in another exposition",
+                                artefact.getIdentification(), exposition.getId());
+                    }
+                } else {
+                    exposition.addArtefactToExposition(artefact);
+                    reservation.setStatus(ReservationStatus.LIVE);
+                    started++;
+                }
+            }
+            if (started > 0 || !over.isEmpty()) {
+                logger.info("{} reserved artefacts added to their exposition, {} reservations ended", started,
+                        over.size());
+            }
+            return over;
+        });
+        ReservationIndex index = index();
+        for (Reservation reservation : ended) {
+            index.remove(reservation);
+        }
+    }
+
+    private List<ReservationConflict> conflicts(Set<String> identifications, LocalDate startDate,
+                                                LocalDate endDate, Long expositionId) {
+        List<ReservationConflict> conflicts = index().conflicts(identifications, startDate, endDate, expositionId);
+        // The artefacts already on display, possibly without any reservation
+        Set<String> reserved = new HashSet<>();
+        for (ReservationConflict conflict : conflicts) {
+            reserved.add(conflict.getIdentification());
+        }
+        for (ReservationConflict displayed : artefactsRepository.findDisplayedUntilAfter(identifications, startDate)) {
+            if (!reserved.contains(displayed.getIdentification())
+                    && (expositionId == null || displayed.getExpositionId() != expositionId)) {
+                conflicts.add(displayed);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * The conflicts as committed in the database, once the artefacts are locked.
+     */
+    private List<ReservationConflict> databaseConflicts(Set<String> identifications, LocalDate startDate,
+                                                        LocalDate endDate, long expositionId) {
+        List<ReservationConflict> conflicts = new ArrayList<>(reservationsRepository.findOverlapping(identifications,
+                BLOCKING, startDate, endDate, expositionId));
+        Set<String> reserved = new HashSet<>();
+        for (ReservationConflict conflict : conflicts) {
+            reserved.add(conflict.getIdentification());
+        }
+        for (ReservationConflict displayed : artefactsRepository.findDisplayedUntilAfter(identifications, startDate)) {
+            if (!reserved.contains(displayed.getIdentification()) && displayed.getExpositionId() != expositionId) {
+                conflicts.add(displayed);
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * Publishes a change of the reservations of an exposition, within the transaction making it.
+     */
+    private void publishChange(long expositionId) {
+        publisher.publishEvent(new CatalogueChangeEvent(CatalogueChangeEvent.EntityType.EXPOSITION,
+                CatalogueChangeEvent.ChangeType.UPDATED, expositionId));
+    }
+
+    /**
+     * @return the index of the current tenant, loaded if needed
+     */
+    private ReservationIndex index() {
+        ReservationIndex index = indexes.get(TenantContext.current());
+        return index != null ? index : indexes.computeIfAbsent(TenantContext.current(), tenant -> readIndex());
+    }
+
+    private ReservationIndex readIndex() {
+        ReservationIndex index = new ReservationIndex();
+        index.load(reservationsRepository.findAllByStatusIn(BLOCKING));
+        return index;
+    }
+
+    private static void checkPeriod(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("periode invalide : " + startDate + " - " + endDate);
+        }
+    }
+}
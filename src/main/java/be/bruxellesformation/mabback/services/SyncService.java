@@ -0,0 +1,172 @@
+package be.bruxellesformation.mabback.services;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.domain.Culture;
+import be.bruxellesformation.mabback.domain.Exposition;
+import be.bruxellesformation.mabback.dto.SyncBatch;
+import be.bruxellesformation.mabback.events.CatalogueChangeEvent;
+import be.bruxellesformation.mabback.events.ChangeLog;
+import be.bruxellesformation.mabback.repositories.IArtefactsRepository;
+import be.bruxellesformation.mabback.repositories.ICulturesRepository;
+import be.bruxellesformation.mabback.repositories.IExpositionsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Delta synchronization of the offline clients. The token is the last sequence number of the {@link ChangeLog} read
+ * by the client; "0" downloads the whole catalogue.
+ * The sequence numbers follow the order of the commits, so every entry read comes after all the committed ones : no
+ * transaction committing late can add an entry behind a token already sent. A read replica applies the commits in the
+ * same order, and is only behind, never missing an entry before the last one it has.
+ */
+@Service
+public class SyncService {
+
+    private final ChangeLog changeLog;
+    private final IArtefactsRepository artefactsRepository;
+    private final ICulturesRepository culturesRepository;
+    private final IExpositionsRepository expositionsRepository;
+    private final int maxLimit;
+
+    public SyncService(ChangeLog changeLog, IArtefactsRepository artefactsRepository,
+                       ICulturesRepository culturesRepository, IExpositionsRepository expositionsRepository,
+                       @Value("${mab.sync.max-limit:2000}") int maxLimit) {
+        this.changeLog = changeLog;
+        this.artefactsRepository = artefactsRepository;
+        this.culturesRepository = culturesRepository;
+        this.expositionsRepository = expositionsRepository;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * @param token the token of the last synchronization of the client, "0" for a first synchronization
+     * @param limit the maximum number of changes read, capped by "mab.sync.max-limit"
+     * @return the records changed since the token, each once in its current state
+     * @throws IllegalArgumentException if the token is not one given by this service
+     */
+    @Transactional(readOnly = true)
+    public SyncBatch changesSince(String token, int limit) {
+        long since = parse(token);
+        int size = Math.max(1, Math.min(limit, maxLimit));
+        // One more entry tells if the client has to come back at once
+        List<ChangeLog.Entry> entries = changeLog.after(since, size + 1);
+
+        // The last change of each record, in the order of the log
+        Map<CatalogueChangeEvent.EntityType, Map<String, CatalogueChangeEvent.ChangeType>> changes =
+                new EnumMap<>(CatalogueChangeEvent.EntityType.class);
+        for (CatalogueChangeEvent.EntityType type : CatalogueChangeEvent.EntityType.values()) {
+            changes.put(type, new LinkedHashMap<>());
+        }
+        long last = since;
+        boolean hasMore = false;
+        int read = 0;
+        for (ChangeLog.Entry entry : entries) {
+            if (read == size) {
+                hasMore = true;
+                break;
+            }
+            read++;
+            CatalogueChangeEvent change = entry.getChange();
+            Map<String, CatalogueChangeEvent.ChangeType> ofType = changes.get(change.getEntityType());
+            ofType.remove(change.getId());
+            ofType.put(change.getId(), change.getChangeType());
+            last = entry.getSeq();
+        }
+
+        List<SyncBatch.Tombstone> deleted = new ArrayList<>();
+        List<Artefact> artefacts = artefactsRepository.findAllById(
+                present(CatalogueChangeEvent.EntityType.ARTEFACT, changes, deleted));
+        List<Culture> cultures = culturesRepository.findAllById(
+                toLongs(present(CatalogueChangeEvent.EntityType.CULTURE, changes, deleted)));
+        List<Exposition> expositions = expositionsRepository.findAllById(
+                toLongs(present(CatalogueChangeEvent.EntityType.EXPOSITION, changes, deleted)));
+
+        // A record changed then deleted after the read of the log is missing : it is sent as deleted
+        addMissing(CatalogueChangeEvent.EntityType.ARTEFACT, changes, artefactIds(artefacts), deleted);
+        addMissing(CatalogueChangeEvent.EntityType.CULTURE, changes, cultureIds(cultures), deleted);
+        addMissing(CatalogueChangeEvent.EntityType.EXPOSITION, changes, expositionIds(expositions), deleted);
+
+        return new SyncBatch(Long.toString(last), hasMore, artefacts, cultures, expositions, deleted);
+    }
+
+    private static long parse(String token) {
+        try {
+            long since = Long.parseLong(token);
+            if (since < 0) {
+                throw new IllegalArgumentException("jeton invalide : " + token);
+            }
+            return since;
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("jeton invalide : " + token, exception);
+        }
+    }
+
+    /**
+     * @return the ids of the records of a type still present after their last change, the deleted ones being added
+     * to the tombstones
+     */
+    private static Set<String> present(CatalogueChangeEvent.EntityType type,
+                                       Map<CatalogueChangeEvent.EntityType, Map<String, CatalogueChangeEvent.ChangeType>> changes,
+                                       List<SyncBatch.Tombstone> deleted) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Map.Entry<String, CatalogueChangeEvent.ChangeType> change : changes.get(type).entrySet()) {
+            if (change.getValue() == CatalogueChangeEvent.ChangeType.DELETED) {
+                deleted.add(new SyncBatch.Tombstone(type.name(), change.getKey()));
+            } else {
+                ids.add(change.getKey());
+            }
+        }
+        return ids;
+    }
+
+    private static void addMissing(CatalogueChangeEvent.EntityType type,
+                                   Map<CatalogueChangeEvent.EntityType, Map<String, CatalogueChangeEvent.ChangeType>> changes,
+                                   Set<String> found, List<SyncBatch.Tombstone> deleted) {
+        for (Map.Entry<String, CatalogueChangeEvent.ChangeType> change : changes.get(type).entrySet()) {
+            if (change.getValue() != CatalogueChangeEvent.ChangeType.DELETED && !found.contains(change.getKey())) {
+                deleted.add(new SyncBatch.Tombstone(type.name(), change.getKey()));
+            }
+        }
+    }
+
+    private static List<Long> toLongs(Set<String> ids) {
+        List<Long> longs = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            longs.add(Long.parseLong(id));
+        }
+        return longs;
+    }
+
+    private static Set<String> artefactIds(List<Artefact> artefacts) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Artefact artefact : artefacts) {
+            ids.add(artefact.getIdentification());
+        }
+        return ids;
+    }
+
+    private static Set<String> cultureIds(List<Culture> cultures) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Culture culture : cultures) {
+            ids.add(Long.toString(culture.getId()));
+        }
+        return ids;
+    }
+
+    private static Set<String> expositionIds(List<Exposition> expositions) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Exposition exposition : expositions) {
+            ids.add(Long.toString(exposition.getId()));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,282 @@
+package be.bruxellesformation.mabback.slowqueries;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Dynamic proxies of the JDBC objects, in the way of the datasource-proxy library : the datasource hands out proxied
+ * connections, whose statements remember their SQL and bound values and time their executions. A statement slower
+ * than the threshold goes to the {@link SlowQueryLog}, and the result set it returns counts the rows read.
+ * The fast statements cost a few map updates and two reads of the clock; their result sets are not proxied.
+ */
+public final class JdbcProxies {
+
+    private static final ClassLoader CLASS_LOADER = JdbcProxies.class.getClassLoader();
+
+    private JdbcProxies() {
+    }
+
+    /**
+     * @param dataSource the datasource to watch
+     * @param slowQueryLog the log of the slow statements
+     * @return a datasource recording the slow statements of the given one
+     */
+    public static DataSource dataSource(DataSource dataSource, SlowQueryLog slowQueryLog) {
+        return (DataSource) Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[]{DataSource.class},
+                new DataSourceHandler(dataSource, slowQueryLog));
+    }
+
+    /**
+     * The value bound by setNull, remembered with its type to be bound again for EXPLAIN.
+     */
+    static final class NullValue {
+        private final int sqlType;
+
+        NullValue(int sqlType) {
+            this.sqlType = sqlType;
+        }
+
+        int getSqlType() {
+            return sqlType;
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    private static boolean isObjectMethod(Method method) {
+        return method.getDeclaringClass() == Object.class;
+    }
+
+    /**
+     * Answers the methods of Object on the proxy itself, the JDBC objects being compared by identity.
+     */
+    private static Object objectMethod(Object proxy, Method method, Object[] args, Object target) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "proxy of " + target;
+        }
+    }
+
+    private static final class DataSourceHandler implements InvocationHandler {
+        private final DataSource target;
+        private final SlowQueryLog slowQueryLog;
+
+        private DataSourceHandler(DataSource target, SlowQueryLog slowQueryLog) {
+            this.target = target;
+            this.slowQueryLog = slowQueryLog;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isObjectMethod(method)) {
+                return objectMethod(proxy, method, args, target);
+            }
+            Object result = JdbcProxies.invoke(target, method, args);
+            if (result instanceof Connection) {
+                return Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[]{Connection.class},
+                        new ConnectionHandler((Connection) result, target, slowQueryLog));
+            }
+            return result;
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final DataSource dataSource;
+        private final SlowQueryLog slowQueryLog;
+
+        private ConnectionHandler(Connection target, DataSource dataSource, SlowQueryLog slowQueryLog) {
+            this.target = target;
+            this.dataSource = dataSource;
+            this.slowQueryLog = slowQueryLog;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isObjectMethod(method)) {
+                return objectMethod(proxy, method, args, target);
+            }
+            Object result = JdbcProxies.invoke(target, method, args);
+            if (!(result instanceof Statement)) {
+                return result;
+            }
+            // prepareStatement and prepareCall take the SQL first, createStatement gets it on execution
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                    : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            return Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[]{type},
+                    new StatementHandler((Statement) result, sql, (Connection) proxy, dataSource, slowQueryLog));
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+        private final Connection connection;
+        private final DataSource dataSource;
+        private final SlowQueryLog slowQueryLog;
+        // The values bound since the last execution, by index
+        private Map<Integer, Object> parameters = new TreeMap<>();
+        private final List<Map<Integer, Object>> batch = new ArrayList<>();
+        private final List<String> batchSql = new ArrayList<>();
+        // The slow execution whose results may still be asked by getResultSet
+        private SlowQueryLog.Entry slow;
+
+        private StatementHandler(Statement target, String sql, Connection connection, DataSource dataSource,
+                                 SlowQueryLog slowQueryLog) {
+            this.target = target;
+            this.sql = sql;
+            this.connection = connection;
+            this.dataSource = dataSource;
+            this.slowQueryLog = slowQueryLog;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isObjectMethod(method)) {
+                return objectMethod(proxy, method, args, target);
+            }
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(proxy, method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                parameters.put((Integer) args[0], "setNull".equals(name) ? new NullValue((Integer) args[1]) : args[1]);
+            } else if ("clearParameters".equals(name)) {
+                parameters.clear();
+            } else if ("addBatch".equals(name)) {
+                if (args != null && args.length == 1) {
+                    batchSql.add((String) args[0]);
+                } else {
+                    batch.add(parameters);
+                    parameters = new TreeMap<>(parameters);
+                }
+            } else if ("clearBatch".equals(name)) {
+                batch.clear();
+                batchSql.clear();
+            } else if ("getConnection".equals(name)) {
+                return connection;
+            } else if ("getResultSet".equals(name)) {
+                return countRows(proxy, JdbcProxies.invoke(target, method, args), slow);
+            }
+            return JdbcProxies.invoke(target, method, args);
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            long start = System.nanoTime();
+            Object result;
+            long end;
+            try {
+                result = JdbcProxies.invoke(target, method, args);
+            } finally {
+                end = System.nanoTime();
+            }
+            boolean batched = method.getName().endsWith("Batch");
+            slow = null;
+            if (slowQueryLog.isSlow(end - start)) {
+                String statement = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                        : batched && !batchSql.isEmpty() ? String.join(";\n", batchSql) : sql;
+                List<Map<Integer, Object>> parameterSets = batched ? new ArrayList<>(batch)
+                        : parameters.isEmpty() ? Collections.<Map<Integer, Object>>emptyList()
+                        : Collections.singletonList(new TreeMap<>(parameters));
+                slow = slowQueryLog.record(statement != null ? statement : "?", parameterSets, end - start,
+                        dataSource);
+                slow.setRows(updatedRows(result));
+                result = countRows(proxy, result, slow);
+            }
+            if (batched) {
+                batch.clear();
+                batchSql.clear();
+            }
+            slowQueryLog.executed(System.nanoTime() - end);
+            return result;
+        }
+
+        private static Object countRows(Object statement, Object result, SlowQueryLog.Entry slow) {
+            if (slow == null || !(result instanceof ResultSet)) {
+                return result;
+            }
+            return Proxy.newProxyInstance(CLASS_LOADER, new Class<?>[]{ResultSet.class},
+                    new ResultSetHandler((ResultSet) result, (Statement) statement, slow));
+        }
+
+        private static long updatedRows(Object result) {
+            if (result instanceof Integer || result instanceof Long) {
+                return ((Number) result).longValue();
+            }
+            long rows = 0;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    // Negative for SUCCESS_NO_INFO
+                    rows += Math.max(count, 0);
+                }
+                return rows;
+            }
+            if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += Math.max(count, 0);
+                }
+                return rows;
+            }
+            return -1;
+        }
+    }
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final Statement statement;
+        private final SlowQueryLog.Entry slow;
+        private long rows;
+
+        private ResultSetHandler(ResultSet target, Statement statement, SlowQueryLog.Entry slow) {
+            this.target = target;
+            this.statement = statement;
+            this.slow = slow;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isObjectMethod(method)) {
+                return objectMethod(proxy, method, args, target);
+            }
+            String name = method.getName();
+            if ("getStatement".equals(name)) {
+                return statement;
+            }
+            Object result = JdbcProxies.invoke(target, method, args);
+            if ("next".equals(name)) {
+                if (Boolean.TRUE.equals(result)) {
+                    rows++;
+                } else {
+                    slow.setRows(rows);
+                }
+            } else if ("close".equals(name)) {
+                slow.setRows(rows);
+            }
+            return result;
+        }
+    }
+}
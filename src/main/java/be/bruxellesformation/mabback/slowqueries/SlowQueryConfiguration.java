@@ -0,0 +1,42 @@
+package be.bruxellesformation.mabback.slowqueries;
+
+import be.bruxellesformation.mabback.tenancy.TenantRoutingDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Puts the proxies of {@link JdbcProxies} around the datasource used by JPA and the JDBC templates, unless
+ * "mab.slow-queries.enabled" is false : the datasource named "dataSource" or, in the multi-tenant mode, each pool of
+ * the {@link TenantRoutingDataSource}, from which the multi-tenant connection provider of Hibernate borrows.
+ * The plans of the slow statements of a tenant are then read on the pool of that tenant.
+ */
+@Configuration
+@EnableConfigurationProperties(SlowQueryProperties.class)
+public class SlowQueryConfiguration {
+
+    static final String DATA_SOURCE = "dataSource";
+
+    // Static, so that the post-processor does not hold back the other beans of the configuration
+    @Bean
+    @ConditionalOnProperty(prefix = "mab.slow-queries", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public static BeanPostProcessor slowQueryDataSourcePostProcessor(ObjectProvider<SlowQueryLog> slowQueryLog) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof TenantRoutingDataSource) {
+                    ((TenantRoutingDataSource) bean).watch(
+                            pool -> JdbcProxies.dataSource(pool, slowQueryLog.getObject()));
+                } else if (bean instanceof DataSource && DATA_SOURCE.equals(beanName)) {
+                    return JdbcProxies.dataSource((DataSource) bean, slowQueryLog.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,282 @@
+package be.bruxellesformation.mabback.slowqueries;
+
+import be.bruxellesformation.mabback.dto.SlowQuery;
+import be.bruxellesformation.mabback.tenancy.TenantContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import javax.sql.DataSource;
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The last statements slower than "mab.slow-queries.threshold", with their bound values, the rows they read or
+ * updated, the endpoint that ran them and, on PostgreSQL and H2, the plan of the SELECT statements.
+ * The statements are caught by the proxies of {@link JdbcProxies}. The plans are asked by a background thread on a
+ * connection of its own, with the same values bound : EXPLAIN without ANALYZE does not run the statement.
+ * The time spent by the proxies themselves is published as the "mab.slow-queries.overhead" counter, to compare with
+ * the "mab.slow-queries.statements" counter.
+ */
+@Component
+public class SlowQueryLog {
+
+    private static final int EXPLAIN_QUEUE = 100;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final SlowQueryProperties properties;
+    private final long thresholdNanos;
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final LongAdder statements = new LongAdder();
+    private final LongAdder overheadNanos = new LongAdder();
+    private final Counter recorded;
+    private final ThreadPoolExecutor explainer;
+    // By datasource, whether EXPLAIN is understood. Weak, the pools of the tenants being closed when idle
+    private final Map<DataSource, Boolean> explainable = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public SlowQueryLog(SlowQueryProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.thresholdNanos = properties.getThreshold().toNanos();
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.recorded = Counter.builder("mab.slow-queries.recorded")
+                .description("Statements slower than the threshold")
+                .register(registry);
+        FunctionCounter.builder("mab.slow-queries.statements", statements, LongAdder::sum)
+                .description("Statements executed through the proxies")
+                .register(registry);
+        FunctionCounter.builder("mab.slow-queries.overhead", overheadNanos, adder -> adder.sum() / 1e9)
+                .description("Time spent by the proxies besides the driver")
+                .baseUnit("seconds")
+                .register(registry);
+
+        this.explainer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(EXPLAIN_QUEUE), runnable -> {
+            Thread thread = new Thread(runnable, "slow-query-explain");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * @param limit the maximum number of statements
+     * @return the last slow statements, the most recent first
+     */
+    public List<SlowQuery> recent(int limit) {
+        List<SlowQuery> recent = new ArrayList<>();
+        synchronized (entries) {
+            Iterator<Entry> iterator = entries.descendingIterator();
+            while (iterator.hasNext() && recent.size() < limit) {
+                recent.add(iterator.next().toSlowQuery());
+            }
+        }
+        return recent;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        explainer.shutdownNow();
+    }
+
+    boolean isSlow(long nanos) {
+        return nanos >= thresholdNanos;
+    }
+
+    void executed(long overhead) {
+        statements.increment();
+        overheadNanos.add(overhead);
+    }
+
+    /**
+     * Keeps a slow statement, and asks for its plan in the background.
+     * @param sql the statement
+     * @param parameterSets the values bound, by index, for each execution
+     * @param nanos the duration of the execution
+     * @param dataSource the datasource of the statement, without proxy
+     * @return the entry, whose rows are given once the results are read
+     */
+    Entry record(String sql, List<Map<Integer, Object>> parameterSets, long nanos, DataSource dataSource) {
+        Entry entry = new Entry(Instant.now(), sql, display(parameterSets), nanos, endpoint(), TenantContext.current());
+        synchronized (entries) {
+            if (entries.size() >= properties.getCapacity()) {
+                entries.removeFirst();
+            }
+            entries.addLast(entry);
+        }
+        recorded.increment();
+        if (properties.isExplain() && isSelect(sql) && parameterSets.size() <= 1 && !explainer.isShutdown()) {
+            Map<Integer, Object> parameters = parameterSets.isEmpty()
+                    ? Collections.emptyMap() : parameterSets.get(0);
+            if (canRebind(parameters)) {
+                String tenant = entry.tenant;
+                explainer.execute(() -> TenantContext.runAs(tenant, () -> explain(entry, parameters, dataSource)));
+            }
+        }
+        return entry;
+    }
+
+    private void explain(Entry entry, Map<Integer, Object> parameters, DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            Boolean supported = explainable.get(dataSource);
+            if (supported == null) {
+                String product = connection.getMetaData().getDatabaseProductName();
+                supported = "PostgreSQL".equals(product) || "H2".equals(product);
+                explainable.put(dataSource, supported);
+            }
+            if (!supported) {
+                return;
+            }
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + entry.sql)) {
+                for (Map.Entry<Integer, Object> parameter : parameters.entrySet()) {
+                    if (parameter.getValue() instanceof JdbcProxies.NullValue) {
+                        int sqlType = ((JdbcProxies.NullValue) parameter.getValue()).getSqlType();
+                        statement.setNull(parameter.getKey(), sqlType);
+                    } else {
+                        statement.setObject(parameter.getKey(), parameter.getValue());
+                    }
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        if (plan.length() > 0) {
+                            plan.append('\n');
+                        }
+                        plan.append(resultSet.getString(1));
+                    }
+                }
+                entry.plan = plan.toString();
+            }
+        } catch (SQLException | RuntimeException exception) {
+            logger.debug("cannot explain '{}'", entry.sql, exception);
+        }
+    }
+
+    private List<List<String>> display(List<Map<Integer, Object>> parameterSets) {
+        List<List<String>> display = new ArrayList<>();
+        if (!properties.isCaptureParameters()) {
+            return display;
+        }
+        for (Map<Integer, Object> parameters : parameterSets) {
+            if (display.size() >= properties.getMaxParameterSets()) {
+                break;
+            }
+            List<String> values = new ArrayList<>(parameters.size());
+            for (Object value : parameters.values()) {
+                values.add(display(value));
+            }
+            display.add(values);
+        }
+        return display;
+    }
+
+    private String display(Object value) {
+        if (value == null || value instanceof JdbcProxies.NullValue) {
+            return "NULL";
+        }
+        if (value instanceof byte[]) {
+            return "<" + ((byte[]) value).length + " bytes>";
+        }
+        if (value instanceof InputStream || value instanceof Reader || value instanceof Blob || value instanceof Clob) {
+            return "<stream>";
+        }
+        String text = String.valueOf(value);
+        int max = properties.getMaxParameterLength();
+        return text.length() > max ? text.substring(0, max) + "..." : text;
+    }
+
+    private static boolean canRebind(Map<Integer, Object> parameters) {
+        for (Object value : parameters.values()) {
+            if (value instanceof InputStream || value instanceof Reader || value instanceof Blob
+                    || value instanceof Clob) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSelect(String sql) {
+        String start = sql.trim().toLowerCase(Locale.ROOT);
+        return start.startsWith("select") || start.startsWith("with");
+    }
+
+    private static String endpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return Thread.currentThread().getName();
+        }
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+    }
+
+    /**
+     * A slow statement. Its rows and plan are given later, by the thread reading its results and the explaining one.
+     */
+    static final class Entry {
+        private final Instant executedAt;
+        private final String sql;
+        private final List<List<String>> parameters;
+        private final long nanos;
+        private final String endpoint;
+        private final String tenant;
+        private volatile long rows = -1;
+        private volatile String plan;
+
+        private Entry(Instant executedAt, String sql, List<List<String>> parameters, long nanos, String endpoint,
+                      String tenant) {
+            this.executedAt = executedAt;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.nanos = nanos;
+            this.endpoint = endpoint;
+            this.tenant = tenant;
+        }
+
+        void setRows(long rows) {
+            this.rows = rows;
+        }
+
+        private SlowQuery toSlowQuery() {
+            return new SlowQuery(executedAt, sql, parameters, nanos / 1e6, rows, endpoint, tenant, plan);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package be.bruxellesformation.mabback.slowqueries;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the slow query log, bound from the "mab.slow-queries" properties.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "mab.slow-queries")
+public class SlowQueryProperties {
+
+    private boolean enabled = true;
+    private Duration threshold = Duration.ofMillis(200);
+    // The oldest statements are dropped beyond it
+    private int capacity = 500;
+    private boolean captureParameters = true;
+    // Longer values are cut
+    private int maxParameterLength = 100;
+    // Batches keep the values of their first executions only
+    private int maxParameterSets = 10;
+    // EXPLAIN of the slow SELECT statements on PostgreSQL and H2
+    private boolean explain = true;
+}
@@ -0,0 +1,264 @@
+package be.bruxellesformation.mabback.snapshot;
+
+import be.bruxellesformation.mabback.indexes.ArtefactRecord;
+import be.bruxellesformation.mabback.indexes.CatalogueData;
+import be.bruxellesformation.mabback.indexes.CultureRecord;
+import be.bruxellesformation.mabback.indexes.ExpositionRecord;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The whole catalogue in a compact binary file, to start a node without reading the database.
+ * The file holds a header (magic number, version, time of the snapshot, last entry of the change log included, number
+ * of records), the cultures, the expositions and the artefacts, then the CRC32 of all the preceding bytes. The texts
+ * are written as their length in bytes followed by their UTF-8 bytes, -1 standing for null; the dates as their epoch
+ * day, {@link Long#MIN_VALUE} standing for null.
+ * The file is written next to its final name then moved over it, so a reader never sees half a snapshot. It is read
+ * through a memory mapping : the pages come from the page cache of the system, without any copy in a heap buffer.
+ */
+public final class CatalogueSnapshot {
+
+    static final int MAGIC = 0x4d414253;
+    static final short VERSION = 1;
+
+    private static final int NULL_LENGTH = -1;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final CatalogueData data;
+    private final Instant takenAt;
+    private final long lastChange;
+
+    public CatalogueSnapshot(CatalogueData data, Instant takenAt, long lastChange) {
+        this.data = data;
+        this.takenAt = takenAt;
+        this.lastChange = lastChange;
+    }
+
+    public CatalogueData getData() {
+        return data;
+    }
+
+    public Instant getTakenAt() {
+        return takenAt;
+    }
+
+    /**
+     * @return the sequence number of the last entry of the change log whose change the snapshot surely includes
+     */
+    public long getLastChange() {
+        return lastChange;
+    }
+
+    /**
+     * Writes the snapshot, replacing the file atomically.
+     * @param file the file of the snapshot, its directory is created if needed
+     * @return the size of the file in bytes
+     * @throws IOException if the file cannot be written, the previous snapshot is then left in place
+     */
+    public long write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            CRC32 checksum = new CRC32();
+            try (OutputStream fileOutput = Files.newOutputStream(temporary);
+                 CheckedOutputStream checked = new CheckedOutputStream(
+                         new BufferedOutputStream(fileOutput, BUFFER_SIZE), checksum);
+                 DataOutputStream output = new DataOutputStream(checked)) {
+                writeBody(output);
+                output.flush();
+                // Not part of the checksum
+                new DataOutputStream(fileOutput).writeLong(checksum.getValue());
+            }
+            long size = Files.size(temporary);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return size;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @param file the file of a snapshot
+     * @return the snapshot read from the file
+     * @throws IOException if the file cannot be read, or is not a complete snapshot of this version
+     */
+    public static CatalogueSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < Long.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("invalid snapshot size " + size + " in " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer body = mapped.duplicate();
+            body.limit((int) size - Long.BYTES);
+            CRC32 checksum = new CRC32();
+            checksum.update(body.duplicate());
+            if (checksum.getValue() != mapped.getLong((int) size - Long.BYTES)) {
+                throw new IOException("corrupted snapshot " + file);
+            }
+            try {
+                return readBody(body);
+            } catch (BufferUnderflowException | IllegalArgumentException exception) {
+                throw new IOException("invalid snapshot " + file, exception);
+            }
+        }
+    }
+
+    private void writeBody(DataOutputStream output) throws IOException {
+        Collection<CultureRecord> cultures = data.getCultures();
+        Collection<ExpositionRecord> expositions = data.getExpositions();
+        Collection<ArtefactRecord> artefacts = data.getArtefacts();
+        output.writeInt(MAGIC);
+        output.writeShort(VERSION);
+        output.writeLong(takenAt.toEpochMilli());
+        output.writeLong(lastChange);
+        output.writeInt(cultures.size());
+        output.writeInt(expositions.size());
+        output.writeInt(artefacts.size());
+        for (CultureRecord culture : cultures) {
+            output.writeLong(culture.getId());
+            writeString(output, culture.getName());
+            writeString(output, culture.getDescription());
+            writeString(output, culture.getPeriodDescription());
+            writeString(output, culture.getCultureMap());
+            output.writeInt(culture.getStartYear());
+            output.writeInt(culture.getEndYear());
+        }
+        for (ExpositionRecord exposition : expositions) {
+            output.writeLong(exposition.getId());
+            writeString(output, exposition.getTitle());
+            writeString(output, exposition.getDescription());
+            writeDate(output, exposition.getStartDate());
+            writeDate(output, exposition.getEndDate());
+            writeString(output, exposition.getImageUrl());
+            output.writeInt(exposition.getVisitorCount());
+        }
+        for (ArtefactRecord artefact : artefacts) {
+            writeString(output, artefact.getIdentification());
+            writeString(output, artefact.getName());
+            writeString(output, artefact.getObjectDescription());
+            writeString(output, artefact.getPeriodDescription());
+            writeString(output, artefact.getCulturalPhase());
+            writeString(output, artefact.getType());
+            writeString(output, artefact.getMaterial());
+            writeString(output, artefact.getLocalisation());
+            writeString(output, artefact.getImageURL());
+            output.writeByte((artefact.isOnPermanentDisplay() ? 1 : 0) | (artefact.isInExposition() ? 2 : 0));
+            writeDate(output, artefact.getDateOfEntry());
+            output.writeInt(artefact.getStartYear());
+            output.writeInt(artefact.getEndYear());
+            writeId(output, artefact.getCultureId());
+            writeId(output, artefact.getExpositionId());
+        }
+    }
+
+    private static CatalogueSnapshot readBody(ByteBuffer input) throws IOException {
+        if (input.getInt() != MAGIC) {
+            throw new IOException("not a catalogue snapshot");
+        }
+        short version = input.getShort();
+        if (version != VERSION) {
+            throw new IOException("unsupported snapshot version " + version);
+        }
+        Instant takenAt = Instant.ofEpochMilli(input.getLong());
+        long lastChange = input.getLong();
+        int cultureCount = input.getInt();
+        int expositionCount = input.getInt();
+        int artefactCount = input.getInt();
+
+        List<CultureRecord> cultures = new ArrayList<>(cultureCount);
+        for (int i = 0; i < cultureCount; i++) {
+            cultures.add(new CultureRecord(input.getLong(), readString(input), readString(input), readString(input),
+                    readString(input), input.getInt(), input.getInt()));
+        }
+        List<ExpositionRecord> expositions = new ArrayList<>(expositionCount);
+        for (int i = 0; i < expositionCount; i++) {
+            expositions.add(new ExpositionRecord(input.getLong(), readString(input), readString(input),
+                    readDate(input), readDate(input), readString(input), input.getInt()));
+        }
+        List<ArtefactRecord> artefacts = new ArrayList<>(artefactCount);
+        for (int i = 0; i < artefactCount; i++) {
+            String identification = readString(input);
+            String name = readString(input);
+            String objectDescription = readString(input);
+            String periodDescription = readString(input);
+            String culturalPhase = readString(input);
+            String type = readString(input);
+            String material = readString(input);
+            String localisation = readString(input);
+            String imageURL = readString(input);
+            byte flags = input.get();
+            artefacts.add(new ArtefactRecord(identification, name, objectDescription, periodDescription,
+                    culturalPhase, type, material, localisation, imageURL, (flags & 1) != 0, (flags & 2) != 0,
+                    readDate(input), input.getInt(), input.getInt(), readId(input), readId(input)));
+        }
+        if (input.hasRemaining()) {
+            throw new IOException(input.remaining() + " unexpected bytes at the end of the snapshot");
+        }
+        return new CatalogueSnapshot(new CatalogueData(artefacts, cultures, expositions), takenAt, lastChange);
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer input) {
+        int length = input.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || length > input.remaining()) {
+            throw new IllegalArgumentException("invalid text length " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutputStream output, LocalDate date) throws IOException {
+        output.writeLong(date != null ? date.toEpochDay() : NULL_DATE);
+    }
+
+    private static LocalDate readDate(ByteBuffer input) {
+        long epochDay = input.getLong();
+        return epochDay != NULL_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+    }
+
+    private static void writeId(DataOutputStream output, Long id) throws IOException {
+        output.writeBoolean(id != null);
+        if (id != null) {
+            output.writeLong(id);
+        }
+    }
+
+    private static Long readId(ByteBuffer input) {
+        return input.get() != 0 ? input.getLong() : null;
+    }
+}
@@ -0,0 +1,255 @@
+package be.bruxellesformation.mabback.snapshot;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.events.CatalogueChangeEvent;
+import be.bruxellesformation.mabback.events.ChangeLog;
+import be.bruxellesformation.mabback.indexes.ArtefactRecord;
+import be.bruxellesformation.mabback.indexes.CatalogueData;
+import be.bruxellesformation.mabback.indexes.CatalogueIndexLoader;
+import be.bruxellesformation.mabback.indexes.CultureRecord;
+import be.bruxellesformation.mabback.indexes.ExpositionRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ReflectionUtils;
+
+import javax.annotation.PreDestroy;
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.sql.ResultSetMetaData;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Writes a {@link CatalogueSnapshot} periodically and on shutdown, and starts the node from it.
+ * On a warm start, the indexes are built from the snapshot before the application reports ready, then the changes
+ * written in the change log since the snapshot are replayed : the database is asked for the few entities changed
+ * instead of the whole catalogue. In the kiosk mode, the snapshot also fills the embedded database, so that all the
+ * GET endpoints work without any database server.
+ * The snapshot records the last entry of the change log committed before the catalogue is read : the change log being
+ * numbered in the order of the commits, all the changes before it are in the snapshot, and those after are replayed.
+ */
+public class CatalogueSnapshotter {
+
+    // Entries of the change log read at a time on a warm start
+    static final int REPLAY_PAGE = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final SnapshotProperties properties;
+    private final CatalogueIndexLoader catalogueIndexLoader;
+    private final ChangeLog changeLog;
+    private final JdbcTemplate jdbcTemplate;
+    private final Timer writeTimer;
+    private final Timer readTimer;
+
+    public CatalogueSnapshotter(SnapshotProperties properties, CatalogueIndexLoader catalogueIndexLoader,
+                                ChangeLog changeLog, JdbcTemplate jdbcTemplate,
+                                ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.catalogueIndexLoader = catalogueIndexLoader;
+        this.changeLog = changeLog;
+        this.jdbcTemplate = jdbcTemplate;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.writeTimer = Timer.builder("mab.snapshot.write")
+                .description("Reading of the catalogue and writing of its snapshot")
+                .register(registry);
+        this.readTimer = Timer.builder("mab.snapshot.read")
+                .description("Reading of the snapshot on start")
+                .register(registry);
+    }
+
+    /**
+     * Loads the indexes from the snapshot, if any, before the application is ready.
+     * @throws IllegalStateException in the kiosk mode, if the snapshot cannot be read
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void warmStart() {
+        Path file = properties.getFile();
+        if (!Files.isRegularFile(file)) {
+            if (properties.isKiosk()) {
+                throw new IllegalStateException("the kiosk mode needs the snapshot " + file.toAbsolutePath());
+            }
+            logger.info("no catalogue snapshot in {}, the indexes are built from the database", file);
+            return;
+        }
+        CatalogueSnapshot snapshot;
+        long start = System.nanoTime();
+        try {
+            snapshot = CatalogueSnapshot.read(file);
+        } catch (IOException exception) {
+            if (properties.isKiosk()) {
+                throw new IllegalStateException("cannot read the snapshot " + file.toAbsolutePath(), exception);
+            }
+            logger.warn("cannot read the catalogue snapshot, the indexes are built from the database", exception);
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        readTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        logThroughput("read", file, snapshot.getData(), elapsed);
+
+        if (properties.isKiosk()) {
+            fillDatabase(snapshot.getData());
+            catalogueIndexLoader.load(snapshot.getData());
+            logger.info("kiosk started from the snapshot of {}", snapshot.getTakenAt());
+            return;
+        }
+        Duration age = Duration.between(snapshot.getTakenAt(), Instant.now());
+        if (age.compareTo(properties.getMaxAge()) > 0) {
+            logger.info("catalogue snapshot too old ({}), the indexes are built from the database", age);
+            return;
+        }
+        catalogueIndexLoader.load(snapshot.getData());
+        int replayed = replaySince(snapshot.getLastChange());
+        logger.info("catalogue indexes loaded from the snapshot of {}, {} changes since replayed",
+                snapshot.getTakenAt(), replayed);
+    }
+
+    /**
+     * Reads the whole catalogue on the primary database and writes its snapshot. Nothing is written in the kiosk mode,
+     * whose catalogue never changes.
+     */
+    @Scheduled(cron = "${mab.snapshot.write-cron:0 0 * * * *}")
+    public void write() {
+        if (properties.isKiosk()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Instant takenAt = Instant.now();
+        // Before the catalogue, which then holds at least the changes up to this one
+        long lastChange = changeLog.last();
+        CatalogueData data = catalogueIndexLoader.readDatabase();
+        try {
+            new CatalogueSnapshot(data, takenAt, lastChange).write(properties.getFile());
+        } catch (IOException exception) {
+            logger.error("cannot write the catalogue snapshot in {}", properties.getFile(), exception);
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        writeTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        logThroughput("written", properties.getFile(), data, elapsed);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (properties.isWriteOnShutdown()) {
+            try {
+                write();
+            } catch (RuntimeException exception) {
+                logger.warn("cannot write the catalogue snapshot on shutdown", exception);
+            }
+        }
+    }
+
+    private int replaySince(long lastChange) {
+        int replayed = 0;
+        long since = lastChange;
+        List<ChangeLog.Entry> entries;
+        do {
+            entries = changeLog.after(since, REPLAY_PAGE);
+            List<CatalogueChangeEvent> changes = new ArrayList<>(entries.size());
+            for (ChangeLog.Entry entry : entries) {
+                changes.add(entry.getChange());
+                since = entry.getSeq();
+            }
+            catalogueIndexLoader.replay(changes);
+            replayed += changes.size();
+        } while (entries.size() == REPLAY_PAGE);
+        return replayed;
+    }
+
+    /**
+     * Inserts the catalogue of the snapshot in the empty embedded database of the kiosk.
+     */
+    private void fillDatabase(CatalogueData data) {
+        insertAll("culture", CultureRecord.class, data.getCultures(), Collections.emptyMap());
+        insertAll("exposition", ExpositionRecord.class, data.getExpositions(), Collections.emptyMap());
+        Map<String, Function<ArtefactRecord, Object>> derived = new HashMap<>();
+        derived.put("imageurl", ArtefactRecord::getImageURL);
+        derived.put("location_key", artefact -> Artefact.locationKey(artefact.getLocalisation()));
+        insertAll("artefact", ArtefactRecord.class, data.getArtefacts(), derived);
+    }
+
+    /**
+     * Inserts records in a table. The columns are those of the migrated schema, each one filled from the property of
+     * the record with the same name ("period_description" from getPeriodDescription()) unless its value is derived.
+     * @param derived the values of the columns without a property of the same name, by column
+     * @throws IllegalStateException if a column of the table has no value in the snapshot
+     */
+    private <T> void insertAll(String table, Class<T> type, Collection<T> records,
+                               Map<String, Function<T, Object>> derived) {
+        List<String> columns = jdbcTemplate.query("SELECT * FROM " + table + " WHERE 1 = 0", rs -> {
+            ResultSetMetaData metaData = rs.getMetaData();
+            List<String> names = new ArrayList<>(metaData.getColumnCount());
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                names.add(metaData.getColumnName(i).toLowerCase(Locale.ROOT));
+            }
+            return names;
+        });
+        List<Function<T, Object>> values = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            Function<T, Object> value = derived.get(column);
+            if (value == null) {
+                PropertyDescriptor property = BeanUtils.getPropertyDescriptor(type,
+                        JdbcUtils.convertUnderscoreNameToPropertyName(column));
+                if (property == null || property.getReadMethod() == null) {
+                    throw new IllegalStateException("the snapshot has no value for the column " + table + "."
+                            + column);
+                }
+                Method getter = property.getReadMethod();
+                value = record -> ReflectionUtils.invokeMethod(getter, record);
+            }
+            values.add(value);
+        }
+
+        List<Object[]> rows = new ArrayList<>(records.size());
+        for (T record : records) {
+            Object[] row = new Object[values.size()];
+            for (int i = 0; i < row.length; i++) {
+                Object value = values.get(i).apply(record);
+                row[i] = value instanceof LocalDate ? Date.valueOf((LocalDate) value) : value;
+            }
+            rows.add(row);
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")", rows);
+    }
+
+    private void logThroughput(String action, Path file, CatalogueData data, long elapsedNanos) {
+        int records = data.getArtefacts().size() + data.getCultures().size() + data.getExpositions().size();
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException exception) {
+            size = 0;
+        }
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        logger.info("catalogue snapshot {} : {} records, {} KB in {} ms ({} records/s, {} MB/s)", action, records,
+                size / 1024, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), Math.round(records / seconds),
+                String.format(Locale.ROOT, "%.1f", size / seconds / (1024 * 1024)));
+    }
+}
@@ -0,0 +1,34 @@
+package be.bruxellesformation.mabback.snapshot;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Keeps a kiosk read-only : its catalogue is the snapshot it started from, a change would be lost on restart and never
+ * reach the museum. The requests other than GET, HEAD and OPTIONS are answered 405.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class KioskFilter extends OncePerRequestFilter {
+
+    static final String ALLOWED = "GET, HEAD, OPTIONS";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            chain.doFilter(request, response);
+            return;
+        }
+        response.setHeader(HttpHeaders.ALLOW, ALLOWED);
+        response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "kiosque en lecture seule");
+    }
+}
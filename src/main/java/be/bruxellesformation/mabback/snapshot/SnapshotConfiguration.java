@@ -0,0 +1,35 @@
+package be.bruxellesformation.mabback.snapshot;
+
+import be.bruxellesformation.mabback.events.ChangeLog;
+import be.bruxellesformation.mabback.indexes.CatalogueIndexLoader;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Writes and reads the catalogue snapshots when "mab.snapshot.enabled" is true. With "mab.snapshot.kiosk" too, the
+ * node is a read-only kiosk started from the snapshot alone.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "mab.snapshot", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(SnapshotProperties.class)
+public class SnapshotConfiguration {
+
+    @Bean
+    public CatalogueSnapshotter catalogueSnapshotter(SnapshotProperties properties,
+                                                     CatalogueIndexLoader catalogueIndexLoader, ChangeLog changeLog,
+                                                     JdbcTemplate jdbcTemplate,
+                                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        return new CatalogueSnapshotter(properties, catalogueIndexLoader, changeLog, jdbcTemplate, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "mab.snapshot", name = "kiosk", havingValue = "true")
+    public KioskFilter kioskFilter() {
+        return new KioskFilter();
+    }
+}
@@ -0,0 +1,26 @@
+package be.bruxellesformation.mabback.snapshot;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Settings of the catalogue snapshots, bound from the "mab.snapshot" properties.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "mab.snapshot")
+public class SnapshotProperties {
+
+    private boolean enabled = false;
+    private Path file = Paths.get("snapshot", "catalogue.snapshot");
+    // An older snapshot is ignored on start, replaying its changes would cost more than reading the database
+    private Duration maxAge = Duration.ofDays(7);
+    private boolean writeOnShutdown = true;
+    // Serves the GET endpoints from the snapshot alone, without any database server
+    private boolean kiosk = false;
+}
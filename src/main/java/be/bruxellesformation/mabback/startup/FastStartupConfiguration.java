@@ -0,0 +1,31 @@
+package be.bruxellesformation.mabback.startup;
+
+import be.bruxellesformation.mabback.datasource.ReplicaRoutingDataSource;
+import be.bruxellesformation.mabback.events.CatalogueChangeCapture;
+import be.bruxellesformation.mabback.invalidation.InvalidationBus;
+import be.bruxellesformation.mabback.jfr.DomainRecording;
+import be.bruxellesformation.mabback.movements.MovementCapture;
+import be.bruxellesformation.mabback.services.ReservationService;
+import be.bruxellesformation.mabback.snapshot.CatalogueSnapshotter;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Beans that must stay eager when the "fast" profile turns lazy initialization on: the schema has to be migrated,
+ * the replicas checked, the listeners of Hibernate and the scheduled tasks registered, and the node listening to the
+ * invalidations of the others before it receives traffic. The snapshots are written on schedule, and the flight
+ * recording covers the start too.
+ */
+@Configuration
+public class FastStartupConfiguration {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerInfrastructure() {
+        return LazyInitializationExcludeFilter.forBeanTypes(FlywayMigrationInitializer.class,
+                ReplicaRoutingDataSource.class, MovementCapture.class, CatalogueChangeCapture.class,
+                ReservationService.class, InvalidationBus.class, CatalogueSnapshotter.class,
+                DomainRecording.class);
+    }
+}
@@ -0,0 +1,98 @@
+package be.bruxellesformation.mabback.startup;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures the startup of the node: the JVM uptime when the application is ready, and when the first request has been
+ * served, lazy beans included. Both are logged and published as the "mab.startup.ready" and
+ * "mab.startup.first-request" gauges.
+ * With "mab.startup.training-run=true" the application sends itself a first request and exits, which is how the Maven
+ * "cds" profile records the class-data sharing archive.
+ */
+@Component
+public class StartupTimeReporter extends OncePerRequestFilter {
+
+    private static final String TRAINING_REQUEST = "/culture";
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final AtomicBoolean firstRequestServed = new AtomicBoolean();
+    private final Environment environment;
+    private final boolean trainingRun;
+    private volatile long readyMillis = -1;
+    private volatile long firstRequestMillis = -1;
+
+    public StartupTimeReporter(Environment environment, ObjectProvider<MeterRegistry> meterRegistry,
+                               @Value("${mab.startup.training-run:false}") boolean trainingRun) {
+        this.environment = environment;
+        this.trainingRun = trainingRun;
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder("mab.startup.ready", this, reporter -> reporter.readyMillis)
+                    .baseUnit("milliseconds").register(registry);
+            Gauge.builder("mab.startup.first-request", this, reporter -> reporter.firstRequestMillis)
+                    .baseUnit("milliseconds").register(registry);
+        });
+    }
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        logger.info("application ready {} ms after the start of the JVM", readyMillis);
+        if (trainingRun) {
+            Thread training = new Thread(() -> requestAndExit(event.getApplicationContext()), "startup-training-run");
+            training.start();
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (!firstRequestServed.get() && firstRequestServed.compareAndSet(false, true)) {
+                firstRequestMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+                logger.info("first request '{}' served {} ms after the start of the JVM",
+                        request.getRequestURI(), firstRequestMillis);
+            }
+        }
+    }
+
+    private void requestAndExit(ConfigurableApplicationContext context) {
+        int exitCode = 0;
+        try {
+            String port = environment.getProperty("local.server.port", "8080");
+            HttpURLConnection connection =
+                    (HttpURLConnection) new URL("http://localhost:" + port + TRAINING_REQUEST).openConnection();
+            logger.info("training request answered with status {}", connection.getResponseCode());
+            connection.disconnect();
+        } catch (IOException exception) {
+            logger.error("the training request failed", exception);
+            exitCode = 1;
+        }
+        final int status = exitCode;
+        System.exit(SpringApplication.exit(context, () -> status));
+    }
+}
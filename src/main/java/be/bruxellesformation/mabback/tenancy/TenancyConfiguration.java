@@ -0,0 +1,107 @@
+package be.bruxellesformation.mabback.tenancy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.hibernate.MultiTenancyStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves several museums from one deployment when "mab.tenancy.enabled" is true : each tenant has its own schema
+ * and its own Hikari pool, Hibernate opening each session on the pool of the tenant of the request.
+ * The schema of a tenant is migrated by Flyway when its pool is opened, on its first request after a start.
+ * Not meant to be combined with the read replicas of "mab.datasource.routing".
+ */
+@Configuration
+@EnableConfigurationProperties(TenancyProperties.class)
+public class TenancyConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @Primary
+    @ConditionalOnProperty(prefix = "mab.tenancy", name = "enabled", havingValue = "true")
+    public TenantRoutingDataSource tenantRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                           TenancyProperties tenancyProperties,
+                                                           Environment environment,
+                                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        // The default tenant is configured like the default datasource, "spring.datasource.hikari.*" included
+        HikariDataSource defaultPool = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(defaultPool));
+        defaultPool.setPoolName("mab-tenant-" + TenantContext.DEFAULT);
+        instrument(defaultPool, meterRegistry);
+
+        return new TenantRoutingDataSource(defaultPool,
+                tenant -> openPool(tenant, dataSourceProperties, tenancyProperties, meterRegistry),
+                tenancyProperties.getMaxPools(), meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "mab.tenancy", name = "enabled", havingValue = "true")
+    public HibernatePropertiesCustomizer tenancyHibernateProperties(TenantRoutingDataSource tenantRoutingDataSource) {
+        return properties -> {
+            properties.put(AvailableSettings.MULTI_TENANT, MultiTenancyStrategy.DATABASE);
+            properties.put(AvailableSettings.MULTI_TENANT_CONNECTION_PROVIDER,
+                    new TenantConnectionProvider(tenantRoutingDataSource));
+            properties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, new TenantIdentifierResolver());
+        };
+    }
+
+    private static HikariDataSource openPool(String tenant, DataSourceProperties dataSourceProperties,
+                                             TenancyProperties tenancyProperties,
+                                             ObjectProvider<MeterRegistry> meterRegistry) {
+        TenancyProperties.Tenant settings = tenancyProperties.getTenants().get(tenant);
+        if (settings == null) {
+            throw new IllegalArgumentException("tenant inconnu : " + tenant);
+        }
+        String url = settings.getUrl() != null ? settings.getUrl() : dataSourceProperties.determineUrl();
+        String username = settings.getUrl() != null ? settings.getUsername() : dataSourceProperties.determineUsername();
+        String password = settings.getUrl() != null ? settings.getPassword() : dataSourceProperties.determinePassword();
+        String schema = tenancyProperties.schema(tenant);
+
+        // Before the pool : its connections switch to the schema, which must exist
+        List<String> locations = new ArrayList<>();
+        String vendor = DatabaseDriver.fromJdbcUrl(url).getId();
+        for (String location : tenancyProperties.getMigrationLocations()) {
+            locations.add(location.replace("{vendor}", vendor));
+        }
+        Flyway.configure()
+                .dataSource(url, username, password)
+                .schemas(schema)
+                .locations(locations.toArray(new String[0]))
+                .load()
+                .migrate();
+
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("mab-tenant-" + tenant);
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setSchema(schema);
+        pool.setMaximumPoolSize(tenancyProperties.getPoolSize());
+        // An idle museum keeps no connection open
+        pool.setMinimumIdle(0);
+        instrument(pool, meterRegistry);
+        return pool;
+    }
+
+    private static void instrument(HikariDataSource pool, ObjectProvider<MeterRegistry> meterRegistry) {
+        meterRegistry.ifAvailable(registry -> pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+    }
+}
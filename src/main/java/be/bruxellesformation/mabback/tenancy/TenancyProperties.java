@@ -0,0 +1,85 @@
+package be.bruxellesformation.mabback.tenancy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Settings of the multi-tenant mode, bound from the "mab.tenancy" properties.
+ * The default tenant keeps using the standard "spring.datasource" properties, each other tenant gets its own schema,
+ * by default in the same database.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "mab.tenancy")
+public class TenancyProperties {
+
+    private boolean enabled = false;
+    // Beyond that number of open pools, the least recently used idle pool is closed
+    private int maxPools = 50;
+    private int poolSize = 3;
+    // Migrations applied to the schema of a tenant when its pool is opened, {vendor} being h2 or postgresql
+    private List<String> migrationLocations = new ArrayList<>(Arrays.asList("classpath:db/migration/{vendor}"));
+    private Map<String, Tenant> tenants = new LinkedHashMap<>();
+
+    /**
+     * @return the ids of the tenants, the default one first
+     */
+    public List<String> tenantIds() {
+        List<String> ids = new ArrayList<>();
+        ids.add(TenantContext.DEFAULT);
+        if (enabled) {
+            ids.addAll(tenants.keySet());
+        }
+        return ids;
+    }
+
+    public boolean isKnown(String tenant) {
+        return TenantContext.DEFAULT.equals(tenant) || (enabled && tenants.containsKey(tenant));
+    }
+
+    /**
+     * @param host the host name of a request
+     * @return the tenant serving this host, or null if the host belongs to no tenant in particular
+     */
+    public String tenantOfHost(String host) {
+        if (host == null) {
+            return null;
+        }
+        String lowerCaseHost = host.toLowerCase(Locale.ROOT);
+        for (Map.Entry<String, Tenant> tenant : tenants.entrySet()) {
+            for (String tenantHost : tenant.getValue().getHosts()) {
+                if (tenantHost.toLowerCase(Locale.ROOT).equals(lowerCaseHost)) {
+                    return tenant.getKey();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the schema holding the data of the tenant, "tenant_" followed by its id unless configured
+     */
+    public String schema(String tenant) {
+        Tenant settings = tenants.get(tenant);
+        return settings != null && settings.getSchema() != null ? settings.getSchema() : "tenant_" + tenant;
+    }
+
+    @Getter
+    @Setter
+    public static class Tenant {
+        private List<String> hosts = new ArrayList<>();
+        private String schema;
+        // Another database than the default one, optional
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,61 @@
+package be.bruxellesformation.mabback.tenancy;
+
+import org.hibernate.engine.jdbc.connections.spi.MultiTenantConnectionProvider;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Gives Hibernate the connections of the tenant of each session, from the pools of the
+ * {@link TenantRoutingDataSource}. The sessions opened without tenant, like the schema validation, use the pool of
+ * the default tenant.
+ */
+public class TenantConnectionProvider implements MultiTenantConnectionProvider {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient TenantRoutingDataSource dataSource;
+
+    public TenantConnectionProvider(TenantRoutingDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Connection getAnyConnection() throws SQLException {
+        return dataSource.getConnection(TenantContext.DEFAULT);
+    }
+
+    @Override
+    public void releaseAnyConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public Connection getConnection(String tenantIdentifier) throws SQLException {
+        return dataSource.getConnection(tenantIdentifier);
+    }
+
+    @Override
+    public void releaseConnection(String tenantIdentifier, Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class unwrapType) {
+        return unwrapType.isInstance(this);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (unwrapType.isInstance(this)) {
+            return (T) this;
+        }
+        throw new IllegalArgumentException("cannot unwrap " + getClass().getName() + " as " + unwrapType.getName());
+    }
+}
@@ -0,0 +1,65 @@
+package be.bruxellesformation.mabback.tenancy;
+
+import java.util.function.Supplier;
+
+/**
+ * The museum the current thread works for, set by the {@link TenantFilter} for the duration of a request.
+ * Outside of a request, and when the multi-tenant mode is off, the thread works for the default tenant : the museum
+ * of the original single-tenant deployment, in the schema of "spring.datasource.url".
+ */
+public final class TenantContext {
+
+    public static final String DEFAULT = "default";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    /**
+     * @return the id of the current tenant, never null
+     */
+    public static String current() {
+        String tenant = CURRENT.get();
+        return tenant != null ? tenant : DEFAULT;
+    }
+
+    public static boolean isDefault() {
+        return DEFAULT.equals(current());
+    }
+
+    public static void set(String tenant) {
+        CURRENT.set(tenant);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs a task for a tenant, then restores the tenant of the thread.
+     * @param tenant the id of the tenant
+     * @param task the task, typically a background job looping over the tenants
+     * @return the result of the task
+     */
+    public static <T> T callAs(String tenant, Supplier<T> task) {
+        String previous = CURRENT.get();
+        CURRENT.set(tenant);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public static void runAs(String tenant, Runnable task) {
+        callAs(tenant, () -> {
+            task.run();
+            return null;
+        });
+    }
+}
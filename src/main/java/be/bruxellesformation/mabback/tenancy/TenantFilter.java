@@ -0,0 +1,92 @@
+package be.bruxellesformation.mabback.tenancy;
+
+import be.bruxellesformation.mabback.security.jwtUtilities.JwtTokenUtil;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the museum of each request and sets it in the {@link TenantContext} : the "tenant" claim of the token for
+ * the authenticated users, the host name of the request otherwise, the default tenant for a host of no tenant.
+ * A token used on the host of another museum is refused, the users of a museum being unknown to the others.
+ * Runs before Spring Security, which loads the user from the schema of the tenant. The timer
+ * "mab.tenancy.requests" tells the traffic of each tenant.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+@ConditionalOnProperty(prefix = "mab.tenancy", name = "enabled", havingValue = "true")
+public class TenantFilter extends OncePerRequestFilter {
+
+    private final TenancyProperties properties;
+    private final JwtTokenUtil jwtTokenUtil;
+    private final String tokenHeader;
+    private final MeterRegistry registry;
+
+    public TenantFilter(TenancyProperties properties, JwtTokenUtil jwtTokenUtil,
+                        @Value("${jwt.header}") String tokenHeader, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.properties = properties;
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.tokenHeader = tokenHeader;
+        this.registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String tokenTenant = tokenTenant(request);
+        String hostTenant = properties.tenantOfHost(request.getServerName());
+        if (tokenTenant != null && hostTenant != null && !tokenTenant.equals(hostTenant)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "token d'un autre musee");
+            return;
+        }
+        String tenant = tokenTenant != null ? tokenTenant : hostTenant != null ? hostTenant : TenantContext.DEFAULT;
+        if (!properties.isKnown(tenant)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND, "musee inconnu");
+            return;
+        }
+
+        long start = System.nanoTime();
+        TenantContext.set(tenant);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            TenantContext.clear();
+            Timer.builder("mab.tenancy.requests")
+                    .tag("tenant", tenant)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @return the tenant of a valid token, the default one for a token without tenant, null without valid token
+     */
+    private String tokenTenant(HttpServletRequest request) {
+        String header = request.getHeader(tokenHeader);
+        if (header == null || !header.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            String tenant = jwtTokenUtil.getTenantFromToken(header.substring(7));
+            return tenant != null ? tenant : TenantContext.DEFAULT;
+        } catch (JwtException | IllegalArgumentException exception) {
+            // Refused later by the authentication, the request is anonymous
+            return null;
+        }
+    }
+}
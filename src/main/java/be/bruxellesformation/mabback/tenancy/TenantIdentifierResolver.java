@@ -0,0 +1,20 @@
+package be.bruxellesformation.mabback.tenancy;
+
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+
+/**
+ * Opens each Hibernate session for the tenant of the current thread. The tenant is also part of the keys of the
+ * second-level cache and of the query cache, so the museums never read the cached entities of each other.
+ */
+public class TenantIdentifierResolver implements CurrentTenantIdentifierResolver {
+
+    @Override
+    public String resolveCurrentTenantIdentifier() {
+        return TenantContext.current();
+    }
+
+    @Override
+    public boolean validateExistingCurrentSessions() {
+        return true;
+    }
+}
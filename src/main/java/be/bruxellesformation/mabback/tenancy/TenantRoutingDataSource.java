@@ -0,0 +1,228 @@
+package be.bruxellesformation.mabback.tenancy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Routes the connections to the pool of the current tenant, see {@link TenantContext}.
+ * The pools of the tenants are opened on their first connection, so a museum without traffic costs nothing. Past
+ * "maxPools" open pools, the least recently used pool without borrowed connection is closed.
+ * The default tenant keeps its pool open, and its connections are borrowed without any lock. The pool of a new tenant
+ * is opened, its schema migrated, by the first thread asking for it, outside of any lock : the other threads asking
+ * for that tenant wait for it, those of the other tenants do not.
+ */
+public class TenantRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final TenantPool defaultPool;
+    private final Function<String, HikariDataSource> poolFactory;
+    private final int maxPools;
+    private final Map<String, TenantPool> pools = new ConcurrentHashMap<>();
+    // Orders the uses of the pools, the least recently used having the lowest value
+    private final AtomicLong uses = new AtomicLong();
+    // Only held while closing the idle pools
+    private final Object eviction = new Object();
+    private volatile UnaryOperator<DataSource> watcher = UnaryOperator.identity();
+    private final Counter opened;
+    private final Counter evicted;
+
+    /**
+     * Creates the routing datasource.
+     * @param defaultPool the pool of the default tenant
+     * @param poolFactory opens the pool of a tenant, its schema migrated
+     * @param maxPools the maximum number of pools kept open besides the default one
+     * @param registry where the number of pools opened and closed is counted
+     */
+    public TenantRoutingDataSource(HikariDataSource defaultPool, Function<String, HikariDataSource> poolFactory,
+                                   int maxPools, MeterRegistry registry) {
+        this.defaultPool = new TenantPool();
+        this.defaultPool.opened(defaultPool, watcher);
+        this.poolFactory = poolFactory;
+        this.maxPools = maxPools;
+        this.opened = registry.counter("mab.tenancy.pools.opened");
+        this.evicted = registry.counter("mab.tenancy.pools.evicted");
+        Gauge.builder("mab.tenancy.pools", this, TenantRoutingDataSource::openPools).register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(TenantContext.current());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("the credentials are those of the tenant");
+    }
+
+    /**
+     * @param tenant the id of the tenant
+     * @return a connection to the schema of the tenant
+     */
+    public Connection getConnection(String tenant) throws SQLException {
+        while (true) {
+            TenantPool pool = tenantPool(tenant);
+            try {
+                return pool.connections.getConnection();
+            } catch (SQLException exception) {
+                // Closed by another thread between the lookup and the borrow : the pool is opened again
+                if (!pool.dataSource.join().isClosed()) {
+                    throw exception;
+                }
+            }
+        }
+    }
+
+    /**
+     * Wraps the pools, those already open and those opened later, for example to record their slow statements.
+     * Meant to be called once, before the first connection.
+     * @param watcher gives the datasource lending the connections of a pool
+     */
+    public void watch(UnaryOperator<DataSource> watcher) {
+        synchronized (eviction) {
+            this.watcher = watcher;
+            defaultPool.opened(defaultPool.dataSource.join(), watcher);
+            for (TenantPool pool : pools.values()) {
+                HikariDataSource dataSource = pool.dataSource.getNow(null);
+                if (dataSource != null) {
+                    pool.opened(dataSource, watcher);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the pool of the tenant, opened if needed
+     */
+    HikariDataSource pool(String tenant) {
+        return tenantPool(tenant).dataSource.join();
+    }
+
+    private TenantPool tenantPool(String tenant) {
+        if (TenantContext.DEFAULT.equals(tenant)) {
+            return defaultPool;
+        }
+        TenantPool pool = pools.get(tenant);
+        if (pool == null) {
+            TenantPool opening = new TenantPool();
+            pool = pools.putIfAbsent(tenant, opening);
+            if (pool == null) {
+                pool = opening;
+                open(tenant, opening);
+            }
+        }
+        pool.lastUse = uses.incrementAndGet();
+        try {
+            pool.dataSource.join();
+            return pool;
+        } catch (CompletionException exception) {
+            throw exception.getCause() instanceof RuntimeException
+                    ? (RuntimeException) exception.getCause() : exception;
+        }
+    }
+
+    /**
+     * @return the number of open pools, the default one included
+     */
+    public int openPools() {
+        return pools.size() + 1;
+    }
+
+    @Override
+    public void close() {
+        synchronized (eviction) {
+            for (TenantPool pool : pools.values()) {
+                HikariDataSource dataSource = pool.dataSource.getNow(null);
+                if (dataSource != null) {
+                    dataSource.close();
+                }
+            }
+            pools.clear();
+        }
+        defaultPool.dataSource.join().close();
+    }
+
+    /**
+     * Opens the pool of a tenant on the calling thread. The pool is forgotten if it cannot be opened, so that the next
+     * request tries again.
+     */
+    private void open(String tenant, TenantPool opening) {
+        try {
+            opening.opened(poolFactory.apply(tenant), watcher);
+        } catch (RuntimeException exception) {
+            pools.remove(tenant, opening);
+            opening.dataSource.completeExceptionally(exception);
+            return;
+        }
+        opened.increment();
+        logger.info("pool of tenant '{}' opened, {} pools open", tenant, openPools());
+        evictIdlePools(tenant);
+    }
+
+    /**
+     * Closes the least recently used pools until the limit is respected. A pool lending a connection or still being
+     * opened is never closed, the limit can then be exceeded for a while.
+     * @param opening the tenant whose pool has just been opened, kept
+     */
+    private void evictIdlePools(String opening) {
+        synchronized (eviction) {
+            if (pools.size() <= maxPools) {
+                return;
+            }
+            List<Map.Entry<String, TenantPool>> eldestFirst = new ArrayList<>(pools.entrySet());
+            eldestFirst.sort(Comparator.comparingLong(entry -> entry.getValue().lastUse));
+            for (Map.Entry<String, TenantPool> entry : eldestFirst) {
+                if (pools.size() <= maxPools) {
+                    return;
+                }
+                HikariDataSource dataSource = entry.getValue().dataSource.getNow(null);
+                if (entry.getKey().equals(opening) || dataSource == null) {
+                    continue;
+                }
+                HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+                boolean idle = pool == null || pool.getActiveConnections() == 0;
+                if (idle && pools.remove(entry.getKey(), entry.getValue())) {
+                    dataSource.close();
+                    evicted.increment();
+                    logger.info("pool of tenant '{}' closed", entry.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * The pool of a tenant, completed once opened.
+     */
+    private static final class TenantPool {
+        private final CompletableFuture<HikariDataSource> dataSource = new CompletableFuture<>();
+        // The pool, or its wrapper
+        private volatile DataSource connections;
+        private volatile long lastUse;
+
+        private void opened(HikariDataSource pool, UnaryOperator<DataSource> watcher) {
+            connections = watcher.apply(pool);
+            dataSource.complete(pool);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package be.bruxellesformation.mabback.timing;
+
+import java.util.Locale;
+
+/**
+ * The time spent by the current request in each phase, measured on its thread.
+ * A phase entered within another one interrupts it : the time of a query run by lazy loading during the serialization
+ * counts for the database only, so the phases add up to at most the total. The time outside any phase is the work of
+ * the application itself.
+ * Outside a sampled request, the methods do nothing but a thread-local lookup.
+ */
+public final class RequestTiming {
+
+    public enum Phase {
+        AUTH,
+        DB,
+        SERIALIZE
+    }
+
+    private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+    private final long start = System.nanoTime();
+    private final long[] nanos = new long[Phase.values().length];
+    private long end = -1;
+    // Null outside any phase
+    private Phase phase;
+    private long mark = start;
+
+    private RequestTiming() {
+    }
+
+    /**
+     * Starts measuring the request of the current thread.
+     */
+    static RequestTiming begin() {
+        RequestTiming timing = new RequestTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    /**
+     * Stops measuring the request of the current thread.
+     */
+    static void end(RequestTiming timing) {
+        timing.switchTo(null);
+        timing.end = timing.mark;
+        CURRENT.remove();
+    }
+
+    /**
+     * Enters a phase of the current request, if it is measured.
+     * @return the phase interrupted, to give back to {@link #exit(Phase)}
+     */
+    public static Phase enter(Phase phase) {
+        RequestTiming timing = CURRENT.get();
+        return timing != null ? timing.switchTo(phase) : null;
+    }
+
+    /**
+     * Leaves the current phase of the request, if it is measured.
+     * @param previous the phase returned by {@link #enter(Phase)}, null to leave every phase
+     */
+    public static void exit(Phase previous) {
+        RequestTiming timing = CURRENT.get();
+        if (timing != null) {
+            timing.switchTo(previous);
+        }
+    }
+
+    public long nanos(Phase phase) {
+        return nanos[phase.ordinal()];
+    }
+
+    public long totalNanos() {
+        return (end >= 0 ? end : System.nanoTime()) - start;
+    }
+
+    /**
+     * @return the value of the Server-Timing header, durations in milliseconds
+     */
+    public String header() {
+        StringBuilder header = new StringBuilder(80);
+        for (Phase measured : Phase.values()) {
+            header.append(measured.name().toLowerCase(Locale.ROOT)).append(";dur=")
+                    .append(millis(nanos(measured))).append(", ");
+        }
+        return header.append("total;dur=").append(millis(totalNanos())).toString();
+    }
+
+    private Phase switchTo(Phase next) {
+        long now = System.nanoTime();
+        if (phase != null) {
+            nanos[phase.ordinal()] += now - mark;
+        }
+        mark = now;
+        Phase previous = phase;
+        phase = next;
+        return previous;
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1e6);
+    }
+}
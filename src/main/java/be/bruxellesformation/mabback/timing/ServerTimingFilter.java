@@ -0,0 +1,133 @@
+package be.bruxellesformation.mabback.timing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a sample of the requests phase by phase : authentication, database, serialization and total. The
+ * durations are sent in the "Server-Timing" header, which the developer tools of the browsers display, and recorded
+ * in the "mab.timing.phase" histograms by endpoint and phase.
+ * The header has to be written before the body, whose serialization it measures : the body of a sampled request is
+ * held in memory until the end. The streamed responses, images, change feed and inventories, are never sampled.
+ * The sampling can be switched at runtime through "/admin/timing".
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 30)
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    static final String HEADER = "Server-Timing";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final List<String> excludedPaths;
+    private final MeterRegistry registry;
+    private volatile boolean enabled;
+    private volatile double sampleRate;
+
+    public ServerTimingFilter(ObjectProvider<MeterRegistry> meterRegistry,
+                              @Value("${mab.timing.enabled:true}") boolean enabled,
+                              @Value("${mab.timing.sample-rate:0.01}") double sampleRate,
+                              @Value("${mab.timing.excluded-paths:/images/**,/changes/**,/rooms/*/inventory}")
+                                      List<String> excludedPaths) {
+        this.registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.excludedPaths = new ArrayList<>(excludedPaths);
+        configure(enabled, sampleRate);
+    }
+
+    /**
+     * @param enabled false to measure no request at all
+     * @param sampleRate the share of the requests measured, between 0 and 1
+     * @throws IllegalArgumentException if the rate is out of bounds
+     */
+    public void configure(boolean enabled, double sampleRate) {
+        if (!(sampleRate >= 0 && sampleRate <= 1)) {
+            throw new IllegalArgumentException("taux d'echantillonnage invalide : " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String excluded : excludedPaths) {
+            if (pathMatcher.match(excluded, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        double rate = sampleRate;
+        if (rate < 1 && ThreadLocalRandom.current().nextDouble() >= rate) {
+            chain.doFilter(request, response);
+            return;
+        }
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        RequestTiming timing = RequestTiming.begin();
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            RequestTiming.end(timing);
+            record(request, timing);
+            if (!wrapper.isCommitted()) {
+                wrapper.setHeader(HEADER, timing.header());
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void record(HttpServletRequest request, RequestTiming timing) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        for (RequestTiming.Phase phase : RequestTiming.Phase.values()) {
+            timer(request.getMethod(), uri, phase.name().toLowerCase(Locale.ROOT))
+                    .record(timing.nanos(phase), TimeUnit.NANOSECONDS);
+        }
+        timer(request.getMethod(), uri, "total").record(timing.totalNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String method, String uri, String phase) {
+        return Timer.builder("mab.timing.phase")
+                .description("Time spent by the sampled requests in each phase")
+                .tag("method", method)
+                .tag("uri", uri)
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
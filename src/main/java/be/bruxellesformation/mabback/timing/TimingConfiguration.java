@@ -0,0 +1,24 @@
+package be.bruxellesformation.mabback.timing;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers the end of the serialization phase of {@link SerializationTiming}. The database phase is delimited by
+ * {@link TimingSessionListener}, the authentication phase by the JWT filter.
+ */
+@Configuration
+public class TimingConfiguration implements WebMvcConfigurer {
+
+    private final SerializationTiming serializationTiming;
+
+    public TimingConfiguration(SerializationTiming serializationTiming) {
+        this.serializationTiming = serializationTiming;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(serializationTiming);
+    }
+}
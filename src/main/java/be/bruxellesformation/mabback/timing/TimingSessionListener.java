@@ -0,0 +1,43 @@
+package be.bruxellesformation.mabback.timing;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Counts the time of the JDBC work of Hibernate in the database phase of the request : connection acquisition,
+ * statements and batches. Registered for every session by the "hibernate.session.events.auto" property, so the
+ * queries of lazy loading are measured too.
+ */
+public class TimingSessionListener extends BaseSessionEventListener {
+
+    private RequestTiming.Phase interrupted;
+
+    @Override
+    public void jdbcConnectionAcquisitionStart() {
+        interrupted = RequestTiming.enter(RequestTiming.Phase.DB);
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        RequestTiming.exit(interrupted);
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        interrupted = RequestTiming.enter(RequestTiming.Phase.DB);
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        RequestTiming.exit(interrupted);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        interrupted = RequestTiming.enter(RequestTiming.Phase.DB);
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        RequestTiming.exit(interrupted);
+    }
+}
@@ -0,0 +1,74 @@
+-- Schema initial, identique a celui genere jusqu'ici par Hibernate (ddl-auto)
+
+CREATE SEQUENCE authority_seq START WITH 1 INCREMENT BY 1;
+CREATE SEQUENCE user_seq START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE culture (
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    culture_map        VARCHAR(255),
+    description        CLOB,
+    end_year           INTEGER NOT NULL,
+    name               VARCHAR(255),
+    period_description VARCHAR(255),
+    start_year         INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE exposition (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    description   CLOB,
+    end_date      DATE,
+    image_url     VARCHAR(255),
+    start_date    DATE,
+    title         VARCHAR(255),
+    visitor_count INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE artefact (
+    identification       VARCHAR(255) NOT NULL,
+    cultural_phase       VARCHAR(255),
+    date_of_entry        DATE,
+    end_year             INTEGER NOT NULL,
+    imageurl             VARCHAR(255),
+    in_exposition        BOOLEAN NOT NULL,
+    localisation         VARCHAR(255),
+    material             VARCHAR(255),
+    name                 VARCHAR(255),
+    object_description   CLOB,
+    on_permanent_display BOOLEAN NOT NULL,
+    period_description   VARCHAR(255),
+    start_year           INTEGER NOT NULL,
+    type                 VARCHAR(255),
+    culture_id           BIGINT,
+    exposition_id        BIGINT,
+    PRIMARY KEY (identification),
+    CONSTRAINT fk_artefact_culture FOREIGN KEY (culture_id) REFERENCES culture (id),
+    CONSTRAINT fk_artefact_exposition FOREIGN KEY (exposition_id) REFERENCES exposition (id)
+);
+
+CREATE TABLE authority (
+    id   BIGINT NOT NULL,
+    name VARCHAR(50),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE user (
+    id                    BIGINT NOT NULL,
+    email                 VARCHAR(50),
+    enabled               BOOLEAN,
+    firstname             VARCHAR(50),
+    lastname              VARCHAR(50),
+    lastpasswordresetdate TIMESTAMP,
+    password              VARCHAR(100),
+    username              VARCHAR(50),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_username UNIQUE (username)
+);
+
+CREATE TABLE user_authority (
+    user_id      BIGINT NOT NULL,
+    authority_id BIGINT NOT NULL,
+    CONSTRAINT fk_user_authority_user FOREIGN KEY (user_id) REFERENCES user (id),
+    CONSTRAINT fk_user_authority_authority FOREIGN KEY (authority_id) REFERENCES authority (id)
+);
@@ -0,0 +1,20 @@
+-- Index utilises par les requetes derivees des repositories
+
+-- findAllByStartYearBetweenOrEndYearBetween (artefacts et cultures), findAllByOrderByStartYear
+CREATE INDEX idx_artefact_start_year ON artefact (start_year);
+CREATE INDEX idx_artefact_end_year ON artefact (end_year);
+CREATE INDEX idx_culture_start_year ON culture (start_year);
+CREATE INDEX idx_culture_end_year ON culture (end_year);
+
+-- findAllByCulture et chargement des artefacts d'une exposition
+CREATE INDEX idx_artefact_culture ON artefact (culture_id);
+CREATE INDEX idx_artefact_exposition ON artefact (exposition_id);
+
+-- Inventaire par salle
+CREATE INDEX idx_artefact_localisation ON artefact (localisation);
+
+-- findAllByEndDateAfter trie par visitorCount, findAllByEndDateBeforeOrderByStartDateDesc
+CREATE INDEX idx_exposition_end_date ON exposition (end_date);
+CREATE INDEX idx_exposition_visitor_count ON exposition (visitor_count);
+
+-- H2 n'a pas d'index trigramme : les recherches ILIKE restent des parcours de table en developpement
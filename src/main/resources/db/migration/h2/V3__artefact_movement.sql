@@ -0,0 +1,15 @@
+-- Historique des deplacements des artefacts, alimente en asynchrone et jamais modifie
+-- Pas de cle etrangere : l'historique d'un artefact supprime est conserve
+
+CREATE TABLE artefact_movement (
+    id                      BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    artefact_identification VARCHAR(255) NOT NULL,
+    from_localisation       VARCHAR(255),
+    to_localisation         VARCHAR(255),
+    exposition_id           BIGINT,
+    moved_by                VARCHAR(50),
+    moved_at                TIMESTAMP NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_artefact_movement_artefact ON artefact_movement (artefact_identification, moved_at);
@@ -0,0 +1,9 @@
+-- Cle normalisee de la localisation (sans espaces superflus, en minuscules) pour l'inventaire par salle.
+-- Tenue a jour par l'entite Artefact et par les deplacements groupes.
+
+ALTER TABLE artefact ADD COLUMN location_key VARCHAR(255);
+
+UPDATE artefact SET location_key = NULLIF(LOWER(TRIM(REGEXP_REPLACE(localisation, '\s+', ' '))), '');
+
+-- Pages d'une salle triees par identification
+CREATE INDEX idx_artefact_location_key ON artefact (location_key, identification);
@@ -0,0 +1,75 @@
+-- Schema initial, identique a celui genere jusqu'ici par Hibernate (ddl-auto)
+
+CREATE SEQUENCE authority_seq START 1 INCREMENT 1;
+CREATE SEQUENCE user_seq START 1 INCREMENT 1;
+
+CREATE TABLE culture (
+    id                 BIGSERIAL NOT NULL,
+    culture_map        VARCHAR(255),
+    description        TEXT,
+    end_year           INT4 NOT NULL,
+    name               VARCHAR(255),
+    period_description VARCHAR(255),
+    start_year         INT4 NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE exposition (
+    id            BIGSERIAL NOT NULL,
+    description   TEXT,
+    end_date      DATE,
+    image_url     VARCHAR(255),
+    start_date    DATE,
+    title         VARCHAR(255),
+    visitor_count INT4 NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE artefact (
+    identification       VARCHAR(255) NOT NULL,
+    cultural_phase       VARCHAR(255),
+    date_of_entry        DATE,
+    end_year             INT4 NOT NULL,
+    imageurl             VARCHAR(255),
+    in_exposition        BOOLEAN NOT NULL,
+    localisation         VARCHAR(255),
+    material             VARCHAR(255),
+    name                 VARCHAR(255),
+    object_description   TEXT,
+    on_permanent_display BOOLEAN NOT NULL,
+    period_description   VARCHAR(255),
+    start_year           INT4 NOT NULL,
+    type                 VARCHAR(255),
+    culture_id           INT8,
+    exposition_id        INT8,
+    PRIMARY KEY (identification),
+    CONSTRAINT fk_artefact_culture FOREIGN KEY (culture_id) REFERENCES culture (id),
+    CONSTRAINT fk_artefact_exposition FOREIGN KEY (exposition_id) REFERENCES exposition (id)
+);
+
+CREATE TABLE authority (
+    id   INT8 NOT NULL,
+    name VARCHAR(50),
+    PRIMARY KEY (id)
+);
+
+-- "user" est un mot reserve de PostgreSQL
+CREATE TABLE "user" (
+    id                    INT8 NOT NULL,
+    email                 VARCHAR(50),
+    enabled               BOOLEAN,
+    firstname             VARCHAR(50),
+    lastname              VARCHAR(50),
+    lastpasswordresetdate TIMESTAMP,
+    password              VARCHAR(100),
+    username              VARCHAR(50),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_username UNIQUE (username)
+);
+
+CREATE TABLE user_authority (
+    user_id      INT8 NOT NULL,
+    authority_id INT8 NOT NULL,
+    CONSTRAINT fk_user_authority_user FOREIGN KEY (user_id) REFERENCES "user" (id),
+    CONSTRAINT fk_user_authority_authority FOREIGN KEY (authority_id) REFERENCES authority (id)
+);
@@ -0,0 +1,28 @@
+-- Index utilises par les requetes derivees des repositories
+
+-- findAllByStartYearBetweenOrEndYearBetween (artefacts et cultures), findAllByOrderByStartYear
+CREATE INDEX idx_artefact_start_year ON artefact (start_year);
+CREATE INDEX idx_artefact_end_year ON artefact (end_year);
+CREATE INDEX idx_culture_start_year ON culture (start_year);
+CREATE INDEX idx_culture_end_year ON culture (end_year);
+
+-- findAllByCulture et chargement des artefacts d'une exposition
+CREATE INDEX idx_artefact_culture ON artefact (culture_id);
+CREATE INDEX idx_artefact_exposition ON artefact (exposition_id);
+
+-- Inventaire par salle
+CREATE INDEX idx_artefact_localisation ON artefact (localisation);
+
+-- findAllByEndDateAfter trie par visitorCount, findAllByEndDateBeforeOrderByStartDateDesc
+CREATE INDEX idx_exposition_end_date ON exposition (end_date);
+CREATE INDEX idx_exposition_visitor_count ON exposition (visitor_count);
+
+-- Recherches "ContainingIgnoreCase" : Hibernate genere upper(colonne) like upper(?),
+-- l'index trigramme doit donc porter sur l'expression upper(colonne)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX idx_artefact_name_trgm ON artefact USING gin (upper(name) gin_trgm_ops);
+CREATE INDEX idx_artefact_cultural_phase_trgm ON artefact USING gin (upper(cultural_phase) gin_trgm_ops);
+CREATE INDEX idx_artefact_type_trgm ON artefact USING gin (upper(type) gin_trgm_ops);
+CREATE INDEX idx_artefact_material_trgm ON artefact USING gin (upper(material) gin_trgm_ops);
+CREATE INDEX idx_culture_name_trgm ON culture USING gin (upper(name) gin_trgm_ops);
+CREATE INDEX idx_exposition_title_trgm ON exposition USING gin (upper(title) gin_trgm_ops);
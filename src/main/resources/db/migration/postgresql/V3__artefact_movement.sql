@@ -0,0 +1,26 @@
+-- Historique des deplacements des artefacts, alimente en asynchrone et jamais modifie
+-- Pas de cle etrangere : l'historique d'un artefact supprime est conserve
+
+CREATE TABLE artefact_movement (
+    id                      BIGSERIAL NOT NULL,
+    artefact_identification VARCHAR(255) NOT NULL,
+    from_localisation       VARCHAR(255),
+    to_localisation         VARCHAR(255),
+    exposition_id           INT8,
+    moved_by                VARCHAR(50),
+    moved_at                TIMESTAMP NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_artefact_movement_artefact ON artefact_movement (artefact_identification, moved_at);
+
+-- Table en ajout seul : les modifications et suppressions sont refusees
+CREATE FUNCTION artefact_movement_append_only() RETURNS trigger AS $$
+BEGIN
+    RAISE EXCEPTION 'artefact_movement est en ajout seul';
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER artefact_movement_append_only
+    BEFORE UPDATE OR DELETE ON artefact_movement
+    FOR EACH ROW EXECUTE PROCEDURE artefact_movement_append_only();
@@ -0,0 +1,30 @@
+-- Journal des modifications du catalogue pour la synchronisation incrementale (/sync)
+-- seq croit a chaque modification ; les suppressions restent comme pierres tombales
+
+CREATE TABLE change_log (
+    seq         BIGSERIAL NOT NULL,
+    entity_type VARCHAR(20)  NOT NULL,
+    entity_id   VARCHAR(255) NOT NULL,
+    change_type VARCHAR(10)  NOT NULL,
+    changed_at  TIMESTAMP    NOT NULL,
+    PRIMARY KEY (seq)
+);
+
+-- Le catalogue existant est la premiere synchronisation des clients (since=0)
+INSERT INTO change_log (entity_type, entity_id, change_type, changed_at)
+SELECT 'CULTURE', CAST(id AS VARCHAR(255)), 'CREATED', CURRENT_TIMESTAMP FROM culture ORDER BY id;
+INSERT INTO change_log (entity_type, entity_id, change_type, changed_at)
+SELECT 'EXPOSITION', CAST(id AS VARCHAR(255)), 'CREATED', CURRENT_TIMESTAMP FROM exposition ORDER BY id;
+INSERT INTO change_log (entity_type, entity_id, change_type, changed_at)
+SELECT 'ARTEFACT', identification, 'CREATED', CURRENT_TIMESTAMP FROM artefact ORDER BY identification;
+
+-- Numerotation du journal dans l'ordre des commits : chaque transaction incremente ce compteur et garde le verrou
+-- de sa ligne jusqu'a son commit. Un numero lu est donc toujours precede de tous les numeros plus petits, sans trou.
+
+CREATE TABLE change_log_counter (
+    id       INT    NOT NULL,
+    last_seq BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+INSERT INTO change_log_counter (id, last_seq) SELECT 1, COALESCE(MAX(seq), 0) FROM change_log;
@@ -0,0 +1,18 @@
+-- Reservations d'artefacts pour des expositions futures, aux dates de l'exposition
+
+CREATE TABLE reservation (
+    id                      BIGSERIAL NOT NULL,
+    artefact_identification VARCHAR(255) NOT NULL,
+    exposition_id           INT8 NOT NULL,
+    start_date              DATE,
+    end_date                DATE,
+    status                  VARCHAR(20),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_reservation_artefact FOREIGN KEY (artefact_identification) REFERENCES artefact (identification)
+        ON DELETE CASCADE,
+    CONSTRAINT fk_reservation_exposition FOREIGN KEY (exposition_id) REFERENCES exposition (id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_reservation_artefact ON reservation (artefact_identification, start_date);
+CREATE INDEX idx_reservation_exposition ON reservation (exposition_id);
+CREATE INDEX idx_reservation_status ON reservation (status, start_date);
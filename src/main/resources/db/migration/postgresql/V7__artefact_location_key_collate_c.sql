@@ -0,0 +1,6 @@
+-- L'inventaire par salle trie les identifications avec la collation "C", comme les chaines Java : l'index
+-- idx_artefact_location_key suit la collation par defaut et ne peut pas fournir cet ordre.
+-- Il reste utilise par les pages d'une salle, triees avec la collation par defaut.
+-- Pas d'equivalent H2, dont la collation par defaut est deja celle des chaines Java.
+
+CREATE INDEX idx_artefact_location_key_c ON artefact (location_key, identification COLLATE "C");
@@ -47,3 +47,8 @@ VALUES ('LA0005',NULL,'2018-05-20',2100,NULL,'1','Futur antérieur - Trésors ar
 INSERT INTO artefact (identification,cultural_phase,date_of_entry,end_year,imageurl,in_exposition,localisation,material,name,object_description,on_permanent_display,period_description,start_year,type,culture_id,exposition_id)
 VALUES ('RE1001','République','1954-09-05',-46,'https://img-4.linternaute.com/vTq3BwiqC1L_2LbP-nDbR00JZWo=/350x/smart/b26ae4a4fb4d4967aece99ba556efae8/ccmcms-linternaute/27494.jpg','0','Room 26','Pierre','Buste de César','Buste de Jules César','1','2e moitié du 1er siècle avant notre ère',-49,'Statue',2,NULL);
 
+-- Les prochains identifiants generes ne doivent pas entrer en collision avec les donnees ci-dessus
+ALTER SEQUENCE user_seq RESTART WITH 4;
+ALTER SEQUENCE authority_seq RESTART WITH 3;
+ALTER TABLE culture ALTER COLUMN id RESTART WITH 6;
+ALTER TABLE exposition ALTER COLUMN id RESTART WITH 6;
@@ -35,9 +35,9 @@ INSERT INTO artefact (identification,cultural_phase,date_of_entry,end_year,image
 VALUES ('RE1001','République','1954-09-05',-46,'https://img-4.linternaute.com/vTq3BwiqC1L_2LbP-nDbR00JZWo=/350x/smart/b26ae4a4fb4d4967aece99ba556efae8/ccmcms-linternaute/27494.jpg','0','Room 26','Pierre','Buste de César','Buste de Jules César','1','2e moitié du 1er siècle avant notre ère',-49,'Statue',2,NULL);
 
 
-INSERT INTO USER (ID, USERNAME, PASSWORD, FIRSTNAME, LASTNAME, EMAIL, ENABLED, LASTPASSWORDRESETDATE) VALUES (1, 'admin', '$2a$08$lDnHPz7eUkSi6ao14Twuau08mzhWrL4kyZGGU5xfiGALO/Vxd5DOi', 'admin', 'admin', 'admin@admin.com', 1, PARSEDATETIME('01-01-2016', 'dd-MM-yyyy'));
-INSERT INTO USER (ID, USERNAME, PASSWORD, FIRSTNAME, LASTNAME, EMAIL, ENABLED, LASTPASSWORDRESETDATE) VALUES (2, 'Conservateur', '$2a$08$UkVvwpULis18S19S5pZFn.YHPZt3oaqHZnDwqbCW9pft6uFtkXKDC', 'Jean-François', 'Champollion', 'champollionchampion@user.com', 1, PARSEDATETIME('01-01-2016','dd-MM-yyyy'));
-INSERT INTO USER (ID, USERNAME, PASSWORD, FIRSTNAME, LASTNAME, EMAIL, ENABLED, LASTPASSWORDRESETDATE) VALUES (3, 'Chercheur', '$2a$08$UkVvwpULis18S19S5pZFn.YHPZt3oaqHZnDwqbCW9pft6uFtkXKDC', 'André', 'Leroi-Gourhan', 'magdalenian4ever@user.com', 1, PARSEDATETIME('01-01-2016','dd-MM-yyyy'));
+INSERT INTO "user" (ID, USERNAME, PASSWORD, FIRSTNAME, LASTNAME, EMAIL, ENABLED, LASTPASSWORDRESETDATE) VALUES (1, 'admin', '$2a$08$lDnHPz7eUkSi6ao14Twuau08mzhWrL4kyZGGU5xfiGALO/Vxd5DOi', 'admin', 'admin', 'admin@admin.com', true, to_timestamp('01-01-2016', 'DD-MM-YYYY'));
+INSERT INTO "user" (ID, USERNAME, PASSWORD, FIRSTNAME, LASTNAME, EMAIL, ENABLED, LASTPASSWORDRESETDATE) VALUES (2, 'Conservateur', '$2a$08$UkVvwpULis18S19S5pZFn.YHPZt3oaqHZnDwqbCW9pft6uFtkXKDC', 'Jean-François', 'Champollion', 'champollionchampion@user.com', true, to_timestamp('01-01-2016', 'DD-MM-YYYY'));
+INSERT INTO "user" (ID, USERNAME, PASSWORD, FIRSTNAME, LASTNAME, EMAIL, ENABLED, LASTPASSWORDRESETDATE) VALUES (3, 'Chercheur', '$2a$08$UkVvwpULis18S19S5pZFn.YHPZt3oaqHZnDwqbCW9pft6uFtkXKDC', 'André', 'Leroi-Gourhan', 'magdalenian4ever@user.com', true, to_timestamp('01-01-2016', 'DD-MM-YYYY'));
 
 INSERT INTO AUTHORITY (ID, NAME) VALUES (1, 'CHERCHEUR');
 INSERT INTO AUTHORITY (ID, NAME) VALUES (2, 'CONSERVATEUR');
@@ -46,4 +46,10 @@ INSERT INTO USER_AUTHORITY (USER_ID, AUTHORITY_ID) VALUES (1, 1);
 INSERT INTO USER_AUTHORITY (USER_ID, AUTHORITY_ID) VALUES (1, 2);
 INSERT INTO USER_AUTHORITY (USER_ID, AUTHORITY_ID) VALUES (2, 1);
 INSERT INTO USER_AUTHORITY (USER_ID, AUTHORITY_ID) VALUES (2, 2);
-INSERT INTO USER_AUTHORITY (USER_ID, AUTHORITY_ID) VALUES (3, 1);
\ No newline at end of file
+INSERT INTO USER_AUTHORITY (USER_ID, AUTHORITY_ID) VALUES (3, 1);
+
+-- Les prochains identifiants generes ne doivent pas entrer en collision avec les donnees ci-dessus
+SELECT setval('user_seq', 3);
+SELECT setval('authority_seq', 2);
+SELECT setval(pg_get_serial_sequence('culture', 'id'), 5);
+SELECT setval(pg_get_serial_sequence('exposition', 'id'), 5);
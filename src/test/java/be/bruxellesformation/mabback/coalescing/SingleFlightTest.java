@@ -0,0 +1,89 @@
+package be.bruxellesformation.mabback.coalescing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+    ExecutorService executor = Executors.newCachedThreadPool();
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        Future<SingleFlight.Outcome<Integer>> leader = executor.submit(() ->
+                singleFlight.execute("/expo/5", this::slowLoad, 5, TimeUnit.SECONDS));
+        waitForLeader();
+        Future<SingleFlight.Outcome<Integer>> follower = executor.submit(() ->
+                singleFlight.execute("/expo/5", this::slowLoad, 5, TimeUnit.SECONDS));
+
+        Thread.sleep(50);
+        release.countDown();
+
+        assertEquals(SingleFlight.Role.LEADER, leader.get().getRole());
+        assertEquals(SingleFlight.Role.FOLLOWER, follower.get().getRole());
+        assertEquals(1, follower.get().getValue());
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void slowLeaderLetsTheFollowerLoad() throws Exception {
+        executor.submit(() -> singleFlight.execute("/culture", this::slowLoad, 5, TimeUnit.SECONDS));
+        waitForLeader();
+
+        SingleFlight.Outcome<Integer> outcome = singleFlight.execute("/culture", loads::incrementAndGet,
+                10, TimeUnit.MILLISECONDS);
+
+        assertEquals(SingleFlight.Role.TIMEOUT, outcome.getRole());
+        assertEquals(2, loads.get());
+        release.countDown();
+    }
+
+    @Test
+    void failedLeaderLetsTheFollowerLoad() throws Exception {
+        CountDownLatch failing = new CountDownLatch(1);
+        Future<?> leader = executor.submit(() -> singleFlight.execute("/collections/EG1000", () -> {
+            failing.await();
+            throw new IllegalStateException("database down");
+        }, 5, TimeUnit.SECONDS));
+        while (singleFlight.inFlight() == 0) {
+            Thread.sleep(1);
+        }
+        Future<SingleFlight.Outcome<Integer>> follower = executor.submit(() ->
+                singleFlight.execute("/collections/EG1000", () -> 42, 5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        failing.countDown();
+
+        assertThrows(Exception.class, leader::get);
+        assertEquals(SingleFlight.Role.FALLBACK, follower.get().getRole());
+        assertEquals(42, follower.get().getValue());
+    }
+
+    private Integer slowLoad() throws InterruptedException {
+        int value = loads.incrementAndGet();
+        release.await();
+        return value;
+    }
+
+    private void waitForLeader() throws InterruptedException {
+        while (loads.get() == 0) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package be.bruxellesformation.mabback.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    HikariDataSource primary = h2Pool("routing-primary");
+    HikariDataSource replica = h2Pool("routing-replica");
+    ReplicaRoutingDataSource routing;
+    DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        createNode(primary, "primary");
+        createNode(replica, "replica");
+        routing = new ReplicaRoutingDataSource(primary, Collections.singletonList(replica),
+                Duration.ofMinutes(1), Duration.ZERO);
+        routing.afterPropertiesSet();
+        dataSource = new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        SecurityContextHolder.clearContext();
+        routing.close();
+    }
+
+    @Test
+    void writesGoToPrimaryAndReadOnlyToReplica() throws SQLException {
+        assertEquals("primary", node(dataSource));
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals("replica", node(dataSource));
+    }
+
+    @Test
+    void userReadsFromPrimaryAfterWriting() throws SQLException {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("Conservateur", null, Collections.emptyList()));
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        assertEquals("primary", node(dataSource));
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals("primary", node(dataSource));
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("Chercheur", null, Collections.emptyList()));
+        assertEquals("replica", node(dataSource));
+    }
+
+    @Test
+    void unhealthyReplicaIsTakenOutOfRotation() throws SQLException {
+        replica.close();
+        routing.checkReplicas();
+        assertTrue(routing.healthyReplicas().isEmpty());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertEquals("primary", node(dataSource));
+    }
+
+    private static HikariDataSource h2Pool(String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setPassword("");
+        pool.setMaximumPoolSize(2);
+        return pool;
+    }
+
+    private static void createNode(DataSource dataSource, String name) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS NODE");
+            statement.execute("CREATE TABLE NODE (NAME VARCHAR(20))");
+            statement.execute("INSERT INTO NODE VALUES ('" + name + "')");
+        }
+    }
+
+    private static String node(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT NAME FROM NODE")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+}
@@ -62,4 +62,15 @@ class ArtefactTest {
         assertTrue(testArtefact.sendOutOfExpo());
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void locationKeyIgnoresCaseAndBlanks() {
+        assertEquals("room 27", Artefact.locationKey(" Room   27 "));
+        assertEquals(Artefact.locationKey("In Reserves"), Artefact.locationKey("In reserves"));
+        assertNull(Artefact.locationKey("  "));
+
+        testArtefact.displayArtefactInRoom("Room 27");
+        testArtefact.updateLocationKey();
+        assertEquals("room 27", testArtefact.getLocationKey());
+    }
+}
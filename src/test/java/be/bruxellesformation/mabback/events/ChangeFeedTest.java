@@ -0,0 +1,106 @@
+package be.bruxellesformation.mabback.events;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeFeedTest {
+
+    MeterRegistry registry = new SimpleMeterRegistry();
+    ChangeFeed changeFeed;
+
+    CatalogueChangeEvent expo5 = new CatalogueChangeEvent(CatalogueChangeEvent.EntityType.EXPOSITION,
+            CatalogueChangeEvent.ChangeType.UPDATED, 5L);
+
+    @AfterEach
+    void tearDown() {
+        changeFeed.shutdown();
+    }
+
+    @Test
+    void slowClientIsDisconnectedWithoutDelayingTheOthers() throws Exception {
+        changeFeed = feed(Duration.ofSeconds(30), Duration.ofMillis(200));
+        StalledEmitter slow = new StalledEmitter();
+        RecordingEmitter fast = new RecordingEmitter();
+        changeFeed.add(subscriber(slow));
+        changeFeed.add(subscriber(fast));
+
+        changeFeed.onChange(expo5);
+
+        assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+        assertNotNull(fast.sent.poll(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (changeFeed.subscriberCount() > 1 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, changeFeed.subscriberCount());
+        assertEquals(1, registry.counter("mab.changes.slow-disconnects").count());
+
+        // Still served while the writer of the slow client waits
+        changeFeed.onChange(expo5);
+        assertNotNull(fast.sent.poll(5, TimeUnit.SECONDS));
+        slow.release.countDown();
+    }
+
+    @Test
+    void idleClientReceivesHeartbeats() throws Exception {
+        changeFeed = feed(Duration.ofMillis(100), Duration.ofSeconds(10));
+        RecordingEmitter idle = new RecordingEmitter();
+        changeFeed.add(subscriber(idle));
+
+        assertNotNull(idle.sent.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, changeFeed.subscriberCount());
+    }
+
+    private ChangeFeed feed(Duration heartbeat, Duration sendTimeout) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(
+                Collections.singletonMap("meterRegistry", registry));
+        return new ChangeFeed(beans.getBeanProvider(MeterRegistry.class), 4, 16, Duration.ofMinutes(30),
+                heartbeat, sendTimeout);
+    }
+
+    private static ChangeSubscriber subscriber(SseEmitter emitter) {
+        return new ChangeSubscriber(emitter, null, null, OverflowPolicy.DROP_OLDEST, 16);
+    }
+
+    /**
+     * A client which stopped reading : its sends wait until the connection is reset.
+     */
+    static class StalledEmitter extends SseEmitter {
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IOException("connection reset");
+        }
+    }
+
+    static class RecordingEmitter extends SseEmitter {
+        final BlockingQueue<SseEventBuilder> sent = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sent.add(builder);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package be.bruxellesformation.mabback.events;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs on the seed data, the changes are committed then deleted.
+ */
+@SpringBootTest
+class ChangeLogTest {
+
+    @Autowired
+    ChangeLog changeLog;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM change_log WHERE entity_id LIKE 'ZZ-%'");
+    }
+
+    @Test
+    void changeWrittenLaterWaitsForTheCommitOfTheFirst() throws Exception {
+        long before = changeLog.last();
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        CompletableFuture<Void> late = CompletableFuture.runAsync(() -> write("ZZ-LATE", written, commit));
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+
+        // Not committed : neither read nor counted
+        assertTrue(changeLog.after(before, 10).isEmpty());
+        assertEquals(before, changeLog.last());
+
+        CompletableFuture<Void> next = CompletableFuture.runAsync(
+                () -> write("ZZ-NEXT", new CountDownLatch(1), new CountDownLatch(0)));
+        Thread.sleep(100);
+        assertFalse(next.isDone());
+
+        commit.countDown();
+        late.get(5, TimeUnit.SECONDS);
+        next.get(5, TimeUnit.SECONDS);
+        List<String> ids = new ArrayList<>();
+        List<Long> seqs = new ArrayList<>();
+        for (ChangeLog.Entry entry : changeLog.after(before, 10)) {
+            ids.add(entry.getChange().getId());
+            seqs.add(entry.getSeq());
+        }
+        assertEquals(Arrays.asList("ZZ-LATE", "ZZ-NEXT"), ids);
+        assertEquals(Arrays.asList(before + 1, before + 2), seqs);
+        assertEquals(before + 2, changeLog.last());
+    }
+
+    private void write(String id, CountDownLatch written, CountDownLatch commit) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            changeLog.onChange(new CatalogueChangeEvent(CatalogueChangeEvent.EntityType.ARTEFACT,
+                    CatalogueChangeEvent.ChangeType.UPDATED, id));
+            written.countDown();
+            try {
+                assertTrue(commit.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+}
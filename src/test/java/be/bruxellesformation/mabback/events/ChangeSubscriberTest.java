@@ -0,0 +1,59 @@
+package be.bruxellesformation.mabback.events;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeSubscriberTest {
+
+    CatalogueChangeEvent expo5 = new CatalogueChangeEvent(CatalogueChangeEvent.EntityType.EXPOSITION,
+            CatalogueChangeEvent.ChangeType.UPDATED, 5L);
+    CatalogueChangeEvent expo6 = new CatalogueChangeEvent(CatalogueChangeEvent.EntityType.EXPOSITION,
+            CatalogueChangeEvent.ChangeType.UPDATED, 6L);
+    CatalogueChangeEvent artefact = new CatalogueChangeEvent(CatalogueChangeEvent.EntityType.ARTEFACT,
+            CatalogueChangeEvent.ChangeType.DELETED, "EG1000");
+
+    @Test
+    void filtersByTypeAndId() {
+        ChangeSubscriber subscriber = new ChangeSubscriber(new SseEmitter(),
+                EnumSet.of(CatalogueChangeEvent.EntityType.EXPOSITION), Collections.singleton("5"),
+                OverflowPolicy.DROP_OLDEST, 10);
+
+        assertTrue(subscriber.accepts(expo5));
+        assertFalse(subscriber.accepts(expo6));
+        assertFalse(subscriber.accepts(artefact));
+    }
+
+    @Test
+    void withoutFilterEverythingIsAccepted() {
+        ChangeSubscriber subscriber = new ChangeSubscriber(new SseEmitter(), null, null,
+                OverflowPolicy.DROP_OLDEST, 10);
+        assertTrue(subscriber.accepts(artefact));
+    }
+
+    @Test
+    void dropOldestKeepsTheSubscriberConnected() {
+        ChangeSubscriber subscriber = new ChangeSubscriber(new SseEmitter(), null, null,
+                OverflowPolicy.DROP_OLDEST, 1);
+
+        assertTrue(subscriber.enqueue(expo5));
+        assertFalse(subscriber.enqueue(expo6));
+        assertFalse(subscriber.isClosed());
+        assertTrue(subscriber.hasBuffered());
+    }
+
+    @Test
+    void disconnectClosesTheSubscriber() {
+        ChangeSubscriber subscriber = new ChangeSubscriber(new SseEmitter(), null, null,
+                OverflowPolicy.DISCONNECT, 1);
+
+        assertTrue(subscriber.enqueue(expo5));
+        assertFalse(subscriber.enqueue(expo6));
+        assertTrue(subscriber.isClosed());
+        assertFalse(subscriber.hasBuffered());
+    }
+}
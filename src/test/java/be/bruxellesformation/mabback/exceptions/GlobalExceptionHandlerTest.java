@@ -1,9 +1,14 @@
 package be.bruxellesformation.mabback.exceptions;
 
+import be.bruxellesformation.mabback.dto.ReservationConflict;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class GlobalExceptionHandlerTest {
@@ -22,4 +27,14 @@ class GlobalExceptionHandlerTest {
         assertEquals(reponse.getStatusCode(), HttpStatus.INTERNAL_SERVER_ERROR);
         assertEquals(reponse.getBody(), "general message");
     }
-}
\ No newline at end of file
+
+    @Test
+    void handleReservationConflict() {
+        List<ReservationConflict> conflicts = Collections.singletonList(
+                new ReservationConflict("EG1000", 1, LocalDate.of(2027, 3, 1), LocalDate.of(2027, 5, 31)));
+        ResponseEntity reponse = globalExceptionHandler.handleReservationConflict(
+                new ReservationConflictException(conflicts));
+        assertEquals(reponse.getStatusCode(), HttpStatus.CONFLICT);
+        assertEquals(reponse.getBody(), conflicts);
+    }
+}
@@ -0,0 +1,39 @@
+package be.bruxellesformation.mabback.images;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteRangeTest {
+
+    @Test
+    void boundedRangeIsCappedToTheFile() {
+        ByteRange range = ByteRange.parse("bytes=100-5000", 1000);
+        assertEquals(100, range.getStart());
+        assertEquals(999, range.getEnd());
+        assertEquals(900, range.getLength());
+    }
+
+    @Test
+    void openAndSuffixRanges() {
+        assertEquals(900, ByteRange.parse("bytes=900-", 1000).getStart());
+        ByteRange suffix = ByteRange.parse("bytes=-300", 1000);
+        assertEquals(700, suffix.getStart());
+        assertEquals(999, suffix.getEnd());
+    }
+
+    @Test
+    void rangeAfterTheEndIsNotSatisfiable() {
+        assertFalse(ByteRange.parse("bytes=1000-", 1000).isSatisfiable());
+        assertFalse(ByteRange.parse("bytes=2000-1500", 1000).isSatisfiable());
+        assertFalse(ByteRange.parse("bytes=0-", 0).isSatisfiable());
+    }
+
+    @Test
+    void unsupportedHeadersSendTheWholeFile() {
+        assertNull(ByteRange.parse(null, 1000));
+        assertNull(ByteRange.parse("bytes=0-10,20-30", 1000));
+        assertNull(ByteRange.parse("bytes=abc-", 1000));
+        assertNull(ByteRange.parse("bytes=50-10", 1000));
+    }
+}
@@ -0,0 +1,104 @@
+package be.bruxellesformation.mabback.images;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageStoreTest {
+
+    @TempDir
+    Path directory;
+
+    RenditionPipeline pipeline;
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    void sameContentIsStoredOnce() throws IOException {
+        ImageStore store = new ImageStore(directory);
+        byte[] content = "not really an image".getBytes("UTF-8");
+
+        String first = store.store(new ByteArrayInputStream(content));
+        String second = store.store(new ByteArrayInputStream(content));
+
+        assertEquals(first, second);
+        assertEquals(64, first.length());
+        assertArrayEquals(content, Files.readAllBytes(store.original(first)));
+    }
+
+    @Test
+    void hashOutsideTheStoreIsRejected() {
+        ImageStore store = new ImageStore(directory);
+        assertThrows(IllegalArgumentException.class, () -> store.original("../../etc/passwd"));
+        assertFalse(ImageStore.isValidHash("3FA9"));
+    }
+
+    @Test
+    void mediaTypeComesFromTheDecoders() throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(10, 10, BufferedImage.TYPE_INT_RGB), "png", png);
+
+        assertEquals("image/png", ImageStore.mediaType(new ByteArrayInputStream(png.toByteArray())));
+        assertNull(ImageStore.mediaType(new ByteArrayInputStream(
+                "<html><script>alert(1)</script></html>".getBytes("UTF-8"))));
+    }
+
+    @Test
+    void renditionKeepsTheProportions() throws IOException {
+        ImageStore store = new ImageStore(directory);
+        pipeline = new RenditionPipeline(store, 1, 1);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_ARGB), "png", png);
+        String hash = store.store(new ByteArrayInputStream(png.toByteArray()));
+
+        assertTrue(pipeline.render(hash, ImageRendition.THUMB));
+
+        BufferedImage thumb = ImageIO.read(store.rendition(hash, ImageRendition.THUMB).toFile());
+        assertEquals(200, thumb.getWidth());
+        assertEquals(100, thumb.getHeight());
+    }
+
+    @Test
+    void renditionAskedLaterIsGeneratedByTheWorkers() throws Exception {
+        ImageStore store = new ImageStore(directory);
+        pipeline = new RenditionPipeline(store, 1, 1);
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_ARGB), "png", png);
+        String hash = store.store(new ByteArrayInputStream(png.toByteArray()));
+
+        CompletableFuture<Boolean> first = pipeline.renderLater(hash, ImageRendition.THUMB);
+        CompletableFuture<Boolean> second = pipeline.renderLater(hash, ImageRendition.THUMB);
+
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        assertTrue(Files.exists(store.rendition(hash, ImageRendition.THUMB)));
+        assertTrue(pipeline.renderLater(hash, ImageRendition.THUMB).isDone());
+    }
+
+    @Test
+    void contentThatIsNotAnImageHasNoRendition() throws IOException {
+        ImageStore store = new ImageStore(directory);
+        pipeline = new RenditionPipeline(store, 1, 1);
+        String hash = store.store(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+
+        assertFalse(pipeline.render(hash, ImageRendition.MEDIUM));
+        assertFalse(Files.exists(store.rendition(hash, ImageRendition.MEDIUM)));
+    }
+}
@@ -0,0 +1,105 @@
+package be.bruxellesformation.mabback.indexes;
+
+import java.time.LocalDate;
+
+/**
+ * Builds the artefacts of the tests, named after their identification and without any other detail unless given.
+ */
+public final class ArtefactRecords {
+
+    private String identification;
+    private String name;
+    private String objectDescription;
+    private String periodDescription;
+    private String culturalPhase;
+    private String type;
+    private String material;
+    private String localisation;
+    private String imageURL;
+    private boolean onPermanentDisplay;
+    private LocalDate dateOfEntry;
+    private int startYear;
+    private int endYear;
+    private Long cultureId;
+    private Long expositionId;
+
+    private ArtefactRecords(String identification) {
+        this.identification = identification;
+        this.name = identification;
+    }
+
+    public static ArtefactRecords artefact(String identification) {
+        return new ArtefactRecords(identification);
+    }
+
+    public ArtefactRecords name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public ArtefactRecords descriptions(String objectDescription, String periodDescription) {
+        this.objectDescription = objectDescription;
+        this.periodDescription = periodDescription;
+        return this;
+    }
+
+    public ArtefactRecords culturalPhase(String culturalPhase) {
+        this.culturalPhase = culturalPhase;
+        return this;
+    }
+
+    public ArtefactRecords type(String type) {
+        this.type = type;
+        return this;
+    }
+
+    public ArtefactRecords material(String material) {
+        this.material = material;
+        return this;
+    }
+
+    public ArtefactRecords localisation(String localisation) {
+        this.localisation = localisation;
+        return this;
+    }
+
+    public ArtefactRecords imageURL(String imageURL) {
+        this.imageURL = imageURL;
+        return this;
+    }
+
+    public ArtefactRecords onPermanentDisplay(boolean onPermanentDisplay) {
+        this.onPermanentDisplay = onPermanentDisplay;
+        return this;
+    }
+
+    public ArtefactRecords dateOfEntry(LocalDate dateOfEntry) {
+        this.dateOfEntry = dateOfEntry;
+        return this;
+    }
+
+    public ArtefactRecords years(int startYear, int endYear) {
+        this.startYear = startYear;
+        this.endYear = endYear;
+        return this;
+    }
+
+    public ArtefactRecords culture(Long cultureId) {
+        this.cultureId = cultureId;
+        return this;
+    }
+
+    /**
+     * @param expositionId the exposition showing the artefact, null when it is in none
+     */
+    public ArtefactRecords exposition(Long expositionId) {
+        this.expositionId = expositionId;
+        return this;
+    }
+
+    public ArtefactRecord build() {
+        return new ArtefactRecord(identification, name, objectDescription, periodDescription, culturalPhase, type,
+                material, localisation, imageURL, onPermanentDisplay, expositionId != null, dateOfEntry, startYear,
+                endYear, cultureId, expositionId);
+    }
+}
@@ -0,0 +1,61 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.dto.SearchHit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static be.bruxellesformation.mabback.indexes.ArtefactRecords.artefact;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuzzySearchIndexTest {
+
+    FuzzySearchIndex index = new FuzzySearchIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.rebuild(new CatalogueData(Arrays.asList(
+                artefact("EG1000").name("Masque de Toutânkhamon").type("Masque").material("Or").build(),
+                artefact("GR1000").name("Amphore attique").type("Amphora").material("Terre cuite").build(),
+                artefact("RE1000").name("Monnaie d'Auguste").type("Monnaie").material("Argent").build()),
+                Collections.singletonList(new CultureRecord(1, "Egypte ancienne", null, null, null, -3150, -30)),
+                Collections.singletonList(new ExpositionRecord(1, "Les pharaons", null, null, null, null, 0))));
+    }
+
+    @Test
+    void misspelledWordsAreFound() {
+        assertEquals("EG1000", index.search("Toutankamon", null, 10).get(0).getId());
+        assertEquals("GR1000", index.search("amphore", null, 10).get(0).getId());
+        assertEquals("1", index.search("pharaon", SearchHit.Kind.EXPOSITION, 10).get(0).getId());
+        assertEquals(SearchHit.Kind.CULTURE, index.search("egipte", null, 10).get(0).getKind());
+    }
+
+    @Test
+    void unrelatedWordsAreNotFound() {
+        assertTrue(index.search("xylophone", null, 10).isEmpty());
+        assertTrue(index.search("  ", null, 10).isEmpty());
+    }
+
+    @Test
+    void everyWordOfTheQueryCounts() {
+        List<SearchHit> hits = index.search("masque or", null, 10);
+
+        assertEquals("EG1000", hits.get(0).getId());
+        assertEquals(1.0, hits.get(0).getScore(), 0.001);
+    }
+
+    @Test
+    void changesAreIndexed() {
+        ArtefactRecord coin = artefact("RE1000").name("Monnaie d'Auguste").type("Monnaie").material("Argent").build();
+        index.onArtefact(coin, artefact("RE1000").name("Monnaie de Tibere").type("Monnaie").material("Argent").build());
+
+        assertTrue(index.search("Auguste", null, 10).isEmpty());
+        assertEquals("RE1000", index.search("Tibère", null, 10).get(0).getId());
+
+        index.onArtefact(coin, null);
+        assertTrue(index.search("Tibere", null, 10).isEmpty());
+    }
+}
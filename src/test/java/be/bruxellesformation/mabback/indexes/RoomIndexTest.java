@@ -0,0 +1,51 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.dto.RoomSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static be.bruxellesformation.mabback.indexes.ArtefactRecords.artefact;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomIndexTest {
+
+    RoomIndex index = new RoomIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.rebuild(new CatalogueData(Arrays.asList(
+                artefact("EG1001").localisation("Room 27").onPermanentDisplay(true).build(),
+                artefact("EG1000").localisation("room 27 ").onPermanentDisplay(true).build(),
+                artefact("GR1000").localisation("In Reserves").build()),
+                Collections.emptyList(), Collections.emptyList()));
+    }
+
+    @Test
+    void artefactsAreGroupedByNormalizedRoom() {
+        List<RoomSummary> rooms = index.rooms();
+
+        assertEquals(2, rooms.size());
+        assertEquals("in reserves", rooms.get(0).getKey());
+        assertEquals("room 27", rooms.get(1).getKey());
+        assertEquals("Room 27", rooms.get(1).getLabel());
+        assertEquals(2, rooms.get(1).getOnPermanentDisplay());
+        assertEquals(Arrays.asList("EG1000", "EG1001"), index.artefacts("room 27"));
+        assertTrue(index.artefacts("room 12").isEmpty());
+    }
+
+    @Test
+    void movesUpdateBothRooms() {
+        index.onArtefact(artefact("EG1000").localisation("room 27 ").onPermanentDisplay(true).build(),
+                artefact("EG1000").localisation("In reserves").build());
+        index.onArtefact(artefact("EG1001").localisation("Room 27").onPermanentDisplay(true).build(), null);
+
+        List<RoomSummary> rooms = index.rooms();
+        assertEquals(1, rooms.size());
+        assertEquals("In Reserves", rooms.get(0).getLabel());
+        assertEquals(Arrays.asList("EG1000", "GR1000"), index.artefacts("in reserves"));
+    }
+}
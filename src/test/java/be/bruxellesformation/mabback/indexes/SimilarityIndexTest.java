@@ -0,0 +1,71 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.dto.SimilarArtefact;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static be.bruxellesformation.mabback.indexes.ArtefactRecords.artefact;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimilarityIndexTest {
+
+    SimilarityIndex index = new SimilarityIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.rebuild(new CatalogueData(Arrays.asList(
+                artefact("EG1000").type("Statue").material("Bronze").culturalPhase("Nouvel Empire").culture(1L)
+                        .years(-1185, -1153).build(),
+                artefact("EG1001").type("Statue").material("Bronze").culturalPhase("Nouvel Empire").culture(1L)
+                        .years(-1190, -1150).build(),
+                artefact("EG1002").type("Vase").material("Terre cuite").culturalPhase("Basse Epoque").culture(1L)
+                        .years(-664, -332).build(),
+                artefact("RE1000").type("Monnaie").material("Argent").culturalPhase("Haut Empire").culture(2L)
+                        .years(14, 37).build()),
+                Collections.emptyList(), Collections.emptyList()));
+    }
+
+    @Test
+    void mostSimilarArtefactComesFirst() {
+        List<SimilarArtefact> similar = index.similar("EG1000", 10);
+
+        assertEquals("EG1001", similar.get(0).getIdentification());
+        assertTrue(similar.get(0).getSimilarity() > 0.5);
+        assertTrue(similar.stream().noneMatch(artefact -> artefact.getIdentification().equals("EG1000")));
+        assertTrue(similar.stream().noneMatch(artefact -> artefact.getIdentification().equals("RE1000")));
+    }
+
+    @Test
+    void unknownArtefactHasNoResult() {
+        assertNull(index.similar("XX0000", 10));
+    }
+
+    @Test
+    void changesAreIndexed() {
+        ArtefactRecord coin = artefact("RE1000").type("Monnaie").material("Argent").culturalPhase("Haut Empire")
+                .culture(2L).years(14, 37).build();
+        ArtefactRecord otherCoin = artefact("RE1001").type("Monnaie").material("Argent").culturalPhase("Haut Empire")
+                .culture(2L).years(14, 37).build();
+        index.onArtefact(null, otherCoin);
+        assertEquals("RE1001", index.similar("RE1000", 10).get(0).getIdentification());
+
+        index.onArtefact(otherCoin, null);
+        assertNull(index.similar("RE1001", 10));
+        assertTrue(index.similar("RE1000", 10).isEmpty());
+
+        index.onArtefact(coin, null);
+        assertNull(index.similar("RE1000", 10));
+    }
+
+    @Test
+    void materialsAndPeriodBecomeTokens() {
+        ArtefactRecord jewel = artefact("EG1003").type("Bijou").material("Bronze, Or").years(-150, 30).build();
+        assertTrue(SimilarityIndex.tokens(jewel)
+                .containsAll(Arrays.asList("type:bijou", "material:bronze", "material:or",
+                        "century:-2", "century:-1", "century:0", "millennium:-1", "millennium:0")));
+    }
+}
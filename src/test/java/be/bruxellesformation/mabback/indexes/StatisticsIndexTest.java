@@ -0,0 +1,77 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.dto.CollectionStatistics;
+import be.bruxellesformation.mabback.dto.StatisticsCount;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static be.bruxellesformation.mabback.indexes.ArtefactRecords.artefact;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatisticsIndexTest {
+
+    StatisticsIndex index = new StatisticsIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.rebuild(new CatalogueData(Arrays.asList(
+                artefact("EG1000").type("Masque").material("Or, lapis-lazuli").culture(1L)
+                        .onPermanentDisplay(true).build(),
+                artefact("EG1001").type("Vase").material("Terre cuite").exposition(3L).culture(1L).build(),
+                artefact("RE1000").type("Monnaie").material("Or").culture(2L).build()),
+                Arrays.asList(new CultureRecord(1, "Egypte", null, null, null, -3150, -30),
+                        new CultureRecord(2, "Rome", null, null, null, -753, 476)),
+                Collections.singletonList(new ExpositionRecord(3, "Les pharaons", null, null, null, null, 120))));
+    }
+
+    @Test
+    void catalogueIsCounted() {
+        CollectionStatistics statistics = index.statistics();
+
+        assertEquals(3, statistics.getArtefacts());
+        assertEquals(1, statistics.getOnPermanentDisplay());
+        assertEquals(1, statistics.getInExposition());
+        assertEquals(1, statistics.getInReserve());
+        assertEquals(120, statistics.getVisitors());
+        assertCount(statistics.getByCulture(), "Egypte", 2);
+        assertCount(statistics.getByMaterial(), "or", 2);
+        assertCount(statistics.getByMaterial(), "lapis-lazuli", 1);
+        assertCount(statistics.getByExposition(), "Les pharaons", 1);
+        assertEquals("Egypte", statistics.getByCulture().get(0).getLabel());
+    }
+
+    @Test
+    void changesMoveTheCounts() {
+        ArtefactRecord coin = artefact("RE1000").type("Monnaie").material("Or").culture(2L).build();
+        ArtefactRecord vase = artefact("EG1001").type("Vase").material("Terre cuite")
+                .exposition(3L).culture(1L).build();
+        index.onArtefact(coin, artefact("RE1000").type("Monnaie").material("Argent")
+                .exposition(3L).culture(2L).build());
+        index.onArtefact(vase, null);
+        index.onExposition(new ExpositionRecord(3, "Les pharaons", null, null, null, null, 120),
+                new ExpositionRecord(3, "Les pharaons", null, null, null, null, 150));
+
+        CollectionStatistics statistics = index.statistics();
+        assertEquals(2, statistics.getArtefacts());
+        assertEquals(0, statistics.getInReserve());
+        assertEquals(150, statistics.getVisitors());
+        assertCount(statistics.getByMaterial(), "or", 1);
+        assertCount(statistics.getByMaterial(), "argent", 1);
+        assertCount(statistics.getByExposition(), "Les pharaons", 1);
+        assertTrue(statistics.getByType().stream().noneMatch(count -> count.getKey().equals("Vase")));
+    }
+
+    static void assertCount(List<StatisticsCount> counts, String label, long expected) {
+        for (StatisticsCount count : counts) {
+            if (label.equals(count.getLabel())) {
+                assertEquals(expected, count.getArtefacts(), label);
+                return;
+            }
+        }
+        fail(label + " not counted");
+    }
+}
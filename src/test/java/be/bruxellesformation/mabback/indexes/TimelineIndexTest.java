@@ -0,0 +1,72 @@
+package be.bruxellesformation.mabback.indexes;
+
+import be.bruxellesformation.mabback.dto.TimelineBucket;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static be.bruxellesformation.mabback.indexes.ArtefactRecords.artefact;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimelineIndexTest {
+
+    TimelineIndex index = new TimelineIndex(-10000, 2100);
+
+    @Test
+    void fenwickTreeSumsPrefixesAndFindsPositions() {
+        FenwickTree tree = new FenwickTree(10);
+        tree.add(2, 3);
+        tree.add(5, 1);
+        tree.add(9, 2);
+
+        assertEquals(0, tree.prefixSum(1));
+        assertEquals(3, tree.prefixSum(4));
+        assertEquals(6, tree.total());
+        assertEquals(2, tree.lowerBound(1));
+        assertEquals(5, tree.lowerBound(4));
+        assertEquals(9, tree.lowerBound(6));
+        assertEquals(10, tree.lowerBound(7));
+    }
+
+    @Test
+    void datingsAreCountedInEveryBucketTheyOverlap() {
+        index.rebuild(new CatalogueData(Arrays.asList(
+                artefact("RE1000").years(-20, 37).build(),
+                artefact("RE1001").years(-49, -46).build(),
+                artefact("EG1000").years(-1185, -1153).build()),
+                Collections.singletonList(new CultureRecord(2, "Rome", null, null, null, -753, 476)),
+                Collections.emptyList()));
+
+        List<TimelineBucket> centuries = index.histogram(TimelineScale.CENTURY, -100, 99, 100);
+
+        assertEquals(2, centuries.size());
+        assertEquals(-100, centuries.get(0).getStartYear());
+        assertEquals(-1, centuries.get(0).getEndYear());
+        assertEquals(2, centuries.get(0).getArtefacts());
+        assertEquals(1, centuries.get(1).getArtefacts());
+        assertEquals(1, centuries.get(1).getCultures());
+    }
+
+    @Test
+    void defaultRangeCoversTheCatalogueAndFollowsTheChanges() {
+        ArtefactRecord statue = artefact("EG1000").years(-1185, -1153).build();
+        index.rebuild(new CatalogueData(Collections.singletonList(statue),
+                Collections.emptyList(), Collections.emptyList()));
+        index.onArtefact(null, artefact("RE1000").years(-20, 37).build());
+
+        List<TimelineBucket> millennia = index.histogram(TimelineScale.MILLENNIUM, null, null, 100);
+        assertEquals(-2000, millennia.get(0).getStartYear());
+        assertEquals(999, millennia.get(millennia.size() - 1).getEndYear());
+
+        index.onArtefact(statue, null);
+        assertEquals(0, index.histogram(TimelineScale.MILLENNIUM, -2000, -1001, 100).get(0).getArtefacts());
+    }
+
+    @Test
+    void tooManyBucketsAreRefused() {
+        assertThrows(IllegalArgumentException.class,
+                () -> index.histogram(TimelineScale.DECADE, -10000, 2000, 100));
+    }
+}
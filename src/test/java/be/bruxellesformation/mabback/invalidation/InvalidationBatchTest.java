@@ -0,0 +1,62 @@
+package be.bruxellesformation.mabback.invalidation;
+
+import be.bruxellesformation.mabback.events.CatalogueChangeEvent;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InvalidationBatchTest {
+
+    @Test
+    void changesSurviveTheRoundTrip() {
+        List<CatalogueChangeEvent> changes = new ArrayList<>();
+        changes.add(new CatalogueChangeEvent(CatalogueChangeEvent.EntityType.ARTEFACT,
+                CatalogueChangeEvent.ChangeType.UPDATED, "EG 1000"));
+        changes.add(new CatalogueChangeEvent(CatalogueChangeEvent.EntityType.CULTURE,
+                CatalogueChangeEvent.ChangeType.DELETED, 3L));
+
+        List<byte[]> messages = InvalidationBatch.encode("node-a", "louvre", changes, 1400);
+        assertEquals(1, messages.size());
+
+        InvalidationBatch batch = InvalidationBatch.decode(messages.get(0));
+        assertEquals("node-a", batch.getNode());
+        assertEquals("louvre", batch.getTenant());
+        assertEquals(2, batch.getChanges().size());
+        assertEquals("EG 1000", batch.getChanges().get(0).getId());
+        assertEquals(CatalogueChangeEvent.ChangeType.DELETED, batch.getChanges().get(1).getChangeType());
+        assertEquals(changes.get(0).getTime().toEpochMilli(), batch.getChanges().get(0).getTime().toEpochMilli());
+    }
+
+    @Test
+    void largeBatchIsSplitUnderTheMessageSize() {
+        List<CatalogueChangeEvent> changes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            changes.add(new CatalogueChangeEvent(CatalogueChangeEvent.EntityType.ARTEFACT,
+                    CatalogueChangeEvent.ChangeType.UPDATED, "EG" + (1000 + i)));
+        }
+
+        List<byte[]> messages = InvalidationBatch.encode("node-a", "louvre", changes, 1400);
+
+        assertTrue(messages.size() > 1);
+        int decoded = 0;
+        for (byte[] message : messages) {
+            assertTrue(message.length <= 1400);
+            decoded += InvalidationBatch.decode(message).getChanges().size();
+        }
+        assertEquals(500, decoded);
+    }
+
+    @Test
+    void foreignMessageIsIgnored() {
+        assertNull(InvalidationBatch.decode("hello".getBytes(StandardCharsets.UTF_8)));
+        assertNull(InvalidationBatch.decode("mab-invalidation 2 node-a default\nPLANET\tUPDATED\t0\tEarth"
+                .getBytes(StandardCharsets.UTF_8)));
+        // Sent by a node of the previous version, without the tenant
+        assertNull(InvalidationBatch.decode("mab-invalidation 1 node-a\nARTEFACT\tUPDATED\t0\tEG 1000"
+                .getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,145 @@
+package be.bruxellesformation.mabback.invalidation;
+
+import be.bruxellesformation.mabback.MabBackendApplication;
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.domain.Culture;
+import be.bruxellesformation.mabback.dto.SearchHit;
+import be.bruxellesformation.mabback.events.CatalogueChangeEvent;
+import be.bruxellesformation.mabback.indexes.CatalogueIndexLoader;
+import be.bruxellesformation.mabback.indexes.FuzzySearchIndex;
+import be.bruxellesformation.mabback.indexes.SimilarityIndex;
+import be.bruxellesformation.mabback.repositories.IArtefactsRepository;
+import be.bruxellesformation.mabback.repositories.ICulturesRepository;
+import be.bruxellesformation.mabback.tenancy.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collections;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two nodes in the same JVM, sharing their database and connected by the in-memory transport. Besides the default
+ * museum, they serve a partner museum whose schema starts empty.
+ */
+class InvalidationBusClusterTest {
+
+    private static final String PARTNER = "mariemont";
+
+    ConfigurableApplicationContext first;
+    ConfigurableApplicationContext second;
+
+    @BeforeEach
+    void startNodes() {
+        first = startNode();
+        second = startNode();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        second.close();
+        first.close();
+    }
+
+    @Test
+    void artefactCreatedOnOneNodeReachesTheIndexesOfTheOther() throws InterruptedException {
+        inTransaction(first, () -> first.getBean(IArtefactsRepository.class).save(new Artefact("CL1000",
+                "Fibule", null, "Fibule", "Bronze", null, "La Tene", null, -450, -50, null, "Room 3", null)));
+
+        SimilarityIndex secondIndex = second.getBean(SimilarityIndex.class);
+        assertTrue(waitUntil(() -> secondIndex.similar("CL1000", 1) != null));
+
+        inTransaction(first, () -> first.getBean(IArtefactsRepository.class).deleteById("CL1000"));
+        assertTrue(waitUntil(() -> secondIndex.similar("CL1000", 1) == null));
+    }
+
+    @Test
+    void changeOfAPartnerMuseumReachesTheCacheAndIndexesOfTheOther() throws InterruptedException {
+        ICulturesRepository firstCultures = first.getBean(ICulturesRepository.class);
+        ICulturesRepository secondCultures = second.getBean(ICulturesRepository.class);
+        TransactionTemplate firstTransaction = new TransactionTemplate(first.getBean(PlatformTransactionManager.class));
+        long id = TenantContext.callAs(PARTNER, () -> firstTransaction.execute(status ->
+                firstCultures.save(new Culture("Villanovien", null, null, null, -900, -700)).getId()));
+
+        // The second node builds the indexes of the partner on their first use
+        CatalogueIndexLoader secondLoader = second.getBean(CatalogueIndexLoader.class);
+        assertTrue(waitUntil(() -> TenantContext.callAs(PARTNER, () -> !secondLoader.index(FuzzySearchIndex.class)
+                .search("Villanovien", SearchHit.Kind.CULTURE, 1).isEmpty())));
+
+        TenantContext.runAs(PARTNER, () -> inTransaction(first,
+                () -> firstCultures.findById(id).get().setName("Protovillanovien")));
+
+        assertTrue(waitUntil(() -> TenantContext.callAs(PARTNER, () -> !secondLoader.index(FuzzySearchIndex.class)
+                .search("Protovillanovien", SearchHit.Kind.CULTURE, 1).isEmpty())));
+        // The default museum never sees it
+        assertFalse(secondCultures.findById(id).map(culture -> culture.getName().equals("Protovillanovien"))
+                .orElse(false));
+    }
+
+    /**
+     * The nodes of this JVM share their second-level cache : the culture is created and changed behind Hibernate, so
+     * no change of it is broadcast, then the invalidation is received as if another node had made the change.
+     */
+    @Test
+    void invalidationEvictsTheCachedEntityOfItsTenant() {
+        ICulturesRepository cultures = second.getBean(ICulturesRepository.class);
+        JdbcTemplate jdbcTemplate = second.getBean(JdbcTemplate.class);
+        long id = TenantContext.callAs(PARTNER, () -> {
+            jdbcTemplate.update("INSERT INTO culture (name, start_year, end_year) VALUES ('Golasecca', -900, -400)");
+            return jdbcTemplate.queryForObject("SELECT MAX(id) FROM culture", Long.class);
+        });
+        TenantContext.runAs(PARTNER, () -> {
+            assertEquals("Golasecca", cultures.findById(id).get().getName());
+            jdbcTemplate.update("UPDATE culture SET name = 'culture de Golasecca' WHERE id = ?", id);
+            assertEquals("Golasecca", cultures.findById(id).get().getName());
+        });
+
+        second.getBean(InvalidationBus.class).receive(InvalidationBatch.encode("another-node", PARTNER,
+                Collections.singletonList(new CatalogueChangeEvent(CatalogueChangeEvent.EntityType.CULTURE,
+                        CatalogueChangeEvent.ChangeType.UPDATED, id)), 1400).get(0));
+
+        TenantContext.runAs(PARTNER,
+                () -> assertEquals("culture de Golasecca", cultures.findById(id).get().getName()));
+    }
+
+    @Test
+    void nodesHaveDistinctIds() {
+        assertNotEquals(first.getBean(InvalidationBus.class).getNode(), second.getBean(InvalidationBus.class).getNode());
+    }
+
+    private static ConfigurableApplicationContext startNode() {
+        return new SpringApplicationBuilder(MabBackendApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:cluster;DB_CLOSE_DELAY=-1",
+                "--mab.invalidation.enabled=true",
+                "--mab.invalidation.transport=in-memory",
+                "--mab.invalidation.flush-interval=10ms",
+                "--mab.tenancy.enabled=true",
+                "--mab.tenancy.tenants." + PARTNER + ".hosts[0]=" + PARTNER + ".test");
+    }
+
+    private static void inTransaction(ConfigurableApplicationContext node, Runnable work) {
+        new TransactionTemplate(node.getBean(PlatformTransactionManager.class)).execute(status -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private static boolean waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(20);
+        }
+        return false;
+    }
+}
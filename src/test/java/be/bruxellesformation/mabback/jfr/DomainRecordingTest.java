@@ -0,0 +1,173 @@
+package be.bruxellesformation.mabback.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DomainRecordingTest {
+
+    @TempDir
+    Path directory;
+
+    FlightRecorderProperties properties = new FlightRecorderProperties();
+    DomainRecording recording = new DomainRecording(properties);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        recording.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        recording.stop();
+    }
+
+    @Test
+    void domainEventsAreRecordedWithTheirSizes() throws Exception {
+        ExpositionStagingEvent staging = new ExpositionStagingEvent();
+        staging.begin();
+        staging.end();
+        assertTrue(staging.shouldCommit());
+        staging.expositionId = 7;
+        staging.requested = 3;
+        staging.added = 2;
+        staging.commit();
+
+        List<RecordedEvent> events = recorded("mab.ExpositionStaging");
+        assertEquals(1, events.size());
+        assertEquals(7, events.get(0).getLong("expositionId"));
+        assertEquals(3, events.get(0).getInt("requested"));
+        assertEquals(2, events.get(0).getInt("added"));
+        assertFalse(events.get(0).getDuration().isNegative());
+    }
+
+    @Test
+    void eventOfATransactionGetsTheOutcomeOfItsCommit() throws Exception {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+        transactionTemplate.executeWithoutResult(status -> DomainEvents.record(closing(1), () -> "closed",
+                (event, outcome) -> event.outcome = outcome != null ? outcome : "failed"));
+        transactionTemplate.executeWithoutResult(status -> {
+            DomainEvents.record(closing(2), () -> "closed",
+                    (event, outcome) -> event.outcome = outcome != null ? outcome : "failed");
+            status.setRollbackOnly();
+        });
+        Supplier<String> failing = () -> {
+            throw new IllegalStateException("no exposition");
+        };
+        assertThrows(IllegalStateException.class, () -> DomainEvents.record(closing(3), failing,
+                (event, outcome) -> event.outcome = outcome != null ? outcome : "failed"));
+
+        List<RecordedEvent> events = recorded("mab.ExpositionClosing");
+        assertEquals(3, events.size());
+        for (RecordedEvent event : events) {
+            assertEquals(event.getLong("expositionId") == 1 ? "closed" : "failed", event.getString("outcome"));
+        }
+    }
+
+    @Test
+    void fastSearchIsBelowTheThreshold() throws Exception {
+        SearchEvent fast = new SearchEvent();
+        fast.begin();
+        fast.end();
+        assertFalse(fast.shouldCommit());
+
+        SearchEvent slow = new SearchEvent();
+        slow.begin();
+        Thread.sleep(20);
+        slow.end();
+        assertTrue(slow.shouldCommit());
+        slow.mode = "contains";
+        slow.criteriaLength = 7;
+        slow.hits = 12;
+        slow.commit();
+
+        List<RecordedEvent> events = recorded("mab.Search");
+        assertEquals(1, events.size());
+        assertEquals("contains", events.get(0).getString("mode"));
+        assertEquals(12, events.get(0).getInt("hits"));
+    }
+
+    @Test
+    void eventsAreDisabledWithoutTheSettings() {
+        recording.stop();
+        assertFalse(new BulkOperationEvent().isEnabled());
+    }
+
+    @Test
+    void destinationInAMissingDirectoryIsWrittenOnStop() throws Exception {
+        recording.stop();
+        Path destination = directory.resolve("jfr").resolve("mab-back.jfr");
+        properties.setDestination(destination);
+        recording.start();
+
+        BulkOperationEvent bulk = new BulkOperationEvent();
+        bulk.begin();
+        bulk.end();
+        bulk.operation = "relocation";
+        bulk.commit();
+        recording.stop();
+
+        assertTrue(Files.size(destination) > 0);
+        boolean found = false;
+        for (RecordedEvent event : RecordingFile.readAllEvents(destination)) {
+            found |= event.getEventType().getName().equals("mab.BulkOperation");
+        }
+        assertTrue(found);
+    }
+
+    private static ExpositionClosingEvent closing(long expositionId) {
+        ExpositionClosingEvent event = new ExpositionClosingEvent();
+        event.expositionId = expositionId;
+        return event;
+    }
+
+    private List<RecordedEvent> recorded(String name) throws Exception {
+        Path file = directory.resolve("mab.jfr");
+        recording.dump(file);
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            if (event.getEventType().getName().equals(name)) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Runs the synchronizations of the transactions, without any resource.
+     */
+    static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package be.bruxellesformation.mabback.limiter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimitTest {
+
+    static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+    static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200);
+
+    @Test
+    void anonymousReadsAreShedFirst() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 1, 100, 0.2);
+        for (int i = 0; i < 7; i++) {
+            assertTrue(limit.tryAcquire(RequestPriority.ANONYMOUS));
+        }
+        assertFalse(limit.tryAcquire(RequestPriority.ANONYMOUS));
+        assertTrue(limit.tryAcquire(RequestPriority.AUTHENTICATED));
+        assertTrue(limit.tryAcquire(RequestPriority.CRITICAL));
+        assertTrue(limit.tryAcquire(RequestPriority.CRITICAL));
+        assertFalse(limit.tryAcquire(RequestPriority.CRITICAL));
+        assertEquals(10, limit.getInflight());
+    }
+
+    @Test
+    void limitGrowsWhileLatencyIsStable() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 1, 100, 0.2);
+        for (int i = 0; i < 100; i++) {
+            runFullLoad(limit, FAST);
+        }
+        assertTrue(limit.getLimit() > 10, "limit " + limit.getLimit());
+    }
+
+    @Test
+    void limitShrinksWhenLatencyRises() {
+        AdaptiveLimit limit = new AdaptiveLimit(50, 1, 100, 0.2);
+        for (int i = 0; i < 20; i++) {
+            runFullLoad(limit, FAST);
+        }
+        int before = limit.getLimit();
+        for (int i = 0; i < 20; i++) {
+            runFullLoad(limit, SLOW);
+        }
+        assertTrue(limit.getLimit() < before, before + " -> " + limit.getLimit());
+    }
+
+    @Test
+    void failuresBackOff() {
+        AdaptiveLimit limit = new AdaptiveLimit(20, 2, 100, 0.2);
+        assertTrue(limit.tryAcquire(RequestPriority.CRITICAL));
+        limit.release(FAST, true);
+        assertEquals(18, limit.getLimit());
+        assertEquals(0, limit.getInflight());
+    }
+
+    @Test
+    void curatorWritesAndTurnstilesAreCritical() {
+        UsernamePasswordAuthenticationToken curator = new UsernamePasswordAuthenticationToken("Conservateur", null,
+                Collections.singletonList(new SimpleGrantedAuthority("CONSERVATEUR")));
+
+        assertEquals(RequestPriority.CRITICAL,
+                ConcurrencyLimitFilter.classify(new MockHttpServletRequest("PATCH", "/expo/5"), null));
+        assertEquals(RequestPriority.CRITICAL,
+                ConcurrencyLimitFilter.classify(new MockHttpServletRequest("POST", "/expo"), curator));
+        assertEquals(RequestPriority.AUTHENTICATED,
+                ConcurrencyLimitFilter.classify(new MockHttpServletRequest("GET", "/expo"), curator));
+        assertEquals(RequestPriority.ANONYMOUS,
+                ConcurrencyLimitFilter.classify(new MockHttpServletRequest("GET", "/expo/5"), null));
+    }
+
+    /**
+     * Fills the limit, then releases every request with the same response time.
+     */
+    private static void runFullLoad(AdaptiveLimit limit, long rtt) {
+        int admitted = 0;
+        while (limit.tryAcquire(RequestPriority.CRITICAL)) {
+            admitted++;
+        }
+        for (int i = 0; i < admitted; i++) {
+            limit.release(rtt, false);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package be.bruxellesformation.mabback.repositories;
+
+import be.bruxellesformation.mabback.domain.Culture;
+import be.bruxellesformation.mabback.dto.SlowQuery;
+import be.bruxellesformation.mabback.slowqueries.SlowQueryLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the queries generated by Hibernate for the repositories use the indexes of the migrations. Every
+ * statement is caught by the slow query log, whose plans are asked with the values bound.
+ */
+@SpringBootTest(properties = {"mab.slow-queries.threshold=0ms", "mab.slow-queries.explain=true"})
+class PerformanceIndexesTest {
+
+    @Autowired
+    IArtefactsRepository artefactsRepository;
+    @Autowired
+    IExpositionsRepository expositionsRepository;
+    @Autowired
+    ICulturesRepository culturesRepository;
+    @Autowired
+    SlowQueryLog slowQueryLog;
+
+    @Test
+    void artefactsOfACultureUseTheCultureIndex() throws InterruptedException {
+        Culture culture = culturesRepository.findById(2L).get();
+        String plan = plan("from artefact", "culture_id=?",
+                () -> artefactsRepository.findAllByCulture(culture, PageRequest.of(0, 10)));
+        assertTrue(plan.contains("IDX_ARTEFACT_CULTURE"), plan);
+    }
+
+    @Test
+    void currentExpositionsUseTheEndDateIndex() throws InterruptedException {
+        String plan = plan("from exposition", "end_date>?",
+                () -> expositionsRepository.findAllByEndDateAfter(PageRequest.of(0, 10), LocalDate.of(2020, 11, 25)));
+        assertTrue(plan.contains("IDX_EXPOSITION_END_DATE"), plan);
+    }
+
+    @Test
+    void roomContentUsesTheLocalisationIndex() throws InterruptedException {
+        String plan = plan("from artefact", "localisation=?",
+                () -> artefactsRepository.findIdentificationsByLocalisation("Room 27"));
+        assertTrue(plan.contains("IDX_ARTEFACT_LOCALISATION"), plan);
+    }
+
+    @Test
+    void roomPageUsesTheLocationKeyIndex() throws InterruptedException {
+        String plan = plan("from artefact", "location_key=?",
+                () -> artefactsRepository.findIdentificationsByLocationKey("room 27"));
+        assertTrue(plan.contains("IDX_ARTEFACT_LOCATION_KEY"), plan);
+    }
+
+    @Test
+    void datingUsesTheYearIndexes() throws InterruptedException {
+        String plan = plan("from artefact", "start_year between ? and ?",
+                () -> artefactsRepository.findAllByStartYearBetweenOrEndYearBetween(-1200, -1000, -1200, -1000));
+        assertTrue(plan.contains("IDX_ARTEFACT_START_YEAR"), plan);
+        assertTrue(plan.contains("IDX_ARTEFACT_END_YEAR"), plan);
+    }
+
+    /**
+     * Runs a query and waits for the plan of the statement it generated.
+     * @param table the table read, as in the generated statement
+     * @param condition the condition of the statement, after the alias of the table
+     */
+    private String plan(String table, String condition, Runnable query) throws InterruptedException {
+        slowQueryLog.clear();
+        query.run();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            for (SlowQuery statement : slowQueryLog.recent(100)) {
+                String sql = statement.getSql().toLowerCase();
+                if (sql.startsWith("select") && !sql.startsWith("select count") && sql.contains(table + " ")
+                        && sql.contains(condition) && statement.getPlan() != null) {
+                    return statement.getPlan();
+                }
+            }
+            Thread.sleep(20);
+        }
+        return fail("no plan of a statement on " + table + " where " + condition + " in "
+                + slowQueryLog.recent(100));
+    }
+}
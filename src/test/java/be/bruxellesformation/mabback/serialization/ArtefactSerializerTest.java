@@ -0,0 +1,69 @@
+package be.bruxellesformation.mabback.serialization;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.domain.Culture;
+import be.bruxellesformation.mabback.dto.PageEnvelope;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArtefactSerializerTest {
+
+    // Like the ObjectMapper configured by Spring Boot, with and without the hand-written serializers
+    ObjectMapper beanMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    ObjectMapper handWrittenMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .registerModule(new SerializationConfiguration().catalogueSerializers())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    Culture culture = new Culture("Egypte ancienne", "Civilisation du Nil", "3150 av. J.-C. - 30 av. J.-C.",
+            "egypte.png", -3150, -30);
+    Artefact artefact = new Artefact("EG1000", "Statue de Ramses II", "Statue en granit", "Statue", "Granit",
+            culture, "Nouvel Empire", "XIIIe siecle av. J.-C.", -1279, -1213, LocalDate.of(1905, 3, 12),
+            "Room 4", "eg1000.jpg");
+
+    @Test
+    void sameJsonAsTheBeanSerializer() throws Exception {
+        assertEquals(beanMapper.writeValueAsString(artefact), handWrittenMapper.writeValueAsString(artefact));
+
+        Artefact withoutCulture = new Artefact();
+        withoutCulture.setIdentification("XX0001");
+        assertEquals(beanMapper.writeValueAsString(withoutCulture),
+                handWrittenMapper.writeValueAsString(withoutCulture));
+    }
+
+    @Test
+    void sameContentInSmile() throws Exception {
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory()).registerModule(new JavaTimeModule())
+                .registerModule(new SerializationConfiguration().catalogueSerializers())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        byte[] smile = smileMapper.writeValueAsBytes(artefact);
+
+        assertEquals(beanMapper.readTree(beanMapper.writeValueAsString(artefact)), smileMapper.readTree(smile));
+        assertTrue(smile.length < handWrittenMapper.writeValueAsBytes(artefact).length);
+    }
+
+    @Test
+    void compactEnvelopeHasTheNextPageAsCursor() {
+        PageEnvelope<String> first = CompactPageAdvice.envelope(
+                new PageImpl<>(Arrays.asList("EG1000", "EG1001"), PageRequest.of(0, 2), 3), true);
+        assertEquals("1", first.getCursor());
+        assertEquals(3L, first.getTotal());
+
+        PageEnvelope<String> last = CompactPageAdvice.envelope(
+                new PageImpl<>(Collections.singletonList("EG1002"), PageRequest.of(1, 2), 3), false);
+        assertNull(last.getCursor());
+        assertNull(last.getTotal());
+    }
+}
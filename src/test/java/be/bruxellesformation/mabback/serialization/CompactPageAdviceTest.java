@@ -0,0 +1,59 @@
+package be.bruxellesformation.mabback.serialization;
+
+import be.bruxellesformation.mabback.rest.RoomRestController;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs on the seed data, through an endpoint returning a ResponseEntity of a page.
+ */
+@SpringBootTest
+class CompactPageAdviceTest {
+
+    @Autowired
+    RoomRestController roomRestController;
+    @Autowired
+    CompactPageAdvice compactPageAdvice;
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(roomRestController).setControllerAdvice(compactPageAdvice).build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new TestingAuthenticationToken("conservateur", null, "CONSERVATEUR"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void pageInAResponseEntityIsEnveloped() throws Exception {
+        mockMvc.perform(get("/rooms/{room}/artefacts", "Room 27")
+                .param("itemsPerPage", "1").param("envelope", "compact").param("total", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1))
+                .andExpect(jsonPath("$.total").isNumber())
+                .andExpect(jsonPath("$.pageable").doesNotExist());
+    }
+
+    @Test
+    void jsonKeepsTheFullPageByDefault() throws Exception {
+        mockMvc.perform(get("/rooms/{room}/artefacts", "Room 27").param("itemsPerPage", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.pageable").exists());
+    }
+}
@@ -0,0 +1,77 @@
+package be.bruxellesformation.mabback.services;
+
+import be.bruxellesformation.mabback.dto.InventoryDiscrepancy;
+import be.bruxellesformation.mabback.dto.InventorySummary;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs on the seed data : RE1000 is recorded in "Room 27", RE1001 in "Room 26".
+ */
+@SpringBootTest
+@Transactional
+class InventoryServiceTest {
+
+    @Autowired
+    InventoryService inventoryService;
+
+    List<InventoryDiscrepancy> discrepancies = new ArrayList<>();
+
+    @Test
+    void eachDiscrepancyIsReported() {
+        InventorySummary summary = inventoryService.reconcile(" room  27",
+                new TreeSet<>(Arrays.asList("RE1001", "XX0001")), discrepancies::add);
+
+        assertEquals(3, discrepancies.size());
+        InventoryDiscrepancy missing = find("RE1000");
+        assertEquals(InventoryDiscrepancy.Status.MISSING, missing.getStatus());
+        assertEquals("Room 27", missing.getLocalisation());
+        InventoryDiscrepancy misplaced = find("RE1001");
+        assertEquals(InventoryDiscrepancy.Status.MISPLACED, misplaced.getStatus());
+        assertEquals("Room 26", misplaced.getLocalisation());
+        InventoryDiscrepancy unexpected = find("XX0001");
+        assertEquals(InventoryDiscrepancy.Status.UNEXPECTED, unexpected.getStatus());
+        assertNull(unexpected.getLocalisation());
+
+        assertEquals(2, summary.getScanned());
+        assertEquals(1, summary.getExpected());
+        assertEquals(0, summary.getFound());
+        assertEquals(1, summary.getMissing());
+        assertEquals(1, summary.getMisplaced());
+        assertEquals(1, summary.getUnexpected());
+    }
+
+    @Test
+    void completeScanHasNoDiscrepancy() {
+        InventorySummary summary = inventoryService.reconcile("Room 27", new TreeSet<>(Arrays.asList("RE1000")),
+                discrepancies::add);
+
+        assertTrue(discrepancies.isEmpty());
+        assertEquals(1, summary.getFound());
+    }
+
+    @Test
+    void blankRoomIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> inventoryService.reconcile(" ", new TreeSet<>(), discrepancies::add));
+    }
+
+    private InventoryDiscrepancy find(String identification) {
+        for (InventoryDiscrepancy discrepancy : discrepancies) {
+            if (discrepancy.getIdentification().equals(identification)) {
+                return discrepancy;
+            }
+        }
+        fail("no discrepancy for " + identification);
+        return null;
+    }
+}
@@ -0,0 +1,177 @@
+package be.bruxellesformation.mabback.services;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.dto.ArtefactMovement;
+import be.bruxellesformation.mabback.dto.RelocationOutcome;
+import be.bruxellesformation.mabback.dto.RelocationReport;
+import be.bruxellesformation.mabback.dto.RelocationRequest;
+import be.bruxellesformation.mabback.events.CatalogueChangeEvent;
+import be.bruxellesformation.mabback.movements.MovementLog;
+import be.bruxellesformation.mabback.repositories.IArtefactsRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs on the seed data, each chunk being committed : the artefacts moved, their movements and changes are restored
+ * after each test.
+ */
+@SpringBootTest
+class RelocationServiceTest {
+
+    private static final List<String> MOVED = Arrays.asList("RE1000", "RE1001");
+
+    @Autowired
+    RelocationService relocationService;
+    @Autowired
+    IArtefactsRepository artefactsRepository;
+    @Autowired
+    MovementLog movementLog;
+    @Autowired
+    ApplicationEventPublisher publisher;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    List<Map<String, Object>> seed;
+    long lastMovement;
+    long lastChange;
+
+    @BeforeEach
+    void setUp() {
+        seed = jdbcTemplate.queryForList("SELECT identification, localisation, location_key, on_permanent_display "
+                + "FROM artefact WHERE identification IN ('RE1000', 'RE1001')");
+        lastMovement = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM artefact_movement", Long.class);
+        lastChange = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(seq), 0) FROM change_log", Long.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (Map<String, Object> row : seed) {
+            jdbcTemplate.update("UPDATE artefact SET localisation = ?, location_key = ?, on_permanent_display = ? "
+                    + "WHERE identification = ?", row.get("localisation"), row.get("location_key"),
+                    row.get("on_permanent_display"), row.get("identification"));
+            // Outside of a transaction : the indexes read the restored rows at once
+            publisher.publishEvent(new CatalogueChangeEvent(CatalogueChangeEvent.EntityType.ARTEFACT,
+                    CatalogueChangeEvent.ChangeType.UPDATED, (String) row.get("identification")));
+        }
+        jdbcTemplate.update("DELETE FROM artefact_movement WHERE id > ?", lastMovement);
+        jdbcTemplate.update("DELETE FROM change_log WHERE seq > ?", lastChange);
+    }
+
+    @Test
+    void eachArtefactGetsItsOutcome() throws Exception {
+        RelocationRequest request = new RelocationRequest();
+        request.setIdentifications(Arrays.asList("RE1000", "EG1000", "XX9999", "RE1000"));
+        request.setDestination("Room 12");
+
+        RelocationReport report = relocationService.relocate(request);
+
+        assertEquals(1, report.getMoved());
+        assertEquals(3, report.getOutcomes().size());
+        assertEquals(RelocationOutcome.Status.MOVED, report.getOutcomes().get(0).getStatus());
+        assertEquals(RelocationOutcome.Status.IN_EXPOSITION, report.getOutcomes().get(1).getStatus());
+        assertEquals(RelocationOutcome.Status.NOT_FOUND, report.getOutcomes().get(2).getStatus());
+
+        Artefact moved = artefactsRepository.findById("RE1000").get();
+        assertEquals("Room 12", moved.getLocalisation());
+        assertTrue(moved.isOnPermanentDisplay());
+        awaitMovement("RE1000", "Room 12");
+    }
+
+    @Test
+    void roomIsEmptiedToTheReserves() {
+        RelocationRequest request = new RelocationRequest();
+        request.setFromRoom("Room 27");
+        request.setDestination(RelocationService.RESERVES);
+
+        RelocationReport report = relocationService.relocate(request);
+
+        assertEquals(1, report.getMoved());
+        assertTrue(artefactsRepository.findIdentificationsByLocalisation("Room 27").isEmpty());
+        assertFalse(artefactsRepository.findById("RE1000").get().isOnPermanentDisplay());
+    }
+
+    @Test
+    void failedChunkKeepsTheChunksCommittedBefore() throws Exception {
+        RelocationService oneByOne = new RelocationService(artefactsRepository, movementLog, publisher,
+                transactionManager, 1);
+        RelocationRequest request = new RelocationRequest();
+        request.setIdentifications(MOVED);
+        request.setDestination("Room 12");
+
+        // RE1001 stays locked by another transaction until its chunk gives up
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    jdbcTemplate.update("UPDATE artefact SET name = name WHERE identification = 'RE1001'");
+                    locked.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        RelocationReport report;
+        try {
+            report = oneByOne.relocate(request);
+        } finally {
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(1, report.getMoved());
+        assertEquals(RelocationOutcome.Status.MOVED, report.getOutcomes().get(0).getStatus());
+        assertEquals(RelocationOutcome.Status.FAILED, report.getOutcomes().get(1).getStatus());
+        // Read after the commits, in new transactions
+        assertEquals("Room 12", jdbcTemplate.queryForObject(
+                "SELECT localisation FROM artefact WHERE identification = 'RE1000'", String.class));
+        assertEquals("Room 26", jdbcTemplate.queryForObject(
+                "SELECT localisation FROM artefact WHERE identification = 'RE1001'", String.class));
+        awaitMovement("RE1000", "Room 12");
+        for (ArtefactMovement movement : movementLog.history("RE1001")) {
+            assertNotEquals("Room 12", movement.getToLocalisation());
+        }
+    }
+
+    @Test
+    void selectionIsRequired() {
+        RelocationRequest request = new RelocationRequest();
+        request.setDestination("Room 12");
+        assertThrows(IllegalArgumentException.class, () -> relocationService.relocate(request));
+    }
+
+    /**
+     * Waits for the movement, written after the commit by the background writer of the {@link MovementLog}.
+     */
+    private void awaitMovement(String identification, String to) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            for (ArtefactMovement movement : movementLog.history(identification)) {
+                if (to.equals(movement.getToLocalisation())) {
+                    return;
+                }
+            }
+            Thread.sleep(20);
+        }
+        fail("no movement of " + identification + " to " + to);
+    }
+}
@@ -0,0 +1,81 @@
+package be.bruxellesformation.mabback.services;
+
+import be.bruxellesformation.mabback.domain.Exposition;
+import be.bruxellesformation.mabback.domain.Reservation;
+import be.bruxellesformation.mabback.dto.ReservationConflict;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationIndexTest {
+
+    ReservationIndex index = new ReservationIndex();
+    Exposition spring = exposition(1, LocalDate.of(2027, 3, 1), LocalDate.of(2027, 5, 31));
+    Exposition autumn = exposition(2, LocalDate.of(2027, 9, 1), LocalDate.of(2027, 11, 30));
+
+    @BeforeEach
+    void setUp() {
+        index.load(Arrays.asList(new Reservation("EG1000", spring), new Reservation("EG1000", autumn),
+                new Reservation("RE1000", spring)));
+    }
+
+    @Test
+    void overlappingReservationsAreConflicts() {
+        List<ReservationConflict> conflicts = index.conflicts(Arrays.asList("EG1000", "RE1000", "GR1000"),
+                LocalDate.of(2027, 5, 31), LocalDate.of(2027, 9, 1), null);
+
+        assertEquals(3, conflicts.size());
+        assertTrue(conflicts.stream().allMatch(conflict -> !conflict.getIdentification().equals("GR1000")));
+    }
+
+    @Test
+    void periodBetweenReservationsIsFree() {
+        assertTrue(index.conflicts(Arrays.asList("EG1000", "RE1000"),
+                LocalDate.of(2027, 6, 1), LocalDate.of(2027, 8, 31), null).isEmpty());
+    }
+
+    @Test
+    void reservationsOfTheSameExpositionAreIgnored() {
+        List<ReservationConflict> conflicts = index.conflicts(Collections.singletonList("EG1000"),
+                LocalDate.of(2027, 1, 1), LocalDate.of(2027, 12, 31), 1L);
+
+        assertEquals(1, conflicts.size());
+        assertEquals(2, conflicts.get(0).getExpositionId());
+    }
+
+    @Test
+    void removedReservationNoLongerBlocks() {
+        Reservation reservation = new Reservation("RE1000", spring);
+        index.remove(reservation);
+        assertTrue(index.conflicts(Collections.singletonList("RE1000"),
+                spring.getStartDate(), spring.getEndDate(), null).isEmpty());
+
+        index.add(reservation);
+        assertEquals(1, index.conflicts(Collections.singletonList("RE1000"),
+                spring.getStartDate(), spring.getStartDate(), null).size());
+    }
+
+    @Test
+    void reservationsOfAnExpositionAreReplaced() {
+        index.replace(1, Collections.singletonList(new Reservation("GR1000", spring)));
+
+        List<ReservationConflict> conflicts = index.conflicts(Arrays.asList("EG1000", "RE1000", "GR1000"),
+                spring.getStartDate(), spring.getEndDate(), null);
+        assertEquals(1, conflicts.size());
+        assertEquals("GR1000", conflicts.get(0).getIdentification());
+        assertEquals(1, index.conflicts(Collections.singletonList("EG1000"),
+                autumn.getStartDate(), autumn.getEndDate(), null).size());
+    }
+
+    static Exposition exposition(long id, LocalDate startDate, LocalDate endDate) {
+        Exposition exposition = new Exposition("Exposition " + id, null, startDate, endDate, null);
+        exposition.setId(id);
+        return exposition;
+    }
+}
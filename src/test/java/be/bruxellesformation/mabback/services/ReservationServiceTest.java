@@ -0,0 +1,174 @@
+package be.bruxellesformation.mabback.services;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.domain.Exposition;
+import be.bruxellesformation.mabback.domain.Reservation;
+import be.bruxellesformation.mabback.domain.ReservationStatus;
+import be.bruxellesformation.mabback.exceptions.ReservationConflictException;
+import be.bruxellesformation.mabback.repositories.IArtefactsRepository;
+import be.bruxellesformation.mabback.repositories.IExpositionsRepository;
+import be.bruxellesformation.mabback.repositories.IReservationsRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs on the seed data. The service commits its own transactions, so the expositions created here are deleted and
+ * the artefacts put back after each test. The pool of the dev profile is too small for a lock holder, a reservation
+ * waiting for it and a check made meanwhile, and the reservation waits for its row locks longer than for that check.
+ */
+@SpringBootTest(properties = {"spring.datasource.hikari.maximum-pool-size=4",
+        "spring.datasource.hikari.connection-init-sql=SET LOCK_TIMEOUT 10000"})
+class ReservationServiceTest {
+
+    @Autowired
+    ReservationService reservationService;
+    @Autowired
+    IReservationsRepository reservationsRepository;
+    @Autowired
+    IExpositionsRepository expositionsRepository;
+    @Autowired
+    IArtefactsRepository artefactsRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    LocalDate today = LocalDate.now();
+    List<Exposition> created = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Artefact artefact = artefactsRepository.findById("RE1000").get();
+            artefact.sendOutOfExpo();
+            artefact.changeLocalisation("Room 27");
+            artefactsRepository.save(artefact);
+            return null;
+        });
+        for (Exposition exposition : created) {
+            reservationService.cancelExposition(exposition.getId());
+            expositionsRepository.deleteById(exposition.getId());
+        }
+        reservationService.loadIndex();
+    }
+
+    @Test
+    void overlappingReservationIsRefused() {
+        Exposition spring = exposition(today.plusDays(30), today.plusDays(60));
+        Exposition summer = exposition(today.plusDays(45), today.plusDays(90));
+        reservationService.reserve(spring.getId(), Collections.singletonList("RE1000"));
+
+        ReservationConflictException exception = assertThrows(ReservationConflictException.class,
+                () -> reservationService.reserve(summer.getId(), Arrays.asList("CE1000", "RE1000")));
+
+        assertEquals(1, exception.getConflicts().size());
+        assertEquals(spring.getId(), exception.getConflicts().get(0).getExpositionId());
+        assertTrue(reservationService.reservations(summer.getId()).isEmpty());
+    }
+
+    @Test
+    void reservationCommittedByAnotherNodeIsSeen() {
+        Exposition spring = exposition(today.plusDays(30), today.plusDays(60));
+        Exposition summer = exposition(today.plusDays(45), today.plusDays(90));
+        // Saved without the service, like by another node : the index of this one does not know it
+        reservationsRepository.save(new Reservation("RE1000", spring));
+        assertTrue(reservationService.availability(Collections.singletonList("RE1000"),
+                summer.getStartDate(), summer.getEndDate()).isEmpty());
+
+        ReservationConflictException exception = assertThrows(ReservationConflictException.class,
+                () -> reservationService.reserve(summer.getId(), Arrays.asList("CE1000", "RE1000")));
+
+        assertEquals(spring.getId(), exception.getConflicts().get(0).getExpositionId());
+        assertTrue(reservationService.reservations(summer.getId()).isEmpty());
+        // The index has been loaded again
+        assertEquals(1, reservationService.availability(Collections.singletonList("RE1000"),
+                summer.getStartDate(), summer.getEndDate()).size());
+    }
+
+    @Test
+    void nightlyTransitionDisplaysTheReservedArtefacts() {
+        Exposition starting = exposition(today, today.plusDays(30));
+        reservationService.reserve(starting.getId(), Collections.singletonList("RE1000"));
+        Exposition over = exposition(today.minusDays(30), today.minusDays(1));
+        reservationsRepository.save(new Reservation("CE1000", over));
+
+        reservationService.startExpositions();
+
+        Artefact artefact = artefactsRepository.findById("RE1000").get();
+        assertTrue(artefact.isInExposition());
+        assertEquals(starting.getTitle(), artefact.getLocalisation());
+        assertEquals(ReservationStatus.LIVE, reservationService.reservations(starting.getId()).get(0).getStatus());
+        assertEquals(ReservationStatus.ENDED, reservationService.reservations(over.getId()).get(0).getStatus());
+    }
+
+    @Test
+    void availabilityDoesNotWaitForAReservationWaitingForItsRowLocks() throws Exception {
+        Exposition spring = exposition(today.plusDays(30), today.plusDays(60));
+
+        // RE1000 stays locked by another transaction, the reservation waits for it
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    jdbcTemplate.update("UPDATE artefact SET name = name WHERE identification = 'RE1000'");
+                    locked.countDown();
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException exception) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        CompletableFuture<List<Reservation>> reserving = CompletableFuture.supplyAsync(
+                () -> reservationService.reserve(spring.getId(), Collections.singletonList("RE1000")));
+        try {
+            awaitBlockedSession();
+            assertTrue(reservationService.availability(Collections.singletonList("CE1000"), spring.getStartDate(),
+                    spring.getEndDate()).isEmpty());
+            assertFalse(reserving.isDone());
+        } finally {
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+            // Reserved, or given up on the lock timeout
+            reserving.handle((reservations, exception) -> null).get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Waits until a session waits for a lock held by another one.
+     */
+    private void awaitBlockedSession() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS "
+                    + "WHERE BLOCKER_ID IS NOT NULL", Integer.class) > 0) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("no session waiting for a lock");
+    }
+
+    private Exposition exposition(LocalDate startDate, LocalDate endDate) {
+        Exposition exposition = expositionsRepository.save(new Exposition("Reservation test " + created.size(),
+                null, startDate, endDate, null));
+        created.add(exposition);
+        return exposition;
+    }
+}
@@ -0,0 +1,65 @@
+package be.bruxellesformation.mabback.services;
+
+import be.bruxellesformation.mabback.domain.Artefact;
+import be.bruxellesformation.mabback.dto.SyncBatch;
+import be.bruxellesformation.mabback.repositories.IArtefactsRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs on the seed data, each test is rolled back.
+ */
+@SpringBootTest
+@Transactional
+class SyncServiceTest {
+
+    @Autowired
+    SyncService syncService;
+    @Autowired
+    IArtefactsRepository artefactsRepository;
+
+    @Test
+    void firstSynchronizationSendsTheCatalogue() {
+        SyncBatch batch = syncService.changesSince("0", 2000);
+
+        assertFalse(batch.isHasMore());
+        assertEquals(artefactsRepository.count(), batch.getArtefacts().size());
+        assertFalse(batch.getCultures().isEmpty());
+        assertTrue(Long.parseLong(batch.getToken()) > 0);
+    }
+
+    @Test
+    void nextSynchronizationOnlySendsTheChanges() {
+        String token = syncService.changesSince("0", 2000).getToken();
+
+        Artefact artefact = artefactsRepository.findById("RE1000").get();
+        artefact.setName("Auguste");
+        artefactsRepository.saveAndFlush(artefact);
+        artefactsRepository.deleteById("RE1001");
+        artefactsRepository.flush();
+
+        SyncBatch batch = syncService.changesSince(token, 2000);
+        assertEquals(1, batch.getArtefacts().size());
+        assertEquals("RE1000", batch.getArtefacts().get(0).getIdentification());
+        assertEquals(1, batch.getDeleted().size());
+        assertEquals("RE1001", batch.getDeleted().get(0).getId());
+        assertTrue(batch.getCultures().isEmpty());
+    }
+
+    @Test
+    void batchesAreLimited() {
+        SyncBatch batch = syncService.changesSince("0", 2);
+
+        assertTrue(batch.isHasMore());
+        assertEquals(2, batch.getCultures().size() + batch.getExpositions().size() + batch.getArtefacts().size());
+    }
+
+    @Test
+    void invalidTokenIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> syncService.changesSince("abc", 10));
+    }
+}
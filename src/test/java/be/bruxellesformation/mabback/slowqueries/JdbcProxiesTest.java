@@ -0,0 +1,149 @@
+package be.bruxellesformation.mabback.slowqueries;
+
+import be.bruxellesformation.mabback.dto.SlowQuery;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcProxiesTest {
+
+    SlowQueryProperties properties = new SlowQueryProperties();
+    SlowQueryLog slowQueryLog;
+    DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // Every statement is slow
+        properties.setThreshold(Duration.ZERO);
+        properties.setMaxParameterLength(5);
+        slowQueryLog = new SlowQueryLog(properties,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:slow-queries;DB_CLOSE_DELAY=-1");
+        h2.setUser("sa");
+        dataSource = JdbcProxies.dataSource(h2, slowQueryLog);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table artefact (identification varchar(20) primary key, name varchar(50))");
+        }
+        slowQueryLog.clear();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("drop table artefact");
+        }
+        slowQueryLog.stop();
+    }
+
+    @Test
+    void batchIsRecordedWithItsValuesAndUpdatedRows() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "insert into artefact (identification, name) values (?, ?)")) {
+            insert(statement, "B.1", "Statuette en bronze");
+            insert(statement, "B.2", null);
+            assertArrayEquals(new int[]{1, 1}, statement.executeBatch());
+        }
+
+        List<SlowQuery> recent = slowQueryLog.recent(10);
+        assertEquals(1, recent.size());
+        SlowQuery insert = recent.get(0);
+        assertEquals("insert into artefact (identification, name) values (?, ?)", insert.getSql());
+        assertEquals(Arrays.asList(Arrays.asList("B.1", "Statu..."), Arrays.asList("B.2", "NULL")),
+                insert.getParameters());
+        assertEquals(2, insert.getRows());
+    }
+
+    @Test
+    void selectCountsTheRowsRead() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "insert into artefact (identification, name) values (?, ?)")) {
+            for (int i = 0; i < 3; i++) {
+                insert(statement, "B." + i, "Vase");
+            }
+            statement.executeBatch();
+        }
+        slowQueryLog.clear();
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "select identification from artefact where name = ?")) {
+            statement.setString(1, "Vase");
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertSame(statement, resultSet.getStatement());
+                while (resultSet.next()) {
+                    assertTrue(resultSet.getString(1).startsWith("B."));
+                }
+            }
+            assertSame(connection, statement.getConnection());
+        }
+
+        SlowQuery select = slowQueryLog.recent(10).get(0);
+        assertEquals(Arrays.asList(Arrays.asList("Vase")), select.getParameters());
+        assertEquals(3, select.getRows());
+    }
+
+    @Test
+    void planOfTheSelectIsExplainedInTheBackground() throws SQLException, InterruptedException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select count(*) from artefact")) {
+            assertTrue(resultSet.next());
+        }
+
+        String plan = null;
+        for (int i = 0; i < 50 && plan == null; i++) {
+            Thread.sleep(100);
+            plan = slowQueryLog.recent(1).get(0).getPlan();
+        }
+        assertNotNull(plan);
+        assertTrue(plan.toLowerCase().contains("artefact"));
+    }
+
+    @Test
+    void oldestStatementsAreDroppedBeyondTheCapacity() throws SQLException {
+        properties.setCapacity(2);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("update artefact set name = 'a'");
+            statement.executeUpdate("update artefact set name = 'b'");
+            statement.executeUpdate("update artefact set name = 'c'");
+        }
+
+        List<SlowQuery> recent = slowQueryLog.recent(10);
+        assertEquals(2, recent.size());
+        assertEquals("update artefact set name = 'c'", recent.get(0).getSql());
+        assertEquals("update artefact set name = 'b'", recent.get(1).getSql());
+    }
+
+    private static void insert(PreparedStatement statement, String identification, String name)
+            throws SQLException {
+        statement.setString(1, identification);
+        if (name != null) {
+            statement.setString(2, name);
+        } else {
+            statement.setNull(2, Types.VARCHAR);
+        }
+        statement.addBatch();
+    }
+}
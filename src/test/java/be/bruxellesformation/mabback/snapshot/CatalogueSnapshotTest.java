@@ -0,0 +1,94 @@
+package be.bruxellesformation.mabback.snapshot;
+
+import be.bruxellesformation.mabback.indexes.ArtefactRecord;
+import be.bruxellesformation.mabback.indexes.CatalogueData;
+import be.bruxellesformation.mabback.indexes.CultureRecord;
+import be.bruxellesformation.mabback.indexes.ExpositionRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static be.bruxellesformation.mabback.indexes.ArtefactRecords.artefact;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogueSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsAreReadAsWritten() throws IOException {
+        CultureRecord culture = new CultureRecord(3, "culture de Hallstatt", "Âge du fer", null, "map.png", -800, -450);
+        ExpositionRecord exposition = new ExpositionRecord(1, "Égypte", null, LocalDate.of(2020, 1, 1), null,
+                "expo.jpg", 1200);
+        ArtefactRecord statue = artefact("RE1000").name("Statue en marbre").descriptions("Description", "Ier siècle")
+                .culturalPhase("Empire Romain").type("Statue").material("Pierre, marbre").localisation("Room 27")
+                .imageURL("image.jpg").onPermanentDisplay(true).dateOfEntry(LocalDate.of(1933, 7, 1)).years(-20, 37)
+                .culture(3L).build();
+        ArtefactRecord empty = artefact("XX0001").name(null).exposition(1L).build();
+        Instant takenAt = Instant.ofEpochMilli(1_600_000_000_000L);
+        Path file = directory.resolve("catalogue.snapshot");
+
+        new CatalogueSnapshot(new CatalogueData(Arrays.asList(statue, empty), Collections.singletonList(culture),
+                Collections.singletonList(exposition)), takenAt, 42).write(file);
+        CatalogueSnapshot read = CatalogueSnapshot.read(file);
+
+        assertEquals(takenAt, read.getTakenAt());
+        assertEquals(42, read.getLastChange());
+        assertEquals(Arrays.asList(statue, empty), new ArrayList<>(read.getData().getArtefacts()));
+        assertEquals(Collections.singletonList(culture), new ArrayList<>(read.getData().getCultures()));
+        assertEquals(Collections.singletonList(exposition), new ArrayList<>(read.getData().getExpositions()));
+    }
+
+    @Test
+    void snapshotIsReplacedAsAWhole() throws IOException {
+        Path file = directory.resolve("catalogue.snapshot");
+        List<ArtefactRecord> artefacts = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            artefacts.add(artefact(String.format("AA%05d", i)).name("Objet " + i).type("Statue").material("Pierre")
+                    .localisation("Room 27").years(-20, 37).exposition((long) (i % 10)).build());
+        }
+        snapshot(Collections.singletonList(artefact("RE1000").name("Statue").build())).write(file);
+
+        snapshot(artefacts).write(file);
+
+        assertEquals(artefacts, new ArrayList<>(CatalogueSnapshot.read(file).getData().getArtefacts()));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void corruptedSnapshotIsRejected() throws IOException {
+        Path file = directory.resolve("catalogue.snapshot");
+        snapshot(Collections.singletonList(artefact("RE1000").name("Statue").build())).write(file);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[40] ^= 1;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> CatalogueSnapshot.read(file));
+    }
+
+    @Test
+    void truncatedSnapshotIsRejected() throws IOException {
+        Path file = directory.resolve("catalogue.snapshot");
+        Files.write(file, new byte[]{0x4d, 0x41});
+
+        assertThrows(IOException.class, () -> CatalogueSnapshot.read(file));
+    }
+
+    private static CatalogueSnapshot snapshot(List<ArtefactRecord> artefacts) {
+        return new CatalogueSnapshot(new CatalogueData(artefacts, new ArrayList<>(), new ArrayList<>()),
+                Instant.now(), 0);
+    }
+}
@@ -0,0 +1,84 @@
+package be.bruxellesformation.mabback.snapshot;
+
+import be.bruxellesformation.mabback.indexes.ArtefactRecord;
+import be.bruxellesformation.mabback.indexes.CatalogueData;
+import be.bruxellesformation.mabback.indexes.CultureRecord;
+import be.bruxellesformation.mabback.indexes.ExpositionRecord;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static be.bruxellesformation.mabback.indexes.ArtefactRecords.artefact;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Boots the "kiosk" profile from a snapshot written beforehand, without the seed data.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("kiosk")
+class KioskTest {
+
+    static Path directory;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void snapshot(DynamicPropertyRegistry registry) throws IOException {
+        directory = Files.createTempDirectory("kiosk");
+        Path file = directory.resolve("catalogue.snapshot");
+        CultureRecord culture = new CultureRecord(3, "culture de Hallstatt", "Âge du fer", "-800 a -450", "map.png",
+                -800, -450);
+        ExpositionRecord exposition = new ExpositionRecord(1, "Égypte", null, LocalDate.of(2020, 1, 1), null,
+                "expo.jpg", 1200);
+        ArtefactRecord statue = artefact("KI1000").name("Statue en marbre").descriptions("Une statue", null)
+                .type("statue").material("marbre").localisation("Room 27").imageURL("statue.jpg")
+                .dateOfEntry(LocalDate.of(1999, 5, 4)).years(-700, -600).culture(3L).exposition(1L).build();
+        ArtefactRecord vase = artefact("KI1001").name("Vase").localisation("Reserves").build();
+        new CatalogueSnapshot(new CatalogueData(Arrays.asList(statue, vase), Collections.singletonList(culture),
+                Collections.singletonList(exposition)), Instant.now(), 0).write(file);
+        registry.add("mab.snapshot.file", file::toString);
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Test
+    void catalogueIsServedFromTheSnapshot() throws Exception {
+        mockMvc.perform(get("/collections/{id}", "KI1000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Statue en marbre"))
+                .andExpect(jsonPath("$.localisation").value("Room 27"))
+                .andExpect(jsonPath("$.imageURL").value("statue.jpg"))
+                .andExpect(jsonPath("$.culture.name").value("culture de Hallstatt"));
+        mockMvc.perform(get("/collections/{id}", "RE1000"))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void changesAreRefused() throws Exception {
+        mockMvc.perform(post("/expo").contentType("application/json").content("{}"))
+                .andExpect(status().isMethodNotAllowed());
+    }
+}
@@ -0,0 +1,164 @@
+package be.bruxellesformation.mabback.tenancy;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantRoutingDataSourceTest {
+
+    List<String> opened = new ArrayList<>();
+    TenantRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        routing = new TenantRoutingDataSource(h2Pool(TenantContext.DEFAULT), tenant -> {
+            opened.add(tenant);
+            return h2Pool(tenant);
+        }, 2, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+        routing.close();
+    }
+
+    @Test
+    void connectionsGoToThePoolOfTheCurrentTenant() throws SQLException {
+        assertEquals(TenantContext.DEFAULT, node(routing));
+
+        TenantContext.set("mariemont");
+        assertEquals("mariemont", node(routing));
+        assertEquals("mariemont", node(routing));
+        assertEquals(1, opened.size());
+        assertEquals(2, routing.openPools());
+    }
+
+    @Test
+    void leastRecentlyUsedPoolIsClosed() throws SQLException {
+        TenantContext.runAs("mariemont", () -> assertEquals("mariemont", nodeOrFail(routing)));
+        TenantContext.runAs("tervuren", () -> assertEquals("tervuren", nodeOrFail(routing)));
+        TenantContext.runAs("mariemont", () -> assertEquals("mariemont", nodeOrFail(routing)));
+        TenantContext.runAs("louvain", () -> assertEquals("louvain", nodeOrFail(routing)));
+        assertEquals(3, routing.openPools());
+
+        // Tervuren was the least recently used : opened again
+        TenantContext.runAs("tervuren", () -> assertEquals("tervuren", nodeOrFail(routing)));
+        TenantContext.runAs("mariemont", () -> assertEquals("mariemont", nodeOrFail(routing)));
+        assertEquals(5, opened.size());
+    }
+
+    @Test
+    void busyPoolIsNotClosed() throws SQLException {
+        TenantContext.set("mariemont");
+        try (Connection borrowed = routing.getConnection()) {
+            TenantContext.runAs("tervuren", () -> nodeOrFail(routing));
+            TenantContext.runAs("louvain", () -> nodeOrFail(routing));
+
+            assertFalse(routing.pool("mariemont").isClosed());
+            assertTrue(borrowed.isValid(1));
+        }
+    }
+
+    @Test
+    void watchedPoolsLendTheirConnectionsThroughTheWatcher() throws SQLException {
+        TenantContext.runAs("mariemont", () -> nodeOrFail(routing));
+        List<String> borrowed = new ArrayList<>();
+        routing.watch(pool -> new DelegatingDataSource(pool) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                Connection connection = super.getConnection();
+                borrowed.add(node(pool));
+                return connection;
+            }
+        });
+
+        assertEquals(TenantContext.DEFAULT, node(routing));
+        TenantContext.runAs("mariemont", () -> nodeOrFail(routing));
+        TenantContext.runAs("tervuren", () -> nodeOrFail(routing));
+        assertEquals(Arrays.asList(TenantContext.DEFAULT, "mariemont", "tervuren"), borrowed);
+    }
+
+    @Test
+    void poolBeingOpenedDoesNotBlockTheOtherTenants() throws Exception {
+        CountDownLatch migrating = new CountDownLatch(1);
+        CountDownLatch migrated = new CountDownLatch(1);
+        TenantRoutingDataSource slowRouting = new TenantRoutingDataSource(h2Pool(TenantContext.DEFAULT), tenant -> {
+            if ("tervuren".equals(tenant)) {
+                migrating.countDown();
+                try {
+                    migrated.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return h2Pool(tenant);
+        }, 2, new SimpleMeterRegistry());
+        try {
+            CompletableFuture<String> tervuren = CompletableFuture.supplyAsync(
+                    () -> TenantContext.callAs("tervuren", () -> nodeOrFail(slowRouting)));
+            assertTrue(migrating.await(5, TimeUnit.SECONDS));
+
+            // Tervuren is still being migrated
+            assertEquals(TenantContext.DEFAULT, node(slowRouting));
+            assertEquals("mariemont", TenantContext.callAs("mariemont", () -> nodeOrFail(slowRouting)));
+            assertFalse(tervuren.isDone());
+
+            migrated.countDown();
+            assertEquals("tervuren", tervuren.get(5, TimeUnit.SECONDS));
+        } finally {
+            migrated.countDown();
+            slowRouting.close();
+        }
+    }
+
+    private static HikariDataSource h2Pool(String tenant) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:h2:mem:tenant-" + tenant + ";DB_CLOSE_DELAY=-1");
+        pool.setUsername("sa");
+        pool.setPassword("");
+        pool.setMaximumPoolSize(2);
+        try (Connection connection = pool.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS NODE");
+            statement.execute("CREATE TABLE NODE (NAME VARCHAR(20))");
+            statement.execute("INSERT INTO NODE VALUES ('" + tenant + "')");
+        } catch (SQLException exception) {
+            throw new IllegalStateException(exception);
+        }
+        return pool;
+    }
+
+    private static String nodeOrFail(DataSource dataSource) {
+        try {
+            return node(dataSource);
+        } catch (SQLException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    private static String node(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT NAME FROM NODE")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+}
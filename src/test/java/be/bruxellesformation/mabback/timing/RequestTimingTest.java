@@ -0,0 +1,48 @@
+package be.bruxellesformation.mabback.timing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTimingTest {
+
+    @Test
+    void nestedPhaseIsNotCountedTwice() throws InterruptedException {
+        RequestTiming timing = RequestTiming.begin();
+        RequestTiming.Phase outside = RequestTiming.enter(RequestTiming.Phase.SERIALIZE);
+        Thread.sleep(5);
+        RequestTiming.Phase interrupted = RequestTiming.enter(RequestTiming.Phase.DB);
+        Thread.sleep(20);
+        RequestTiming.exit(interrupted);
+        RequestTiming.exit(outside);
+        RequestTiming.end(timing);
+
+        assertNull(outside);
+        assertEquals(RequestTiming.Phase.SERIALIZE, interrupted);
+        assertTrue(timing.nanos(RequestTiming.Phase.DB) >= 20_000_000L);
+        assertTrue(timing.nanos(RequestTiming.Phase.SERIALIZE) >= 5_000_000L);
+        assertTrue(timing.nanos(RequestTiming.Phase.SERIALIZE) < timing.nanos(RequestTiming.Phase.DB));
+        assertEquals(0, timing.nanos(RequestTiming.Phase.AUTH));
+        assertTrue(timing.nanos(RequestTiming.Phase.SERIALIZE) + timing.nanos(RequestTiming.Phase.DB)
+                <= timing.totalNanos());
+    }
+
+    @Test
+    void headerListsEveryPhaseAndTheTotal() {
+        RequestTiming timing = RequestTiming.begin();
+        RequestTiming.end(timing);
+
+        assertTrue(timing.header().matches(
+                "auth;dur=\\d+\\.\\d, db;dur=\\d+\\.\\d, serialize;dur=\\d+\\.\\d, total;dur=\\d+\\.\\d"));
+    }
+
+    @Test
+    void nothingIsMeasuredOutsideASampledRequest() {
+        assertNull(RequestTiming.enter(RequestTiming.Phase.DB));
+        RequestTiming.exit(null);
+
+        RequestTiming timing = RequestTiming.begin();
+        RequestTiming.end(timing);
+        assertNull(RequestTiming.enter(RequestTiming.Phase.AUTH));
+    }
+}